@@ -13,7 +13,6 @@
 
 package org.linda.trident.abi;
 
-import java.math.BigInteger;
 import java.util.List;
 import org.linda.trident.abi.datatypes.Function;
 import org.linda.trident.abi.datatypes.StaticArray;
@@ -51,7 +50,7 @@ public class DefaultFunctionEncoder extends FunctionEncoder {
 
       if (TypeEncoder.isDynamic(parameter)) {
         final String encodedDataOffset =
-            TypeEncoder.encodeNumeric(new Uint(BigInteger.valueOf(dynamicDataOffset)));
+            TypeEncoder.encodeNumeric(new Uint(0, 0, 0, dynamicDataOffset));
         result.append(encodedDataOffset);
         dynamicData.append(encodedValue);
         dynamicDataOffset += encodedValue.length() >> 1;
@@ -16,6 +16,8 @@ package org.linda.trident.abi;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import org.linda.trident.abi.codec.StructCodec;
+import org.linda.trident.abi.codec.StructCodecs;
 import org.linda.trident.abi.datatypes.Array;
 import org.linda.trident.abi.datatypes.Bytes;
 import org.linda.trident.abi.datatypes.BytesType;
@@ -111,8 +113,12 @@ public class DefaultFunctionReturnDecoder extends FunctionReturnDecoder {
           result =
               TypeDecoder.decodeStaticStruct(
                   input, hexStringDataOffset, typeReference);
+          StructCodec<Type> codec = StructCodecs.find(classType);
           offset +=
-              classType.getDeclaredFields().length * TypeDecoder.MAX_BYTE_LENGTH_FOR_HEX_STRING;
+              codec != null
+                  ? codec.getHeadLength()
+                  : classType.getDeclaredFields().length
+                      * TypeDecoder.MAX_BYTE_LENGTH_FOR_HEX_STRING;
         } else if (StaticArray.class.isAssignableFrom(classType)) {
           int length =
               Integer.parseInt(
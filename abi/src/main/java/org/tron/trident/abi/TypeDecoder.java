@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
+import org.linda.trident.abi.codec.StructCodec;
+import org.linda.trident.abi.codec.StructCodecs;
 import org.linda.trident.abi.datatypes.AbiTypes;
 import org.linda.trident.abi.datatypes.Address;
 import org.linda.trident.abi.datatypes.Array;
@@ -38,9 +40,11 @@ import org.linda.trident.abi.datatypes.Fixed;
 import org.linda.trident.abi.datatypes.FixedPointType;
 import org.linda.trident.abi.datatypes.Int;
 import org.linda.trident.abi.datatypes.IntType;
+import org.linda.trident.abi.datatypes.LazyDynamicArray;
 import org.linda.trident.abi.datatypes.NumericType;
 import org.linda.trident.abi.datatypes.StaticArray;
 import org.linda.trident.abi.datatypes.StaticStruct;
+import org.linda.trident.abi.datatypes.StructType;
 import org.linda.trident.abi.datatypes.Type;
 import org.linda.trident.abi.datatypes.Ufixed;
 import org.linda.trident.abi.datatypes.Uint;
@@ -90,12 +94,16 @@ public class TypeDecoder {
     }
   }
 
+  /**
+   * Decode a value of an elementary type, static or {@code bytes} and {@code string}, at
+   * {@code offset}.
+   */
   @SuppressWarnings("unchecked")
-  static <T extends Type> T decode(String input, int offset, Class<T> type) {
+  public static <T extends Type> T decode(String input, int offset, Class<T> type) {
     if (NumericType.class.isAssignableFrom(type)) {
-      return (T) decodeNumeric(input.substring(offset), (Class<NumericType>) type);
+      return (T) decodeNumeric(input, offset, (Class<NumericType>) type);
     } else if (Address.class.isAssignableFrom(type)) {
-      return (T) decodeAddress(input.substring(offset));
+      return (T) decodeAddress(input, offset);
     } else if (Bool.class.isAssignableFrom(type)) {
       return (T) decodeBool(input, offset);
     } else if (Bytes.class.isAssignableFrom(type)) {
@@ -117,28 +125,42 @@ public class TypeDecoder {
   }
 
   public static Address decodeAddress(String input) {
-    return new Address(decodeNumeric(input, Uint160.class));
+    return decodeAddress(Numeric.cleanHexPrefix(input), 0);
   }
 
-  public static <T extends NumericType> T decodeNumeric(String input, Class<T> type) {
-    try {
-      byte[] inputByteArray = Numeric.hexStringToByteArray(input);
-      int typeLengthAsBytes = getTypeLengthInBytes(type);
+  static Address decodeAddress(String input, int offset) {
+    return new Address(decodeNumeric(input, offset, Uint160.class));
+  }
 
-      byte[] resultByteArray = new byte[typeLengthAsBytes + 1];
+  public static <T extends NumericType> T decodeNumeric(String input, Class<T> type) {
+    return decodeNumeric(Numeric.cleanHexPrefix(input), 0, type);
+  }
 
-      if (Int.class.isAssignableFrom(type) || Fixed.class.isAssignableFrom(type)) {
-        resultByteArray[0] = inputByteArray[0]; // take MSB as sign bit
+  /**
+   * Decode a numeric type from the 32 byte word at {@code offset}. Types with a constructor
+   * taking the four longs of their word, such as the generated {@code Uint<N>} and
+   * {@code Int<N>}, are created without going through {@link BigInteger}.
+   */
+  public static <T extends NumericType> T decodeNumeric(String input, int offset, Class<T> type) {
+    NumericFactory factory = NUMERIC_FACTORIES.get(type);
+    try {
+      if (factory.fromWords != null) {
+        if (offset + MAX_BYTE_LENGTH_FOR_HEX_STRING > input.length()) {
+          throw new StringIndexOutOfBoundsException(
+              "no complete word at " + offset + ", input length " + input.length());
+        }
+        return type.cast(factory.fromWords.newInstance(
+            decodeNumericWord(input, offset, 0, factory.lengthInBytes, factory.signed),
+            decodeNumericWord(input, offset, 1, factory.lengthInBytes, factory.signed),
+            decodeNumericWord(input, offset, 2, factory.lengthInBytes, factory.signed),
+            decodeNumericWord(input, offset, 3, factory.lengthInBytes, factory.signed)));
       }
-
-      int valueOffset = Type.MAX_BYTE_LENGTH - typeLengthAsBytes;
-      System.arraycopy(inputByteArray, valueOffset, resultByteArray, 1, typeLengthAsBytes);
-
-      BigInteger numericValue = new BigInteger(resultByteArray);
-      return type.getConstructor(BigInteger.class).newInstance(numericValue);
-
+      if (factory.fromValue == null) {
+        throw new NoSuchMethodException(type.getName() + ".<init>(java.math.BigInteger)");
+      }
+      return type.cast(factory.fromValue.newInstance(
+          decodeNumericValue(input, offset, factory.lengthInBytes, factory.signed)));
     } catch (NoSuchMethodException
-             | SecurityException
              | InstantiationException
              | IllegalAccessException
              | IllegalArgumentException
@@ -148,6 +170,84 @@ public class TypeDecoder {
     }
   }
 
+  /**
+   * Decode one long of the 256-bit two's complement value of a numeric type from the 32 byte
+   * word at {@code offset}, keeping its {@code typeLengthInBytes} low order bytes as
+   * {@link #decodeNumericValue(String, int, int, boolean)} does.
+   *
+   * @param index 0 for the most significant long to 3 for the least significant
+   * @param signed whether the most significant bit of the word is a sign bit
+   */
+  public static long decodeNumericWord(
+      String input, int offset, int index, int typeLengthInBytes, boolean signed) {
+    long fill = signed && Character.digit(input.charAt(offset), 16) >= 8 ? -1L : 0L;
+    int lowBit = (3 - index) << 6;
+    int bits = typeLengthInBytes << 3;
+    if (bits <= lowBit) {
+      return fill;
+    }
+    long word = 0;
+    for (int i = offset + (index << 4), end = i + 16; i < end; i++) {
+      int digit = Character.digit(input.charAt(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid hex character at " + i);
+      }
+      word = word << 4 | digit;
+    }
+    if (bits >= lowBit + 64) {
+      return word;
+    }
+    long mask = (1L << (bits - lowBit)) - 1;
+    return word & mask | fill & ~mask;
+  }
+
+  /**
+   * Decode the value of a numeric type from the 32 byte word at {@code offset} as a long,
+   * without creating the type.
+   *
+   * @throws ArithmeticException if the value does not fit in a long
+   */
+  public static long decodeNumericLong(
+      String input, int offset, Class<? extends NumericType> type) {
+    NumericFactory factory = NUMERIC_FACTORIES.get(type);
+    long word3 = decodeNumericWord(input, offset, 3, factory.lengthInBytes, factory.signed);
+    long sign = factory.signed ? word3 >> 63 : 0L;
+    for (int index = 0; index < 3; index++) {
+      if (decodeNumericWord(input, offset, index, factory.lengthInBytes, factory.signed)
+          != sign) {
+        throw new ArithmeticException(type.getSimpleName() + " value out of long range");
+      }
+    }
+    if (!factory.signed && word3 < 0) {
+      throw new ArithmeticException(type.getSimpleName() + " value out of long range");
+    }
+    return word3;
+  }
+
+  /**
+   * Decode the value of a numeric type from the 32 byte word at {@code offset}, keeping its
+   * {@code typeLengthInBytes} low order bytes.
+   *
+   * @param signed whether the most significant bit of the word is a sign bit
+   */
+  public static BigInteger decodeNumericValue(
+      String input, int offset, int typeLengthInBytes, boolean signed) {
+    byte[] inputByteArray =
+        Numeric.hexStringToByteArray(
+            input.substring(offset, offset + MAX_BYTE_LENGTH_FOR_HEX_STRING));
+
+    byte[] resultByteArray = new byte[typeLengthInBytes + 1];
+
+    if (signed) {
+      resultByteArray[0] = inputByteArray[0]; // take MSB as sign bit
+    }
+
+    int valueOffset = Type.MAX_BYTE_LENGTH - typeLengthInBytes;
+    System.arraycopy(inputByteArray, valueOffset, resultByteArray, 1, typeLengthInBytes);
+
+    return new BigInteger(resultByteArray);
+  }
+
   static <T extends NumericType> int getTypeLengthInBytes(Class<T> type) {
     return getTypeLength(type) >> 3; // divide by 8
   }
@@ -171,6 +271,41 @@ public class TypeDecoder {
     return Type.MAX_BIT_LENGTH;
   }
 
+  private static final ClassValue<NumericFactory> NUMERIC_FACTORIES =
+      new ClassValue<NumericFactory>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected NumericFactory computeValue(Class<?> type) {
+          return new NumericFactory((Class<? extends NumericType>) type);
+        }
+      };
+
+  /**
+   * Constructors, length and signedness of a numeric type, looked up once per class.
+   */
+  private static final class NumericFactory {
+
+    private final Constructor<?> fromValue;
+    private final Constructor<?> fromWords;
+    private final int lengthInBytes;
+    private final boolean signed;
+
+    private NumericFactory(Class<? extends NumericType> type) {
+      this.fromValue = constructor(type, BigInteger.class);
+      this.fromWords = constructor(type, long.class, long.class, long.class, long.class);
+      this.lengthInBytes = getTypeLengthInBytes(type);
+      this.signed = Int.class.isAssignableFrom(type) || Fixed.class.isAssignableFrom(type);
+    }
+
+    private static Constructor<?> constructor(Class<?> type, Class<?>... parameterTypes) {
+      try {
+        return type.getConstructor(parameterTypes);
+      } catch (NoSuchMethodException | SecurityException e) {
+        return null;
+      }
+    }
+  }
+
   static Type instantiateArrayType(TypeReference ref, Object value)
       throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
       InstantiationException, ClassNotFoundException {
@@ -263,8 +398,7 @@ public class TypeDecoder {
   }
 
   static int decodeUintAsInt(String rawInput, int offset) {
-    String input = rawInput.substring(offset, offset + MAX_BYTE_LENGTH_FOR_HEX_STRING);
-    return decode(input, 0, Uint.class).getValue().intValue();
+    return (int) decodeNumericWord(rawInput, offset, 3, Type.MAX_BYTE_LENGTH, false);
   }
 
   public static Bool decodeBool(String rawInput, int offset) {
@@ -283,10 +417,8 @@ public class TypeDecoder {
       String simpleName = type.getSimpleName();
       String[] splitName = simpleName.split(Bytes.class.getSimpleName());
       int length = Integer.parseInt(splitName[1]);
-      int hexStringLength = length << 1;
 
-      byte[] bytes =
-          Numeric.hexStringToByteArray(input.substring(offset, offset + hexStringLength));
+      byte[] bytes = decodeBytesValue(input, offset, length);
       return type.getConstructor(byte[].class).newInstance(bytes);
     } catch (NoSuchMethodException
              | SecurityException
@@ -299,6 +431,14 @@ public class TypeDecoder {
     }
   }
 
+  /**
+   * Decode the {@code length} leading bytes of the word at {@code offset}, the value of a
+   * {@code bytes<length>} type.
+   */
+  public static byte[] decodeBytesValue(String input, int offset, int length) {
+    return Numeric.hexStringToByteArray(input.substring(offset, offset + (length << 1)));
+  }
+
   public static DynamicBytes decodeDynamicBytes(String input, int offset) {
     int encodedLength = decodeUintAsInt(input, offset);
     int hexStringEncodedLength = encodedLength << 1;
@@ -340,6 +480,10 @@ public class TypeDecoder {
 
   public static <T extends Type> T decodeStaticStruct(
       final String input, final int offset, final TypeReference<T> typeReference) {
+    StructCodec<T> codec = findStructCodec(typeReference);
+    if (codec != null) {
+      return codec.decode(input, offset);
+    }
     BiFunction<List<T>, String, T> function =
         (elements, typeName) -> {
           if (elements.isEmpty()) {
@@ -434,6 +578,13 @@ public class TypeDecoder {
   public static <T extends Type> T decodeDynamicArray(
       String input, int offset, TypeReference<T> typeReference) {
 
+    java.lang.reflect.Type reflectedType = typeReference.getType();
+    if (reflectedType instanceof ParameterizedType
+        && LazyDynamicArray.class.isAssignableFrom(
+            (Class<?>) ((ParameterizedType) reflectedType).getRawType())) {
+      return (T) decodeLazyDynamicArray(input, offset, (TypeReference) typeReference);
+    }
+
     int length = decodeUintAsInt(input, offset);
 
     BiFunction<List<T>, String, T> function =
@@ -444,8 +595,53 @@ public class TypeDecoder {
     return decodeArrayElements(input, valueOffset, typeReference, length, function);
   }
 
+  /**
+   * Decode a dynamic array of elementary types at {@code offset} as a {@link LazyDynamicArray},
+   * which records where its elements are and decodes them on access. Only the length words of
+   * {@code bytes} and {@code string} elements are read here.
+   */
+  public static <T extends Type> LazyDynamicArray<T> decodeLazyDynamicArray(
+      String input, int offset, TypeReference<? extends DynamicArray<T>> typeReference) {
+    Class<T> cls;
+    try {
+      cls = Utils.getParameterizedTypeFromArray(typeReference);
+    } catch (ClassNotFoundException e) {
+      throw new UnsupportedOperationException(
+          "Unable to access parameterized type " + typeReference.getType().getTypeName(),
+          e);
+    }
+    if (Array.class.isAssignableFrom(cls) || StructType.class.isAssignableFrom(cls)) {
+      throw new UnsupportedOperationException(
+          "Lazy arrays of " + cls.getSimpleName() + " are not supported");
+    }
+
+    int length = decodeUintAsInt(input, offset);
+    int valueOffset = offset + MAX_BYTE_LENGTH_FOR_HEX_STRING;
+
+    if (!DynamicBytes.class.isAssignableFrom(cls) && !Utf8String.class.isAssignableFrom(cls)) {
+      if ((long) length * MAX_BYTE_LENGTH_FOR_HEX_STRING > input.length() - valueOffset) {
+        throw new StringIndexOutOfBoundsException(
+            "no " + length + " words at " + valueOffset + ", input length " + input.length());
+      }
+      return new LazyDynamicArray<>(cls, input, valueOffset, length);
+    }
+    int[] offsets = new int[length];
+    for (int i = 0, currOffset = valueOffset;
+        i < length;
+        i++,
+            currOffset +=
+                getSingleElementLength(input, currOffset, cls) * MAX_BYTE_LENGTH_FOR_HEX_STRING) {
+      offsets[i] = currOffset;
+    }
+    return new LazyDynamicArray<>(cls, input, offsets);
+  }
+
   public static <T extends Type> T decodeDynamicStruct(
       String input, int offset, TypeReference<T> typeReference) {
+    StructCodec<T> codec = findStructCodec(typeReference);
+    if (codec != null) {
+      return codec.decode(input, offset);
+    }
 
     BiFunction<List<T>, String, T> function =
         (elements, typeName) -> {
@@ -460,6 +656,15 @@ public class TypeDecoder {
     return decodeDynamicStructElements(input, offset, typeReference, function);
   }
 
+  /**
+   * The generated codec of a struct type, or null to decode it reflectively.
+   */
+  private static <T extends Type> StructCodec<T> findStructCodec(
+      TypeReference<T> typeReference) {
+    java.lang.reflect.Type type = typeReference.getType();
+    return type instanceof Class ? StructCodecs.find((Class<?>) type) : null;
+  }
+
   private static <T extends Type> T decodeDynamicStructElements(
       final String input,
       final int offset,
@@ -573,7 +778,15 @@ public class TypeDecoder {
   }
 
   private static int decodeDynamicStructDynamicParameterOffset(final String input) {
-    return (decodeUintAsInt(input, 0) * 2) + 64;
+    return decodeDynamicStructDataOffset(input, 0);
+  }
+
+  /**
+   * Position in {@code input} of the data of a dynamic struct member, from its offset in the
+   * word at {@code offset} of the struct head.
+   */
+  public static int decodeDynamicStructDataOffset(final String input, final int offset) {
+    return (decodeUintAsInt(input, offset) * 2) + 64;
   }
 
   static <T extends Type> boolean isDynamic(Class<T> parameter) {
@@ -13,13 +13,13 @@
 
 package org.linda.trident.abi;
 
-import static org.linda.trident.abi.datatypes.Type.MAX_BIT_LENGTH;
 import static org.linda.trident.abi.datatypes.Type.MAX_BYTE_LENGTH;
 
-import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import org.linda.trident.abi.codec.StructCodec;
+import org.linda.trident.abi.codec.StructCodecs;
 import org.linda.trident.abi.datatypes.Address;
 import org.linda.trident.abi.datatypes.Array;
 import org.linda.trident.abi.datatypes.Bool;
@@ -30,8 +30,8 @@ import org.linda.trident.abi.datatypes.DynamicBytes;
 import org.linda.trident.abi.datatypes.DynamicStruct;
 import org.linda.trident.abi.datatypes.NumericType;
 import org.linda.trident.abi.datatypes.StaticArray;
+import org.linda.trident.abi.datatypes.StructType;
 import org.linda.trident.abi.datatypes.Type;
-import org.linda.trident.abi.datatypes.Ufixed;
 import org.linda.trident.abi.datatypes.Uint;
 import org.linda.trident.abi.datatypes.Utf8String;
 import org.linda.trident.abi.datatypes.primitive.PrimitiveType;
@@ -54,6 +54,12 @@ public class TypeEncoder {
 
   @SuppressWarnings("unchecked")
   public static String encode(Type parameter) {
+    if (parameter instanceof StructType) {
+      StructCodec<Type> codec = StructCodecs.find(parameter.getClass());
+      if (codec != null) {
+        return codec.encode(parameter);
+      }
+    }
     if (parameter instanceof NumericType) {
       return encodeNumeric(((NumericType) parameter));
     } else if (parameter instanceof Address) {
@@ -85,41 +91,9 @@ public class TypeEncoder {
   }
 
   static String encodeNumeric(NumericType numericType) {
-    byte[] rawValue = toByteArray(numericType);
-    byte paddingValue = getPaddingValue(numericType);
-    byte[] paddedRawValue = new byte[MAX_BYTE_LENGTH];
-    if (paddingValue != 0) {
-      for (int i = 0; i < paddedRawValue.length; i++) {
-        paddedRawValue[i] = paddingValue;
-      }
-    }
-
-    System.arraycopy(
-        rawValue, 0, paddedRawValue, MAX_BYTE_LENGTH - rawValue.length, rawValue.length);
-    return Numeric.toHexStringNoPrefix(paddedRawValue);
-  }
-
-  private static byte getPaddingValue(NumericType numericType) {
-    if (numericType.getValue().signum() == -1) {
-      return (byte) 0xff;
-    } else {
-      return 0;
-    }
-  }
-
-  private static byte[] toByteArray(NumericType numericType) {
-    BigInteger value = numericType.getValue();
-    if (numericType instanceof Ufixed || numericType instanceof Uint) {
-      if (value.bitLength() == MAX_BIT_LENGTH) {
-        // As BigInteger is signed, if we have a 256 bit value, the resultant byte array
-        // will contain a sign byte in it's MSB, which we should ignore for this unsigned
-        // integer type.
-        byte[] byteArray = new byte[MAX_BYTE_LENGTH];
-        System.arraycopy(value.toByteArray(), 1, byteArray, 0, MAX_BYTE_LENGTH);
-        return byteArray;
-      }
-    }
-    return value.toByteArray();
+    byte[] word = new byte[MAX_BYTE_LENGTH];
+    numericType.writeTo(word, 0);
+    return Numeric.toHexStringNoPrefix(word);
   }
 
   static String encodeBool(Bool value) {
@@ -148,7 +122,7 @@ public class TypeEncoder {
 
   static String encodeDynamicBytes(DynamicBytes dynamicBytes) {
     int size = dynamicBytes.getValue().length;
-    String encodedLength = encode(new Uint(BigInteger.valueOf(size)));
+    String encodedLength = encodeNumeric(new Uint(0, 0, 0, size));
     String encodedValue = encodeBytes(dynamicBytes);
 
     StringBuilder result = new StringBuilder();
@@ -194,11 +168,7 @@ public class TypeEncoder {
     for (int i = 0; i < value.getValue().size(); ++i) {
       final Type type = value.getValue().get(i);
       if (isDynamic(type)) {
-        offsetsAndStaticValues.add(
-            Numeric.toHexStringNoPrefix(
-                Numeric.toBytesPadded(
-                    new BigInteger(Long.toString(dynamicOffset)),
-                    MAX_BYTE_LENGTH)));
+        offsetsAndStaticValues.add(encodeNumeric(new Uint(0, 0, 0, dynamicOffset)));
         dynamicValues.add(encode(type));
         dynamicOffset += type.bytes32PaddedLength();
       } else {
@@ -213,7 +183,7 @@ public class TypeEncoder {
 
   static <T extends Type> String encodeDynamicArray(DynamicArray<T> value) {
     int size = value.getValue().size();
-    String encodedLength = encode(new Uint(BigInteger.valueOf(size)));
+    String encodedLength = encodeNumeric(new Uint(0, 0, 0, size));
     String valuesOffsets = encodeArrayValuesOffsets(value);
     String encodedValues = encodeArrayValues(value);
 
@@ -244,10 +214,7 @@ public class TypeEncoder {
           int totalBytesLength = numberOfWords * MAX_BYTE_LENGTH;
           offset += totalBytesLength + MAX_BYTE_LENGTH;
         }
-        result.append(
-            Numeric.toHexStringNoPrefix(
-                Numeric.toBytesPadded(
-                    new BigInteger(Long.toString(offset)), MAX_BYTE_LENGTH)));
+        result.append(encodeNumeric(new Uint(0, 0, 0, offset)));
       }
     }
     return result.toString();
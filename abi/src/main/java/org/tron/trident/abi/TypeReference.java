@@ -92,6 +92,8 @@ public abstract class TypeReference<T extends org.linda.trident.abi.datatypes.Ty
 
     if (getType() instanceof ParameterizedType) {
       return (Class<T>) ((ParameterizedType) clsType).getRawType();
+    } else if (clsType instanceof Class) {
+      return (Class<T>) clsType;
     } else {
       return (Class<T>) Class.forName(clsType.getTypeName());
     }
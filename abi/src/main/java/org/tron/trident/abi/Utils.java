@@ -75,7 +75,7 @@ public class Utils {
       TypeReference<T> typeReference, Class<?> type) {
 
     try {
-      if (type.equals(DynamicArray.class)) {
+      if (DynamicArray.class.isAssignableFrom(type)) {
         Class<U> parameterizedType = getParameterizedTypeFromArray(typeReference);
         String parameterizedTypeName = getSimpleTypeName(parameterizedType);
         return parameterizedTypeName + "[]";
@@ -0,0 +1,30 @@
+package org.linda.trident.abi.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link org.linda.trident.abi.datatypes.StaticStruct} or
+ * {@link org.linda.trident.abi.datatypes.DynamicStruct} subclass for which
+ * {@link StructCodecProcessor} generates a {@link StructCodec} at compile time.
+ *
+ * <p>The codec decodes into the constructor whose parameters all extend
+ * {@link org.linda.trident.abi.datatypes.Type}, the one the reflective decoder uses, with the
+ * field offsets computed by the processor. Structs without a generated codec are still encoded
+ * and decoded reflectively.</p>
+ *
+ * <p>The processor ships in the abi artifact but is not registered as a service, so it never
+ * runs unless named: pass {@code -processor org.linda.trident.abi.codec.StructCodecProcessor}
+ * to javac, e.g. with an {@code annotationProcessors} entry of maven-compiler-plugin, or with
+ * {@code options.compilerArgs} in Gradle. Naming a processor turns off the discovery of the
+ * others, such as Lombok's, so name them as well.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface AbiStruct {
+
+}
@@ -0,0 +1,29 @@
+package org.linda.trident.abi.codec;
+
+/**
+ * Encoder and decoder of one struct type, generated by {@link StructCodecProcessor} for classes
+ * annotated with {@link AbiStruct}.
+ *
+ * @param <T> the struct type
+ */
+public interface StructCodec<T> {
+
+  /**
+   * Decode the struct whose encoding starts at {@code offset}.
+   *
+   * @param input hex encoded data without prefix
+   * @param offset position of the struct head in {@code input}, in hex characters
+   */
+  T decode(String input, int offset);
+
+  /**
+   * ABI encoding of {@code value}, hex without prefix.
+   */
+  String encode(T value);
+
+  /**
+   * Hex characters taken by the struct in the head of an enclosing tuple: its whole encoding
+   * if static, the offset word if dynamic.
+   */
+  int getHeadLength();
+}
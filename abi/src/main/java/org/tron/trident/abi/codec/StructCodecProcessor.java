@@ -0,0 +1,432 @@
+package org.linda.trident.abi.codec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@link StructCodec} for each class annotated with {@link AbiStruct}.
+ *
+ * <p>The generated codec reads each member at an offset computed here and calls the struct
+ * constructor directly, where the reflective decoder looks the constructor up and inspects its
+ * parameter types on every call. Member types the reflective decoder cannot decode either,
+ * such as arrays, are compile errors.</p>
+ */
+@SupportedAnnotationTypes("org.linda.trident.abi.codec.AbiStruct")
+public class StructCodecProcessor extends AbstractProcessor {
+
+  private static final String DATATYPES = "org.linda.trident.abi.datatypes.";
+  private static final String TYPE = DATATYPES + "Type";
+  private static final String TYPE_DECODER = "org.linda.trident.abi.TypeDecoder";
+  private static final String TYPE_ENCODER = "org.linda.trident.abi.TypeEncoder";
+  private static final String TYPE_REFERENCE = "org.linda.trident.abi.TypeReference";
+  private static final int WORD_LENGTH = 64;
+
+  private enum Kind {
+    NUMERIC, ADDRESS, BOOL, BYTES, STATIC_STRUCT, DYNAMIC_BYTES, STRING, DYNAMIC_STRUCT;
+
+    boolean isDynamic() {
+      return this == DYNAMIC_BYTES || this == STRING || this == DYNAMIC_STRUCT;
+    }
+  }
+
+  private static final class Member {
+
+    private final Kind kind;
+    private final String typeName;
+    private final int headLength;
+    private int byteLength;
+    private boolean signed;
+    private boolean fromWords;
+    private String codec;
+
+    private Member(Kind kind, String typeName, int headLength) {
+      this.kind = kind;
+      this.typeName = typeName;
+      this.headLength = headLength;
+    }
+  }
+
+  private static final class InvalidStructException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Element element;
+
+    private InvalidStructException(String message, Element element) {
+      super(message);
+      this.element = element;
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(AbiStruct.class)) {
+      try {
+        generate(checkStruct(element));
+      } catch (InvalidStructException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(),
+            e.element);
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Unable to write struct codec: " + e.getMessage(), element);
+      }
+    }
+    return true;
+  }
+
+  private TypeElement checkStruct(Element element) throws InvalidStructException {
+    if (element.getKind() != ElementKind.CLASS) {
+      throw new InvalidStructException("@AbiStruct only applies to classes", element);
+    }
+    TypeElement struct = (TypeElement) element;
+    if (struct.getModifiers().contains(Modifier.ABSTRACT)
+        || !struct.getTypeParameters().isEmpty()) {
+      throw new InvalidStructException("@AbiStruct class must be concrete and not generic",
+          element);
+    }
+    for (Element e = struct; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      TypeElement type = (TypeElement) e;
+      if (type.getModifiers().contains(Modifier.PRIVATE)
+          || type.getNestingKind() == NestingKind.MEMBER
+          && !type.getModifiers().contains(Modifier.STATIC)
+          || type.getNestingKind().compareTo(NestingKind.MEMBER) > 0) {
+        throw new InvalidStructException(
+            "@AbiStruct class must be a top level or static nested class, not private", element);
+      }
+    }
+    if (!isSubtype(struct.asType(), DATATYPES + "StaticStruct")
+        && !isSubtype(struct.asType(), DATATYPES + "DynamicStruct")) {
+      throw new InvalidStructException(
+          "@AbiStruct class must extend StaticStruct or DynamicStruct", element);
+    }
+    return struct;
+  }
+
+  private void generate(TypeElement struct) throws InvalidStructException, IOException {
+    boolean dynamic = isSubtype(struct.asType(), DATATYPES + "DynamicStruct");
+    ExecutableElement constructor = structConstructor(struct);
+    List<Member> members = new ArrayList<>();
+    int staticLength = 0;
+    for (VariableElement parameter : constructor.getParameters()) {
+      Member member = member(parameter.asType(), parameter);
+      if (!dynamic && member.kind.isDynamic()) {
+        throw new InvalidStructException(
+            "StaticStruct member must have a static type: " + member.typeName, parameter);
+      }
+      members.add(member);
+      staticLength += member.headLength;
+    }
+
+    String codecName = StructCodecs.codecName(
+        processingEnv.getElementUtils().getBinaryName(struct).toString());
+    int dot = codecName.lastIndexOf('.');
+    String structName = struct.getQualifiedName().toString();
+    String simpleName = codecName.substring(dot + 1);
+
+    StringBuilder src = new StringBuilder();
+    if (dot > 0) {
+      src.append("package ").append(codecName, 0, dot).append(";\n\n");
+    }
+    src.append("// Generated by ").append(StructCodecProcessor.class.getName())
+        .append(", do not edit.\n")
+        .append("public final class ").append(simpleName)
+        .append(" implements org.linda.trident.abi.codec.StructCodec<").append(structName)
+        .append("> {\n\n")
+        .append("  public static final ").append(simpleName).append(" INSTANCE = new ")
+        .append(simpleName).append("();\n\n")
+        .append("  private static final int STATIC_LENGTH = ").append(staticLength).append(";\n");
+    for (int i = 0; i < members.size(); i++) {
+      Member member = members.get(i);
+      if ((member.kind == Kind.STATIC_STRUCT || member.kind == Kind.DYNAMIC_STRUCT)
+          && member.codec == null) {
+        src.append("\n  private static final ").append(TYPE_REFERENCE).append('<')
+            .append(member.typeName).append("> MEMBER_").append(i).append(" =\n      ")
+            .append(TYPE_REFERENCE).append(".create(").append(member.typeName)
+            .append(".class);\n");
+      }
+    }
+    src.append("\n  private ").append(simpleName).append("() {\n  }\n");
+    appendDecode(src, structName, members);
+    appendEncode(src, structName, members);
+    src.append("\n  @Override\n  public int getHeadLength() {\n    return ")
+        .append(dynamic ? String.valueOf(WORD_LENGTH) : "STATIC_LENGTH").append(";\n  }\n}\n");
+
+    try (Writer writer =
+        processingEnv.getFiler().createSourceFile(codecName, struct).openWriter()) {
+      writer.write(src.toString());
+    }
+  }
+
+  private void appendDecode(StringBuilder src, String structName, List<Member> members) {
+    src.append("\n  @Override\n  public ").append(structName)
+        .append(" decode(String input, int offset) {\n");
+    int head = 0;
+    List<Integer> dynamicMembers = new ArrayList<>();
+    for (int i = 0; i < members.size(); i++) {
+      Member member = members.get(i);
+      String at = "offset + " + head;
+      if (member.kind.isDynamic()) {
+        // the only member of a struct has no offset word, as in the reflective decoder
+        src.append("    int data").append(i).append(" = ")
+            .append(members.size() == 1 ? "offset"
+                : TYPE_DECODER + ".decodeDynamicStructDataOffset(input, " + at + ")")
+            .append(";\n");
+        dynamicMembers.add(i);
+      } else {
+        src.append("    ").append(member.typeName).append(" member").append(i).append(" = ")
+            .append(decodeStatic(member, i, at)).append(";\n");
+      }
+      head += member.headLength;
+    }
+    for (int k = 0; k < dynamicMembers.size(); k++) {
+      int i = dynamicMembers.get(k);
+      Member member = members.get(i);
+      String data = "data" + i;
+      String end = k + 1 < dynamicMembers.size()
+          ? "data" + dynamicMembers.get(k + 1) : "input.length()";
+      src.append("    ").append(member.typeName).append(" member").append(i).append(" = ");
+      if (member.kind == Kind.STRING) {
+        src.append(TYPE_DECODER).append(".decodeUtf8String(input, ").append(data).append(")");
+      } else if (member.kind == Kind.DYNAMIC_BYTES) {
+        src.append(TYPE_DECODER).append(".decodeDynamicBytes(input, ").append(data).append(")");
+      } else {
+        // nested dynamic structs resolve their offsets against their own data
+        String nested = "input.substring(" + data + ", " + end + ")";
+        src.append(member.codec != null
+            ? member.codec + ".INSTANCE.decode(" + nested + ", " + WORD_LENGTH + ")"
+            : TYPE_DECODER + ".decodeDynamicStruct(" + nested + ", " + WORD_LENGTH
+                + ", MEMBER_" + i + ")");
+      }
+      src.append(";\n");
+    }
+    src.append("    return new ").append(structName).append('(');
+    for (int i = 0; i < members.size(); i++) {
+      src.append(i > 0 ? ", " : "").append("member").append(i);
+    }
+    src.append(");\n  }\n");
+  }
+
+  private String decodeStatic(Member member, int index, String at) {
+    switch (member.kind) {
+      case NUMERIC:
+        if (member.fromWords) {
+          return "new " + member.typeName + "("
+              + decodeWords(at, member.byteLength, member.signed) + ")";
+        }
+        return "new " + member.typeName + "(" + TYPE_DECODER + ".decodeNumericValue(input, "
+            + at + ", " + member.byteLength + ", " + member.signed + "))";
+      case ADDRESS:
+        return "new " + member.typeName + "(new " + DATATYPES + "generated.Uint160("
+            + decodeWords(at, 20, false) + "))";
+      case BOOL:
+        return TYPE_DECODER + ".decodeBool(input, " + at + ")";
+      case BYTES:
+        return "new " + member.typeName + "(" + TYPE_DECODER + ".decodeBytesValue(input, "
+            + at + ", " + member.byteLength + "))";
+      case STATIC_STRUCT:
+        return member.codec != null
+            ? member.codec + ".INSTANCE.decode(input, " + at + ")"
+            : TYPE_DECODER + ".decodeStaticStruct(input.substring(" + at + ", " + at + " + "
+                + member.headLength + "), 0, MEMBER_" + index + ")";
+      default:
+        throw new IllegalStateException("Not a static member: " + member.kind);
+    }
+  }
+
+  /**
+   * Arguments of a constructor taking the four longs of a numeric word.
+   */
+  private static String decodeWords(String at, int byteLength, boolean signed) {
+    StringBuilder words = new StringBuilder();
+    for (int i = 0; i < 4; i++) {
+      words.append(i > 0 ? ",\n        " : "\n        ").append(TYPE_DECODER)
+          .append(".decodeNumericWord(input, ").append(at).append(", ").append(i).append(", ")
+          .append(byteLength).append(", ").append(signed).append(')');
+    }
+    return words.toString();
+  }
+
+  private void appendEncode(StringBuilder src, String structName, List<Member> members) {
+    boolean hasDynamicMember = members.stream().anyMatch(m -> m.kind.isDynamic());
+    src.append("\n  @Override\n  public String encode(").append(structName)
+        .append(" value) {\n")
+        .append("    java.util.List<").append(TYPE).append("> values = value.getValue();\n")
+        .append("    StringBuilder head = new StringBuilder(STATIC_LENGTH);\n");
+    if (hasDynamicMember) {
+      src.append("    StringBuilder tail = new StringBuilder();\n")
+          .append("    int dataOffset = STATIC_LENGTH / 2;\n");
+    }
+    for (int i = 0; i < members.size(); i++) {
+      if (!members.get(i).kind.isDynamic()) {
+        src.append("    head.append(").append(TYPE_ENCODER).append(".encode(values.get(")
+            .append(i).append(")));\n");
+        continue;
+      }
+      src.append("    ").append(TYPE).append(" value").append(i).append(" = values.get(")
+          .append(i).append(");\n")
+          .append("    head.append(").append(TYPE_ENCODER).append(".encode(new ")
+          .append(DATATYPES).append("Uint(java.math.BigInteger.valueOf(dataOffset))));\n")
+          .append("    tail.append(").append(TYPE_ENCODER).append(".encode(value").append(i)
+          .append("));\n")
+          .append("    dataOffset += value").append(i).append(".bytes32PaddedLength();\n");
+    }
+    src.append(hasDynamicMember
+        ? "    return head.append(tail).toString();\n" : "    return head.toString();\n")
+        .append("  }\n");
+  }
+
+  /**
+   * The first constructor whose parameters all extend Type, as picked by the reflective
+   * decoder.
+   */
+  private ExecutableElement structConstructor(TypeElement struct) throws InvalidStructException {
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(struct.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty()) {
+        continue;
+      }
+      boolean allTypes = true;
+      for (VariableElement parameter : constructor.getParameters()) {
+        allTypes &= isSubtype(parameter.asType(), TYPE);
+      }
+      if (allTypes) {
+        if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+          throw new InvalidStructException(
+              "Struct constructor with Type parameters must not be private", constructor);
+        }
+        return constructor;
+      }
+    }
+    throw new InvalidStructException(
+        "Struct must have a constructor whose parameters all extend Type", struct);
+  }
+
+  private Member member(TypeMirror type, Element at) throws InvalidStructException {
+    if (type.getKind() != TypeKind.DECLARED) {
+      throw new InvalidStructException("Unsupported struct member type " + type, at);
+    }
+    TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+    String name = element.getQualifiedName().toString();
+    String simpleName = element.getSimpleName().toString();
+
+    if (isSubtype(type, DATATYPES + "StaticStruct")) {
+      int length = 0;
+      for (VariableElement parameter : structConstructor(element).getParameters()) {
+        Member nested = member(parameter.asType(), at);
+        if (nested.kind.isDynamic()) {
+          throw new InvalidStructException(
+              "StaticStruct member must have a static type: " + nested.typeName, at);
+        }
+        length += nested.headLength;
+      }
+      Member member = new Member(Kind.STATIC_STRUCT, name, length);
+      member.codec = codecOf(element);
+      return member;
+    } else if (isSubtype(type, DATATYPES + "DynamicStruct")) {
+      Member member = new Member(Kind.DYNAMIC_STRUCT, name, WORD_LENGTH);
+      member.codec = codecOf(element);
+      return member;
+    } else if (isSubtype(type, DATATYPES + "Array")) {
+      throw new InvalidStructException("Array struct members are not supported: " + name, at);
+    } else if (isSubtype(type, DATATYPES + "Utf8String")) {
+      return new Member(Kind.STRING, name, WORD_LENGTH);
+    } else if (isSubtype(type, DATATYPES + "DynamicBytes")) {
+      return new Member(Kind.DYNAMIC_BYTES, name, WORD_LENGTH);
+    } else if (name.equals(DATATYPES + "Address")) {
+      return new Member(Kind.ADDRESS, name, WORD_LENGTH);
+    } else if (name.equals(DATATYPES + "Bool")) {
+      return new Member(Kind.BOOL, name, WORD_LENGTH);
+    } else if (isSubtype(type, DATATYPES + "Bytes") && simpleName.matches("Bytes\\d+")) {
+      Member member = new Member(Kind.BYTES, name, WORD_LENGTH);
+      member.byteLength = Integer.parseInt(simpleName.substring("Bytes".length()));
+      return member;
+    } else if (isSubtype(type, DATATYPES + "NumericType")
+        && hasConstructor(element, "java.math.BigInteger")) {
+      Member member = new Member(Kind.NUMERIC, name, WORD_LENGTH);
+      member.fromWords = hasConstructor(element, "long", "long", "long", "long");
+      member.byteLength = typeLength(type, simpleName) >> 3;
+      member.signed = isSubtype(type, DATATYPES + "Int") || isSubtype(type, DATATYPES + "Fixed");
+      return member;
+    }
+    throw new InvalidStructException("Unsupported struct member type " + name, at);
+  }
+
+  /**
+   * Bit length of a numeric type from its name, as TypeDecoder#getTypeLength.
+   */
+  private int typeLength(TypeMirror type, String simpleName) {
+    if (isSubtype(type, DATATYPES + "IntType")) {
+      String[] splitName = simpleName.split("(Uint|Int)");
+      if (splitName.length == 2) {
+        return Integer.parseInt(splitName[1]);
+      }
+    } else if (isSubtype(type, DATATYPES + "FixedPointType")) {
+      String[] splitName = simpleName.split("(Ufixed|Fixed)");
+      if (splitName.length == 2) {
+        String[] bitsCounts = splitName[1].split("x");
+        return Integer.parseInt(bitsCounts[0]) + Integer.parseInt(bitsCounts[1]);
+      }
+    }
+    return 256;
+  }
+
+  private boolean hasConstructor(TypeElement element, String... parameterTypes) {
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(element.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PUBLIC)
+          || constructor.getParameters().size() != parameterTypes.length) {
+        continue;
+      }
+      boolean matches = true;
+      for (int i = 0; i < parameterTypes.length; i++) {
+        matches &= constructor.getParameters().get(i).asType().toString()
+            .equals(parameterTypes[i]);
+      }
+      if (matches) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Name of the generated codec of a nested struct, or null to go through TypeDecoder.
+   */
+  private String codecOf(TypeElement struct) {
+    if (struct.getAnnotation(AbiStruct.class) == null) {
+      return null;
+    }
+    return StructCodecs.codecName(
+        processingEnv.getElementUtils().getBinaryName(struct).toString());
+  }
+
+  private boolean isSubtype(TypeMirror type, String className) {
+    TypeElement element = processingEnv.getElementUtils().getTypeElement(className);
+    return element != null && processingEnv.getTypeUtils().isSubtype(
+        processingEnv.getTypeUtils().erasure(type),
+        processingEnv.getTypeUtils().erasure(element.asType()));
+  }
+}
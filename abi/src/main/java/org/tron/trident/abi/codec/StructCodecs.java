@@ -0,0 +1,64 @@
+package org.linda.trident.abi.codec;
+
+import java.util.Optional;
+import org.linda.trident.abi.datatypes.Type;
+
+/**
+ * Lookup of generated struct codecs.
+ *
+ * <p>The codec of {@code com.example.Outer$Inner} is {@code com.example.Outer_InnerAbiCodec},
+ * loaded once per struct class from the class loader of the struct.</p>
+ */
+public final class StructCodecs {
+
+  static final String SUFFIX = "AbiCodec";
+
+  static final String INSTANCE_FIELD = "INSTANCE";
+
+  private static final ClassValue<Optional<StructCodec<?>>> CODECS =
+      new ClassValue<Optional<StructCodec<?>>>() {
+        @Override
+        protected Optional<StructCodec<?>> computeValue(Class<?> type) {
+          return Optional.ofNullable(load(type));
+        }
+      };
+
+  private StructCodecs() {
+  }
+
+  /**
+   * The generated codec of {@code type}, or null if it has none.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> StructCodec<T> find(Class<?> type) {
+    return (StructCodec<T>) CODECS.get(type).orElse(null);
+  }
+
+  /**
+   * Binary name of the codec of the struct class with binary name {@code binaryName}.
+   */
+  static String codecName(String binaryName) {
+    int dot = binaryName.lastIndexOf('.');
+    return binaryName.substring(0, dot + 1)
+        + binaryName.substring(dot + 1).replace('$', '_')
+        + SUFFIX;
+  }
+
+  private static StructCodec<?> load(Class<?> type) {
+    if (!Type.class.isAssignableFrom(type) || type.getClassLoader() == null) {
+      return null;
+    }
+    try {
+      Class<?> codecClass = Class.forName(codecName(type.getName()), true, type.getClassLoader());
+      if (!StructCodec.class.isAssignableFrom(codecClass)) {
+        return null;
+      }
+      return (StructCodec<?>) codecClass.getField(INSTANCE_FIELD).get(null);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException(
+          "Invalid struct codec " + codecName(type.getName()), e);
+    }
+  }
+}
@@ -89,7 +89,7 @@ public class Address implements Type<String> {
 
     Address address = (Address) o;
 
-    return value != null ? value.value.equals(address.value.value) : address.value == null;
+    return value != null ? value.valueEquals(address.value) : address.value == null;
   }
 
   @Override
@@ -31,4 +31,15 @@ public class Int extends IntType {
   protected Int(int bitSize, BigInteger value) {
     super(TYPE_NAME, bitSize, value);
   }
+
+  /**
+   * Create an int256 from its 256-bit two's complement word, most significant long first.
+   */
+  public Int(long word0, long word1, long word2, long word3) {
+    this(MAX_BIT_LENGTH, word0, word1, word2, word3);
+  }
+
+  protected Int(int bitSize, long word0, long word1, long word2, long word3) {
+    super(TYPE_NAME, bitSize, word0, word1, word2, word3);
+  }
 }
@@ -33,19 +33,30 @@ public abstract class IntType extends NumericType {
     }
   }
 
+  /**
+   * Create a value from its 256-bit two's complement word, most significant long first.
+   */
+  public IntType(String typePrefix, int bitSize, long word0, long word1, long word2,
+      long word3) {
+    super(typePrefix + bitSize, word0, word1, word2, word3);
+    this.bitSize = bitSize;
+    if (!valid()) {
+      throw new UnsupportedOperationException(
+          "Bit size must be 8 bit aligned, "
+              + "and in range 0 < bitSize <= "
+              + MAX_BIT_LENGTH);
+    }
+  }
+
   public int getBitSize() {
     return bitSize;
   }
 
   protected boolean valid() {
-    return isValidBitSize(bitSize) && isValidBitCount(bitSize, value);
+    return isValidBitSize(bitSize) && bitLength() <= bitSize;
   }
 
   private static boolean isValidBitSize(int bitSize) {
     return bitSize % 8 == 0 && bitSize > 0 && bitSize <= MAX_BIT_LENGTH;
   }
-
-  private static boolean isValidBitCount(int bitSize, BigInteger value) {
-    return value.bitLength() <= bitSize;
-  }
 }
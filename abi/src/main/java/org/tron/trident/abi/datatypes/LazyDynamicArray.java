@@ -0,0 +1,183 @@
+package org.linda.trident.abi.datatypes;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.RandomAccess;
+import org.linda.trident.abi.TypeDecoder;
+
+/**
+ * Dynamic array decoded on access.
+ *
+ * <p>Only the offsets of the elements are recorded when the array is decoded; an element is
+ * decoded from the ABI encoded input each time it is read, and is not kept. Returned by
+ * {@link TypeDecoder} for a {@code TypeReference<LazyDynamicArray<T>>}, or by
+ * {@link TypeDecoder#decodeLazyDynamicArray}, so that a view function returning thousands of
+ * elements can be read without creating them all.</p>
+ *
+ * <p>Arrays of numeric types and addresses can also be read in bulk without creating any
+ * element, with {@link #toLongArray()} and {@link #toAddressBytes()}.</p>
+ */
+public class LazyDynamicArray<T extends Type> extends DynamicArray<T> implements Iterable<T> {
+
+  private static final int WORD_LENGTH_FOR_HEX_STRING = MAX_BYTE_LENGTH << 1;
+  private static final int ADDRESS_LENGTH = 20;
+
+  /**
+   * Create a view of {@code length} static elements, one word each, the first one at
+   * {@code offset} of the hex {@code input}.
+   */
+  public LazyDynamicArray(Class<T> type, String input, int offset, int length) {
+    super(type, new Elements<>(type, input, offset, length, null));
+  }
+
+  /**
+   * Create a view of elements at the given {@code offsets} of the hex {@code input}.
+   */
+  public LazyDynamicArray(Class<T> type, String input, int[] offsets) {
+    super(type, new Elements<>(type, input, 0, offsets.length, offsets.clone()));
+  }
+
+  private Elements<T> elements() {
+    return (Elements<T>) value;
+  }
+
+  public int size() {
+    return value.size();
+  }
+
+  /**
+   * Decode the element at {@code index}.
+   */
+  public T get(int index) {
+    return value.get(index);
+  }
+
+  /**
+   * Iterate over the elements, decoding each one as it is reached.
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return value.iterator();
+  }
+
+  /**
+   * Read the value of the numeric element at {@code index} as a long.
+   *
+   * @throws UnsupportedOperationException if the elements are not numeric
+   * @throws ArithmeticException if the value does not fit in a long
+   */
+  @SuppressWarnings("unchecked")
+  public long getLong(int index) {
+    Elements<T> elements = elements();
+    if (!NumericType.class.isAssignableFrom(elements.type)) {
+      throw new UnsupportedOperationException(
+          "Not an array of a numeric type: " + getTypeAsString());
+    }
+    return TypeDecoder.decodeNumericLong(elements.input, elements.offsetOf(index),
+        (Class<? extends NumericType>) elements.type);
+  }
+
+  /**
+   * Read the values of all the numeric elements as longs, such as the amounts of a
+   * {@code uint64[]}.
+   *
+   * @throws UnsupportedOperationException if the elements are not numeric
+   * @throws ArithmeticException if a value does not fit in a long
+   */
+  public long[] toLongArray() {
+    long[] result = new long[size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getLong(i);
+    }
+    return result;
+  }
+
+  /**
+   * Copy the 20 bytes of the address element at {@code index} to {@code dest}.
+   *
+   * @throws UnsupportedOperationException if the elements are not addresses
+   */
+  public void getAddressBytes(int index, byte[] dest, int destOffset) {
+    Elements<T> elements = elements();
+    if (!Address.class.isAssignableFrom(elements.type)) {
+      throw new UnsupportedOperationException("Not an array of addresses: " + getTypeAsString());
+    }
+    int start = elements.offsetOf(index) + WORD_LENGTH_FOR_HEX_STRING - (ADDRESS_LENGTH << 1);
+    for (int i = 0; i < ADDRESS_LENGTH; i++) {
+      int high = Character.digit(elements.input.charAt(start + (i << 1)), 16);
+      int low = Character.digit(elements.input.charAt(start + (i << 1) + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException("Invalid hex character at " + (start + (i << 1)));
+      }
+      dest[destOffset + i] = (byte) (high << 4 | low);
+    }
+  }
+
+  /**
+   * The 20 bytes of the address element at {@code index}, without the 0x41 prefix.
+   *
+   * @throws UnsupportedOperationException if the elements are not addresses
+   */
+  public byte[] getAddressBytes(int index) {
+    byte[] result = new byte[ADDRESS_LENGTH];
+    getAddressBytes(index, result, 0);
+    return result;
+  }
+
+  /**
+   * The 20 bytes of every address element, concatenated: element {@code i} takes bytes
+   * {@code 20 * i} to {@code 20 * i + 19}.
+   *
+   * @throws UnsupportedOperationException if the elements are not addresses
+   */
+  public byte[] toAddressBytes() {
+    byte[] result = new byte[size() * ADDRESS_LENGTH];
+    for (int i = 0; i < size(); i++) {
+      getAddressBytes(i, result, i * ADDRESS_LENGTH);
+    }
+    return result;
+  }
+
+  @Override
+  public int bytes32PaddedLength() {
+    if (elements().offsets == null) {
+      return (size() + 1) * MAX_BYTE_LENGTH;
+    }
+    return super.bytes32PaddedLength();
+  }
+
+  private static final class Elements<T extends Type> extends AbstractList<T>
+      implements RandomAccess {
+
+    private final Class<T> type;
+    private final String input;
+    private final int offset;
+    private final int length;
+    private final int[] offsets;
+
+    Elements(Class<T> type, String input, int offset, int length, int[] offsets) {
+      this.type = type;
+      this.input = input;
+      this.offset = offset;
+      this.length = length;
+      this.offsets = offsets;
+    }
+
+    int offsetOf(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+      }
+      return offsets != null ? offsets[index] : offset + index * WORD_LENGTH_FOR_HEX_STRING;
+    }
+
+    @Override
+    public T get(int index) {
+      return TypeDecoder.decode(input, offsetOf(index), type);
+    }
+
+    @Override
+    public int size() {
+      return length;
+    }
+  }
+}
@@ -38,6 +38,6 @@ public class LrcToken extends IntType {
 
   @Override
   protected boolean valid() {
-    return super.valid() && 0 <= value.signum();
+    return super.valid() && 0 <= signum();
   }
 }
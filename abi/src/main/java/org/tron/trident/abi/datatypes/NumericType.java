@@ -14,20 +14,45 @@
 package org.linda.trident.abi.datatypes;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 /**
  * Common numeric type.
+ *
+ * <p>A value is held either as a {@link BigInteger} or as its 256-bit two's complement word,
+ * four longs with the most significant first. Each form is computed from the other only when
+ * asked for, so values decoded from or encoded to ABI words do not allocate a
+ * {@code BigInteger} unless {@link #getValue()} is called.</p>
  */
 public abstract class NumericType implements Type<BigInteger> {
 
   private String type;
-  BigInteger value;
+  private volatile BigInteger value;
+
+  private long word0;
+  private long word1;
+  private long word2;
+  private long word3;
+  private volatile boolean hasWords;
 
   public NumericType(String type, BigInteger value) {
     this.type = type;
     this.value = value;
   }
 
+  /**
+   * Create a value from its 256-bit two's complement word, most significant long first. The
+   * word is read as signed for {@code int} and {@code fixed} types, unsigned otherwise.
+   */
+  protected NumericType(String type, long word0, long word1, long word2, long word3) {
+    this.type = type;
+    this.word0 = word0;
+    this.word1 = word1;
+    this.word2 = word2;
+    this.word3 = word3;
+    this.hasWords = true;
+  }
+
   @Override
   public String getTypeAsString() {
     return type;
@@ -35,11 +60,126 @@ public abstract class NumericType implements Type<BigInteger> {
 
   @Override
   public BigInteger getValue() {
-    return value;
+    BigInteger result = value;
+    if (result == null && hasWords) {
+      result = wordsToBigInteger();
+      value = result;
+    }
+    return result;
   }
 
   public abstract int getBitSize();
 
+  /**
+   * Write the 32-byte big-endian two's complement word of this value at {@code offset}.
+   */
+  public void writeTo(byte[] dest, int offset) {
+    ensureWords();
+    writeLong(dest, offset, word0);
+    writeLong(dest, offset + 8, word1);
+    writeLong(dest, offset + 16, word2);
+    writeLong(dest, offset + 24, word3);
+  }
+
+  /**
+   * This value as a long.
+   *
+   * @throws ArithmeticException if it does not fit in a long
+   */
+  public long longValueExact() {
+    BigInteger current = value;
+    if (current != null) {
+      return current.longValueExact();
+    }
+    long sign = isSigned() ? word3 >> 63 : 0L;
+    if (word0 != sign || word1 != sign || word2 != sign || !isSigned() && word3 < 0) {
+      throw new ArithmeticException(type + " value out of long range");
+    }
+    return word3;
+  }
+
+  /**
+   * Sign of this value, as {@link BigInteger#signum()}.
+   */
+  int signum() {
+    BigInteger current = value;
+    if (current != null) {
+      return current.signum();
+    }
+    if (isSigned() && word0 < 0) {
+      return -1;
+    }
+    return (word0 | word1 | word2 | word3) == 0 ? 0 : 1;
+  }
+
+  /**
+   * Bit length of this value, as {@link BigInteger#bitLength()}.
+   */
+  int bitLength() {
+    BigInteger current = value;
+    if (current != null) {
+      return current.bitLength();
+    }
+    long flip = isSigned() && word0 < 0 ? -1L : 0L;
+    if ((word0 ^ flip) != 0) {
+      return 256 - Long.numberOfLeadingZeros(word0 ^ flip);
+    } else if ((word1 ^ flip) != 0) {
+      return 192 - Long.numberOfLeadingZeros(word1 ^ flip);
+    } else if ((word2 ^ flip) != 0) {
+      return 128 - Long.numberOfLeadingZeros(word2 ^ flip);
+    }
+    return 64 - Long.numberOfLeadingZeros(word3 ^ flip);
+  }
+
+  private boolean isSigned() {
+    return type.startsWith(Int.TYPE_NAME) || type.startsWith(Fixed.TYPE_NAME);
+  }
+
+  private void ensureWords() {
+    if (hasWords) {
+      return;
+    }
+    byte[] raw = value.toByteArray();
+    byte[] word = new byte[MAX_BYTE_LENGTH];
+    if (value.signum() < 0) {
+      Arrays.fill(word, (byte) 0xff);
+    }
+    // an unsigned 256-bit value has a leading sign byte
+    int length = Math.min(raw.length, MAX_BYTE_LENGTH);
+    System.arraycopy(raw, raw.length - length, word, MAX_BYTE_LENGTH - length, length);
+    word0 = readLong(word, 0);
+    word1 = readLong(word, 8);
+    word2 = readLong(word, 16);
+    word3 = readLong(word, 24);
+    hasWords = true;
+  }
+
+  private BigInteger wordsToBigInteger() {
+    if (word0 == 0 && word1 == 0 && word2 == 0 && word3 >= 0
+        || isSigned() && word0 == -1 && word1 == -1 && word2 == -1 && word3 < 0) {
+      return BigInteger.valueOf(word3);
+    }
+    byte[] magnitude = new byte[MAX_BYTE_LENGTH + 1];
+    magnitude[0] = isSigned() && word0 < 0 ? (byte) 0xff : 0;
+    writeTo(magnitude, 1);
+    return new BigInteger(magnitude);
+  }
+
+  private static void writeLong(byte[] dest, int offset, long value) {
+    for (int i = 7; i >= 0; i--) {
+      dest[offset + i] = (byte) value;
+      value >>>= 8;
+    }
+  }
+
+  private static long readLong(byte[] src, int offset) {
+    long value = 0;
+    for (int i = offset; i < offset + 8; i++) {
+      value = value << 8 | (src[i] & 0xff);
+    }
+    return value;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -55,13 +195,27 @@ public abstract class NumericType implements Type<BigInteger> {
       return false;
     }
 
-    return value != null ? value.equals(that.value) : that.value == null;
+    return valueEquals(that);
+  }
+
+  /**
+   * Whether this value equals the value of {@code that}, comparing words when both have them.
+   */
+  boolean valueEquals(NumericType that) {
+    if (hasWords && that.hasWords) {
+      return word0 == that.word0 && word1 == that.word1 && word2 == that.word2
+          && word3 == that.word3;
+    }
+    BigInteger thisValue = getValue();
+    BigInteger thatValue = that.getValue();
+    return thisValue != null ? thisValue.equals(thatValue) : thatValue == null;
   }
 
   @Override
   public int hashCode() {
     int result = type.hashCode();
-    result = 31 * result + (value != null ? value.hashCode() : 0);
+    BigInteger current = getValue();
+    result = 31 * result + (current != null ? current.hashCode() : 0);
     return result;
   }
 }
@@ -32,8 +32,19 @@ public class Uint extends IntType {
     this(MAX_BIT_LENGTH, value);
   }
 
+  protected Uint(int bitSize, long word0, long word1, long word2, long word3) {
+    super(TYPE_NAME, bitSize, word0, word1, word2, word3);
+  }
+
+  /**
+   * Create a uint256 from its 256-bit word, most significant long first.
+   */
+  public Uint(long word0, long word1, long word2, long word3) {
+    this(MAX_BIT_LENGTH, word0, word1, word2, word3);
+  }
+
   @Override
   protected boolean valid() {
-    return super.valid() && 0 <= value.signum();
+    return super.valid() && 0 <= signum();
   }
 }
@@ -20,4 +20,8 @@ public class Int104 extends Int {
   public Int104(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int104(long word0, long word1, long word2, long word3) {
+    super(104, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int112 extends Int {
   public Int112(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int112(long word0, long word1, long word2, long word3) {
+    super(112, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int136 extends Int {
   public Int136(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int136(long word0, long word1, long word2, long word3) {
+    super(136, word0, word1, word2, word3);
+  }
 }
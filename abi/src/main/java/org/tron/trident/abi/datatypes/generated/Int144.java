@@ -20,4 +20,8 @@ public class Int144 extends Int {
   public Int144(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int144(long word0, long word1, long word2, long word3) {
+    super(144, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int152 extends Int {
   public Int152(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int152(long word0, long word1, long word2, long word3) {
+    super(152, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int16 extends Int {
   public Int16(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int16(long word0, long word1, long word2, long word3) {
+    super(16, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int160 extends Int {
   public Int160(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int160(long word0, long word1, long word2, long word3) {
+    super(160, word0, word1, word2, word3);
+  }
 }
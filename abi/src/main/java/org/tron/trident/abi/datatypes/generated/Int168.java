@@ -20,4 +20,8 @@ public class Int168 extends Int {
   public Int168(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int168(long word0, long word1, long word2, long word3) {
+    super(168, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int184 extends Int {
   public Int184(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int184(long word0, long word1, long word2, long word3) {
+    super(184, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int192 extends Int {
   public Int192(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int192(long word0, long word1, long word2, long word3) {
+    super(192, word0, word1, word2, word3);
+  }
 }
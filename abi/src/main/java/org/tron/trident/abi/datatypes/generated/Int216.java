@@ -20,4 +20,8 @@ public class Int216 extends Int {
   public Int216(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int216(long word0, long word1, long word2, long word3) {
+    super(216, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int232 extends Int {
   public Int232(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int232(long word0, long word1, long word2, long word3) {
+    super(232, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int24 extends Int {
   public Int24(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int24(long word0, long word1, long word2, long word3) {
+    super(24, word0, word1, word2, word3);
+  }
 }
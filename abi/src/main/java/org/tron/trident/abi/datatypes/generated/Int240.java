@@ -20,4 +20,8 @@ public class Int240 extends Int {
   public Int240(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int240(long word0, long word1, long word2, long word3) {
+    super(240, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int248 extends Int {
   public Int248(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int248(long word0, long word1, long word2, long word3) {
+    super(248, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int256 extends Int {
   public Int256(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int256(long word0, long word1, long word2, long word3) {
+    super(256, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int32 extends Int {
   public Int32(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int32(long word0, long word1, long word2, long word3) {
+    super(32, word0, word1, word2, word3);
+  }
 }
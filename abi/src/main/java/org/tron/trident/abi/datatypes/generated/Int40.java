@@ -20,4 +20,8 @@ public class Int40 extends Int {
   public Int40(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int40(long word0, long word1, long word2, long word3) {
+    super(40, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int48 extends Int {
   public Int48(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int48(long word0, long word1, long word2, long word3) {
+    super(48, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int56 extends Int {
   public Int56(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int56(long word0, long word1, long word2, long word3) {
+    super(56, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int64 extends Int {
   public Int64(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int64(long word0, long word1, long word2, long word3) {
+    super(64, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int72 extends Int {
   public Int72(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int72(long word0, long word1, long word2, long word3) {
+    super(72, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int8 extends Int {
   public Int8(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int8(long word0, long word1, long word2, long word3) {
+    super(8, word0, word1, word2, word3);
+  }
 }
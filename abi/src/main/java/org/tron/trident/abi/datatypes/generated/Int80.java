@@ -20,4 +20,8 @@ public class Int80 extends Int {
   public Int80(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int80(long word0, long word1, long word2, long word3) {
+    super(80, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Int88 extends Int {
   public Int88(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int88(long word0, long word1, long word2, long word3) {
+    super(88, word0, word1, word2, word3);
+  }
 }
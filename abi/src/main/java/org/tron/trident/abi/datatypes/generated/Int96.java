@@ -20,4 +20,8 @@ public class Int96 extends Int {
   public Int96(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Int96(long word0, long word1, long word2, long word3) {
+    super(96, word0, word1, word2, word3);
+  }
 }
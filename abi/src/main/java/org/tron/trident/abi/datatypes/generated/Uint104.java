@@ -20,4 +20,8 @@ public class Uint104 extends Uint {
   public Uint104(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint104(long word0, long word1, long word2, long word3) {
+    super(104, word0, word1, word2, word3);
+  }
 }
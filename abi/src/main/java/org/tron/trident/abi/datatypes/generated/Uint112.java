@@ -20,4 +20,8 @@ public class Uint112 extends Uint {
   public Uint112(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint112(long word0, long word1, long word2, long word3) {
+    super(112, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint120 extends Uint {
   public Uint120(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint120(long word0, long word1, long word2, long word3) {
+    super(120, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint128 extends Uint {
   public Uint128(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint128(long word0, long word1, long word2, long word3) {
+    super(128, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint152 extends Uint {
   public Uint152(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint152(long word0, long word1, long word2, long word3) {
+    super(152, word0, word1, word2, word3);
+  }
 }
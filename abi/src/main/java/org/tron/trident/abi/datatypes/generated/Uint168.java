@@ -20,4 +20,8 @@ public class Uint168 extends Uint {
   public Uint168(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint168(long word0, long word1, long word2, long word3) {
+    super(168, word0, word1, word2, word3);
+  }
 }
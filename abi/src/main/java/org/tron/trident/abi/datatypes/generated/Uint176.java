@@ -20,4 +20,8 @@ public class Uint176 extends Uint {
   public Uint176(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint176(long word0, long word1, long word2, long word3) {
+    super(176, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint184 extends Uint {
   public Uint184(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint184(long word0, long word1, long word2, long word3) {
+    super(184, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint192 extends Uint {
   public Uint192(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint192(long word0, long word1, long word2, long word3) {
+    super(192, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint200 extends Uint {
   public Uint200(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint200(long word0, long word1, long word2, long word3) {
+    super(200, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint208 extends Uint {
   public Uint208(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint208(long word0, long word1, long word2, long word3) {
+    super(208, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint216 extends Uint {
   public Uint216(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint216(long word0, long word1, long word2, long word3) {
+    super(216, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint224 extends Uint {
   public Uint224(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint224(long word0, long word1, long word2, long word3) {
+    super(224, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint232 extends Uint {
   public Uint232(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint232(long word0, long word1, long word2, long word3) {
+    super(232, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint24 extends Uint {
   public Uint24(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint24(long word0, long word1, long word2, long word3) {
+    super(24, word0, word1, word2, word3);
+  }
 }
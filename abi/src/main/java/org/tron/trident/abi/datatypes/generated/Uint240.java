@@ -20,4 +20,8 @@ public class Uint240 extends Uint {
   public Uint240(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint240(long word0, long word1, long word2, long word3) {
+    super(240, word0, word1, word2, word3);
+  }
 }
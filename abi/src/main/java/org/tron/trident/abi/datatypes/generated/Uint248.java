@@ -20,4 +20,8 @@ public class Uint248 extends Uint {
   public Uint248(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint248(long word0, long word1, long word2, long word3) {
+    super(248, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint256 extends Uint {
   public Uint256(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint256(long word0, long word1, long word2, long word3) {
+    super(256, word0, word1, word2, word3);
+  }
 }
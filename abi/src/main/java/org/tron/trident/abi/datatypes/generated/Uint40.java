@@ -20,4 +20,8 @@ public class Uint40 extends Uint {
   public Uint40(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint40(long word0, long word1, long word2, long word3) {
+    super(40, word0, word1, word2, word3);
+  }
 }
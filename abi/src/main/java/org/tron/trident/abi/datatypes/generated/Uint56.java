@@ -20,4 +20,8 @@ public class Uint56 extends Uint {
   public Uint56(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint56(long word0, long word1, long word2, long word3) {
+    super(56, word0, word1, word2, word3);
+  }
 }
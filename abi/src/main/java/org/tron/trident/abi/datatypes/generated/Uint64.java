@@ -20,4 +20,8 @@ public class Uint64 extends Uint {
   public Uint64(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint64(long word0, long word1, long word2, long word3) {
+    super(64, word0, word1, word2, word3);
+  }
 }
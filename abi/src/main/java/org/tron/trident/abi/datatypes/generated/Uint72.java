@@ -20,4 +20,8 @@ public class Uint72 extends Uint {
   public Uint72(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint72(long word0, long word1, long word2, long word3) {
+    super(72, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint8 extends Uint {
   public Uint8(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint8(long word0, long word1, long word2, long word3) {
+    super(8, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint80 extends Uint {
   public Uint80(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint80(long word0, long word1, long word2, long word3) {
+    super(80, word0, word1, word2, word3);
+  }
 }
@@ -20,4 +20,8 @@ public class Uint96 extends Uint {
   public Uint96(long value) {
     this(BigInteger.valueOf(value));
   }
+
+  public Uint96(long word0, long word1, long word2, long word3) {
+    super(96, word0, word1, word2, word3);
+  }
 }
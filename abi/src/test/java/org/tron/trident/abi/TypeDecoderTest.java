@@ -1028,6 +1028,24 @@ public class TypeDecoderTest {
         (new Address("0x0000000000000000000000000000000000000001")));
   }
 
+  @Test
+  public void testHexPrefixedInput() {
+    assertEquals(
+        TypeDecoder.decodeAddress(
+            "0x000000000000000000000000be5422d15f39373eb0a97ff8c10fbd0e40e29338"),
+        (new Address("0xbe5422d15f39373eb0a97ff8c10fbd0e40e29338")));
+    assertEquals(
+        TypeDecoder.decodeNumeric(
+            "0x00000000000000000000000000000000000000000000000000000000000000ff",
+            Uint8.class),
+        new Uint8(BigInteger.valueOf(255)));
+    assertEquals(
+        TypeDecoder.decodeNumeric(
+            "0xffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff",
+            Int256.class),
+        new Int256(BigInteger.valueOf(-1)));
+  }
+
   @Test
   public void testLrcToken() throws Exception {
     assertEquals(
@@ -0,0 +1,221 @@
+package org.linda.trident.abi.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.AbiV2TestFixture;
+import org.linda.trident.abi.FunctionReturnDecoder;
+import org.linda.trident.abi.TypeEncoder;
+import org.linda.trident.abi.TypeReference;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Bool;
+import org.linda.trident.abi.datatypes.Type;
+import org.linda.trident.abi.datatypes.generated.Bytes32;
+import org.linda.trident.abi.datatypes.generated.Int8;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.abi.datatypes.generated.Uint64;
+
+public class StructCodecProcessorTest {
+
+  private static final String STRUCTS = String.join("\n",
+      "package sample;",
+      "import org.linda.trident.abi.codec.AbiStruct;",
+      "import org.linda.trident.abi.datatypes.*;",
+      "import org.linda.trident.abi.datatypes.generated.*;",
+      "public class Structs {",
+      "  @AbiStruct public static class Foo extends DynamicStruct {",
+      "    public Foo(String id, String name) { this(new Utf8String(id), new Utf8String(name)); }",
+      "    public Foo(Utf8String id, Utf8String name) { super(id, name); }",
+      "  }",
+      "  @AbiStruct public static class Bar extends StaticStruct {",
+      "    public Bar(Uint256 id, Uint256 data) { super(id, data); }",
+      "  }",
+      "  @AbiStruct public static class Fuzz extends StaticStruct {",
+      "    public Fuzz(Bar bar, Uint256 data) { super(bar, data); }",
+      "  }",
+      "  @AbiStruct public static class Nuu extends DynamicStruct {",
+      "    public Nuu(Foo foo) { super(foo); }",
+      "  }",
+      "  @AbiStruct public static class Boz extends DynamicStruct {",
+      "    public Boz(Uint256 data, Utf8String id) { super(data, id); }",
+      "  }",
+      "  @AbiStruct public static class Mixed extends StaticStruct {",
+      "    public Mixed(Address a, Bool b, Bytes32 c, Int8 d, Uint64 e) { super(a, b, c, d, e); }",
+      "  }",
+      "}");
+
+  private static Path dir;
+  private static URLClassLoader loader;
+
+  @BeforeAll
+  public static void compileStructs() throws IOException {
+    dir = Files.createTempDirectory("struct-codec");
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    assertTrue(compile(dir, STRUCTS, diagnostics), diagnostics.getDiagnostics().toString());
+    loader = new URLClassLoader(new URL[] {dir.toUri().toURL()},
+        StructCodecProcessorTest.class.getClassLoader());
+  }
+
+  @AfterAll
+  public static void cleanUp() throws IOException {
+    loader.close();
+    Files.walk(dir).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+  }
+
+  @Test
+  public void testCodecLookup() throws Exception {
+    assertNotNull(StructCodecs.find(struct("Foo")));
+    assertEquals("sample.Structs_FooAbiCodec",
+        StructCodecs.find(struct("Foo")).getClass().getName());
+    assertNull(StructCodecs.find(AbiV2TestFixture.Foo.class));
+    assertEquals(128, StructCodecs.find(struct("Bar")).getHeadLength());
+    assertEquals(192, StructCodecs.find(struct("Fuzz")).getHeadLength());
+    assertEquals(64, StructCodecs.find(struct("Nuu")).getHeadLength());
+  }
+
+  @Test
+  public void testDecodeMatchesReflectiveDecoder() throws Exception {
+    String foo = "0x0000000000000000000000000000000000000000000000000000000000000020"
+        + "0000000000000000000000000000000000000000000000000000000000000040"
+        + "0000000000000000000000000000000000000000000000000000000000000080"
+        + "0000000000000000000000000000000000000000000000000000000000000002"
+        + "6964000000000000000000000000000000000000000000000000000000000000"
+        + "0000000000000000000000000000000000000000000000000000000000000004"
+        + "6e616d6500000000000000000000000000000000000000000000000000000000";
+    assertSameDecoding(foo, "Foo", AbiV2TestFixture.Foo.class);
+
+    String boz = "0x0000000000000000000000000000000000000000000000000000000000000020"
+        + "0000000000000000000000000000000000000000000000000000000000000001"
+        + "0000000000000000000000000000000000000000000000000000000000000040"
+        + "0000000000000000000000000000000000000000000000000000000000000002"
+        + "6964000000000000000000000000000000000000000000000000000000000000";
+    assertSameDecoding(boz, "Boz", AbiV2TestFixture.Boz.class);
+
+    String nuu = "0x0000000000000000000000000000000000000000000000000000000000000020"
+        + "0000000000000000000000000000000000000000000000000000000000000020"
+        + "0000000000000000000000000000000000000000000000000000000000000040"
+        + "0000000000000000000000000000000000000000000000000000000000000080"
+        + "0000000000000000000000000000000000000000000000000000000000000002"
+        + "6964000000000000000000000000000000000000000000000000000000000000"
+        + "0000000000000000000000000000000000000000000000000000000000000004"
+        + "6e616d6500000000000000000000000000000000000000000000000000000000";
+    assertSameDecoding(nuu, "Nuu", AbiV2TestFixture.Nuu.class);
+
+    String fuzz = "0x0000000000000000000000000000000000000000000000000000000000000001"
+        + "000000000000000000000000000000000000000000000000000000000000000a"
+        + "0000000000000000000000000000000000000000000000000000000000000001";
+    assertSameDecoding(fuzz, "Fuzz", AbiV2TestFixture.Fuzz.class);
+  }
+
+  @Test
+  public void testStaticStructFollowedByValue() throws Exception {
+    // a static struct and a uint: the head length comes from the codec
+    String input = "0x0000000000000000000000000000000000000000000000000000000000000001"
+        + "000000000000000000000000000000000000000000000000000000000000000a"
+        + "0000000000000000000000000000000000000000000000000000000000000001"
+        + "0000000000000000000000000000000000000000000000000000000000000007";
+    List<Type> decoded = FunctionReturnDecoder.decode(input, Arrays.asList(
+        reference(struct("Fuzz")), reference(Uint256.class)));
+    assertEquals(2, decoded.size());
+    assertEquals(new Uint256(7), decoded.get(1));
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Type mixed = struct("Mixed")
+        .getConstructor(Address.class, Bool.class, Bytes32.class, Int8.class, Uint64.class)
+        .newInstance(new Address(BigInteger.valueOf(0xa614f803L)), new Bool(true),
+            new Bytes32(new byte[32]), new Int8(-3), new Uint64(BigInteger.ONE.shiftLeft(63)));
+    String encoded = TypeEncoder.encode(mixed);
+    assertEquals(5 * 64, encoded.length());
+    assertEquals(mixed.getValue(), FunctionReturnDecoder.decode(encoded,
+        Collections.singletonList(reference(struct("Mixed")))).get(0).getValue());
+
+    Type foo = struct("Foo").getConstructor(String.class, String.class)
+        .newInstance("id", "name");
+    assertEquals(TypeEncoder.encode(new AbiV2TestFixture.Foo("id", "name")),
+        TypeEncoder.encode(foo));
+    Type nuu = struct("Nuu").getConstructor(struct("Foo")).newInstance(foo);
+    assertEquals(
+        TypeEncoder.encode(new AbiV2TestFixture.Nuu(new AbiV2TestFixture.Foo("id", "name"))),
+        TypeEncoder.encode(nuu));
+  }
+
+  @Test
+  public void testUnsupportedMember() throws IOException {
+    Path out = Files.createTempDirectory("struct-codec-error");
+    try {
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      assertFalse(compile(out, String.join("\n",
+          "package sample;",
+          "import org.linda.trident.abi.codec.AbiStruct;",
+          "import org.linda.trident.abi.datatypes.*;",
+          "import org.linda.trident.abi.datatypes.generated.*;",
+          "@AbiStruct public class Structs extends DynamicStruct {",
+          "  public Structs(DynamicArray<Uint256> values) { super(values); }",
+          "}"), diagnostics));
+      assertTrue(diagnostics.getDiagnostics().toString()
+          .contains("Array struct members are not supported"));
+    } finally {
+      Files.walk(out).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+    }
+  }
+
+  private static boolean compile(Path out, String source,
+      DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+    Path file = out.resolve("Structs.java");
+    Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager files =
+        compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      return compiler.getTask(null, files, diagnostics,
+          Arrays.asList("-classpath", System.getProperty("java.class.path"),
+              "-d", out.toString(), "-s", out.toString(),
+              "-processor", StructCodecProcessor.class.getName()),
+          null, files.getJavaFileObjects(file.toFile())).call();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<Type> struct(String name) throws ClassNotFoundException {
+    return (Class<Type>) loader.loadClass("sample.Structs$" + name);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static TypeReference<Type> reference(Class<?> type) {
+    return (TypeReference<Type>) (TypeReference<?>) TypeReference.create((Class<Type>) type);
+  }
+
+  private static void assertSameDecoding(String input, String generated, Class<?> reflective)
+      throws ClassNotFoundException {
+    List<Type> expected = FunctionReturnDecoder.decode(input,
+        Collections.singletonList(reference(reflective)));
+    List<Type> actual = FunctionReturnDecoder.decode(input,
+        Collections.singletonList(reference(struct(generated))));
+    assertEquals(struct(generated), actual.get(0).getClass());
+    // nested structs have no value equality, compare the encodings
+    assertEquals(TypeEncoder.encode(expected.get(0)), TypeEncoder.encode(actual.get(0)));
+  }
+}
@@ -0,0 +1,134 @@
+package org.linda.trident.abi.datatypes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.FunctionEncoder;
+import org.linda.trident.abi.FunctionReturnDecoder;
+import org.linda.trident.abi.TypeDecoder;
+import org.linda.trident.abi.TypeEncoder;
+import org.linda.trident.abi.TypeReference;
+import org.linda.trident.abi.datatypes.generated.Int64;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.abi.datatypes.generated.Uint64;
+import org.linda.trident.utils.Numeric;
+
+public class LazyDynamicArrayTest {
+
+  @Test
+  public void testDecodeMatchesEager() {
+    List<Uint256> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add(new Uint256(BigInteger.valueOf(i).shiftLeft(i)));
+    }
+    DynamicArray<Uint256> array = new DynamicArray<>(Uint256.class, values);
+    String input = TypeEncoder.encode(array);
+
+    LazyDynamicArray<Uint256> lazy = TypeDecoder.decodeLazyDynamicArray(input, 0,
+        new TypeReference<DynamicArray<Uint256>>() {
+        });
+    assertEquals(100, lazy.size());
+    assertEquals(values.get(42), lazy.get(42));
+    assertEquals(values, lazy.getValue());
+    assertEquals(array.bytes32PaddedLength(), lazy.bytes32PaddedLength());
+    assertEquals("uint256[]", lazy.getTypeAsString());
+    assertEquals(input, TypeEncoder.encode(lazy));
+
+    int i = 0;
+    for (Uint256 value : lazy) {
+      assertEquals(values.get(i++), value);
+    }
+    assertEquals(100, i);
+    assertThrows(IndexOutOfBoundsException.class, () -> lazy.get(100));
+  }
+
+  @Test
+  public void testDecodeFunctionResult() {
+    List<Address> addresses = Arrays.asList(
+        new Address("T9yKC9LCoVvmhaFxKcdK9iL18TUWtyFtjh"),
+        new Address("0x52b08330e05d731e38c856c1043288f7d9744"));
+    String output = FunctionEncoder.encodeConstructor(Arrays.asList(
+        new Uint256(BigInteger.TEN), new DynamicArray<>(Address.class, addresses)));
+
+    List<Type> results = FunctionReturnDecoder.decode(output, Arrays.asList(
+        (TypeReference) new TypeReference<Uint256>() {
+        },
+        (TypeReference) new TypeReference<LazyDynamicArray<Address>>() {
+        }));
+    assertEquals(new Uint256(BigInteger.TEN), results.get(0));
+    assertTrue(results.get(1) instanceof LazyDynamicArray);
+    @SuppressWarnings("unchecked")
+    LazyDynamicArray<Address> lazy = (LazyDynamicArray<Address>) results.get(1);
+    assertEquals(addresses, lazy.getValue());
+
+    byte[] raw = lazy.toAddressBytes();
+    assertEquals(40, raw.length);
+    for (int i = 0; i < addresses.size(); i++) {
+      byte[] expected = Numeric.toBytesPadded(addresses.get(i).toUint().getValue(), 20);
+      assertArrayEquals(expected, lazy.getAddressBytes(i));
+      assertArrayEquals(expected, Arrays.copyOfRange(raw, 20 * i, 20 * i + 20));
+    }
+    assertThrows(UnsupportedOperationException.class, () -> lazy.getLong(0));
+  }
+
+  @Test
+  public void testToLongArray() {
+    String unsigned = TypeEncoder.encode(new DynamicArray<>(Uint64.class,
+        new Uint64(BigInteger.ZERO), new Uint64(BigInteger.valueOf(Long.MAX_VALUE))));
+    LazyDynamicArray<Uint64> uints = TypeDecoder.decodeLazyDynamicArray(unsigned, 0,
+        new TypeReference<DynamicArray<Uint64>>() {
+        });
+    assertArrayEquals(new long[] {0, Long.MAX_VALUE}, uints.toLongArray());
+
+    String signed = TypeEncoder.encode(new DynamicArray<>(Int64.class,
+        new Int64(BigInteger.valueOf(-3)), new Int64(BigInteger.valueOf(Long.MIN_VALUE))));
+    LazyDynamicArray<Int64> ints = TypeDecoder.decodeLazyDynamicArray(signed, 0,
+        new TypeReference<DynamicArray<Int64>>() {
+        });
+    assertArrayEquals(new long[] {-3, Long.MIN_VALUE}, ints.toLongArray());
+
+    String large = TypeEncoder.encode(new DynamicArray<>(Uint64.class,
+        new Uint64(BigInteger.ONE.shiftLeft(63))));
+    LazyDynamicArray<Uint64> overflow = TypeDecoder.decodeLazyDynamicArray(large, 0,
+        new TypeReference<DynamicArray<Uint64>>() {
+        });
+    assertThrows(ArithmeticException.class, overflow::toLongArray);
+    assertThrows(UnsupportedOperationException.class, () -> overflow.getAddressBytes(0));
+  }
+
+  @Test
+  public void testDynamicElements() {
+    String input =
+        "0000000000000000000000000000000000000000000000000000000000000002"
+            + "000000000000000000000000000000000000000000000000000000000000000d"
+            + "48656c6c6f2c20776f726c642100000000000000000000000000000000000000"
+            + "000000000000000000000000000000000000000000000000000000000000000d"
+            + "776f726c64212048656c6c6f2c00000000000000000000000000000000000000";
+    TypeReference<DynamicArray<Utf8String>> typeReference =
+        new TypeReference<DynamicArray<Utf8String>>() {
+        };
+    LazyDynamicArray<Utf8String> lazy = TypeDecoder.decodeLazyDynamicArray(input, 0,
+        typeReference);
+    assertEquals(new Utf8String("world! Hello,"), lazy.get(1));
+    assertEquals(TypeDecoder.decodeDynamicArray(input, 0, typeReference).getValue(),
+        lazy.getValue());
+  }
+
+  @Test
+  public void testTruncatedInput() {
+    String input = TypeEncoder.encode(new DynamicArray<>(Uint256.class,
+        Collections.nCopies(3, new Uint256(BigInteger.ONE))));
+    assertThrows(StringIndexOutOfBoundsException.class,
+        () -> TypeDecoder.decodeLazyDynamicArray(input.substring(0, input.length() - 64), 0,
+            new TypeReference<DynamicArray<Uint256>>() {
+            }));
+  }
+}
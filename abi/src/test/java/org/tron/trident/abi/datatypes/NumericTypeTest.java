@@ -0,0 +1,91 @@
+package org.linda.trident.abi.datatypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.TypeDecoder;
+import org.linda.trident.abi.TypeEncoder;
+import org.linda.trident.abi.datatypes.generated.Int256;
+import org.linda.trident.abi.datatypes.generated.Int8;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.abi.datatypes.generated.Uint64;
+import org.linda.trident.abi.datatypes.generated.Uint8;
+import org.linda.trident.utils.Numeric;
+
+public class NumericTypeTest {
+
+  private static final BigInteger MAX_UINT256 = BigInteger.ONE.shiftLeft(256).subtract(
+      BigInteger.ONE);
+
+  @Test
+  public void testWordsToValue() {
+    assertEquals(MAX_UINT256, new Uint256(-1L, -1L, -1L, -1L).getValue());
+    assertEquals(BigInteger.valueOf(-1), new Int256(-1L, -1L, -1L, -1L).getValue());
+    assertEquals(BigInteger.valueOf(-128), new Int8(-1L, -1L, -1L, -128L).getValue());
+    assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE),
+        new Uint64(0, 0, 0, -1L).getValue());
+    assertEquals(BigInteger.ONE.shiftLeft(192), new Uint256(1, 0, 0, 0).getValue());
+    assertEquals(BigInteger.ONE.shiftLeft(192).negate(),
+        new Int256(-1L, 0, 0, 0).getValue());
+  }
+
+  @Test
+  public void testWriteMatchesBigIntegerEncoding() {
+    BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, MAX_UINT256,
+        BigInteger.ONE.shiftLeft(255), BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN)};
+    for (BigInteger value : values) {
+      Uint256 uint = new Uint256(value);
+      byte[] word = new byte[Type.MAX_BYTE_LENGTH];
+      uint.writeTo(word, 0);
+      assertEquals(TypeEncoder.encode(uint), Numeric.toHexStringNoPrefix(word));
+      Uint256 decoded = TypeDecoder.decodeNumeric(Numeric.toHexStringNoPrefix(word),
+          Uint256.class);
+      assertEquals(uint, decoded);
+      assertEquals(uint.hashCode(), decoded.hashCode());
+      assertEquals(value, decoded.getValue());
+    }
+    Int256 negative = new Int256(BigInteger.valueOf(-2));
+    assertEquals(repeat("ff", 31) + "fe", TypeEncoder.encode(negative));
+    assertEquals(negative, new Int256(-1L, -1L, -1L, -2L));
+  }
+
+  @Test
+  public void testLongValueExact() {
+    assertEquals(-5L, new Int8(-1L, -1L, -1L, -5L).longValueExact());
+    assertEquals(42L, new Uint256(0, 0, 0, 42).longValueExact());
+    assertEquals(42L, new Uint256(BigInteger.valueOf(42)).longValueExact());
+    assertThrows(ArithmeticException.class, () -> new Uint64(0, 0, 0, -1L).longValueExact());
+    assertThrows(ArithmeticException.class, () -> new Uint256(0, 1, 0, 0).longValueExact());
+  }
+
+  @Test
+  public void testWordsValidity() {
+    assertThrows(UnsupportedOperationException.class, () -> new Uint8(0, 0, 0, 256));
+    assertThrows(UnsupportedOperationException.class, () -> new Int8(0, 0, 1, 0));
+    assertThrows(UnsupportedOperationException.class, () -> new Int8(-1L, -1L, -1L, -257L));
+  }
+
+  @Test
+  public void testDecodeNumericWord() {
+    // int8 -1, and a uint8 keeping only its low order byte
+    String minusOne = repeat("ff", 32);
+    assertEquals(-1L, TypeDecoder.decodeNumericWord(minusOne, 0, 0, 1, true));
+    assertEquals(-1L, TypeDecoder.decodeNumericWord(minusOne, 0, 3, 1, true));
+    assertEquals(0L, TypeDecoder.decodeNumericWord(minusOne, 0, 0, 1, false));
+    assertEquals(0xffL, TypeDecoder.decodeNumericWord(minusOne, 0, 3, 1, false));
+    assertEquals(BigInteger.valueOf(255),
+        TypeDecoder.decodeNumeric(minusOne, Uint8.class).getValue());
+    assertEquals(BigInteger.valueOf(-1),
+        TypeDecoder.decodeNumeric(minusOne, Int8.class).getValue());
+  }
+
+  private static String repeat(String s, int count) {
+    StringBuilder repeated = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      repeated.append(s);
+    }
+    return repeated.toString();
+  }
+}
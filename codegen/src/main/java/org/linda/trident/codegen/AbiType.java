@@ -0,0 +1,145 @@
+package org.linda.trident.codegen;
+
+/**
+ * A Solidity type supported by {@link ContractGenerator}: an elementary type, or a
+ * one-dimensional array of a static elementary type.
+ */
+final class AbiType {
+
+  enum Kind {
+    ADDRESS, BOOL, UINT, INT, FIXED_BYTES, BYTES, STRING, ARRAY
+  }
+
+  private final Kind kind;
+  private final String name;
+  private final int size;
+  private final AbiType element;
+
+  private AbiType(Kind kind, String name, int size, AbiType element) {
+    this.kind = kind;
+    this.name = name;
+    this.size = size;
+    this.element = element;
+  }
+
+  /**
+   * Parse a type of an ABI parameter.
+   *
+   * @return the type, or null if it is not supported
+   */
+  static AbiType parse(String type) {
+    if (type.endsWith("]")) {
+      int open = type.lastIndexOf('[');
+      AbiType element = open > 0 ? parse(type.substring(0, open)) : null;
+      if (element == null || element.kind == Kind.ARRAY || element.isDynamic()) {
+        return null;
+      }
+      String length = type.substring(open + 1, type.length() - 1);
+      int size = -1;
+      if (!length.isEmpty()) {
+        size = parseSize(length);
+        if (size <= 0) {
+          return null;
+        }
+      }
+      return new AbiType(Kind.ARRAY, element.name + "[" + length + "]", size, element);
+    }
+    switch (type) {
+      case "address":
+        return new AbiType(Kind.ADDRESS, type, 20, null);
+      case "bool":
+        return new AbiType(Kind.BOOL, type, 1, null);
+      case "string":
+        return new AbiType(Kind.STRING, type, -1, null);
+      case "bytes":
+        return new AbiType(Kind.BYTES, type, -1, null);
+      case "lrcToken":
+        // a token id, encoded as uint256 but kept in the canonical signature
+        return new AbiType(Kind.UINT, type, 256, null);
+      default:
+        break;
+    }
+    if (type.startsWith("uint") || type.startsWith("int")) {
+      boolean unsigned = type.startsWith("uint");
+      String bits = type.substring(unsigned ? 4 : 3);
+      int size = bits.isEmpty() ? 256 : parseSize(bits);
+      if (size <= 0 || size > 256 || size % 8 != 0) {
+        return null;
+      }
+      return new AbiType(unsigned ? Kind.UINT : Kind.INT,
+          (unsigned ? "uint" : "int") + size, size, null);
+    }
+    if (type.startsWith("bytes")) {
+      int size = parseSize(type.substring(5));
+      if (size <= 0 || size > 32) {
+        return null;
+      }
+      return new AbiType(Kind.FIXED_BYTES, type, size, null);
+    }
+    return null;
+  }
+
+  private static int parseSize(String digits) {
+    if (digits.isEmpty() || digits.length() > 6 || digits.charAt(0) == '0') {
+      return -1;
+    }
+    for (int i = 0; i < digits.length(); i++) {
+      if (digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+        return -1;
+      }
+    }
+    return Integer.parseInt(digits);
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Canonical name, as used in function and event signatures.
+   */
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Bits of an integer, bytes of a fixed size byte array, length of an array, -1 for dynamic
+   * arrays.
+   */
+  int getSize() {
+    return size;
+  }
+
+  AbiType getElement() {
+    return element;
+  }
+
+  boolean isDynamic() {
+    return kind == Kind.STRING || kind == Kind.BYTES || kind == Kind.ARRAY && size < 0;
+  }
+
+  /**
+   * Bytes taken in the head of the enclosing tuple.
+   */
+  int getHeadSize() {
+    return kind == Kind.ARRAY && size > 0 ? size * 32 : 32;
+  }
+
+  String getJavaType() {
+    switch (kind) {
+      case ADDRESS:
+      case STRING:
+        return "String";
+      case BOOL:
+        return "boolean";
+      case UINT:
+      case INT:
+        return "BigInteger";
+      case FIXED_BYTES:
+      case BYTES:
+        return "byte[]";
+      default:
+        return "List<" + (element.kind == Kind.BOOL ? "Boolean" : element.getJavaType()) + ">";
+    }
+  }
+}
@@ -0,0 +1,759 @@
+package org.linda.trident.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.linda.trident.core.contract.AbiBytes;
+import org.linda.trident.core.contract.TypedContract;
+import org.linda.trident.core.contract.abi.AbiUtils;
+import org.linda.trident.crypto.Hash;
+import org.linda.trident.proto.Common.SmartContract.ABI;
+
+/**
+ * Generator of typed contract wrappers from an ABI.
+ *
+ * <p>The generated class extends {@link TypedContract} and has a method per function of the
+ * ABI, taking and returning Java types. Selectors and event topics are computed at generation
+ * time and emitted as constants, arguments are written with {@link AbiBytes} at offsets fixed
+ * by the generator and outputs are read back the same way, so a generated call goes through
+ * neither the ABI, {@link org.linda.trident.abi.FunctionEncoder} nor reflection.</p>
+ *
+ * <p>Constant functions return their decoded outputs, in a nested {@code <Name>Result} class
+ * when there are several. Other functions are signed and broadcast, and return the
+ * transaction hash. Each event gets a nested {@code <Name>Event} class decoding matching
+ * logs.</p>
+ *
+ * <p>Supported types are the elementary types and one-dimensional arrays of static elementary
+ * types. Functions and events using other types, tuples in particular, are skipped with a
+ * warning.</p>
+ */
+public final class ContractGenerator {
+
+  static final String USAGE = String.join("\n",
+      "Usage: codegen [options]",
+      "  --abi <path>         ABI JSON file, or directory of *.abi and *.json files; repeatable",
+      "  --package <name>     package of the generated classes",
+      "  --class <name>       name of the generated class, with a single ABI file only",
+      "                       (default derived from the file name)",
+      "  --out <dir>          source root the classes are written to");
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+      "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
+      "const", "continue", "default", "do", "double", "else", "enum", "extends", "false",
+      "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof",
+      "int", "interface", "long", "native", "new", "null", "package", "private", "protected",
+      "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
+      "this", "throw", "throws", "transient", "true", "try", "void", "volatile", "while"));
+
+  // methods of TypedContract and Object
+  private static final Set<String> RESERVED_METHODS = new HashSet<>(Arrays.asList(
+      "call", "trigger", "callData", "writeAddress", "readAddress", "getContractAddress",
+      "getOwnerAddress", "getClass", "hashCode", "equals", "toString", "notify", "notifyAll",
+      "wait", "clone", "finalize"));
+
+  // locals of the generated methods
+  private static final Pattern RESERVED_PARAMS =
+      Pattern.compile("data|tail|result|log|i|feeLimit|callValue|(encoded|value|at|count)\\d+");
+
+  private static final String WORD = "AbiBytes.WORD_SIZE";
+
+  private final String packageName;
+  private final String className;
+  private final Consumer<String> warnings;
+
+  private ContractGenerator(Builder builder) {
+    this.packageName = builder.packageName;
+    this.className = builder.className;
+    this.warnings = builder.warnings;
+  }
+
+  /**
+   * Generate the wrapper of the contract described by {@code abiJson}, in the formats accepted
+   * by {@link AbiUtils#jsonStr2ABI(String)}.
+   *
+   * @return the Java source of the wrapper
+   * @throws IllegalArgumentException if the ABI cannot be parsed
+   */
+  public String generate(String abiJson) {
+    return generate(AbiUtils.jsonStr2ABI(abiJson));
+  }
+
+  /**
+   * Generate the wrapper of the contract described by {@code abi}.
+   *
+   * @return the Java source of the wrapper
+   */
+  public String generate(ABI abi) {
+    Names constants = new Names();
+    Names nested = new Names();
+    nested.add(className);
+    Set<String> methods = new HashSet<>();
+    StringBuilder fields = new StringBuilder();
+    StringBuilder body = new StringBuilder();
+    StringBuilder classes = new StringBuilder();
+    for (ABI.Entry entry : abi.getEntrysList()) {
+      if (entry.getType() == ABI.Entry.EntryType.Function) {
+        appendFunction(entry, constants, nested, methods, fields, body, classes);
+      } else if (entry.getType() == ABI.Entry.EntryType.Event) {
+        appendEvent(entry, nested, classes);
+      }
+    }
+
+    StringBuilder src = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      src.append("package ").append(packageName).append(";\n\n");
+    }
+    String code = fields.toString() + body + classes;
+    Set<String> imports = new TreeSet<>(Arrays.asList(
+        "org.linda.trident.core.ApiWrapper", AbiBytes.class.getName(),
+        TypedContract.class.getName()));
+    addImport(imports, code, "ByteString", "com.google.protobuf.ByteString");
+    addImport(imports, code, "BigInteger", "java.math.BigInteger");
+    addImport(imports, code, "StandardCharsets", "java.nio.charset.StandardCharsets");
+    addImport(imports, code, "ArrayList", "java.util.ArrayList");
+    addImport(imports, code, "List", "java.util.List");
+    addImport(imports, code, "IllegalException",
+        "org.linda.trident.core.exceptions.IllegalException");
+    addImport(imports, code, "TransactionInfo", "org.linda.trident.proto.Response.TransactionInfo");
+    for (String name : imports) {
+      src.append("import ").append(name).append(";\n");
+    }
+    src.append("\n/**\n * Typed wrapper of the {@code ").append(className)
+        .append("} contract, generated by trident codegen. Do not edit.\n */\n")
+        .append("public class ").append(className).append(" extends TypedContract {\n")
+        .append(fields)
+        .append("\n  public ").append(className)
+        .append("(ApiWrapper wrapper, String contractAddress, String ownerAddress) {\n")
+        .append("    super(wrapper, contractAddress, ownerAddress);\n  }\n")
+        .append(body)
+        .append(classes)
+        .append("}\n");
+    return src.toString();
+  }
+
+  /**
+   * Generate the wrapper of the contract described by {@code abiJson} into the source root
+   * {@code outDir}.
+   *
+   * @return the generated file
+   */
+  public Path generate(String abiJson, Path outDir) throws IOException {
+    Path dir = packageName.isEmpty()
+        ? outDir : outDir.resolve(packageName.replace('.', File.separatorChar));
+    Files.createDirectories(dir);
+    Path file = dir.resolve(className + ".java");
+    Files.write(file, generate(abiJson).getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private void appendFunction(ABI.Entry entry, Names constants, Names nested,
+      Set<String> methods, StringBuilder fields, StringBuilder body, StringBuilder classes) {
+    List<Param> inputs = params(entry.getInputsList(), entry, true);
+    boolean constant = entry.getConstant()
+        || entry.getStateMutability() == ABI.Entry.StateMutabilityType.View
+        || entry.getStateMutability() == ABI.Entry.StateMutabilityType.Pure;
+    List<Param> outputs = constant ? params(entry.getOutputsList(), entry, false) : null;
+    if (inputs == null || constant && outputs == null) {
+      return;
+    }
+    boolean payable = !constant && (entry.getPayable()
+        || entry.getStateMutability() == ABI.Entry.StateMutabilityType.Payable);
+
+    // Java overloads must differ by erased parameter types
+    String name = identifier(entry.getName(), "function");
+    if (RESERVED_METHODS.contains(name)) {
+      name += "_";
+    }
+    StringBuilder erasure = new StringBuilder("(");
+    for (Param input : inputs) {
+      erasure.append(input.type.getJavaType().replaceAll("<.*>", "")).append(',');
+    }
+    erasure.append(constant ? "" : payable ? "long,long" : "long").append(')');
+    String method = name;
+    for (int n = 2; !methods.add(method + erasure); n++) {
+      method = name + n;
+    }
+
+    String signature = signature(entry.getName(), inputs);
+    String selector = constants.unique(upperSnake(method));
+    fields.append("\n  private static final byte[] ").append(selector).append(" = ")
+        .append(byteArray(AbiBytes.selector(signature), "      ")).append(";\n");
+
+    String returnType = "String";
+    String resultClass = null;
+    if (constant) {
+      if (outputs.isEmpty()) {
+        returnType = "void";
+      } else if (outputs.size() == 1) {
+        returnType = outputs.get(0).type.getJavaType();
+      } else {
+        resultClass = nested.unique(capitalize(method) + "Result");
+        returnType = resultClass;
+        appendValueClass(classes, resultClass, "Outputs of {@code " + signature + "}.", outputs,
+            null);
+      }
+    }
+
+    body.append("\n  /**\n   * ").append(constant ? "Call" : "Trigger")
+        .append(" function {@code ").append(signature).append("}.\n");
+    if (!constant) {
+      body.append("   *\n   * @return the transaction hash\n");
+    }
+    body.append("   */\n  public ").append(returnType).append(' ').append(method).append('(');
+    for (int i = 0; i < inputs.size(); i++) {
+      body.append(i > 0 ? ", " : "").append(inputs.get(i).type.getJavaType()).append(' ')
+          .append(inputs.get(i).name);
+    }
+    if (!constant) {
+      body.append(inputs.isEmpty() ? "" : ", ").append(payable ? "long callValue, " : "")
+          .append("long feeLimit)\n      throws IllegalException {\n");
+    } else {
+      body.append(") {\n");
+    }
+    appendEncode(body, selector, inputs);
+    if (!constant) {
+      body.append("    return trigger(data, ").append(payable ? "callValue" : "0L")
+          .append(", feeLimit);\n  }\n");
+      return;
+    }
+    if (outputs.isEmpty()) {
+      body.append("    call(data);\n  }\n");
+      return;
+    }
+    body.append("    byte[] result = call(data);\n");
+    AbiType single = outputs.size() == 1 ? outputs.get(0).type : null;
+    if (single != null && !single.isDynamic() && single.getKind() != AbiType.Kind.ARRAY) {
+      body.append("    return ").append(read(outputs.get(0).type, "result", "0")).append(";\n");
+    } else {
+      appendDecode(body, "    ", outputs, "result");
+      body.append("    return ").append(resultClass != null
+          ? "new " + resultClass + "(" + values(outputs.size()) + ")" : "value0").append(";\n");
+    }
+    body.append("  }\n");
+  }
+
+  private void appendEvent(ABI.Entry entry, Names nested, StringBuilder classes) {
+    if (entry.getAnonymous()) {
+      warnings.accept("Skipping anonymous event " + entry.getName() + ": it has no topic");
+      return;
+    }
+    List<Param> params = params(entry.getInputsList(), entry, false);
+    if (params == null) {
+      return;
+    }
+    for (Param param : params) {
+      if ("TOPIC".equals(param.name)) {
+        param.name += "_";
+      }
+    }
+    String signature = signature(entry.getName(), params);
+    String eventClass = nested.unique(capitalize(identifier(entry.getName(), "event")) + "Event");
+    byte[] topic = Hash.sha3(signature.getBytes(StandardCharsets.UTF_8));
+    appendValueClass(classes, eventClass, "The {@code " + signature + "} event.", params, topic);
+  }
+
+  /**
+   * A nested class with a public final field per parameter. Events also have their topic and
+   * a method decoding logs.
+   */
+  private void appendValueClass(StringBuilder src, String name, String doc, List<Param> params,
+      byte[] topic) {
+    src.append("\n  /**\n   * ").append(doc).append("\n   */\n")
+        .append("  public static final class ").append(name).append(" {\n");
+    if (topic != null) {
+      src.append("\n    public static final ByteString TOPIC = ByteString.copyFrom(")
+          .append(byteArray(topic, "        ")).append(");\n");
+    }
+    src.append('\n');
+    for (Param param : params) {
+      src.append("    public final ").append(fieldType(param, topic != null)).append(' ')
+          .append(param.name).append(";\n");
+    }
+    src.append("\n    private ").append(name).append('(');
+    for (int i = 0; i < params.size(); i++) {
+      src.append(i > 0 ? ", " : "").append(fieldType(params.get(i), topic != null)).append(' ')
+          .append(params.get(i).name);
+    }
+    src.append(") {\n");
+    for (Param param : params) {
+      src.append("      this.").append(param.name).append(" = ").append(param.name).append(";\n");
+    }
+    src.append("    }\n");
+    if (topic != null) {
+      appendLogDecode(src, name, params);
+    }
+    src.append("  }\n");
+  }
+
+  private void appendLogDecode(StringBuilder src, String name, List<Param> params) {
+    List<Param> data = new ArrayList<>();
+    int topics = 1;
+    for (Param param : params) {
+      if (param.indexed) {
+        topics++;
+      } else {
+        data.add(param);
+      }
+    }
+    src.append("\n    /**\n     * Decode {@code log} as this event.\n     *\n")
+        .append("     * @return the event, or null if {@code log} is another event\n     */\n")
+        .append("    public static ").append(name)
+        .append(" decode(TransactionInfo.Log log) {\n")
+        .append("      if (log.getTopicsCount() != ").append(topics)
+        .append(" || !TOPIC.equals(log.getTopics(0))) {\n        return null;\n      }\n");
+    if (!data.isEmpty()) {
+      src.append("      byte[] data = log.getData().toByteArray();\n");
+    }
+    // data fields are decoded first, into value0..valueN in data order
+    appendDecode(src, "      ", data, "data");
+    StringBuilder args = new StringBuilder();
+    int topic = 1;
+    int value = 0;
+    for (Param param : params) {
+      args.append(args.length() > 0 ? ",\n          " : "");
+      if (!param.indexed) {
+        args.append("value").append(value++);
+      } else if (param.type.isDynamic() || param.type.getKind() == AbiType.Kind.ARRAY) {
+        args.append("log.getTopics(").append(topic++).append(").toByteArray()");
+      } else {
+        args.append(read(param.type, "log.getTopics(" + topic++ + ").toByteArray()", "0"));
+      }
+    }
+    src.append("      return new ").append(name).append('(')
+        .append(params.size() > 1 ? "\n          " : "").append(args).append(");\n    }\n");
+  }
+
+  /**
+   * Write the call data of {@code inputs} into a local {@code data}.
+   */
+  private static void appendEncode(StringBuilder src, String selector, List<Param> inputs) {
+    int head = 0;
+    boolean dynamic = false;
+    List<String> tails = new ArrayList<>();
+    for (int i = 0; i < inputs.size(); i++) {
+      Param input = inputs.get(i);
+      AbiType type = input.type;
+      head += type.getHeadSize();
+      if (type.getKind() == AbiType.Kind.ARRAY && type.getSize() > 0) {
+        src.append("    if (").append(input.name).append(".size() != ").append(type.getSize())
+            .append(") {\n      throw new IllegalArgumentException(\"").append(input.name)
+            .append(" must have ").append(type.getSize()).append(" elements\");\n    }\n");
+      }
+      if (type.getKind() == AbiType.Kind.STRING) {
+        src.append("    byte[] encoded").append(i).append(" = ").append(input.name)
+            .append(".getBytes(StandardCharsets.UTF_8);\n");
+        tails.add("AbiBytes.encodedLength(encoded" + i + ")");
+      } else if (type.getKind() == AbiType.Kind.BYTES) {
+        tails.add("AbiBytes.encodedLength(" + input.name + ")");
+      } else if (type.isDynamic()) {
+        tails.add(WORD + " * (1 + " + input.name + ".size())");
+      }
+      dynamic |= type.isDynamic();
+    }
+    src.append("    byte[] data = callData(").append(selector).append(", ")
+        .append(AbiBytes.SELECTOR_SIZE + head);
+    for (String tail : tails) {
+      src.append("\n        + ").append(tail);
+    }
+    src.append(");\n");
+    if (dynamic) {
+      src.append("    int tail = ").append(head).append(";\n");
+    }
+    int at = AbiBytes.SELECTOR_SIZE;
+    for (int i = 0; i < inputs.size(); i++) {
+      Param input = inputs.get(i);
+      AbiType type = input.type;
+      if (type.isDynamic()) {
+        src.append("    AbiBytes.writeUint256(data, ").append(at).append(", tail);\n");
+      }
+      if (type.getKind() == AbiType.Kind.STRING || type.getKind() == AbiType.Kind.BYTES) {
+        src.append("    tail += AbiBytes.writeBytes(data, 4 + tail, ")
+            .append(type.getKind() == AbiType.Kind.STRING ? "encoded" + i : input.name)
+            .append(");\n");
+      } else if (type.isDynamic()) {
+        src.append("    AbiBytes.writeUint256(data, 4 + tail, ").append(input.name)
+            .append(".size());\n")
+            .append("    for (int i = 0; i < ").append(input.name).append(".size(); i++) {\n")
+            .append("      ").append(write(type.getElement(),
+                "4 + tail + " + WORD + " * (i + 1)", input.name + ".get(i)")).append('\n')
+            .append("    }\n")
+            .append("    tail += ").append(WORD).append(" * (1 + ").append(input.name)
+            .append(".size());\n");
+      } else if (type.getKind() == AbiType.Kind.ARRAY) {
+        src.append("    for (int i = 0; i < ").append(type.getSize()).append("; i++) {\n")
+            .append("      ").append(write(type.getElement(), at + " + " + WORD + " * i",
+                input.name + ".get(i)")).append('\n')
+            .append("    }\n");
+      } else {
+        src.append("    ").append(write(type, String.valueOf(at), input.name)).append('\n');
+      }
+      at += type.getHeadSize();
+    }
+  }
+
+  /**
+   * Decode the tuple of {@code params} encoded in {@code source} into locals value0..valueN.
+   */
+  private static void appendDecode(StringBuilder src, String indent, List<Param> params,
+      String source) {
+    int at = 0;
+    for (int i = 0; i < params.size(); i++) {
+      AbiType type = params.get(i).type;
+      String value = "value" + i;
+      String javaType = type.getJavaType();
+      if (type.getKind() == AbiType.Kind.STRING || type.getKind() == AbiType.Kind.BYTES) {
+        src.append(indent).append(javaType).append(' ').append(value).append(" = AbiBytes.")
+            .append(type.getKind() == AbiType.Kind.STRING ? "readString" : "readBytes")
+            .append('(').append(source).append(", AbiBytes.readUintAsInt(").append(source)
+            .append(", ").append(at).append("));\n");
+      } else if (type.isDynamic()) {
+        src.append(indent).append("int at").append(i).append(" = AbiBytes.readUintAsInt(")
+            .append(source).append(", ").append(at).append(");\n")
+            .append(indent).append("int count").append(i).append(" = AbiBytes.readUintAsInt(")
+            .append(source).append(", at").append(i).append(");\n")
+            .append(indent).append(javaType).append(' ').append(value)
+            .append(" = new ArrayList<>();\n")
+            .append(indent).append("for (int i = 0; i < count").append(i).append("; i++) {\n")
+            .append(indent).append("  ").append(value).append(".add(")
+            .append(read(type.getElement(), source, "at" + i + " + " + WORD + " * (i + 1)"))
+            .append(");\n")
+            .append(indent).append("}\n");
+      } else if (type.getKind() == AbiType.Kind.ARRAY) {
+        src.append(indent).append(javaType).append(' ').append(value)
+            .append(" = new ArrayList<>(").append(type.getSize()).append(");\n")
+            .append(indent).append("for (int i = 0; i < ").append(type.getSize())
+            .append("; i++) {\n")
+            .append(indent).append("  ").append(value).append(".add(")
+            .append(read(type.getElement(), source, at + " + " + WORD + " * i"))
+            .append(");\n")
+            .append(indent).append("}\n");
+      } else {
+        src.append(indent).append(javaType).append(' ').append(value).append(" = ")
+            .append(read(type, source, String.valueOf(at))).append(";\n");
+      }
+      at += type.getHeadSize();
+    }
+  }
+
+  private static String write(AbiType type, String offset, String value) {
+    switch (type.getKind()) {
+      case ADDRESS:
+        return "writeAddress(data, " + offset + ", " + value + ");";
+      case BOOL:
+        return "AbiBytes.writeBool(data, " + offset + ", " + value + ");";
+      case UINT:
+        return "AbiBytes.writeUint(data, " + offset + ", " + value + ", " + type.getSize() + ");";
+      case INT:
+        return "AbiBytes.writeInt(data, " + offset + ", " + value + ", " + type.getSize() + ");";
+      case FIXED_BYTES:
+        return "AbiBytes.writeFixedBytes(data, " + offset + ", " + value + ", "
+            + type.getSize() + ");";
+      default:
+        throw new IllegalStateException("Not a static elementary type: " + type.getName());
+    }
+  }
+
+  private static String read(AbiType type, String source, String offset) {
+    switch (type.getKind()) {
+      case ADDRESS:
+        return "readAddress(" + source + ", " + offset + ")";
+      case BOOL:
+        return "AbiBytes.readBool(" + source + ", " + offset + ")";
+      case UINT:
+        return "AbiBytes.readUint256(" + source + ", " + offset + ")";
+      case INT:
+        return "AbiBytes.readInt256(" + source + ", " + offset + ")";
+      case FIXED_BYTES:
+        return "AbiBytes.readFixedBytes(" + source + ", " + offset + ", " + type.getSize() + ")";
+      default:
+        throw new IllegalStateException("Not a static elementary type: " + type.getName());
+    }
+  }
+
+  /**
+   * Parameters of {@code entry} with their Java names, or null if a type is not supported.
+   */
+  private List<Param> params(List<ABI.Entry.Param> abiParams, ABI.Entry entry, boolean local) {
+    List<Param> params = new ArrayList<>();
+    Names names = new Names();
+    for (int i = 0; i < abiParams.size(); i++) {
+      ABI.Entry.Param abiParam = abiParams.get(i);
+      AbiType type = AbiType.parse(abiParam.getType());
+      if (type == null) {
+        warnings.accept("Skipping " + entry.getType().name().toLowerCase() + " "
+            + entry.getName() + ": unsupported type " + abiParam.getType());
+        return null;
+      }
+      String name = identifier(abiParam.getName(), (local ? "arg" : "value") + i);
+      if (local && RESERVED_PARAMS.matcher(name).matches()) {
+        name += "_";
+      }
+      params.add(new Param(names.unique(name), type, abiParam.getIndexed()));
+    }
+    return params;
+  }
+
+  private static String fieldType(Param param, boolean event) {
+    return event && param.indexed
+        && (param.type.isDynamic() || param.type.getKind() == AbiType.Kind.ARRAY)
+        ? "byte[]" : param.type.getJavaType();
+  }
+
+  private static String signature(String name, List<Param> params) {
+    return params.stream().map(param -> param.type.getName())
+        .collect(Collectors.joining(",", name + "(", ")"));
+  }
+
+  private static String values(int count) {
+    StringBuilder values = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      values.append(i > 0 ? ", " : "").append("value").append(i);
+    }
+    return values.toString();
+  }
+
+  private static void addImport(Set<String> imports, String code, String simpleName,
+      String name) {
+    if (Pattern.compile("\\b" + simpleName + "\\b").matcher(code).find()) {
+      imports.add(name);
+    }
+  }
+
+  /**
+   * A Java identifier from an ABI name: invalid characters replaced, leading underscores
+   * dropped, keywords suffixed with an underscore.
+   */
+  static String identifier(String name, String fallback) {
+    StringBuilder identifier = new StringBuilder();
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (identifier.length() == 0 && (c == '_' || c == '$' || Character.isDigit(c))) {
+        continue;
+      }
+      identifier.append(Character.isJavaIdentifierPart(c) && c != '$' ? c : '_');
+    }
+    if (identifier.length() == 0) {
+      return fallback;
+    }
+    return KEYWORDS.contains(identifier.toString()) ? identifier + "_" : identifier.toString();
+  }
+
+  static String upperSnake(String name) {
+    StringBuilder snake = new StringBuilder();
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (i > 0 && Character.isUpperCase(c) && !Character.isUpperCase(name.charAt(i - 1))
+          && name.charAt(i - 1) != '_') {
+        snake.append('_');
+      }
+      snake.append(Character.toUpperCase(c));
+    }
+    return snake.toString();
+  }
+
+  private static String capitalize(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static String byteArray(byte[] bytes, String indent) {
+    StringBuilder src = new StringBuilder("new byte[] {");
+    for (int i = 0; i < bytes.length; i++) {
+      if (i == 0 && bytes.length > 8) {
+        src.append('\n').append(indent);
+      } else if (i > 0) {
+        src.append(i % 8 == 0 ? ",\n" + indent : ", ");
+      }
+      int b = bytes[i] & 0xff;
+      src.append(b > 0x7f ? "(byte) " : "").append(String.format("0x%02x", b));
+    }
+    return src.append('}').toString();
+  }
+
+  /**
+   * Command line entry, see {@link #USAGE}.
+   */
+  public static void main(String[] args) throws IOException {
+    List<Path> abis = new ArrayList<>();
+    String packageName = null;
+    String className = null;
+    Path out = null;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if (!arg.startsWith("--")) {
+          throw new IllegalArgumentException("Unexpected argument " + arg);
+        }
+        String name = arg.substring(2);
+        String value;
+        int eq = name.indexOf('=');
+        if (eq >= 0) {
+          value = name.substring(eq + 1);
+          name = name.substring(0, eq);
+        } else if (i + 1 < args.length) {
+          value = args[++i];
+        } else {
+          throw new IllegalArgumentException("Missing value of --" + name);
+        }
+        switch (name) {
+          case "abi":
+            abis.addAll(abiFiles(Paths.get(value)));
+            break;
+          case "package":
+            packageName = value;
+            break;
+          case "class":
+            className = value;
+            break;
+          case "out":
+            out = Paths.get(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option --" + name);
+        }
+      }
+      if (abis.isEmpty() || packageName == null || out == null) {
+        throw new IllegalArgumentException("--abi, --package and --out are required");
+      }
+      if (className != null && abis.size() != 1) {
+        throw new IllegalArgumentException("--class requires a single ABI file");
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+    for (Path abi : abis) {
+      ContractGenerator generator = new ContractGenerator.Builder()
+          .setPackageName(packageName)
+          .setClassName(className != null ? className : className(abi))
+          .build();
+      String json = new String(Files.readAllBytes(abi), StandardCharsets.UTF_8);
+      System.out.println("Generated " + generator.generate(json, out) + " from " + abi);
+    }
+  }
+
+  private static List<Path> abiFiles(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      if (!Files.isRegularFile(path)) {
+        throw new IllegalArgumentException("No ABI file " + path);
+      }
+      return Collections.singletonList(path);
+    }
+    try (Stream<Path> files = Files.list(path)) {
+      return files.filter(file -> Files.isRegularFile(file)
+              && (file.toString().endsWith(".abi") || file.toString().endsWith(".json")))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Class name of an ABI file, {@code my-token.abi.json} gives {@code MyToken}.
+   */
+  static String className(Path abi) {
+    String fileName = abi.getFileName().toString();
+    int dot = fileName.indexOf('.');
+    StringBuilder name = new StringBuilder();
+    for (String part : (dot > 0 ? fileName.substring(0, dot) : fileName).split("[^A-Za-z0-9]+")) {
+      if (!part.isEmpty()) {
+        name.append(capitalize(part));
+      }
+    }
+    if (name.length() == 0 || Character.isDigit(name.charAt(0))) {
+      name.insert(0, "Contract");
+    }
+    return name.toString();
+  }
+
+  private static final class Param {
+
+    private String name;
+    private final AbiType type;
+    private final boolean indexed;
+
+    private Param(String name, AbiType type, boolean indexed) {
+      this.name = name;
+      this.type = type;
+      this.indexed = indexed;
+    }
+  }
+
+  /**
+   * Names already taken in a scope.
+   */
+  private static final class Names {
+
+    private final Set<String> used = new HashSet<>();
+
+    void add(String name) {
+      used.add(name);
+    }
+
+    /**
+     * {@code name}, or {@code name} with the first free numeric suffix if it is taken.
+     */
+    String unique(String name) {
+      String unique = name;
+      for (int n = 2; !used.add(unique); n++) {
+        unique = name + n;
+      }
+      return unique;
+    }
+  }
+
+  public static class Builder {
+
+    private String packageName = "";
+    private String className;
+    private Consumer<String> warnings = System.err::println;
+
+    /**
+     * Package of the generated class, the default package if not set.
+     */
+    public Builder setPackageName(String packageName) {
+      this.packageName = packageName;
+      return this;
+    }
+
+    public Builder setClassName(String className) {
+      this.className = className;
+      return this;
+    }
+
+    /**
+     * Receiver of the warnings about skipped functions and events, standard error by default.
+     */
+    public Builder setWarnings(Consumer<String> warnings) {
+      this.warnings = warnings;
+      return this;
+    }
+
+    /**
+     * Build the generator.
+     *
+     * @throws IllegalArgumentException if the class name is missing or invalid
+     */
+    public ContractGenerator build() {
+      if (className == null || !identifier(className, "").equals(className)
+          || !Character.isUpperCase(className.charAt(0))) {
+        throw new IllegalArgumentException("Invalid class name " + className);
+      }
+      return new ContractGenerator(this);
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package org.linda.trident.codegen;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.FunctionEncoder;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Bool;
+import org.linda.trident.abi.datatypes.DynamicArray;
+import org.linda.trident.abi.datatypes.DynamicBytes;
+import org.linda.trident.abi.datatypes.Function;
+import org.linda.trident.abi.datatypes.Type;
+import org.linda.trident.abi.datatypes.Utf8String;
+import org.linda.trident.abi.datatypes.generated.Bytes32;
+import org.linda.trident.abi.datatypes.generated.Int8;
+import org.linda.trident.abi.datatypes.generated.StaticArray2;
+import org.linda.trident.abi.datatypes.generated.Uint112;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.abi.datatypes.generated.Uint32;
+import org.linda.trident.crypto.Hash;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.utils.Numeric;
+
+class ContractGeneratorTest {
+
+  private static final String CONTRACT = "TJRabPrwbZy45sbavfcjinPJC18kjpRTv8";
+  private static final String OWNER = "TXYZopYRdj2D9XRtbG411XZZ3kM5VkAeBf";
+  private static final String TO = "41a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+
+  private static final String ABI = json("["
+      + "{'type':'function','name':'balanceOf','stateMutability':'view',"
+      + "'inputs':[{'name':'_owner','type':'address'}],"
+      + "'outputs':[{'name':'balance','type':'uint256'}]},"
+      + "{'type':'function','name':'transfer','stateMutability':'nonpayable',"
+      + "'inputs':[{'name':'_to','type':'address'},{'name':'_value','type':'uint256'}],"
+      + "'outputs':[{'name':'','type':'bool'}]},"
+      + "{'type':'function','name':'name','constant':true,'inputs':[],"
+      + "'outputs':[{'name':'','type':'string'}]},"
+      + "{'type':'function','name':'getReserves','stateMutability':'view','inputs':[],"
+      + "'outputs':[{'name':'reserve0','type':'uint112'},{'name':'reserve1','type':'uint112'},"
+      + "{'name':'','type':'uint32'},{'name':'holders','type':'address[]'}]},"
+      + "{'type':'function','name':'store','stateMutability':'nonpayable',"
+      + "'inputs':[{'name':'label','type':'string'},{'name':'data','type':'bytes'},"
+      + "{'name':'ids','type':'uint256[]'},{'name':'delta','type':'int8'},"
+      + "{'name':'hash','type':'bytes32'},{'name':'pair','type':'address[2]'}],'outputs':[]},"
+      + "{'type':'function','name':'deposit','stateMutability':'payable','inputs':[],"
+      + "'outputs':[]},"
+      + "{'type':'function','name':'swap','stateMutability':'nonpayable',"
+      + "'inputs':[{'name':'path','type':'tuple[]','components':[]}],'outputs':[]},"
+      + "{'type':'event','name':'Transfer','anonymous':false,"
+      + "'inputs':[{'name':'from','type':'address','indexed':true},"
+      + "{'name':'to','type':'address','indexed':true},"
+      + "{'name':'value','type':'uint256','indexed':false}]},"
+      + "{'type':'event','name':'Labeled','anonymous':false,"
+      + "'inputs':[{'name':'label','type':'string','indexed':true},"
+      + "{'name':'text','type':'string','indexed':false},"
+      + "{'name':'ok','type':'bool','indexed':false}]}"
+      + "]");
+
+  private static final String PROBE = String.join("\n",
+      "package sample;",
+      "public class Probe extends Token {",
+      "  public byte[] data;",
+      "  public byte[] result;",
+      "  public long callValue;",
+      "  public long feeLimit;",
+      "  public Probe(String contract, String owner) { super(null, contract, owner); }",
+      "  @Override protected byte[] call(byte[] data) { this.data = data; return result; }",
+      "  @Override protected String trigger(byte[] data, long callValue, long feeLimit) {",
+      "    this.data = data;",
+      "    this.callValue = callValue;",
+      "    this.feeLimit = feeLimit;",
+      "    return \"txid\";",
+      "  }",
+      "}");
+
+  private static final List<String> warnings = new ArrayList<>();
+  private static Path dir;
+  private static URLClassLoader loader;
+  private static String source;
+
+  @BeforeAll
+  static void generateAndCompile() throws IOException {
+    dir = Files.createTempDirectory("contract-codegen");
+    ContractGenerator generator = new ContractGenerator.Builder()
+        .setPackageName("sample")
+        .setClassName("Token")
+        .setWarnings(warnings::add)
+        .build();
+    Path token = generator.generate(ABI, dir);
+    source = new String(Files.readAllBytes(token), StandardCharsets.UTF_8);
+    Path probe = dir.resolve("sample").resolve("Probe.java");
+    Files.write(probe, PROBE.getBytes(StandardCharsets.UTF_8));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager files =
+        compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+      boolean compiled = compiler.getTask(null, files, diagnostics,
+          Arrays.asList("-classpath", System.getProperty("java.class.path"),
+              "-d", dir.toString(), "-proc:none"),
+          null, files.getJavaFileObjects(token.toFile(), probe.toFile())).call();
+      assertTrue(compiled, diagnostics.getDiagnostics() + "\n" + source);
+    }
+    loader = new URLClassLoader(new URL[] {dir.toUri().toURL()},
+        ContractGeneratorTest.class.getClassLoader());
+  }
+
+  @AfterAll
+  static void cleanUp() throws IOException {
+    loader.close();
+    Files.walk(dir).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+  }
+
+  @Test
+  void testPrecomputedSelectors() {
+    // balanceOf(address) and transfer(address,uint256)
+    assertTrue(source.contains("BALANCE_OF = new byte[] {0x70, (byte) 0xa0, (byte) 0x82, 0x31}"));
+    assertTrue(source.contains("TRANSFER = new byte[] {(byte) 0xa9, 0x05, (byte) 0x9c, "
+        + "(byte) 0xbb}"));
+    assertTrue(warnings.contains("Skipping function swap: unsupported type tuple[]"),
+        warnings.toString());
+    assertEquals(1, warnings.size(), warnings.toString());
+  }
+
+  @Test
+  void testStaticCallData() throws Exception {
+    Object probe = probe();
+    setField(probe, "result", encodeValues(new Uint256(0)));
+    probe.getClass().getMethod("balanceOf", String.class).invoke(probe, TO);
+    assertEquals(encode("balanceOf", new Address(TO)), hex(field(probe, "data")));
+
+    Object txid = probe.getClass().getMethod("transfer", String.class, BigInteger.class,
+        long.class).invoke(probe, TO, BigInteger.valueOf(15_000_000L), 30_000_000L);
+    assertEquals("txid", txid);
+    assertEquals(encode("transfer", new Address(TO), new Uint256(15_000_000L)),
+        hex(field(probe, "data")));
+    assertEquals(0L, field(probe, "callValue"));
+    assertEquals(30_000_000L, field(probe, "feeLimit"));
+
+    probe.getClass().getMethod("deposit", long.class, long.class).invoke(probe, 7L, 100L);
+    assertEquals(encode("deposit"), hex(field(probe, "data")));
+    assertEquals(7L, field(probe, "callValue"));
+  }
+
+  @Test
+  void testDynamicCallData() throws Exception {
+    Object probe = probe();
+    byte[] data = new byte[40];
+    Arrays.fill(data, (byte) 0xab);
+    byte[] hash = Hash.sha3(data);
+    List<BigInteger> ids = Arrays.asList(BigInteger.ONE, BigInteger.TEN, BigInteger.ZERO);
+    probe.getClass().getMethod("store", String.class, byte[].class, List.class,
+        BigInteger.class, byte[].class, List.class, long.class)
+        .invoke(probe, "héllo", data, ids, BigInteger.valueOf(-3), hash,
+            Arrays.asList(TO, OWNER), 30_000_000L);
+
+    assertEquals(encode("store", new Utf8String("héllo"), new DynamicBytes(data),
+        new DynamicArray<>(Uint256.class, new Uint256(1), new Uint256(10), new Uint256(0)),
+        new Int8(-3), new Bytes32(hash),
+        new StaticArray2<>(Address.class, new Address(TO), new Address(OWNER))),
+        hex(field(probe, "data")));
+  }
+
+  @Test
+  void testDecodeOutputs() throws Exception {
+    Object probe = probe();
+    setField(probe, "result", encodeValues(new Uint256(42)));
+    assertEquals(BigInteger.valueOf(42),
+        probe.getClass().getMethod("balanceOf", String.class).invoke(probe, OWNER));
+
+    setField(probe, "result", encodeValues(new Utf8String("Token")));
+    assertEquals("Token", probe.getClass().getMethod("name").invoke(probe));
+
+    setField(probe, "result", encodeValues(new Uint112(5), new Uint112(6), new Uint32(7),
+        new DynamicArray<>(Address.class, new Address(TO), new Address(OWNER))));
+    Object reserves = probe.getClass().getMethod("getReserves").invoke(probe);
+    assertEquals("sample.Token$GetReservesResult", reserves.getClass().getName());
+    assertEquals(BigInteger.valueOf(5), field(reserves, "reserve0"));
+    assertEquals(BigInteger.valueOf(6), field(reserves, "reserve1"));
+    assertEquals(BigInteger.valueOf(7), field(reserves, "value2"));
+    assertEquals(Arrays.asList(new Address(TO).toString(), OWNER), field(reserves, "holders"));
+  }
+
+  @Test
+  void testDecodeEvents() throws Exception {
+    Class<?> transfer = loader.loadClass("sample.Token$TransferEvent");
+    ByteString topic = ByteString.copyFrom(
+        Hash.sha3("Transfer(address,address,uint256)".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(topic, transfer.getField("TOPIC").get(null));
+
+    TransactionInfo.Log log = TransactionInfo.Log.newBuilder()
+        .addTopics(topic)
+        .addTopics(word(new Address(OWNER)))
+        .addTopics(word(new Address(TO)))
+        .setData(word(new Uint256(1000)))
+        .build();
+    Object event = transfer.getMethod("decode", TransactionInfo.Log.class).invoke(null, log);
+    assertEquals(OWNER, field(event, "from"));
+    assertEquals(new Address(TO).toString(), field(event, "to"));
+    assertEquals(BigInteger.valueOf(1000), field(event, "value"));
+
+    TransactionInfo.Log other = log.toBuilder().setTopics(0, word(new Uint256(1))).build();
+    assertNull(transfer.getMethod("decode", TransactionInfo.Log.class).invoke(null, other));
+
+    Class<?> labeled = loader.loadClass("sample.Token$LabeledEvent");
+    byte[] labelHash = Hash.sha3("label".getBytes(StandardCharsets.UTF_8));
+    log = TransactionInfo.Log.newBuilder()
+        .addTopics((ByteString) labeled.getField("TOPIC").get(null))
+        .addTopics(ByteString.copyFrom(labelHash))
+        .setData(ByteString.copyFrom(
+            encodeValues(new Utf8String("some text"), new Bool(true))))
+        .build();
+    event = labeled.getMethod("decode", TransactionInfo.Log.class).invoke(null, log);
+    assertArrayEquals(labelHash, (byte[]) field(event, "label"));
+    assertEquals("some text", field(event, "text"));
+    assertEquals(true, field(event, "ok"));
+  }
+
+  @Test
+  void testClassName() {
+    assertEquals("MyToken", ContractGenerator.className(Paths.get("abi", "my-token.abi.json")));
+    assertEquals("Lrc20", ContractGenerator.className(Paths.get("lrc20.json")));
+    assertEquals("Contract721", ContractGenerator.className(Paths.get("721.abi")));
+    assertEquals("to", ContractGenerator.identifier("_to", "arg0"));
+    assertEquals("arg0", ContractGenerator.identifier("", "arg0"));
+    assertEquals("new_", ContractGenerator.identifier("new", "arg0"));
+    assertEquals("BALANCE_OF", ContractGenerator.upperSnake("balanceOf"));
+  }
+
+  private static Object probe() throws Exception {
+    return loader.loadClass("sample.Probe").getConstructor(String.class, String.class)
+        .newInstance(CONTRACT, OWNER);
+  }
+
+  private static Object field(Object target, String name) throws Exception {
+    return target.getClass().getField(name).get(target);
+  }
+
+  private static void setField(Object target, String name, Object value) throws Exception {
+    Field field = target.getClass().getField(name);
+    field.set(target, value);
+  }
+
+  private static String hex(Object bytes) {
+    return Numeric.toHexStringNoPrefix((byte[]) bytes);
+  }
+
+  private static String encode(String name, Type... args) {
+    return FunctionEncoder.encode(
+        new Function(name, Arrays.asList(args), Collections.emptyList()));
+  }
+
+  private static byte[] encodeValues(Type... values) {
+    return Numeric.hexStringToByteArray(FunctionEncoder.encodeConstructor(Arrays.asList(values)));
+  }
+
+  private static ByteString word(Type value) {
+    return ByteString.copyFrom(encodeValues(value));
+  }
+
+  private static String json(String quoted) {
+    return quoted.replace('\'', '"');
+  }
+}
@@ -13,6 +13,8 @@ import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.Metadata;
 import io.grpc.stub.MetadataUtils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -42,12 +44,17 @@ import org.linda.trident.api.GrpcAPI.PaginatedMessage;
 import org.linda.trident.api.GrpcAPI.TransactionIdList;
 import org.linda.trident.api.WalletGrpc;
 import org.linda.trident.api.WalletSolidityGrpc;
+import org.linda.trident.core.archive.BlockArchive;
+import org.linda.trident.core.channel.ChannelOptions;
+import org.linda.trident.core.channel.ChannelRegistry;
 import org.linda.trident.core.contract.Contract;
 import org.linda.trident.core.contract.ContractFunction;
 import org.linda.trident.core.exceptions.IllegalException;
 import org.linda.trident.core.interceptor.TimeoutInterceptor;
 import org.linda.trident.core.key.KeyPair;
 import org.linda.trident.core.transaction.BlockId;
+import org.linda.trident.core.transaction.BroadcastResult;
+import org.linda.trident.core.transaction.ResourcePlanner;
 import org.linda.trident.core.transaction.TransactionBuilder;
 import org.linda.trident.core.transaction.TransactionCapsule;
 import org.linda.trident.core.utils.ByteArray;
@@ -172,6 +179,27 @@ public class ApiWrapper implements Api {
    */
   @Getter
   private long expireTimeStamp = -1;
+  /**
+   * The registry {@link #channel} and {@link #channelSolidity} were acquired from, or null if
+   * this wrapper created its own channels.
+   */
+  private ChannelRegistry channelRegistry;
+  /**
+   * True for views created by {@link #withKey}, which do not own the channels.
+   */
+  private boolean view;
+  private boolean released;
+  /**
+   * Local store read by {@link #getBlockByNum} and {@link #getTransactionInfoByBlockNum} before
+   * going to the network, and filled with what they fetch from the solidity node. Null (no
+   * archive) by default.
+   */
+  @Getter
+  private volatile BlockArchive blockArchive;
+  /**
+   * Highest block number seen solid, -1 if unknown. Only solid heights are archived.
+   */
+  private volatile long solidBlockNum = -1;
 
   public ApiWrapper(String grpcEndpoint, String grpcEndpointSolidity, String hexPrivateKey) {
     channel = ManagedChannelBuilder.forTarget(grpcEndpoint).usePlaintext().build();
@@ -240,9 +268,6 @@ public class ApiWrapper implements Api {
       List<ClientInterceptor> clientInterceptors, int timeout) {
 
     List<ClientInterceptor> clientInterceptorList = new ArrayList<>();
-    // first set timeout to ensure the configuration takes effect
-    clientInterceptorList.add(new TimeoutInterceptor(timeout));
-
     if (clientInterceptors != null) {
       clientInterceptorList.addAll(
           clientInterceptors.stream()
@@ -250,6 +275,9 @@ public class ApiWrapper implements Api {
               .collect(Collectors.toList())
       );
     }
+    // the last interceptor runs first: set the deadline before the others, such as a rate
+    // limiter, look at it
+    clientInterceptorList.add(new TimeoutInterceptor(timeout));
 
     channel =
         ManagedChannelBuilder.forTarget(grpcEndpoint)
@@ -266,6 +294,103 @@ public class ApiWrapper implements Api {
     keyPair = new KeyPair(hexPrivateKey);
   }
 
+  /**
+   * Constructor with transport settings: Netty transport, shared event loops, flow-control
+   * window, keepalive, idle timeout and compression.
+   *
+   * @param channelOptions transport settings of both channels
+   */
+  public ApiWrapper(String grpcEndpoint, String grpcEndpointSolidity, String hexPrivateKey,
+      ChannelOptions channelOptions) {
+    channel = channelOptions.newChannel(grpcEndpoint, null);
+    channelSolidity = channelOptions.newChannel(grpcEndpointSolidity, null);
+    blockingStub = WalletGrpc.newBlockingStub(channel);
+    blockingStubSolidity = WalletSolidityGrpc.newBlockingStub(channelSolidity);
+    keyPair = new KeyPair(hexPrivateKey);
+  }
+
+  /**
+   * Create a wrapper on channels shared through a {@link ChannelRegistry}. Wrappers with the same
+   * endpoints and interceptors reuse the same channels, which are shut down when the last of
+   * them is closed.
+   *
+   * @param channelRegistry the registry to acquire channels from,
+   *     e.g. {@link ChannelRegistry#getDefault()}
+   * @param grpcEndpoint full node gRPC target
+   * @param grpcEndpointSolidity solidity node gRPC target
+   * @param keyPair the binding key pair
+   * @param clientInterceptors interceptors of both channels, may be null. Pass the same
+   *     instances to share channels.
+   */
+  public ApiWrapper(ChannelRegistry channelRegistry, String grpcEndpoint,
+      String grpcEndpointSolidity, KeyPair keyPair, List<ClientInterceptor> clientInterceptors) {
+    this(channelRegistry, grpcEndpoint, grpcEndpointSolidity, keyPair, clientInterceptors, null);
+  }
+
+  /**
+   * Create a wrapper on channels shared through a {@link ChannelRegistry}, built with the given
+   * transport settings.
+   *
+   * @param channelOptions transport settings, null for the defaults. Channels are only shared
+   *     between wrappers using the same {@code ChannelOptions} instance.
+   * @see #ApiWrapper(ChannelRegistry, String, String, KeyPair, List)
+   */
+  public ApiWrapper(ChannelRegistry channelRegistry, String grpcEndpoint,
+      String grpcEndpointSolidity, KeyPair keyPair, List<ClientInterceptor> clientInterceptors,
+      ChannelOptions channelOptions) {
+    this.channelRegistry = channelRegistry;
+    channel = channelRegistry.acquire(grpcEndpoint, clientInterceptors, channelOptions);
+    channelSolidity =
+        channelRegistry.acquire(grpcEndpointSolidity, clientInterceptors, channelOptions);
+    blockingStub = WalletGrpc.newBlockingStub(channel);
+    blockingStubSolidity = WalletSolidityGrpc.newBlockingStub(channelSolidity);
+    this.keyPair = keyPair;
+  }
+
+  /**
+   * Create a wrapper on channels built by the caller, e.g. in-process channels to a fake node.
+   * The wrapper owns the channels and shuts them down on {@link #close()}.
+   *
+   * @param channel full node channel
+   * @param channelSolidity solidity node channel
+   * @param keyPair the binding key pair
+   */
+  public ApiWrapper(ManagedChannel channel, ManagedChannel channelSolidity, KeyPair keyPair) {
+    this.channel = channel;
+    this.channelSolidity = channelSolidity;
+    blockingStub = WalletGrpc.newBlockingStub(channel);
+    blockingStubSolidity = WalletSolidityGrpc.newBlockingStub(channelSolidity);
+    this.keyPair = keyPair;
+  }
+
+  private ApiWrapper(ApiWrapper transport, KeyPair keyPair) {
+    channel = transport.channel;
+    channelSolidity = transport.channelSolidity;
+    blockingStub = transport.blockingStub;
+    blockingStubSolidity = transport.blockingStubSolidity;
+    this.keyPair = keyPair;
+    this.channelRegistry = transport.channelRegistry;
+    this.view = true;
+    this.enableLocalCreateTx = transport.enableLocalCreateTx;
+    this.referHeadBlockId = transport.referHeadBlockId;
+    this.expireTimeStamp = transport.expireTimeStamp;
+    this.blockArchive = transport.blockArchive;
+  }
+
+  /**
+   * Create a view of this wrapper bound to another key pair. The view shares the channels and
+   * stubs of this wrapper and copies its local-create settings, so it opens no connection and is
+   * cheap enough to create per request.
+   *
+   * <p>Closing a view does nothing; the channels stay open until this wrapper is closed.</p>
+   *
+   * @param keyPair the key pair the view signs with
+   * @return a new ApiWrapper sharing this wrapper's transport
+   */
+  public ApiWrapper withKey(KeyPair keyPair) {
+    return new ApiWrapper(this, keyPair);
+  }
+
   /**
    * The constructor for main net. Use LindaGrid as default
    *
@@ -325,6 +450,16 @@ public class ApiWrapper implements Api {
     this.expireTimeStamp = expireTime;
   }
 
+  /**
+   * Read blocks and transaction infos through a local archive. Only solidity node responses for
+   * heights at or below the solid head are stored, as full node blocks can still be reverted.
+   *
+   * @param blockArchive the archive, or null to always query the node
+   */
+  public void setBlockArchive(BlockArchive blockArchive) {
+    this.blockArchive = blockArchive;
+  }
+
   public synchronized void disableLocalCreate() {
     this.enableLocalCreateTx = false;
     this.referHeadBlockId = null;
@@ -351,6 +486,7 @@ public class ApiWrapper implements Api {
    * Generate random address
    *
    * @return A list, inside are the public key and private key
+   * @see org.linda.trident.core.key.BulkKeyGenerator
    */
   public static KeyPair generateAddress() {
     // generate random address
@@ -495,9 +631,25 @@ public class ApiWrapper implements Api {
     return builder.build();
   }
 
-  public void close() {
-    channel.shutdown();
-    channelSolidity.shutdown();
+  /**
+   * Shut down the channels of this wrapper, or give them back to the {@link ChannelRegistry}
+   * they came from. Does nothing for views created by {@link #withKey}.
+   */
+  public synchronized void close() {
+    if (view) {
+      return;
+    }
+    if (channelRegistry != null) {
+      if (released) {
+        return;
+      }
+      released = true;
+      channelRegistry.release(channel);
+      channelRegistry.release(channelSolidity);
+    } else {
+      channel.shutdown();
+      channelSolidity.shutdown();
+    }
   }
 
   @Override
@@ -637,7 +789,7 @@ public class ApiWrapper implements Api {
    */
   @Override
   public long estimateBandwidth(Transaction txn) {
-    return txn.toBuilder().clearRet().build().getSerializedSize() + 64L;
+    return ResourcePlanner.bandwidth(txn);
   }
 
   /**
@@ -672,6 +824,18 @@ public class ApiWrapper implements Api {
     }
   }
 
+  /**
+   * broadcast a transaction and return the response of the node instead of throwing on
+   * rejection.
+   *
+   * @param txn a signed transaction ready to be broadcasted
+   * @return the typed broadcasting result
+   */
+  public BroadcastResult broadcast(Transaction txn) {
+    TransactionReturn ret = blockingStub.broadcastTransaction(txn);
+    return BroadcastResult.of(txn, ByteArray.toHexString(calculateTransactionHash(txn)), ret);
+  }
+
   /**
    * Transfer LIND. amount in SUN
    *
@@ -1270,6 +1434,13 @@ public class ApiWrapper implements Api {
   @Override
   public BlockExtention getBlockByNum(long blockNum, NodeType... nodeType)
       throws IllegalException {
+    BlockArchive archive = blockArchive;
+    if (archive != null && blockNum >= 0) {
+      BlockExtention archived = archiveCall(() -> archive.getBlock(blockNum));
+      if (archived != null) {
+        return archived;
+      }
+    }
     NumberMessage.Builder builder = NumberMessage.newBuilder();
     builder.setNum(blockNum);
     BlockExtention block =
@@ -1280,6 +1451,11 @@ public class ApiWrapper implements Api {
     if (!block.hasBlockHeader()) {
       throw new IllegalException();
     }
+    if (archive != null && useSolidityNode(nodeType)
+        && block.getBlockHeader().getRawData().getNumber() == blockNum
+        && isSolid(archive, blockNum)) {
+      archiveCall(() -> archive.append(block));
+    }
     return block;
   }
 
@@ -1381,10 +1557,51 @@ public class ApiWrapper implements Api {
     if (blockNum < 0) {
       throw new IllegalException("blockNum must be >= 0");
     }
+    BlockArchive archive = blockArchive;
+    if (archive != null) {
+      TransactionInfoList archived = archiveCall(() -> archive.getTransactionInfos(blockNum));
+      if (archived != null) {
+        return archived;
+      }
+    }
     NumberMessage numberMessage = NumberMessage.newBuilder().setNum(blockNum).build();
-    return useSolidityNode(nodeType)
+    TransactionInfoList infos = useSolidityNode(nodeType)
         ? blockingStubSolidity.getTransactionInfoByBlockNum(numberMessage)
         : blockingStub.getTransactionInfoByBlockNum(numberMessage);
+    if (archive != null && useSolidityNode(nodeType) && isSolid(archive, blockNum)) {
+      archiveCall(() -> archive.appendTransactionInfos(blockNum, infos));
+    }
+    return infos;
+  }
+
+  /**
+   * Whether {@code blockNum} is known to be solid, so that what the solidity node answers for it
+   * is final and can be archived. A solidity node answers heights it has not reached yet with
+   * empty results, which must not be stored.
+   */
+  private boolean isSolid(BlockArchive archive, long blockNum) throws IllegalException {
+    if (blockNum <= solidBlockNum || archiveCall(() -> archive.containsBlock(blockNum))) {
+      return true;
+    }
+    long head = getNowBlock2(NodeType.SOLIDITY_NODE).getBlockHeader().getRawData().getNumber();
+    if (head > solidBlockNum) {
+      solidBlockNum = head;
+    }
+    return blockNum <= head;
+  }
+
+  @FunctionalInterface
+  private interface ArchiveCall<T> {
+
+    T call() throws IOException;
+  }
+
+  private static <T> T archiveCall(ArchiveCall<T> call) {
+    try {
+      return call.call();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /**
@@ -2312,6 +2529,30 @@ public class ApiWrapper implements Api {
         : blockingStub.triggerConstantContract(trigger);
   }
 
+  /**
+   * make a constant call with raw addresses and call data - no broadcasting, no need to broadcast.
+   * Skips the Base58/hex conversions of the String variants, which matters for bulk queries.
+   *
+   * @param ownerAddress the current caller, 21-byte address.
+   * @param contractAddress smart contract address, 21-byte address.
+   * @param callData the encoded function call data.
+   * @param nodeType Optional parameter to specify which node to query.
+   *                 If not provided, uses full node default.
+   *                 If NodeType.SOLIDITY_NODE, uses solidity node.
+   * @return TransactionExtention.
+   */
+  public TransactionExtention triggerConstantContract(ByteString ownerAddress,
+      ByteString contractAddress, ByteString callData, NodeType... nodeType) {
+    TriggerSmartContract trigger = TriggerSmartContract.newBuilder()
+        .setOwnerAddress(ownerAddress)
+        .setContractAddress(contractAddress)
+        .setData(callData)
+        .build();
+    return useSolidityNode(nodeType)
+        ? blockingStubSolidity.triggerConstantContract(trigger)
+        : blockingStub.triggerConstantContract(trigger);
+  }
+
   /**
    * make a constant call - no broadcasting, no need to broadcast
    *
@@ -2371,6 +2612,31 @@ public class ApiWrapper implements Api {
     return createTransactionExtention(trigger, ContractType.TriggerSmartContract, feeLimit);
   }
 
+  /**
+   * make a TriggerSmartContract with raw addresses and call data, built locally - no
+   * broadcasting. Skips the Base58/hex conversions of the String variant.
+   *
+   * @param ownerAddress the current caller, 21-byte address
+   * @param contractAddress smart contract address, 21-byte address
+   * @param callData the encoded function call data
+   * @param callValue the amount of sun send to contract. If not used, set 0
+   * @param feeLimit fee unit:SUN
+   * @return TransactionExtention
+   * @throws IllegalException if fail to create the transaction
+   */
+  public TransactionExtention triggerContract(ByteString ownerAddress,
+      ByteString contractAddress, ByteString callData, long callValue, long feeLimit)
+      throws IllegalException {
+    validateCallValue(callValue);
+    TriggerSmartContract trigger = TriggerSmartContract.newBuilder()
+        .setOwnerAddress(ownerAddress)
+        .setContractAddress(contractAddress)
+        .setData(callData)
+        .setCallValue(callValue)
+        .build();
+    return createTransactionExtention(trigger, ContractType.TriggerSmartContract, feeLimit);
+  }
+
   /**
    * GetBlockBalance
    * Get all balance change operations in a block(Note: At present, the interface data can only be queried through the following official nodes
@@ -0,0 +1,943 @@
+package org.linda.trident.core.archive;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.Getter;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.transaction.AddressWatchlist;
+import org.linda.trident.core.transaction.BlockView;
+import org.linda.trident.core.transaction.ContractParsers;
+import org.linda.trident.core.utils.FixedWidthBytesMap;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+/**
+ * A local index from address to the transactions that involve it, built from blocks fed in
+ * height order.
+ *
+ * <p>For every transaction, the owner and the recipient ({@code to_address} or
+ * {@code receiver_address}) of its contract and the sender and recipient of its LRC-20 / LRC-721
+ * {@code Transfer} logs get a posting (block number, transaction index, txid).</p>
+ *
+ * <p>Postings are collected in memory and flushed to immutable run files once they exceed
+ * {@link Builder#setFlushThresholdBytes}. A run holds the postings of each address as one
+ * delta-encoded list, followed by a directory of fixed-width entries sorted by address, and is
+ * memory-mapped; a lookup is a binary search of the directory of each run overlapping the
+ * queried heights. {@link #compact()} merges all runs into one.</p>
+ *
+ * <p>Every {@value #SKIP_INTERVAL} postings, a list records a skip point: the byte offset of the
+ * next posting and the block its delta is relative to. A query starts decoding at the last skip
+ * point before its first height, so a busy address with a long list is not decoded from its
+ * start.</p>
+ *
+ * <p>Postings still in memory are lost if the process dies; {@link #getLastIndexedBlock()} is
+ * the height to resume after.</p>
+ *
+ * <pre>
+ * try (AddressIndex index = new AddressIndex.Builder(Paths.get("address-index")).build()) {
+ *   new BackfillEngine.Builder(index.getLastIndexedBlock() + 1, head)
+ *       .addEndpoint(wrapper, 50)
+ *       .build()
+ *       .run(index::index);
+ *   List&lt;AddressIndex.Posting&gt; postings = index.query(address, 0, Long.MAX_VALUE);
+ * }
+ * </pre>
+ */
+public class AddressIndex implements AutoCloseable {
+
+  public static final int ADDRESS_SIZE = 21;
+
+  private static final int TXID_SIZE = 32;
+  private static final int WORD_SIZE = 32;
+  private static final byte ADDRESS_PREFIX = 0x41;
+  static final int SKIP_INTERVAL = 64;
+
+  // address, offset, length, count, first block, last block, skip points
+  private static final int ENTRY_SIZE = ADDRESS_SIZE + Long.BYTES + Integer.BYTES * 2
+      + Long.BYTES * 2 + Integer.BYTES;
+  // block the next delta is relative to, offset of the next posting in the list
+  private static final int SKIP_SIZE = Long.BYTES + Integer.BYTES;
+  // directory offset, entry count, min block, max block, first sequence, magic
+  private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES * 2
+      + Integer.BYTES * 2;
+  private static final int MAGIC = 0x41494459;
+  private static final String RUN_SUFFIX = ".run";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final Comparator<byte[]> ADDRESS_ORDER =
+      UnsignedBytes.lexicographicalComparator();
+
+  private static final Map<ContractType, FieldDescriptor[]> PARTICIPANT_FIELDS =
+      new EnumMap<>(ContractType.class);
+
+  static {
+    for (ContractType type : ContractType.values()) {
+      Message prototype = ContractParsers.prototype(type);
+      if (prototype == null) {
+        continue;
+      }
+      List<FieldDescriptor> fields = new ArrayList<>();
+      for (String name : new String[] {"owner_address", "to_address", "receiver_address"}) {
+        FieldDescriptor field = prototype.getDescriptorForType().findFieldByName(name);
+        if (field != null && !field.isRepeated()
+            && field.getType() == FieldDescriptor.Type.BYTES) {
+          fields.add(field);
+        }
+      }
+      PARTICIPANT_FIELDS.put(type, fields.toArray(new FieldDescriptor[0]));
+    }
+  }
+
+  private final Path directory;
+  private final long flushThresholdBytes;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // guarded by lock
+  private final List<Run> runs = new ArrayList<>();
+  private final byte[] scratch = new byte[ADDRESS_SIZE];
+  private FixedWidthBytesMap<PostingList> memtable;
+  private long memtableBytes;
+  private long memtableFirstBlock = -1;
+  private long lastIndexed = -1;
+  private int nextSeq;
+  private boolean closed;
+
+  private AddressIndex(Builder builder) throws IOException {
+    this.directory = builder.directory;
+    this.flushThresholdBytes = builder.flushThresholdBytes;
+    this.memtable = new FixedWidthBytesMap<>(ADDRESS_SIZE, 1024);
+    Files.createDirectories(directory);
+    load();
+  }
+
+  /**
+   * One transaction involving an address.
+   */
+  @Getter
+  public static final class Posting {
+
+    private final long blockNum;
+    private final int transactionIndex;
+    private final ByteString txid;
+
+    Posting(long blockNum, int transactionIndex, ByteString txid) {
+      this.blockNum = blockNum;
+      this.transactionIndex = transactionIndex;
+      this.txid = txid;
+    }
+
+    @Override
+    public String toString() {
+      return "Posting{block=" + blockNum + ", index=" + transactionIndex + "}";
+    }
+  }
+
+  /**
+   * Height of the last indexed block, -1 if none. Includes blocks not yet flushed.
+   */
+  public long getLastIndexedBlock() {
+    lock.readLock().lock();
+    try {
+      return lastIndexed;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Index the transactions of a block. Blocks must be fed in increasing height order, gaps are
+   * allowed. Matches {@code BackfillEngine.BlockConsumer}.
+   *
+   * @param infos the transaction infos of the block for LRC-20 transfers, may be null
+   * @throws IllegalArgumentException if the block is not above the last indexed one
+   * @throws UncheckedIOException if flushing postings failed
+   */
+  public void index(BlockExtention block, TransactionInfoList infos) {
+    long num = block.getBlockHeader().getRawData().getNumber();
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      if (num <= lastIndexed) {
+        throw new IllegalArgumentException("Block " + num
+            + " is not above the last indexed block " + lastIndexed);
+      }
+      BlockView view = BlockView.of(block);
+      TransactionInfo[] withLogs = new TransactionInfo[view.getTransactionCount()];
+      if (infos != null) {
+        for (int i = 0; i < infos.getTransactionInfoCount(); i++) {
+          TransactionInfo info = infos.getTransactionInfo(i);
+          int index = info.getLogCount() == 0 ? -1 : transactionIndex(view, info.getId(), i);
+          if (index >= 0) {
+            withLogs[index] = info;
+          }
+        }
+      }
+      // one transaction at a time, so the postings of an address stay in transaction order
+      for (int i = 0; i < view.getTransactionCount(); i++) {
+        indexContract(view.getTransaction(i), num);
+        if (withLogs[i] != null) {
+          indexLogs(withLogs[i], i, num);
+        }
+      }
+      if (memtableFirstBlock < 0) {
+        memtableFirstBlock = num;
+      }
+      lastIndexed = num;
+      if (memtableBytes >= flushThresholdBytes) {
+        flushLocked();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param address base58check or hex address
+   * @see #query(byte[], long, long, int)
+   */
+  public List<Posting> query(String address, long fromBlock, long toBlock) {
+    return query(ApiWrapper.parseAddress(address).toByteArray(), fromBlock, toBlock,
+        Integer.MAX_VALUE);
+  }
+
+  /**
+   * The transactions involving {@code address} in blocks {@code [fromBlock, toBlock]}, oldest
+   * first.
+   *
+   * @param address 21-byte address
+   * @param limit maximum number of postings returned
+   */
+  public List<Posting> query(byte[] address, long fromBlock, long toBlock, int limit) {
+    if (address.length != ADDRESS_SIZE) {
+      throw new IllegalArgumentException("address must be " + ADDRESS_SIZE + " bytes");
+    }
+    List<Posting> postings = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      checkOpen();
+      for (Run run : runs) {
+        if (postings.size() >= limit) {
+          return postings;
+        }
+        if (run.maxBlock < fromBlock || run.minBlock > toBlock) {
+          continue;
+        }
+        int entry = run.find(address);
+        if (entry >= 0 && run.lastBlock(entry) >= fromBlock && run.firstBlock(entry) <= toBlock) {
+          ByteBuffer buffer = run.postings(entry);
+          int skip = run.seek(entry, fromBlock);
+          long base = 0;
+          if (skip >= 0) {
+            base = run.skipBlock(entry, skip);
+            buffer.position(run.skipOffset(entry, skip));
+          }
+          decode(buffer, base, fromBlock, toBlock, limit, postings);
+        }
+      }
+      PostingList list = memtable.get(address);
+      if (list != null && postings.size() < limit) {
+        ByteBuffer buffer = ByteBuffer.wrap(list.data, 0, list.length);
+        int skip = list.seek(fromBlock);
+        long base = 0;
+        if (skip >= 0) {
+          base = list.skipBlocks[skip];
+          buffer.position(list.skipOffsets[skip]);
+        }
+        decode(buffer, base, fromBlock, toBlock, limit, postings);
+      }
+      return postings;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Write the postings held in memory to a new run.
+   */
+  public void flush() throws IOException {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      flushLocked();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Merge all runs into one, so a query does a single binary search per address. Postings in
+   * memory are not included.
+   */
+  public void compact() throws IOException {
+    lock.writeLock().lock();
+    try {
+      checkOpen();
+      if (runs.size() <= 1) {
+        return;
+      }
+      Run last = runs.get(runs.size() - 1);
+      Path tmp = directory.resolve(runName(last.seq) + TMP_SUFFIX);
+      try (RunWriter writer = new RunWriter(tmp)) {
+        merge(writer);
+        writer.finish(runs.get(0).minBlock, last.maxBlock, runs.get(0).firstSeq);
+      }
+      // the merged run replaces the newest one and records the oldest sequence it covers, so
+      // runs left over by a crash before the deletes below are dropped on load
+      Path target = directory.resolve(runName(last.seq));
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      for (Run run : runs) {
+        if (run != last) {
+          Files.deleteIfExists(run.path);
+        }
+      }
+      runs.clear();
+      runs.add(Run.open(target, last.seq));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Flush the postings in memory and release the runs.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      flushLocked();
+      runs.clear();
+      closed = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void indexContract(BlockView.TransactionView txn, long num) {
+    Transaction.raw raw = txn.getTransaction().getRawData();
+    if (raw.getContractCount() == 0) {
+      return;
+    }
+    FieldDescriptor[] fields = PARTICIPANT_FIELDS.get(raw.getContract(0).getType());
+    if (fields == null) {
+      return;
+    }
+    Message parameter;
+    try {
+      parameter = txn.getParameter();
+    } catch (InvalidProtocolBufferException e) {
+      return;
+    }
+    for (FieldDescriptor field : fields) {
+      ByteString address = (ByteString) parameter.getField(field);
+      if (address.size() == ADDRESS_SIZE) {
+        address.copyTo(scratch, 0);
+        add(scratch, num, txn.getIndex(), txn.getTxid());
+      }
+    }
+  }
+
+  private void indexLogs(TransactionInfo info, int index, long num) {
+    for (TransactionInfo.Log log : info.getLogList()) {
+      if (log.getTopicsCount() < 3 || !AddressWatchlist.TRANSFER_TOPIC.equals(log.getTopics(0))) {
+        continue;
+      }
+      for (int t = 1; t <= 2; t++) {
+        ByteString topic = log.getTopics(t);
+        if (topic.size() != WORD_SIZE) {
+          continue;
+        }
+        scratch[0] = ADDRESS_PREFIX;
+        topic.substring(WORD_SIZE - ADDRESS_SIZE + 1, WORD_SIZE).copyTo(scratch, 1);
+        add(scratch, num, index, info.getId());
+      }
+    }
+  }
+
+  /**
+   * Index of the transaction with {@code txid}, usually at the same position as its info.
+   */
+  private static int transactionIndex(BlockView view, ByteString txid, int position) {
+    if (position < view.getTransactionCount()
+        && view.getTransaction(position).getTxid().equals(txid)) {
+      return position;
+    }
+    for (int i = 0; i < view.getTransactionCount(); i++) {
+      if (view.getTransaction(i).getTxid().equals(txid)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void add(byte[] address, long num, int txIndex, ByteString txid) {
+    PostingList list = memtable.get(address);
+    if (list == null) {
+      list = new PostingList(address.clone());
+      memtable.put(list.address, list);
+      memtableBytes += ADDRESS_SIZE + 64;
+    }
+    int before = list.data.length;
+    list.append(num, txIndex, txid);
+    memtableBytes += list.data.length - before;
+  }
+
+  private void flushLocked() throws IOException {
+    if (memtableFirstBlock < 0) {
+      return;
+    }
+    List<PostingList> lists = new ArrayList<>(memtable.size());
+    memtable.forEachValue(lists::add);
+    lists.sort((a, b) -> ADDRESS_ORDER.compare(a.address, b.address));
+
+    int seq = nextSeq++;
+    Path tmp = directory.resolve(runName(seq) + TMP_SUFFIX);
+    try (RunWriter writer = new RunWriter(tmp)) {
+      for (PostingList list : lists) {
+        writer.begin(list.address);
+        writer.write(list.data, 0, list.length);
+        for (int i = 0; i < list.skips; i++) {
+          writer.skip(list.skipBlocks[i], list.skipOffsets[i]);
+        }
+        writer.end(list.first, list.last, list.count);
+      }
+      writer.finish(memtableFirstBlock, lastIndexed, seq);
+    }
+    Path target = directory.resolve(runName(seq));
+    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    runs.add(Run.open(target, seq));
+
+    memtable = new FixedWidthBytesMap<>(ADDRESS_SIZE, Math.max(1024, lists.size()));
+    memtableBytes = 0;
+    memtableFirstBlock = -1;
+  }
+
+  /**
+   * K-way merge of the run directories. The posting lists of one address are concatenated in
+   * run order, only the first delta of each following list is re-encoded. Their skip points are
+   * shifted to the merged list, and each following list starts at a new skip point.
+   */
+  private void merge(RunWriter writer) throws IOException {
+    PriorityQueue<Cursor> queue = new PriorityQueue<>((a, b) -> {
+      int order = a.run.compareAddress(a.entry, b.run, b.entry);
+      return order != 0 ? order : Integer.compare(a.order, b.order);
+    });
+    for (int i = 0; i < runs.size(); i++) {
+      if (runs.get(i).entries > 0) {
+        queue.add(new Cursor(runs.get(i), i));
+      }
+    }
+    List<Cursor> group = new ArrayList<>();
+    byte[] address = new byte[ADDRESS_SIZE];
+    while (!queue.isEmpty()) {
+      group.clear();
+      group.add(queue.poll());
+      while (!queue.isEmpty() && queue.peek().run.compareAddress(queue.peek().entry,
+          group.get(0).run, group.get(0).entry) == 0) {
+        group.add(queue.poll());
+      }
+      group.get(0).run.address(group.get(0).entry, address);
+      writer.begin(address);
+      long first = -1;
+      long last = -1;
+      int count = 0;
+      for (Cursor cursor : group) {
+        Run run = cursor.run;
+        ByteBuffer postings = run.postings(cursor.entry);
+        int start = writer.listLength();
+        // where the bytes after the first delta move to in the merged list
+        int shift = start;
+        if (last >= 0) {
+          writer.skip(last, start);
+          long firstBlock = readVarint(postings);
+          writer.writeVarint(firstBlock - last);
+          shift = writer.listLength() - postings.position();
+        } else {
+          first = run.firstBlock(cursor.entry);
+        }
+        writer.write(postings);
+        for (int i = 0; i < run.skipCount(cursor.entry); i++) {
+          writer.skip(run.skipBlock(cursor.entry, i), run.skipOffset(cursor.entry, i) + shift);
+        }
+        last = run.lastBlock(cursor.entry);
+        count += run.count(cursor.entry);
+        if (++cursor.entry < run.entries) {
+          queue.add(cursor);
+        }
+      }
+      writer.end(first, last, count);
+    }
+  }
+
+  /**
+   * Decode postings from the position of {@code buffer}, whose first delta is relative to
+   * {@code base}.
+   */
+  private static void decode(ByteBuffer buffer, long base, long fromBlock, long toBlock,
+      int limit, List<Posting> out) {
+    long block = base;
+    while (buffer.hasRemaining() && out.size() < limit) {
+      block += readVarint(buffer);
+      int txIndex = (int) readVarint(buffer);
+      if (block > toBlock) {
+        return;
+      }
+      if (block < fromBlock) {
+        buffer.position(buffer.position() + TXID_SIZE);
+        continue;
+      }
+      byte[] txid = new byte[TXID_SIZE];
+      buffer.get(txid);
+      out.add(new Posting(block, txIndex, UnsafeByteOperations.unsafeWrap(txid)));
+    }
+  }
+
+  private void load() throws IOException {
+    List<Run> loaded = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(TMP_SUFFIX)) {
+          Files.delete(file);
+        } else if (name.endsWith(RUN_SUFFIX)) {
+          int seq = Integer.parseInt(name.substring(0, name.length() - RUN_SUFFIX.length()));
+          loaded.add(Run.open(file, seq));
+        }
+      }
+    }
+    loaded.sort(Comparator.comparingInt(run -> run.seq));
+    for (Run run : loaded) {
+      // a compacted run covers the runs from its first sequence, left over if compaction was
+      // interrupted before deleting them
+      while (!runs.isEmpty() && runs.get(runs.size() - 1).seq >= run.firstSeq) {
+        Files.deleteIfExists(runs.remove(runs.size() - 1).path);
+      }
+      runs.add(run);
+    }
+    for (Run run : runs) {
+      lastIndexed = Math.max(lastIndexed, run.maxBlock);
+      nextSeq = Math.max(nextSeq, run.seq + 1);
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Index is closed");
+    }
+  }
+
+  private static String runName(int seq) {
+    return String.format("%010d", seq) + RUN_SUFFIX;
+  }
+
+  private static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  private static int writeVarint(byte[] target, int offset, long value) {
+    int position = offset;
+    while ((value & ~0x7fL) != 0) {
+      target[position++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    target[position++] = (byte) value;
+    return position;
+  }
+
+  /**
+   * The delta-encoded postings of one address in memory.
+   */
+  private static final class PostingList {
+
+    private final byte[] address;
+    private byte[] data = new byte[64];
+    private int length;
+    private int count;
+    private long first = -1;
+    private long last;
+    private int lastIndex = -1;
+    private long[] skipBlocks = new long[0];
+    private int[] skipOffsets = new int[0];
+    private int skips;
+
+    PostingList(byte[] address) {
+      this.address = address;
+    }
+
+    /**
+     * Last skip point whose preceding postings are all before {@code fromBlock}, or -1.
+     */
+    int seek(long fromBlock) {
+      int low = 0;
+      int high = skips - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (skipBlocks[mid] < fromBlock) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    void append(long block, int txIndex, ByteString txid) {
+      if (count > 0 && block == last && txIndex == lastIndex) {
+        // owner and recipient, or several logs, of the same transaction
+        return;
+      }
+      if (count > 0 && count % SKIP_INTERVAL == 0) {
+        if (skips == skipBlocks.length) {
+          skipBlocks = Arrays.copyOf(skipBlocks, Math.max(4, skips * 2));
+          skipOffsets = Arrays.copyOf(skipOffsets, skipBlocks.length);
+        }
+        skipBlocks[skips] = last;
+        skipOffsets[skips] = length;
+        skips++;
+      }
+      if (length + 20 + TXID_SIZE > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, length + 20 + TXID_SIZE));
+      }
+      length = writeVarint(data, length, count == 0 ? block : block - last);
+      length = writeVarint(data, length, txIndex);
+      txid.copyTo(data, length);
+      length += TXID_SIZE;
+      if (first < 0) {
+        first = block;
+      }
+      last = block;
+      lastIndex = txIndex;
+      count++;
+    }
+  }
+
+  private static final class Cursor {
+
+    private final Run run;
+    private final int order;
+    private int entry;
+
+    Cursor(Run run, int order) {
+      this.run = run;
+      this.order = order;
+    }
+  }
+
+  /**
+   * An immutable, memory-mapped run file.
+   */
+  private static final class Run {
+
+    private final Path path;
+    private final int seq;
+    private final MappedByteBuffer map;
+    private final int directoryOffset;
+    private final int entries;
+    private final long minBlock;
+    private final long maxBlock;
+    private final int firstSeq;
+
+    private Run(Path path, int seq, MappedByteBuffer map) throws IOException {
+      this.path = path;
+      this.seq = seq;
+      this.map = map;
+      int footer = map.capacity() - FOOTER_SIZE;
+      if (footer < 0 || map.getInt(footer + FOOTER_SIZE - Integer.BYTES) != MAGIC) {
+        throw new IOException("Corrupt index run " + path);
+      }
+      this.directoryOffset = (int) map.getLong(footer);
+      this.entries = map.getInt(footer + Long.BYTES);
+      this.minBlock = map.getLong(footer + Long.BYTES + Integer.BYTES);
+      this.maxBlock = map.getLong(footer + Long.BYTES * 2 + Integer.BYTES);
+      this.firstSeq = map.getInt(footer + Long.BYTES * 3 + Integer.BYTES);
+    }
+
+    static Run open(Path path, int seq) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("Index run larger than 2 GiB " + path);
+        }
+        return new Run(path, seq, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+    }
+
+    /**
+     * Entry of {@code address}, or -1.
+     */
+    int find(byte[] address) {
+      int low = 0;
+      int high = entries - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int order = compareAddress(mid, address);
+        if (order < 0) {
+          low = mid + 1;
+        } else if (order > 0) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+
+    private int entryOffset(int entry) {
+      return directoryOffset + entry * ENTRY_SIZE;
+    }
+
+    int compareAddress(int entry, byte[] address) {
+      int base = entryOffset(entry);
+      for (int i = 0; i < ADDRESS_SIZE; i++) {
+        int order = Integer.compare(map.get(base + i) & 0xff, address[i] & 0xff);
+        if (order != 0) {
+          return order;
+        }
+      }
+      return 0;
+    }
+
+    int compareAddress(int entry, Run other, int otherEntry) {
+      int base = entryOffset(entry);
+      int otherBase = other.entryOffset(otherEntry);
+      for (int i = 0; i < ADDRESS_SIZE; i++) {
+        int order = Integer.compare(map.get(base + i) & 0xff,
+            other.map.get(otherBase + i) & 0xff);
+        if (order != 0) {
+          return order;
+        }
+      }
+      return 0;
+    }
+
+    void address(int entry, byte[] target) {
+      int base = entryOffset(entry);
+      for (int i = 0; i < ADDRESS_SIZE; i++) {
+        target[i] = map.get(base + i);
+      }
+    }
+
+    ByteBuffer postings(int entry) {
+      int base = entryOffset(entry) + ADDRESS_SIZE;
+      int offset = (int) map.getLong(base);
+      int length = map.getInt(base + Long.BYTES);
+      ByteBuffer buffer = map.duplicate();
+      buffer.position(offset).limit(offset + length);
+      return buffer.slice();
+    }
+
+    int count(int entry) {
+      return map.getInt(entryOffset(entry) + ADDRESS_SIZE + Long.BYTES + Integer.BYTES);
+    }
+
+    long firstBlock(int entry) {
+      return map.getLong(entryOffset(entry) + ADDRESS_SIZE + Long.BYTES + Integer.BYTES * 2);
+    }
+
+    long lastBlock(int entry) {
+      return map.getLong(entryOffset(entry) + ADDRESS_SIZE + Long.BYTES * 2 + Integer.BYTES * 2);
+    }
+
+    int skipCount(int entry) {
+      return map.getInt(entryOffset(entry) + ADDRESS_SIZE + Long.BYTES * 3 + Integer.BYTES * 2);
+    }
+
+    private int skipPosition(int entry, int skip) {
+      int base = entryOffset(entry) + ADDRESS_SIZE;
+      return (int) map.getLong(base) + map.getInt(base + Long.BYTES) + skip * SKIP_SIZE;
+    }
+
+    long skipBlock(int entry, int skip) {
+      return map.getLong(skipPosition(entry, skip));
+    }
+
+    int skipOffset(int entry, int skip) {
+      return map.getInt(skipPosition(entry, skip) + Long.BYTES);
+    }
+
+    /**
+     * Last skip point of {@code entry} whose preceding postings are all before
+     * {@code fromBlock}, or -1.
+     */
+    int seek(int entry, long fromBlock) {
+      int low = 0;
+      int high = skipCount(entry) - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (skipBlock(entry, mid) < fromBlock) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+  }
+
+  /**
+   * Writes a run: the posting lists each followed by its skip points, then the directory, then
+   * the footer.
+   */
+  private static final class RunWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final OutputStream out;
+    private final ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+    private final DataOutputStream directory = new DataOutputStream(directoryBytes);
+    private final ByteArrayOutputStream skipBytes = new ByteArrayOutputStream();
+    private final DataOutputStream skips = new DataOutputStream(skipBytes);
+    private final byte[] buffer = new byte[8192];
+    private long position;
+    private long entryOffset;
+    private int entries;
+
+    RunWriter(Path path) throws IOException {
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+      this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+    }
+
+    void begin(byte[] address) throws IOException {
+      entryOffset = position;
+      directory.write(address);
+    }
+
+    void write(byte[] data, int offset, int length) throws IOException {
+      out.write(data, offset, length);
+      position += length;
+    }
+
+    void write(ByteBuffer data) throws IOException {
+      while (data.hasRemaining()) {
+        int length = Math.min(buffer.length, data.remaining());
+        data.get(buffer, 0, length);
+        write(buffer, 0, length);
+      }
+    }
+
+    void writeVarint(long value) throws IOException {
+      write(buffer, 0, AddressIndex.writeVarint(buffer, 0, value));
+    }
+
+    /**
+     * Bytes of the current posting list written so far.
+     */
+    int listLength() {
+      return (int) (position - entryOffset);
+    }
+
+    /**
+     * Add a skip point to the current posting list.
+     */
+    void skip(long base, int offset) throws IOException {
+      skips.writeLong(base);
+      skips.writeInt(offset);
+    }
+
+    void end(long firstBlock, long lastBlock, int count) throws IOException {
+      directory.writeLong(entryOffset);
+      directory.writeInt(listLength());
+      directory.writeInt(count);
+      directory.writeLong(firstBlock);
+      directory.writeLong(lastBlock);
+      directory.writeInt(skipBytes.size() / SKIP_SIZE);
+      skipBytes.writeTo(out);
+      position += skipBytes.size();
+      skipBytes.reset();
+      entries++;
+    }
+
+    void finish(long minBlock, long maxBlock, int firstSeq) throws IOException {
+      long directoryOffset = position;
+      directoryBytes.writeTo(out);
+      if (directoryOffset + directoryBytes.size() + FOOTER_SIZE > Integer.MAX_VALUE) {
+        throw new IOException("Index run larger than 2 GiB, flush more often");
+      }
+      DataOutputStream footer = new DataOutputStream(out);
+      footer.writeLong(directoryOffset);
+      footer.writeInt(entries);
+      footer.writeLong(minBlock);
+      footer.writeLong(maxBlock);
+      footer.writeInt(firstSeq);
+      footer.writeInt(MAGIC);
+      footer.flush();
+      channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  public static class Builder {
+
+    private final Path directory;
+    private long flushThresholdBytes = 64L << 20;
+
+    /**
+     * @param directory directory of the run files, created if missing
+     */
+    public Builder(Path directory) {
+      this.directory = directory;
+    }
+
+    /**
+     * Approximate size of the postings held in memory before they are flushed to a run,
+     * 64 MiB by default.
+     */
+    public Builder setFlushThresholdBytes(long flushThresholdBytes) {
+      if (flushThresholdBytes <= 0) {
+        throw new IllegalArgumentException("flushThresholdBytes must be > 0");
+      }
+      this.flushThresholdBytes = flushThresholdBytes;
+      return this;
+    }
+
+    public AddressIndex build() throws IOException {
+      return new AddressIndex(this);
+    }
+  }
+}
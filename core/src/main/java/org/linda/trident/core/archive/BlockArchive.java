@@ -0,0 +1,354 @@
+package org.linda.trident.core.archive;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.linda.trident.core.transaction.BlockView;
+import org.linda.trident.proto.Chain.Block;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+/**
+ * A local, append-only store of blocks and transaction infos, keyed by height.
+ *
+ * <p>Heights are grouped into segments of {@link Builder#setHeightsPerSegment} consecutive
+ * heights. Each segment is a data file of length-prefixed protobuf records, appended in any
+ * height order, and a memory-mapped index file holding the record offsets of every height of
+ * the segment. Reads parse straight from the memory-mapped data file with an aliasing
+ * {@link CodedInputStream}, so the {@code bytes} fields of the returned messages point into the
+ * mapping and nothing is copied onto the heap but the message objects.</p>
+ *
+ * <p>Records are never rewritten: appending a height that is already stored is ignored. Only
+ * store final blocks, e.g. from the solidity node.</p>
+ *
+ * <pre>
+ * try (BlockArchive archive = new BlockArchive.Builder(Paths.get("blocks")).build()) {
+ *   wrapper.setBlockArchive(archive);
+ *   BlockExtention block = wrapper.getBlockByNum(num, NodeType.SOLIDITY_NODE);
+ * }
+ * </pre>
+ */
+public class BlockArchive implements AutoCloseable {
+
+  private static final int BLOCK = 0;
+  private static final int TRANSACTION_INFOS = 1;
+  private static final int RECORD_KINDS = 2;
+  private static final int HEADER_SIZE = Integer.BYTES;
+
+  private final Path directory;
+  private final int heightsPerSegment;
+  private final boolean syncOnAppend;
+  private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  private BlockArchive(Builder builder) throws IOException {
+    this.directory = builder.directory;
+    this.heightsPerSegment = builder.heightsPerSegment;
+    this.syncOnAppend = builder.syncOnAppend;
+    Files.createDirectories(directory);
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Store a block.
+   *
+   * @return {@code false} if the height was already stored
+   */
+  public boolean append(BlockExtention block) throws IOException {
+    return write(block.getBlockHeader().getRawData().getNumber(), BLOCK, block);
+  }
+
+  /**
+   * Store a block, completed with its block id and transaction ids so it reads back as a
+   * {@code BlockExtention}.
+   *
+   * @return {@code false} if the height was already stored
+   */
+  public boolean append(Block block) throws IOException {
+    BlockView view = BlockView.of(block);
+    BlockExtention.Builder builder = BlockExtention.newBuilder()
+        .setBlockHeader(block.getBlockHeader())
+        .setBlockid(ByteString.copyFrom(view.getBlockId().getBytes()));
+    for (int i = 0; i < view.getTransactionCount(); i++) {
+      Transaction transaction = block.getTransactions(i);
+      builder.addTransactions(TransactionExtention.newBuilder()
+          .setTransaction(transaction)
+          .setTxid(view.getTransaction(i).getTxid()));
+    }
+    return append(builder.build());
+  }
+
+  /**
+   * Store the transaction infos of a block.
+   *
+   * @return {@code false} if the infos of this height were already stored
+   */
+  public boolean appendTransactionInfos(long height, TransactionInfoList infos)
+      throws IOException {
+    return write(height, TRANSACTION_INFOS, infos);
+  }
+
+  public boolean containsBlock(long height) throws IOException {
+    Segment segment = segment(height, false);
+    return segment != null && segment.offset(slot(height), BLOCK) >= 0;
+  }
+
+  /**
+   * Read a block.
+   *
+   * @return the block, or {@code null} if the height is not stored
+   */
+  public BlockExtention getBlock(long height) throws IOException {
+    return read(height, BLOCK, BlockExtention.parser());
+  }
+
+  /**
+   * Read the transaction infos of a block.
+   *
+   * @return the infos, or {@code null} if they are not stored
+   */
+  public TransactionInfoList getTransactionInfos(long height) throws IOException {
+    return read(height, TRANSACTION_INFOS, TransactionInfoList.parser());
+  }
+
+  /**
+   * Force appended records and index entries to disk.
+   */
+  public void flush() throws IOException {
+    for (Segment segment : segments.values()) {
+      segment.flush();
+    }
+  }
+
+  /**
+   * Flush and close the files. Messages read from the archive must not be used afterwards.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Segment segment : segments.values()) {
+      segment.close();
+    }
+    segments.clear();
+  }
+
+  private synchronized boolean write(long height, int kind, MessageLite message)
+      throws IOException {
+    checkOpen();
+    Segment segment = segment(height, true);
+    return segment.append(slot(height), kind, message, syncOnAppend);
+  }
+
+  private <T> T read(long height, int kind, Parser<T> parser) throws IOException {
+    checkOpen();
+    Segment segment = segment(height, false);
+    if (segment == null) {
+      return null;
+    }
+    ByteBuffer record = segment.read(slot(height), kind);
+    if (record == null) {
+      return null;
+    }
+    CodedInputStream input = CodedInputStream.newInstance(record);
+    input.enableAliasing(true);
+    input.setSizeLimit(Integer.MAX_VALUE);
+    return parser.parseFrom(input);
+  }
+
+  private int slot(long height) {
+    return (int) (height % heightsPerSegment);
+  }
+
+  private Segment segment(long height, boolean create) throws IOException {
+    if (height < 0) {
+      throw new IllegalArgumentException("height must be >= 0");
+    }
+    long first = height / heightsPerSegment * heightsPerSegment;
+    Segment segment = segments.get(first);
+    if (segment != null) {
+      return segment;
+    }
+    synchronized (this) {
+      checkOpen();
+      segment = segments.get(first);
+      if (segment == null) {
+        Path data = directory.resolve(String.format("%012d.dat", first));
+        if (!create && !Files.exists(data)) {
+          return null;
+        }
+        segment = new Segment(data, directory.resolve(String.format("%012d.idx", first)),
+            heightsPerSegment);
+        segments.put(first, segment);
+      }
+      return segment;
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Archive is closed");
+    }
+  }
+
+  /**
+   * One data file and its index. Appends are serialized by the archive; reads are lock-free.
+   */
+  private static final class Segment {
+
+    private final FileChannel data;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer index;
+    // published after the index entry, read before it
+    private volatile long size;
+    private volatile MappedByteBuffer mapped;
+
+    Segment(Path dataFile, Path indexFile, int heights) throws IOException {
+      this.data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long indexSize = (long) heights * RECORD_KINDS * Long.BYTES;
+      if (indexChannel.size() != 0 && indexChannel.size() != indexSize) {
+        data.close();
+        indexChannel.close();
+        throw new IOException(indexFile + " was written with another heights per segment");
+      }
+      this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
+      this.size = data.size();
+    }
+
+    /**
+     * Offset of the record, or -1. Entries are stored as offset + 1 so that 0 means absent.
+     */
+    long offset(int slot, int kind) {
+      long limit = size;
+      long offset = index.getLong((slot * RECORD_KINDS + kind) * Long.BYTES) - 1;
+      // an index entry flushed before its record may survive a crash
+      return offset >= 0 && offset + HEADER_SIZE <= limit ? offset : -1;
+    }
+
+    boolean append(int slot, int kind, MessageLite message, boolean sync) throws IOException {
+      if (offset(slot, kind) >= 0) {
+        return false;
+      }
+      byte[] payload = message.toByteArray();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(payload.length);
+      header.flip();
+      long position = size;
+      data.position(position);
+      ByteBuffer body = ByteBuffer.wrap(payload);
+      while (header.hasRemaining() || body.hasRemaining()) {
+        data.write(new ByteBuffer[] {header, body});
+      }
+      if (sync) {
+        data.force(false);
+      }
+      index.putLong((slot * RECORD_KINDS + kind) * Long.BYTES, position + 1);
+      size = position + HEADER_SIZE + payload.length;
+      return true;
+    }
+
+    ByteBuffer read(int slot, int kind) throws IOException {
+      long offset = offset(slot, kind);
+      if (offset < 0) {
+        return null;
+      }
+      MappedByteBuffer map = mapped;
+      if (map == null || map.capacity() < offset + HEADER_SIZE) {
+        map = remap();
+      }
+      int length = map.getInt((int) offset);
+      int start = (int) offset + HEADER_SIZE;
+      if (map.capacity() < (long) start + length) {
+        map = remap();
+        if (map.capacity() < (long) start + length) {
+          // record truncated by a crash
+          return null;
+        }
+      }
+      ByteBuffer record = map.duplicate();
+      record.position(start).limit(start + length);
+      return record.slice();
+    }
+
+    private synchronized MappedByteBuffer remap() throws IOException {
+      long length = data.size();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("Segment larger than 2 GiB, use fewer heights per segment");
+      }
+      MappedByteBuffer map = mapped;
+      if (map == null || map.capacity() < length) {
+        map = data.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        mapped = map;
+      }
+      return map;
+    }
+
+    void flush() throws IOException {
+      data.force(false);
+      index.force();
+    }
+
+    void close() throws IOException {
+      flush();
+      data.close();
+      indexChannel.close();
+    }
+  }
+
+  public static class Builder {
+
+    private final Path directory;
+    private int heightsPerSegment = 10_000;
+    private boolean syncOnAppend;
+
+    /**
+     * @param directory directory of the segment files, created if missing
+     */
+    public Builder(Path directory) {
+      this.directory = directory;
+    }
+
+    /**
+     * Heights per segment, 10000 by default. A segment data file is limited to 2 GiB.
+     */
+    public Builder setHeightsPerSegment(int heightsPerSegment) {
+      if (heightsPerSegment <= 0) {
+        throw new IllegalArgumentException("heightsPerSegment must be > 0");
+      }
+      this.heightsPerSegment = heightsPerSegment;
+      return this;
+    }
+
+    /**
+     * Force every appended record to disk before indexing it, false by default. Without it a
+     * crash may lose the last appended records, which are then simply absent.
+     */
+    public Builder setSyncOnAppend(boolean syncOnAppend) {
+      this.syncOnAppend = syncOnAppend;
+      return this;
+    }
+
+    public BlockArchive build() throws IOException {
+      return new BlockArchive(this);
+    }
+  }
+}
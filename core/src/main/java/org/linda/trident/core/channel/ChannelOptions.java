@@ -0,0 +1,290 @@
+package org.linda.trident.core.channel;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.linda.trident.core.interceptor.AliasingMarshallerInterceptor;
+
+/**
+ * Transport settings for the gRPC channels of an {@link org.linda.trident.core.ApiWrapper}.
+ *
+ * <p>All channels built from one {@code ChannelOptions} instance share a single Netty event-loop
+ * group, created on first use, so many wrappers do not each start their own I/O threads. Call
+ * {@link #shutdown()} once every channel built from it has been closed.</p>
+ *
+ * <pre>
+ * ChannelOptions options = ChannelOptions.builder()
+ *     .setTransport(ChannelOptions.Transport.EPOLL)
+ *     .setFlowControlWindow(16 * 1024 * 1024)
+ *     .setMaxInboundMessageSize(64 * 1024 * 1024)
+ *     .setKeepAliveTime(30, TimeUnit.SECONDS)
+ *     .build();
+ * ApiWrapper wrapper = new ApiWrapper(fullNode, solidityNode, privateKey, options);
+ * </pre>
+ */
+public final class ChannelOptions {
+
+  /**
+   * Netty transport of the channels.
+   */
+  public enum Transport {
+    /**
+     * Epoll when the native library is available, NIO otherwise.
+     */
+    AUTO,
+    NIO,
+    /**
+     * Linux native epoll. Fails at channel creation when not available.
+     */
+    EPOLL
+  }
+
+  private final Transport transport;
+  private final int eventLoopThreads;
+  private final int flowControlWindow;
+  private final int maxInboundMessageSize;
+  private final long keepAliveTimeNanos;
+  private final long keepAliveTimeoutNanos;
+  private final boolean keepAliveWithoutCalls;
+  private final long idleTimeoutNanos;
+  private final boolean requestGzip;
+  private final boolean aliasingParsing;
+
+  private EventLoopGroup eventLoopGroup;
+  private boolean epoll;
+
+  private ChannelOptions(Builder builder) {
+    this.transport = builder.transport;
+    this.eventLoopThreads = builder.eventLoopThreads;
+    this.flowControlWindow = builder.flowControlWindow;
+    this.maxInboundMessageSize = builder.maxInboundMessageSize;
+    this.keepAliveTimeNanos = builder.keepAliveTimeNanos;
+    this.keepAliveTimeoutNanos = builder.keepAliveTimeoutNanos;
+    this.keepAliveWithoutCalls = builder.keepAliveWithoutCalls;
+    this.idleTimeoutNanos = builder.idleTimeoutNanos;
+    this.requestGzip = builder.requestGzip;
+    this.aliasingParsing = builder.aliasingParsing;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Transport getTransport() {
+    return transport;
+  }
+
+  public boolean isRequestGzip() {
+    return requestGzip;
+  }
+
+  /**
+   * Build a plaintext channel to {@code target} with these settings.
+   *
+   * @param target gRPC target
+   * @param interceptors channel interceptors, may be null
+   */
+  public ManagedChannel newChannel(String target, List<ClientInterceptor> interceptors) {
+    NettyChannelBuilder builder = NettyChannelBuilder.forTarget(target).usePlaintext();
+    EventLoopGroup group = eventLoopGroup();
+    builder.eventLoopGroup(group)
+        .channelType(epoll ? EpollSocketChannel.class : NioSocketChannel.class);
+    if (flowControlWindow > 0) {
+      builder.flowControlWindow(flowControlWindow);
+    }
+    if (maxInboundMessageSize > 0) {
+      builder.maxInboundMessageSize(maxInboundMessageSize);
+    }
+    if (keepAliveTimeNanos > 0) {
+      builder.keepAliveTime(keepAliveTimeNanos, TimeUnit.NANOSECONDS)
+          .keepAliveWithoutCalls(keepAliveWithoutCalls);
+    }
+    if (keepAliveTimeoutNanos > 0) {
+      builder.keepAliveTimeout(keepAliveTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+    if (idleTimeoutNanos > 0) {
+      builder.idleTimeout(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    List<ClientInterceptor> all = new ArrayList<>();
+    if (interceptors != null) {
+      all.addAll(interceptors);
+    }
+    if (requestGzip) {
+      all.add(new GzipInterceptor());
+    }
+    if (aliasingParsing) {
+      all.add(new AliasingMarshallerInterceptor());
+    }
+    return builder.intercept(all).build();
+  }
+
+  /**
+   * Shut down the shared event-loop group. Channels built from these options must be closed
+   * first.
+   */
+  public synchronized void shutdown() {
+    if (eventLoopGroup != null) {
+      eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+      eventLoopGroup = null;
+    }
+  }
+
+  private synchronized EventLoopGroup eventLoopGroup() {
+    if (eventLoopGroup == null) {
+      epoll = transport == Transport.EPOLL
+          || (transport == Transport.AUTO && Epoll.isAvailable());
+      if (epoll) {
+        Epoll.ensureAvailability();
+      }
+      DefaultThreadFactory threadFactory = new DefaultThreadFactory("trident-grpc-"
+          + (epoll ? "epoll" : "nio"), true);
+      eventLoopGroup = epoll
+          ? new EpollEventLoopGroup(eventLoopThreads, threadFactory)
+          : new NioEventLoopGroup(eventLoopThreads, threadFactory);
+    }
+    return eventLoopGroup;
+  }
+
+  /**
+   * Compresses request messages with gzip.
+   */
+  private static final class GzipInterceptor implements ClientInterceptor {
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+      return next.newCall(method, callOptions.withCompression("gzip"));
+    }
+  }
+
+  public static class Builder {
+
+    private Transport transport = Transport.AUTO;
+    private int eventLoopThreads;
+    private int flowControlWindow;
+    private int maxInboundMessageSize;
+    private long keepAliveTimeNanos;
+    private long keepAliveTimeoutNanos;
+    private boolean keepAliveWithoutCalls;
+    private long idleTimeoutNanos;
+    private boolean requestGzip;
+    private boolean aliasingParsing;
+
+    public Builder setTransport(Transport transport) {
+      this.transport = transport;
+      return this;
+    }
+
+    /**
+     * Threads of the shared event-loop group, 0 (default) for Netty's default of twice the
+     * number of cores.
+     */
+    public Builder setEventLoopThreads(int eventLoopThreads) {
+      checkNotNegative(eventLoopThreads, "eventLoopThreads");
+      this.eventLoopThreads = eventLoopThreads;
+      return this;
+    }
+
+    /**
+     * Initial HTTP/2 flow-control window in bytes. Larger windows let big responses such as
+     * {@code getBlockByLimitNext} stream without waiting for window updates. 0 keeps the gRPC
+     * default (1 MiB).
+     */
+    public Builder setFlowControlWindow(int flowControlWindow) {
+      checkNotNegative(flowControlWindow, "flowControlWindow");
+      this.flowControlWindow = flowControlWindow;
+      return this;
+    }
+
+    /**
+     * Largest response accepted, in bytes. 0 keeps the gRPC default (4 MiB).
+     */
+    public Builder setMaxInboundMessageSize(int maxInboundMessageSize) {
+      checkNotNegative(maxInboundMessageSize, "maxInboundMessageSize");
+      this.maxInboundMessageSize = maxInboundMessageSize;
+      return this;
+    }
+
+    /**
+     * Send a keepalive ping after {@code time} without reads. 0 (default) disables keepalive.
+     */
+    public Builder setKeepAliveTime(long time, TimeUnit unit) {
+      checkNotNegative(time, "keepAliveTime");
+      this.keepAliveTimeNanos = unit.toNanos(time);
+      return this;
+    }
+
+    public Builder setKeepAliveTimeout(long timeout, TimeUnit unit) {
+      checkNotNegative(timeout, "keepAliveTimeout");
+      this.keepAliveTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * Keep pinging while no call is active, so idle connections are not dropped by NATs or
+     * load balancers. Only used with {@link #setKeepAliveTime}.
+     */
+    public Builder setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+      this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+      return this;
+    }
+
+    /**
+     * Release the connection after {@code timeout} without calls. 0 keeps the gRPC default
+     * (30 minutes).
+     */
+    public Builder setIdleTimeout(long timeout, TimeUnit unit) {
+      checkNotNegative(timeout, "idleTimeout");
+      this.idleTimeoutNanos = unit.toNanos(timeout);
+      return this;
+    }
+
+    /**
+     * Compress request messages with gzip, which pays off for large requests such as
+     * broadcasts of big contract deployments.
+     *
+     * <p>Responses are not affected: gRPC clients always accept gzip responses, but whether a
+     * response is compressed is decided by the node's server configuration.</p>
+     */
+    public Builder setRequestGzip(boolean requestGzip) {
+      this.requestGzip = requestGzip;
+      return this;
+    }
+
+    /**
+     * Parse block and transaction-info responses with an aliasing {@code CodedInputStream}, so
+     * their {@code bytes} fields share the response buffer instead of being copied.
+     *
+     * @see AliasingMarshallerInterceptor
+     */
+    public Builder setAliasingParsing(boolean aliasingParsing) {
+      this.aliasingParsing = aliasingParsing;
+      return this;
+    }
+
+    public ChannelOptions build() {
+      return new ChannelOptions(this);
+    }
+
+    private static void checkNotNegative(long value, String name) {
+      if (value < 0) {
+        throw new IllegalArgumentException(name + " must be >= 0");
+      }
+    }
+  }
+}
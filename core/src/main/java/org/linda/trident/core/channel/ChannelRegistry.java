@@ -0,0 +1,185 @@
+package org.linda.trident.core.channel;
+
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code ChannelRegistry} shares one {@link ManagedChannel} per (endpoint, interceptors)
+ * pair between any number of {@link org.linda.trident.core.ApiWrapper} instances.
+ *
+ * <p>Channels are reference counted: {@link #acquire} opens the channel on first use and
+ * {@link #release} shuts it down when the last user lets go. Interceptors are compared with
+ * {@code equals}, which for most interceptors is identity, so callers that want to share a
+ * channel must pass the same interceptor instances.</p>
+ *
+ * @see org.linda.trident.core.ApiWrapper#withKey(org.linda.trident.core.key.KeyPair)
+ */
+public class ChannelRegistry {
+
+  private static final ChannelRegistry DEFAULT = new ChannelRegistry();
+
+  private final Map<Key, Entry> entries = new HashMap<>();
+  private final Map<ManagedChannel, Entry> byChannel = new IdentityHashMap<>();
+
+  /**
+   * The process-wide registry.
+   */
+  public static ChannelRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Get the shared channel for {@code target}, creating it if needed, and take a reference.
+   *
+   * @param target gRPC target, e.g. {@code grpc.lindagrid.io:50051}
+   * @param interceptors channel interceptors, may be empty
+   * @return the shared channel. Must be given back with {@link #release}, never shut down
+   *     directly.
+   */
+  public ManagedChannel acquire(String target, List<ClientInterceptor> interceptors) {
+    return acquire(target, interceptors, null);
+  }
+
+  /**
+   * Get the shared channel for {@code target} built with {@code options}, creating it if
+   * needed, and take a reference. Options are compared by identity.
+   *
+   * @param target gRPC target, e.g. {@code grpc.lindagrid.io:50051}
+   * @param interceptors channel interceptors, may be empty
+   * @param options transport settings, null for the defaults
+   * @return the shared channel. Must be given back with {@link #release}, never shut down
+   *     directly.
+   */
+  public synchronized ManagedChannel acquire(String target, List<ClientInterceptor> interceptors,
+      ChannelOptions options) {
+    Key key = new Key(target, interceptors, options);
+    Entry entry = entries.get(key);
+    if (entry == null || entry.channel.isShutdown()) {
+      if (entry != null) {
+        // shut down behind our back, its holders may still release it
+        entry.replaced = true;
+      }
+      entry = new Entry(key, createChannel(key));
+      entries.put(key, entry);
+      byChannel.put(entry.channel, entry);
+    }
+    entry.references++;
+    return entry.channel;
+  }
+
+  /**
+   * Give back a reference taken by {@link #acquire}. The channel is shut down when no reference
+   * is left. Releasing a channel that was shut down and replaced by a new one only drops the
+   * reference.
+   *
+   * @throws IllegalArgumentException if the channel does not belong to this registry
+   */
+  public synchronized void release(ManagedChannel channel) {
+    Entry entry = byChannel.get(channel);
+    if (entry == null) {
+      throw new IllegalArgumentException("Channel is not managed by this registry");
+    }
+    if (--entry.references == 0) {
+      byChannel.remove(channel);
+      if (!entry.replaced) {
+        entries.remove(entry.key, entry);
+      }
+      channel.shutdown();
+    }
+  }
+
+  /**
+   * Number of open shared channels.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Number of references currently held on {@code channel}, 0 if it is not managed here.
+   */
+  public synchronized int referenceCount(ManagedChannel channel) {
+    Entry entry = byChannel.get(channel);
+    return entry == null ? 0 : entry.references;
+  }
+
+  protected ManagedChannel createChannel(Key key) {
+    if (key.options != null) {
+      return key.options.newChannel(key.target, key.interceptors);
+    }
+    return ManagedChannelBuilder.forTarget(key.target)
+        .usePlaintext()
+        .intercept(key.interceptors)
+        .build();
+  }
+
+  /**
+   * Registry key, the endpoint, the ordered interceptor list and the transport options.
+   */
+  protected static final class Key {
+
+    private final String target;
+    private final List<ClientInterceptor> interceptors;
+    private final ChannelOptions options;
+
+    Key(String target, List<ClientInterceptor> interceptors, ChannelOptions options) {
+      this.target = Objects.requireNonNull(target, "target");
+      this.interceptors = interceptors == null
+          ? Collections.emptyList()
+          : Collections.unmodifiableList(new ArrayList<>(interceptors));
+      this.options = options;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    public List<ClientInterceptor> getInterceptors() {
+      return interceptors;
+    }
+
+    public ChannelOptions getOptions() {
+      return options;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return target.equals(that.target) && interceptors.equals(that.interceptors)
+          && options == that.options;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * target.hashCode() + interceptors.hashCode())
+          + System.identityHashCode(options);
+    }
+  }
+
+  private static final class Entry {
+
+    private final Key key;
+    private final ManagedChannel channel;
+    private int references;
+    private boolean replaced;
+
+    Entry(Key key, ManagedChannel channel) {
+      this.key = key;
+      this.channel = channel;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package org.linda.trident.core.contract;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.linda.trident.crypto.Hash;
+
+/**
+ * Byte level helpers for ABI words.
+ *
+ * <p>These helpers read and write 32-byte ABI words directly in {@code byte[]} buffers, so hot
+ * paths such as {@link Lrc20Contract} or {@link BatchConstantCaller} can build call data and
+ * decode results without going through {@link org.linda.trident.abi.FunctionEncoder},
+ * {@link org.linda.trident.abi.FunctionReturnDecoder} and their hex string representation.</p>
+ *
+ * @see org.linda.trident.abi.TypeEncoder
+ * @see org.linda.trident.abi.TypeDecoder
+ */
+public final class AbiBytes {
+
+  public static final int WORD_SIZE = 32;
+  public static final int SELECTOR_SIZE = 4;
+  public static final byte ADDRESS_PREFIX = 0x41;
+
+  private AbiBytes() {
+  }
+
+  /**
+   * Compute the 4-byte function selector of a canonical signature, e.g.
+   * {@code balanceOf(address)}.
+   */
+  public static byte[] selector(String signature) {
+    byte[] hash = Hash.sha3(signature.getBytes(StandardCharsets.UTF_8));
+    return Arrays.copyOf(hash, SELECTOR_SIZE);
+  }
+
+  /**
+   * Write an address into the word starting at {@code offset}. Accepts both the 21-byte form
+   * (with the 0x41 prefix) and the 20-byte form.
+   */
+  public static void writeAddress(byte[] dest, int offset, byte[] address) {
+    int len = address.length;
+    if (len != 20 && len != 21) {
+      throw new IllegalArgumentException("address must be 20 or 21 bytes, got " + len);
+    }
+    Arrays.fill(dest, offset, offset + WORD_SIZE - 20, (byte) 0);
+    System.arraycopy(address, len - 20, dest, offset + WORD_SIZE - 20, 20);
+  }
+
+  /**
+   * Write an unsigned 256-bit integer into the word starting at {@code offset}.
+   */
+  public static void writeUint256(byte[] dest, int offset, BigInteger value) {
+    if (value.signum() < 0 || value.bitLength() > 256) {
+      throw new IllegalArgumentException("value out of uint256 range: " + value);
+    }
+    byte[] raw = value.toByteArray();
+    int start = raw.length > WORD_SIZE ? raw.length - WORD_SIZE : 0; // drop the sign byte
+    int len = raw.length - start;
+    Arrays.fill(dest, offset, offset + WORD_SIZE - len, (byte) 0);
+    System.arraycopy(raw, start, dest, offset + WORD_SIZE - len, len);
+  }
+
+  /**
+   * Write a non-negative long into the word starting at {@code offset}.
+   */
+  public static void writeUint256(byte[] dest, int offset, long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("value must be >= 0");
+    }
+    Arrays.fill(dest, offset, offset + WORD_SIZE - 8, (byte) 0);
+    for (int i = 0; i < 8; i++) {
+      dest[offset + WORD_SIZE - 1 - i] = (byte) (value >>> (i << 3));
+    }
+  }
+
+  /**
+   * Write an unsigned integer of at most {@code bits} bits into the word starting at
+   * {@code offset}, as a {@code uint<bits>}.
+   */
+  public static void writeUint(byte[] dest, int offset, BigInteger value, int bits) {
+    if (value.signum() < 0 || value.bitLength() > bits) {
+      throw new IllegalArgumentException("value out of uint" + bits + " range: " + value);
+    }
+    writeUint256(dest, offset, value);
+  }
+
+  /**
+   * Write a signed integer of at most {@code bits} bits, sign extended, into the word starting
+   * at {@code offset}, as an {@code int<bits>}.
+   */
+  public static void writeInt(byte[] dest, int offset, BigInteger value, int bits) {
+    if (value.bitLength() > bits - 1) {
+      throw new IllegalArgumentException("value out of int" + bits + " range: " + value);
+    }
+    byte[] raw = value.toByteArray();
+    Arrays.fill(dest, offset, offset + WORD_SIZE - raw.length,
+        value.signum() < 0 ? (byte) 0xff : (byte) 0);
+    System.arraycopy(raw, 0, dest, offset + WORD_SIZE - raw.length, raw.length);
+  }
+
+  /**
+   * Write a bool into the word starting at {@code offset}.
+   */
+  public static void writeBool(byte[] dest, int offset, boolean value) {
+    Arrays.fill(dest, offset, offset + WORD_SIZE - 1, (byte) 0);
+    dest[offset + WORD_SIZE - 1] = value ? (byte) 1 : (byte) 0;
+  }
+
+  /**
+   * Write a {@code bytes<size>} value, left aligned, into the word starting at {@code offset}.
+   */
+  public static void writeFixedBytes(byte[] dest, int offset, byte[] value, int size) {
+    if (value.length != size) {
+      throw new IllegalArgumentException(
+          "bytes" + size + " value must be " + size + " bytes, got " + value.length);
+    }
+    System.arraycopy(value, 0, dest, offset, size);
+    Arrays.fill(dest, offset + size, offset + WORD_SIZE, (byte) 0);
+  }
+
+  /**
+   * Write a dynamic {@code bytes} value, its length word then its padded data, starting at
+   * {@code offset}.
+   *
+   * @return the number of bytes written, {@link #encodedLength(byte[])}
+   */
+  public static int writeBytes(byte[] dest, int offset, byte[] value) {
+    writeUint256(dest, offset, value.length);
+    System.arraycopy(value, 0, dest, offset + WORD_SIZE, value.length);
+    int end = offset + encodedLength(value);
+    Arrays.fill(dest, offset + WORD_SIZE + value.length, end, (byte) 0);
+    return end - offset;
+  }
+
+  /**
+   * Size of the encoding of a dynamic {@code bytes} value: its length word and padded data.
+   */
+  public static int encodedLength(byte[] value) {
+    return WORD_SIZE + padded(value.length);
+  }
+
+  /**
+   * Read the word starting at {@code offset} as an unsigned 256-bit integer.
+   */
+  public static BigInteger readUint256(byte[] src, int offset) {
+    checkWord(src, offset);
+    return new BigInteger(1, Arrays.copyOfRange(src, offset, offset + WORD_SIZE));
+  }
+
+  /**
+   * Read the word starting at {@code offset} as a non-negative int, failing if it does not fit.
+   * Used for offsets and lengths.
+   */
+  public static int readUintAsInt(byte[] src, int offset) {
+    checkWord(src, offset);
+    for (int i = offset; i < offset + WORD_SIZE - 4; i++) {
+      if (src[i] != 0) {
+        throw new IllegalArgumentException("word at " + offset + " does not fit in an int");
+      }
+    }
+    int value = ((src[offset + 28] & 0xff) << 24) | ((src[offset + 29] & 0xff) << 16)
+        | ((src[offset + 30] & 0xff) << 8) | (src[offset + 31] & 0xff);
+    if (value < 0) {
+      throw new IllegalArgumentException("word at " + offset + " does not fit in an int");
+    }
+    return value;
+  }
+
+  /**
+   * Read the word starting at {@code offset} as a signed 256-bit integer.
+   */
+  public static BigInteger readInt256(byte[] src, int offset) {
+    checkWord(src, offset);
+    return new BigInteger(Arrays.copyOfRange(src, offset, offset + WORD_SIZE));
+  }
+
+  /**
+   * Read the {@code size} leading bytes of the word starting at {@code offset}, a
+   * {@code bytes<size>} value.
+   */
+  public static byte[] readFixedBytes(byte[] src, int offset, int size) {
+    checkWord(src, offset);
+    return Arrays.copyOfRange(src, offset, offset + size);
+  }
+
+  /**
+   * Read the word starting at {@code offset} as a bool.
+   */
+  public static boolean readBool(byte[] src, int offset) {
+    checkWord(src, offset);
+    return src[offset + WORD_SIZE - 1] != 0;
+  }
+
+  /**
+   * Read the word starting at {@code offset} as a 21-byte address with the 0x41 prefix.
+   */
+  public static byte[] readAddress(byte[] src, int offset) {
+    checkWord(src, offset);
+    byte[] address = new byte[21];
+    address[0] = ADDRESS_PREFIX;
+    System.arraycopy(src, offset + WORD_SIZE - 20, address, 1, 20);
+    return address;
+  }
+
+  /**
+   * Read a dynamic {@code bytes} value whose length word starts at {@code offset}.
+   */
+  public static byte[] readBytes(byte[] src, int offset) {
+    int length = readUintAsInt(src, offset);
+    int start = offset + WORD_SIZE;
+    if (start + length > src.length) {
+      throw new IllegalArgumentException("bytes at " + offset + " exceed the input length");
+    }
+    return Arrays.copyOfRange(src, start, start + length);
+  }
+
+  /**
+   * Read a dynamic {@code string} value whose length word starts at {@code offset}.
+   */
+  public static String readString(byte[] src, int offset) {
+    return new String(readBytes(src, offset), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Round {@code length} up to a multiple of the word size.
+   */
+  public static int padded(int length) {
+    return (length + WORD_SIZE - 1) / WORD_SIZE * WORD_SIZE;
+  }
+
+  private static void checkWord(byte[] src, int offset) {
+    if (offset < 0 || offset + WORD_SIZE > src.length) {
+      throw new IllegalArgumentException(
+          "no complete word at offset " + offset + ", input length " + src.length);
+    }
+  }
+}
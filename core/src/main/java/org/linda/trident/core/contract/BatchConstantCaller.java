@@ -0,0 +1,353 @@
+package org.linda.trident.core.contract;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Result.contractResult;
+import org.linda.trident.proto.Response.TransactionExtention;
+
+/**
+ * The {@code BatchConstantCaller} runs many constant calls as one batch.
+ *
+ * <p>When a multicall contract address is configured, calls are packed into
+ * {@code tryAggregate(bool,(address,bytes)[])} requests of {@link Builder#setBatchSize} calls
+ * each, so one round-trip answers a whole chunk. Without it, every call is sent with
+ * {@code triggerConstantContract} on a bounded pool of {@link Builder#setParallelism} threads.
+ * In both modes the chunks / calls are in flight concurrently and results come back in input
+ * order.</p>
+ *
+ * <p>A call that reverts or returns no data yields {@code null} in {@link #call(List)}; gRPC
+ * errors are not swallowed and fail the whole batch.</p>
+ *
+ * <pre>
+ * try (BatchConstantCaller caller = new BatchConstantCaller.Builder(wrapper)
+ *     .setMulticallAddress(multicall)
+ *     .build()) {
+ *   Map&lt;String, BigInteger&gt; balances = caller.balanceOf(usdt, depositAddresses);
+ * }
+ * </pre>
+ *
+ * @see OutputDecoder
+ * @see ApiWrapper#triggerConstantContract(ByteString, ByteString, ByteString, NodeType...)
+ */
+public class BatchConstantCaller implements AutoCloseable {
+
+  public static final String TRY_AGGREGATE_SIGNATURE = "tryAggregate(bool,(address,bytes)[])";
+
+  private static final byte[] TRY_AGGREGATE = AbiBytes.selector(TRY_AGGREGATE_SIGNATURE);
+  private static final byte[] BALANCE_OF = AbiBytes.selector("balanceOf(address)");
+  private static final int WORD = AbiBytes.WORD_SIZE;
+  private static final ByteString ZERO_ADDRESS =
+      ByteString.copyFrom(new byte[] {AbiBytes.ADDRESS_PREFIX, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+          0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+  private final ApiWrapper wrapper;
+  private final ByteString ownerAddress;
+  private final ByteString multicallAddress;
+  private final int batchSize;
+  private final NodeType[] nodeType;
+  private final ExecutorService executor;
+
+  private BatchConstantCaller(Builder builder) {
+    this.wrapper = builder.wrapper;
+    this.ownerAddress = builder.ownerAddress;
+    this.multicallAddress = builder.multicallAddress;
+    this.batchSize = builder.batchSize;
+    this.nodeType = builder.nodeType;
+    this.executor = Executors.newFixedThreadPool(builder.parallelism,
+        new ThreadFactoryBuilder().setNameFormat("trident-batch-call-%d").setDaemon(true).build());
+  }
+
+  /**
+   * A single (contract, call data) pair.
+   */
+  public static final class Call {
+
+    private final ByteString contractAddress;
+    private final ByteString data;
+
+    public Call(ByteString contractAddress, ByteString data) {
+      this.contractAddress = contractAddress;
+      this.data = data;
+    }
+
+    public Call(String contractAddress, byte[] data) {
+      this(ApiWrapper.parseAddress(contractAddress), ByteString.copyFrom(data));
+    }
+
+    public ByteString getContractAddress() {
+      return contractAddress;
+    }
+
+    public ByteString getData() {
+      return data;
+    }
+  }
+
+  public boolean isMulticallEnabled() {
+    return multicallAddress != null;
+  }
+
+  /**
+   * Run all calls and return their raw results in input order.
+   *
+   * @param calls the calls to run
+   * @return raw return data of each call, {@code null} for a call that failed
+   */
+  public List<byte[]> call(List<Call> calls) {
+    if (calls.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<CompletableFuture<List<byte[]>>> futures = new ArrayList<>();
+    if (multicallAddress != null) {
+      for (int from = 0; from < calls.size(); from += batchSize) {
+        List<Call> chunk = calls.subList(from, Math.min(from + batchSize, calls.size()));
+        futures.add(CompletableFuture.supplyAsync(() -> aggregate(chunk), executor));
+      }
+    } else {
+      for (Call call : calls) {
+        futures.add(CompletableFuture.supplyAsync(
+            () -> Collections.singletonList(single(call)), executor));
+      }
+    }
+
+    List<byte[]> results = new ArrayList<>(calls.size());
+    for (CompletableFuture<List<byte[]>> future : futures) {
+      try {
+        results.addAll(future.join());
+      } catch (CompletionException e) {
+        futures.forEach(f -> f.cancel(false));
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Run all calls and decode each result with {@code decoder}.
+   *
+   * @return decoded results in input order, {@code null} for a call that failed or whose result
+   *     could not be decoded
+   */
+  public <T> List<T> call(List<Call> calls, OutputDecoder<T> decoder) {
+    List<byte[]> raw = call(calls);
+    List<T> results = new ArrayList<>(raw.size());
+    for (byte[] data : raw) {
+      results.add(decodeOrNull(data, decoder));
+    }
+    return results;
+  }
+
+  /**
+   * Query {@code balanceOf(address)} of one LRC-20 token for many holders.
+   *
+   * @param tokenAddress the LRC-20 contract address
+   * @param holders holder addresses in any format accepted by {@link ApiWrapper#parseAddress}
+   * @return holder to balance, in the iteration order of {@code holders}. Holders whose call
+   *     failed are absent.
+   */
+  public Map<String, BigInteger> balanceOf(String tokenAddress, Collection<String> holders) {
+    ByteString token = ApiWrapper.parseAddress(tokenAddress);
+    List<String> keys = new ArrayList<>(holders);
+    List<Call> calls = new ArrayList<>(keys.size());
+    for (String holder : keys) {
+      calls.add(new Call(token, ByteString.copyFrom(balanceOfData(holder))));
+    }
+
+    List<BigInteger> balances = call(calls, OutputDecoder.UINT256);
+    Map<String, BigInteger> result = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+    for (int i = 0; i < keys.size(); i++) {
+      BigInteger balance = balances.get(i);
+      if (balance != null) {
+        result.put(keys.get(i), balance);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private byte[] single(Call call) {
+    TransactionExtention txnExt = wrapper.triggerConstantContract(ownerAddress,
+        call.getContractAddress(), call.getData(), nodeType);
+    return succeeded(txnExt) ? txnExt.getConstantResult(0).toByteArray() : null;
+  }
+
+  private List<byte[]> aggregate(List<Call> chunk) {
+    TransactionExtention txnExt = wrapper.triggerConstantContract(ownerAddress,
+        multicallAddress, ByteString.copyFrom(encodeTryAggregate(chunk)), nodeType);
+    if (!succeeded(txnExt)) {
+      // the aggregate itself failed, e.g. out of energy: report every call as failed
+      return Collections.nCopies(chunk.size(), null);
+    }
+    return decodeTryAggregate(txnExt.getConstantResult(0).toByteArray(), chunk.size());
+  }
+
+  static byte[] balanceOfData(String holder) {
+    byte[] data = new byte[AbiBytes.SELECTOR_SIZE + WORD];
+    System.arraycopy(BALANCE_OF, 0, data, 0, AbiBytes.SELECTOR_SIZE);
+    AbiBytes.writeAddress(data, AbiBytes.SELECTOR_SIZE,
+        ApiWrapper.parseAddress(holder).toByteArray());
+    return data;
+  }
+
+  /**
+   * Encode {@code tryAggregate(false, calls)}.
+   */
+  static byte[] encodeTryAggregate(List<Call> calls) {
+    int n = calls.size();
+    // bool + array offset + array length + element offsets
+    int size = AbiBytes.SELECTOR_SIZE + WORD * (3 + n);
+    for (Call call : calls) {
+      size += WORD * 3 + AbiBytes.padded(call.getData().size());
+    }
+
+    byte[] out = new byte[size];
+    System.arraycopy(TRY_AGGREGATE, 0, out, 0, AbiBytes.SELECTOR_SIZE);
+    int head = AbiBytes.SELECTOR_SIZE;
+    AbiBytes.writeUint256(out, head, 0L); // requireSuccess = false
+    AbiBytes.writeUint256(out, head + WORD, 2L * WORD);
+    int array = head + 2 * WORD;
+    AbiBytes.writeUint256(out, array, n);
+
+    int offsets = array + WORD;
+    int tuple = offsets + n * WORD;
+    for (int i = 0; i < n; i++) {
+      Call call = calls.get(i);
+      AbiBytes.writeUint256(out, offsets + i * WORD, tuple - offsets);
+      AbiBytes.writeAddress(out, tuple, call.getContractAddress().toByteArray());
+      AbiBytes.writeUint256(out, tuple + WORD, 2L * WORD);
+      AbiBytes.writeUint256(out, tuple + 2 * WORD, call.getData().size());
+      call.getData().copyTo(out, tuple + 3 * WORD);
+      tuple += WORD * 3 + AbiBytes.padded(call.getData().size());
+    }
+    return out;
+  }
+
+  /**
+   * Decode the {@code (bool success, bytes returnData)[]} result of {@code tryAggregate}.
+   */
+  static List<byte[]> decodeTryAggregate(byte[] data, int expected) {
+    int array = AbiBytes.readUintAsInt(data, 0);
+    int n = AbiBytes.readUintAsInt(data, array);
+    if (n != expected) {
+      throw new IllegalStateException("multicall returned " + n + " results for "
+          + expected + " calls");
+    }
+    int base = array + WORD;
+    List<byte[]> results = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      int tuple = base + AbiBytes.readUintAsInt(data, base + i * WORD);
+      boolean success = AbiBytes.readBool(data, tuple);
+      byte[] returnData =
+          AbiBytes.readBytes(data, tuple + AbiBytes.readUintAsInt(data, tuple + WORD));
+      results.add(success && returnData.length > 0 ? returnData : null);
+    }
+    return results;
+  }
+
+  private static boolean succeeded(TransactionExtention txnExt) {
+    if (!txnExt.getResult().getResult() || txnExt.getConstantResultCount() == 0) {
+      return false;
+    }
+    Transaction txn = txnExt.getTransaction();
+    if (txn.getRetCount() == 0) {
+      return true;
+    }
+    contractResult ret = txn.getRet(0).getContractRet();
+    return ret == contractResult.SUCCESS || ret == contractResult.DEFAULT;
+  }
+
+  private static <T> T decodeOrNull(byte[] data, OutputDecoder<T> decoder) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      return decoder.decode(data);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public static class Builder {
+
+    private final ApiWrapper wrapper;
+    private ByteString ownerAddress = ZERO_ADDRESS;
+    private ByteString multicallAddress;
+    private int batchSize = 100;
+    private int parallelism = 8;
+    private NodeType[] nodeType = new NodeType[0];
+
+    public Builder(ApiWrapper wrapper) {
+      this.wrapper = wrapper;
+    }
+
+    /**
+     * Caller of the constant calls, the all-zero address by default.
+     */
+    public Builder setOwnerAddress(String ownerAddress) {
+      this.ownerAddress = ApiWrapper.parseAddress(ownerAddress);
+      return this;
+    }
+
+    /**
+     * Address of a deployed multicall contract exposing
+     * {@code tryAggregate(bool,(address,bytes)[])}. If not set, calls are sent one by one.
+     */
+    public Builder setMulticallAddress(String multicallAddress) {
+      this.multicallAddress =
+          multicallAddress == null ? null : ApiWrapper.parseAddress(multicallAddress);
+      return this;
+    }
+
+    /**
+     * Number of calls aggregated in one multicall request, 100 by default.
+     */
+    public Builder setBatchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batchSize must be > 0");
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Maximum number of requests in flight, 8 by default.
+     */
+    public Builder setParallelism(int parallelism) {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("parallelism must be > 0");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public Builder setNodeType(NodeType nodeType) {
+      this.nodeType = new NodeType[] {nodeType};
+      return this;
+    }
+
+    public BatchConstantCaller build() {
+      return new BatchConstantCaller(this);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package org.linda.trident.core.contract;
+
+import com.google.protobuf.ByteString;
+import org.linda.trident.abi.EventEncoder;
+import org.linda.trident.abi.TypeEncoder;
+import org.linda.trident.abi.datatypes.Event;
+import org.linda.trident.abi.datatypes.Type;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+/**
+ * Selects the logs of one event, optionally of one contract and with given indexed values.
+ *
+ * <p>The event signature and the expected indexed values are encoded to topic bytes once, when
+ * the filter is built, so matching a log only compares bytes and never decodes it.</p>
+ *
+ * <pre>
+ * EventFilter filter = new EventFilter.Builder(TRANSFER)
+ *     .setContractAddress(usdt)
+ *     .setIndexedValue(1, new Address(depositAddress))
+ *     .build();
+ * </pre>
+ *
+ * @see EventSubscriptionEngine
+ */
+public final class EventFilter {
+
+  static final int CONTRACT_ADDRESS_SIZE = 20;
+
+  private static final int WORD_SIZE = AbiBytes.WORD_SIZE;
+
+  private final Event event;
+  private final byte[] contractAddress;
+  private final ByteString[] topics;
+
+  private EventFilter(Builder builder) {
+    this.event = builder.event;
+    this.contractAddress = builder.contractAddress;
+    this.topics = builder.topics.clone();
+  }
+
+  public Event getEvent() {
+    return event;
+  }
+
+  /**
+   * The 20-byte contract address, or {@code null} to match any contract.
+   */
+  byte[] getContractAddress() {
+    return contractAddress;
+  }
+
+  /**
+   * Whether the topics of {@code log} match: the topic count of the event, its signature and
+   * every indexed value set on the filter. The contract address is not checked.
+   */
+  boolean matchesTopics(TransactionInfo.Log log) {
+    if (log.getTopicsCount() != topics.length) {
+      return false;
+    }
+    for (int i = 0; i < topics.length; i++) {
+      ByteString expected = topics[i];
+      if (expected != null && !expected.equals(log.getTopics(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static class Builder {
+
+    private final Event event;
+    private final ByteString[] topics;
+    private byte[] contractAddress;
+
+    /**
+     * @param event the event to match, with its indexed parameters marked
+     */
+    public Builder(Event event) {
+      this.event = event;
+      this.topics = new ByteString[1 + event.getIndexedParameters().size()];
+      this.topics[0] = ByteString.copyFrom(ByteArray.fromHexString(EventEncoder.encode(event)));
+    }
+
+    /**
+     * Only match logs emitted by this contract, in any address format.
+     */
+    public Builder setContractAddress(String contractAddress) {
+      return setContractAddress(ApiWrapper.parseAddress(contractAddress).toByteArray());
+    }
+
+    /**
+     * Only match logs emitted by this contract, 20 bytes or 21 bytes with the 0x41 prefix.
+     */
+    public Builder setContractAddress(byte[] contractAddress) {
+      if (contractAddress.length == CONTRACT_ADDRESS_SIZE + 1) {
+        this.contractAddress = new byte[CONTRACT_ADDRESS_SIZE];
+        System.arraycopy(contractAddress, 1, this.contractAddress, 0, CONTRACT_ADDRESS_SIZE);
+      } else if (contractAddress.length == CONTRACT_ADDRESS_SIZE) {
+        this.contractAddress = contractAddress.clone();
+      } else {
+        throw new IllegalArgumentException("contract address must be 20 or 21 bytes");
+      }
+      return this;
+    }
+
+    /**
+     * Only match logs whose indexed parameter at {@code position} has this value. Only static
+     * types can be given as values; the topic of an indexed string, bytes or array is a hash,
+     * use {@link #setIndexedTopic} for those.
+     *
+     * @param position position among the indexed parameters of the event, from 0
+     */
+    public Builder setIndexedValue(int position, Type<?> value) {
+      String encoded = TypeEncoder.encode(value);
+      if (encoded.length() != WORD_SIZE * 2) {
+        throw new IllegalArgumentException(
+            value.getTypeAsString() + " is not a static type, set the topic hash instead");
+      }
+      return setIndexedTopic(position, ByteArray.fromHexString(encoded));
+    }
+
+    /**
+     * Only match logs whose indexed parameter at {@code position} has this 32-byte topic.
+     *
+     * @param position position among the indexed parameters of the event, from 0
+     */
+    public Builder setIndexedTopic(int position, byte[] topic) {
+      if (position < 0 || position >= topics.length - 1) {
+        throw new IllegalArgumentException("event " + event.getName() + " has "
+            + (topics.length - 1) + " indexed parameters");
+      }
+      if (topic.length != WORD_SIZE) {
+        throw new IllegalArgumentException("topic must be 32 bytes");
+      }
+      topics[position + 1] = ByteString.copyFrom(topic);
+      return this;
+    }
+
+    public EventFilter build() {
+      return new EventFilter(this);
+    }
+  }
+}
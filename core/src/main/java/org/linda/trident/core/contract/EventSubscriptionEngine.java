@@ -0,0 +1,437 @@
+package org.linda.trident.core.contract;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.linda.trident.abi.EventValues;
+import org.linda.trident.abi.FunctionReturnDecoder;
+import org.linda.trident.abi.datatypes.Event;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.FixedWidthBytesMap;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+/**
+ * The {@code EventSubscriptionEngine} follows the chain and delivers the contract events that
+ * match registered {@link EventFilter}s.
+ *
+ * <p>Every poll interval the engine reads the latest block of the configured node and fetches
+ * {@code getTransactionInfoByBlockNum} once for each new block, however many subscriptions there
+ * are. Blocks scanned while there is no subscription are skipped without being fetched, so a
+ * subscription receives the events of the blocks scanned after it was made. Each log is routed through an open-addressed map of contract address to subscriptions and
+ * then compared topic by topic with the bytes precomputed by its filter. The engine can also be
+ * fed by another block source, e.g. a {@link org.linda.trident.core.transaction.BackfillEngine},
+ * through {@link #scan(List)}.</p>
+ *
+ * <p>Each {@link Subscription} has its own bounded queue. When it is full, new events of that
+ * subscription are dropped and counted, so a slow consumer never delays the others nor the
+ * follower. Matched events are decoded with the ABI decoder on first access, on the consumer
+ * thread.</p>
+ *
+ * <pre>
+ * try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(wrapper).build()) {
+ *   EventSubscriptionEngine.Subscription transfers = engine.subscribe(
+ *       new EventFilter.Builder(TRANSFER).setContractAddress(usdt).build(), 10_000);
+ *   while (running) {
+ *     ContractEvent event = transfers.take();
+ *     List&lt;Type&gt; values = event.getValues().getNonIndexedValues();
+ *   }
+ * }
+ * </pre>
+ */
+public class EventSubscriptionEngine implements AutoCloseable {
+
+  private static final int ADDRESS_SIZE = EventFilter.CONTRACT_ADDRESS_SIZE;
+  private static final Subscription[] NONE = new Subscription[0];
+
+  private final ApiWrapper wrapper;
+  private final NodeType nodeType;
+  private final long startBlock;
+  private final ScheduledExecutorService scheduler;
+  private final byte[] scratch = new byte[ADDRESS_SIZE];
+  // held by the poll while it talks to the node, so that subscribers never wait for it
+  private final Object pollLock = new Object();
+
+  // replaced on every change, never mutated once published
+  private volatile Routes routes = new Routes(new ArrayList<>());
+  // guarded by this
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  private long lastScanned = -1;
+
+  private EventSubscriptionEngine(Builder builder) {
+    this.wrapper = builder.wrapper;
+    this.nodeType = builder.nodeType;
+    this.startBlock = builder.startBlock;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("trident-event-subscriptions").setDaemon(true).build());
+    if (builder.pollIntervalMillis > 0) {
+      scheduler.scheduleWithFixedDelay(this::pollQuietly, builder.pollIntervalMillis,
+          builder.pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Subscribe to the events matching {@code filter}.
+   *
+   * @param capacity maximum number of undelivered events kept for this subscription
+   */
+  public synchronized Subscription subscribe(EventFilter filter, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be > 0");
+    }
+    Subscription subscription = new Subscription(this, filter, capacity);
+    subscriptions.add(subscription);
+    routes = new Routes(subscriptions);
+    return subscription;
+  }
+
+  /**
+   * Height of the last block scanned by the follower, -1 if none.
+   */
+  public synchronized long getLastScannedBlock() {
+    return lastScanned;
+  }
+
+  /**
+   * Stop following the chain. Undelivered events stay in their subscriptions.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  private synchronized void unsubscribe(Subscription subscription) {
+    if (subscriptions.remove(subscription)) {
+      routes = new Routes(subscriptions);
+    }
+  }
+
+  private void pollQuietly() {
+    try {
+      poll();
+    } catch (IllegalException | RuntimeException e) {
+      // node unavailable or lagging, retry with the next poll
+    }
+  }
+
+  /**
+   * Scan all blocks up to the latest block of the followed node. The node is called without
+   * holding the engine lock, which is only taken to match a fetched block.
+   */
+  void poll() throws IllegalException {
+    synchronized (pollLock) {
+      long headNum = wrapper.getNowBlock2(nodeType).getBlockHeader().getRawData().getNumber();
+      long blockNum;
+      synchronized (this) {
+        if (lastScanned < 0) {
+          lastScanned = (startBlock >= 0 ? startBlock : headNum) - 1;
+        }
+        blockNum = lastScanned + 1;
+      }
+      for (; blockNum <= headNum; blockNum++) {
+        TransactionInfoList infos = routes.isEmpty()
+            ? null : wrapper.getTransactionInfoByBlockNum(blockNum, nodeType);
+        synchronized (this) {
+          if (infos != null) {
+            scan(infos.getTransactionInfoList());
+          }
+          lastScanned = blockNum;
+        }
+      }
+    }
+  }
+
+  /**
+   * Match the logs of the transaction infos of a block against all subscriptions.
+   */
+  public synchronized void scan(List<TransactionInfo> infos) {
+    Routes current = routes;
+    if (current.isEmpty()) {
+      return;
+    }
+    for (TransactionInfo info : infos) {
+      for (int i = 0; i < info.getLogCount(); i++) {
+        TransactionInfo.Log log = info.getLog(i);
+        if (log.getTopicsCount() == 0) {
+          continue;
+        }
+        deliver(current.any, info, i, log);
+        if (!current.byContract.isEmpty() && copyAddress(log.getAddress())) {
+          Subscription[] targets = current.byContract.get(scratch);
+          if (targets != null) {
+            deliver(targets, info, i, log);
+          }
+        }
+      }
+    }
+  }
+
+  private boolean copyAddress(ByteString address) {
+    int size = address.size();
+    if (size != ADDRESS_SIZE && size != ADDRESS_SIZE + 1) {
+      return false;
+    }
+    address.substring(size - ADDRESS_SIZE, size).copyTo(scratch, 0);
+    return true;
+  }
+
+  private static void deliver(Subscription[] targets, TransactionInfo info, int logIndex,
+      TransactionInfo.Log log) {
+    for (Subscription subscription : targets) {
+      if (subscription.filter.matchesTopics(log)) {
+        subscription.offer(new ContractEvent(subscription.filter.getEvent(), info, logIndex));
+      }
+    }
+  }
+
+  /**
+   * Subscriptions grouped by contract address.
+   */
+  private static final class Routes {
+
+    private final FixedWidthBytesMap<Subscription[]> byContract;
+    private final Subscription[] any;
+
+    Routes(List<Subscription> subscriptions) {
+      this.byContract = new FixedWidthBytesMap<>(ADDRESS_SIZE, Math.max(16,
+          subscriptions.size()));
+      List<Subscription> any = new ArrayList<>();
+      for (Subscription subscription : subscriptions) {
+        byte[] address = subscription.filter.getContractAddress();
+        if (address == null) {
+          any.add(subscription);
+          continue;
+        }
+        Subscription[] targets = byContract.get(address);
+        if (targets == null) {
+          targets = NONE;
+        }
+        targets = Arrays.copyOf(targets, targets.length + 1);
+        targets[targets.length - 1] = subscription;
+        byContract.put(address, targets);
+      }
+      this.any = any.toArray(NONE);
+    }
+
+    boolean isEmpty() {
+      return any.length == 0 && byContract.isEmpty();
+    }
+  }
+
+  /**
+   * The events of one {@link EventFilter}, queued until taken by the consumer.
+   */
+  public static final class Subscription implements AutoCloseable {
+
+    private final EventSubscriptionEngine engine;
+    private final EventFilter filter;
+    private final BlockingQueue<ContractEvent> queue;
+    private final AtomicLong dropped = new AtomicLong();
+
+    Subscription(EventSubscriptionEngine engine, EventFilter filter, int capacity) {
+      this.engine = engine;
+      this.filter = filter;
+      this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public EventFilter getFilter() {
+      return filter;
+    }
+
+    /**
+     * Wait for the next event.
+     */
+    public ContractEvent take() throws InterruptedException {
+      return queue.take();
+    }
+
+    /**
+     * The next event, or {@code null} if none arrives within the timeout.
+     */
+    public ContractEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+      return queue.poll(timeout, unit);
+    }
+
+    /**
+     * Move up to {@code maxEvents} queued events to {@code sink} without waiting.
+     *
+     * @return the number of events moved
+     */
+    public int drainTo(Collection<? super ContractEvent> sink, int maxEvents) {
+      return queue.drainTo(sink, maxEvents);
+    }
+
+    /**
+     * Number of events queued and not yet taken.
+     */
+    public int size() {
+      return queue.size();
+    }
+
+    /**
+     * Number of events dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+      return dropped.get();
+    }
+
+    /**
+     * Stop receiving events. Events already queued can still be taken.
+     */
+    @Override
+    public void close() {
+      engine.unsubscribe(this);
+    }
+
+    private void offer(ContractEvent event) {
+      if (!queue.offer(event)) {
+        dropped.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * One log matched by a subscription.
+   */
+  public static final class ContractEvent {
+
+    private final Event event;
+    private final TransactionInfo info;
+    private final int logIndex;
+    private volatile EventValues values;
+
+    ContractEvent(Event event, TransactionInfo info, int logIndex) {
+      this.event = event;
+      this.info = info;
+      this.logIndex = logIndex;
+    }
+
+    public Event getEvent() {
+      return event;
+    }
+
+    public long getBlockNum() {
+      return info.getBlockNumber();
+    }
+
+    public long getBlockTimestamp() {
+      return info.getBlockTimeStamp();
+    }
+
+    public ByteString getTxid() {
+      return info.getId();
+    }
+
+    /**
+     * Position of the log among the logs of its transaction.
+     */
+    public int getLogIndex() {
+      return logIndex;
+    }
+
+    public TransactionInfo.Log getLog() {
+      return info.getLog(logIndex);
+    }
+
+    /**
+     * The 21-byte address of the emitting contract.
+     */
+    public byte[] getContractAddress() {
+      ByteString address = getLog().getAddress();
+      byte[] result = new byte[ADDRESS_SIZE + 1];
+      result[0] = AbiBytes.ADDRESS_PREFIX;
+      address.substring(address.size() - ADDRESS_SIZE, address.size()).copyTo(result, 1);
+      return result;
+    }
+
+    /**
+     * The indexed and non-indexed values of the event, decoded on first call.
+     */
+    public EventValues getValues() {
+      EventValues result = values;
+      if (result == null) {
+        result = decode();
+        values = result;
+      }
+      return result;
+    }
+
+    private EventValues decode() {
+      TransactionInfo.Log log = getLog();
+      return new EventValues(
+          IntStream.range(0, event.getIndexedParameters().size())
+              .mapToObj(i -> FunctionReturnDecoder.decodeIndexedValue(
+                  ByteArray.toHexString(log.getTopics(i + 1).toByteArray()),
+                  event.getIndexedParameters().get(i)))
+              .collect(Collectors.toList()),
+          FunctionReturnDecoder.decode(ByteArray.toHexString(log.getData().toByteArray()),
+              event.getNonIndexedParameters()));
+    }
+
+    @Override
+    public String toString() {
+      return "ContractEvent{" + event.getName() + ", block=" + getBlockNum() + ", txid="
+          + ByteArray.toHexString(getTxid().toByteArray()) + ", log=" + logIndex + "}";
+    }
+  }
+
+  public static class Builder {
+
+    private final ApiWrapper wrapper;
+    private NodeType nodeType = NodeType.SOLIDITY_NODE;
+    private long pollIntervalMillis = 3_000L;
+    private long startBlock = -1;
+
+    public Builder(ApiWrapper wrapper) {
+      this.wrapper = wrapper;
+    }
+
+    /**
+     * Node to follow, {@link NodeType#SOLIDITY_NODE} by default. Use
+     * {@link NodeType#FULL_NODE} for faster events from blocks that may still be reverted.
+     */
+    public Builder setNodeType(NodeType nodeType) {
+      this.nodeType = nodeType;
+      return this;
+    }
+
+    /**
+     * Delay between polls, 3 seconds (one block) by default. 0 disables polling; events are
+     * then only matched in blocks passed to {@link EventSubscriptionEngine#scan(List)}.
+     */
+    public Builder setPollIntervalMillis(long pollIntervalMillis) {
+      if (pollIntervalMillis < 0) {
+        throw new IllegalArgumentException("pollIntervalMillis must be >= 0");
+      }
+      this.pollIntervalMillis = pollIntervalMillis;
+      return this;
+    }
+
+    /**
+     * First block to scan, the latest block at the first poll by default. Only the
+     * subscriptions made before the first poll receive the events of the older blocks.
+     */
+    public Builder setStartBlock(long startBlock) {
+      this.startBlock = startBlock;
+      return this;
+    }
+
+    public EventSubscriptionEngine build() {
+      return new EventSubscriptionEngine(this);
+    }
+  }
+}
@@ -1,22 +1,12 @@
 package org.linda.trident.core.contract;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.Collections;
-import org.linda.trident.abi.FunctionReturnDecoder;
-import org.linda.trident.abi.TypeReference;
-import org.linda.trident.abi.datatypes.Address;
-import org.linda.trident.abi.datatypes.Bool;
-import org.linda.trident.abi.datatypes.Function;
-import org.linda.trident.abi.datatypes.Utf8String;
-import org.linda.trident.abi.datatypes.generated.Uint256;
-import org.linda.trident.abi.datatypes.generated.Uint8;
 import org.linda.trident.core.ApiWrapper;
 import org.linda.trident.core.transaction.TransactionBuilder;
 import org.linda.trident.proto.Chain.Transaction;
 import org.linda.trident.proto.Response.TransactionExtention;
-import org.linda.trident.utils.Base58Check;
-import org.linda.trident.utils.Numeric;
 
 /**
  * The {@code Lrc20Contract} is a wrapper class of a standard LRC-20 smart contract.
@@ -25,12 +15,33 @@ import org.linda.trident.utils.Numeric;
  * in TIP-20. Each {@code Lrc20Contract} binds a {@link ApiWrapper} with specific
  * caller's private key and address.</p>
  *
+ * <p>Function selectors and output decoders are precomputed once for the class, and call data
+ * is written directly into a byte buffer. {@link #name()}, {@link #symbol()} and
+ * {@link #decimals()} are immutable and only queried once per instance.</p>
+ *
  * @see org.linda.trident.core.ApiWrapper
- * @see org.linda.trident.abi.datatypes.Function
+ * @see AbiBytes
  * @since jdk 1.8.0_231
  */
 public class Lrc20Contract extends Contract {
 
+  private static final ByteString NAME = ByteString.copyFrom(AbiBytes.selector("name()"));
+  private static final ByteString SYMBOL = ByteString.copyFrom(AbiBytes.selector("symbol()"));
+  private static final ByteString DECIMALS =
+      ByteString.copyFrom(AbiBytes.selector("decimals()"));
+  private static final ByteString TOTAL_SUPPLY =
+      ByteString.copyFrom(AbiBytes.selector("totalSupply()"));
+  private static final byte[] BALANCE_OF = AbiBytes.selector("balanceOf(address)");
+  private static final byte[] TRANSFER = AbiBytes.selector("transfer(address,uint256)");
+  private static final byte[] TRANSFER_FROM =
+      AbiBytes.selector("transferFrom(address,address,uint256)");
+  private static final byte[] APPROVE = AbiBytes.selector("approve(address,uint256)");
+  private static final byte[] ALLOWANCE = AbiBytes.selector("allowance(address,address)");
+
+  private volatile String tokenName;
+  private volatile String tokenSymbol;
+  private volatile BigInteger tokenDecimals;
+
   public Lrc20Contract(Contract cntr, String ownerAddr, ApiWrapper wrapper) {
     super(cntr, ownerAddr, wrapper);
   }
@@ -43,18 +54,12 @@ public class Lrc20Contract extends Contract {
    * @return the name of the token
    */
   public String name() {
-    Function name = new Function("name",
-        Collections.emptyList(), Arrays.asList(new TypeReference<Utf8String>() {
-        })
-    );
-
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), name);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (String) FunctionReturnDecoder.decode(result, name.getOutputParameters()).get(0)
-        .getValue();
+    String result = tokenName;
+    if (result == null) {
+      result = OutputDecoder.STRING.decode(call(NAME));
+      tokenName = result;
+    }
+    return result;
   }
 
   /**
@@ -65,18 +70,12 @@ public class Lrc20Contract extends Contract {
    * @return the symbol of the token
    */
   public String symbol() {
-    Function symbol = new Function("symbol",
-        Collections.emptyList(), Arrays.asList(new TypeReference<Utf8String>() {
-        })
-    );
-
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), symbol);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (String) FunctionReturnDecoder.decode(result, symbol.getOutputParameters()).get(0)
-        .getValue();
+    String result = tokenSymbol;
+    if (result == null) {
+      result = OutputDecoder.STRING.decode(call(SYMBOL));
+      tokenSymbol = result;
+    }
+    return result;
   }
 
   /**
@@ -88,18 +87,12 @@ public class Lrc20Contract extends Contract {
    * @return the number of decimals the token uses
    */
   public BigInteger decimals() {
-    Function decimals = new Function("decimals",
-        Collections.emptyList(), Arrays.asList(new TypeReference<Uint8>() {
-        })
-    );
-
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), decimals);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (BigInteger) FunctionReturnDecoder.decode(result, decimals.getOutputParameters()).get(0)
-        .getValue();
+    BigInteger result = tokenDecimals;
+    if (result == null) {
+      result = OutputDecoder.UINT256.decode(call(DECIMALS));
+      tokenDecimals = result;
+    }
+    return result;
   }
 
   /**
@@ -110,18 +103,7 @@ public class Lrc20Contract extends Contract {
    * @return the total token supply
    */
   public BigInteger totalSupply() {
-    Function totalSupply = new Function("totalSupply",
-        Collections.emptyList(), Arrays.asList(new TypeReference<Uint256>() {
-        })
-    );
-
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), totalSupply);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (BigInteger) FunctionReturnDecoder.decode(result, totalSupply.getOutputParameters())
-        .get(0).getValue();
+    return OutputDecoder.UINT256.decode(call(TOTAL_SUPPLY));
   }
 
   /**
@@ -133,18 +115,9 @@ public class Lrc20Contract extends Contract {
    * @return the account balance of another account with address _owner
    */
   public BigInteger balanceOf(String accountAddr) {
-    Function balanceOf = new Function("balanceOf",
-        Arrays.asList(new Address(accountAddr)), Arrays.asList(new TypeReference<Uint256>() {
-        })
-    );
-
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), balanceOf);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (BigInteger) FunctionReturnDecoder.decode(result, balanceOf.getOutputParameters()).get(0)
-        .getValue();
+    byte[] data = callData(BALANCE_OF, 1);
+    writeAddress(data, 0, accountAddr);
+    return OutputDecoder.UINT256.decode(call(UnsafeByteOperations.unsafeWrap(data)));
   }
 
   /**
@@ -161,20 +134,10 @@ public class Lrc20Contract extends Contract {
    */
   public String transfer(String destAddr, long amount, int power,
       String memo, long feeLimit) {
-    Function transfer = new Function("transfer",
-        Arrays.asList(new Address(destAddr),
-            new Uint256(BigInteger.valueOf(amount).multiply(BigInteger.valueOf(10).pow(power)))),
-        Arrays.asList(new TypeReference<Bool>() {
-        }));
-
-    TransactionBuilder builder = wrapper.triggerCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), transfer);
-    builder.setFeeLimit(feeLimit);
-    builder.setMemo(memo);
-
-    Transaction signedTxn = wrapper.signTransaction(builder.build());
-    return wrapper.broadcastTransaction(signedTxn);
+    byte[] data = callData(TRANSFER, 2);
+    writeAddress(data, 0, destAddr);
+    writeAmount(data, 1, amount, power);
+    return trigger(data, memo, feeLimit);
   }
 
   /**
@@ -194,20 +157,11 @@ public class Lrc20Contract extends Contract {
    */
   public String transferFrom(String fromAddr, String destAddr, long amount, int power,
       String memo, long feeLimit) {
-    Function transferFrom = new Function("transferFrom",
-        Arrays.asList(new Address(fromAddr), new Address(destAddr),
-            new Uint256(BigInteger.valueOf(amount).multiply(BigInteger.valueOf(10).pow(power)))),
-        Arrays.asList(new TypeReference<Bool>() {
-        }));
-
-    TransactionBuilder builder = wrapper.triggerCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), transferFrom);
-    builder.setFeeLimit(feeLimit);
-    builder.setMemo(memo);
-
-    Transaction signedTxn = wrapper.signTransaction(builder.build());
-    return wrapper.broadcastTransaction(signedTxn);
+    byte[] data = callData(TRANSFER_FROM, 3);
+    writeAddress(data, 0, fromAddr);
+    writeAddress(data, 1, destAddr);
+    writeAmount(data, 2, amount, power);
+    return trigger(data, memo, feeLimit);
   }
 
   /**
@@ -225,20 +179,10 @@ public class Lrc20Contract extends Contract {
    */
   public String approve(String spender, long amount, int power,
       String memo, long feeLimit) {
-    Function approve = new Function("approve",
-        Arrays.asList(new Address(spender),
-            new Uint256(BigInteger.valueOf(amount).multiply(BigInteger.valueOf(10).pow(power)))),
-        Arrays.asList(new TypeReference<Bool>() {
-        }));
-
-    TransactionBuilder builder = wrapper.triggerCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), approve);
-    builder.setFeeLimit(feeLimit);
-    builder.setMemo(memo);
-
-    Transaction signedTxn = wrapper.signTransaction(builder.build());
-    return wrapper.broadcastTransaction(signedTxn);
+    byte[] data = callData(APPROVE, 2);
+    writeAddress(data, 0, spender);
+    writeAmount(data, 1, amount, power);
+    return trigger(data, memo, feeLimit);
   }
 
   /**
@@ -251,18 +195,45 @@ public class Lrc20Contract extends Contract {
    * @return the amount which _spender is still allowed to withdraw from _owner
    */
   public BigInteger allowance(String owner, String spender) {
-    Function allowance = new Function("allowance",
-        Arrays.asList(new Address(owner), new Address(spender)),
-        Arrays.asList(new TypeReference<Uint256>() {
-        }));
+    byte[] data = callData(ALLOWANCE, 2);
+    writeAddress(data, 0, owner);
+    writeAddress(data, 1, spender);
+    return OutputDecoder.UINT256.decode(call(UnsafeByteOperations.unsafeWrap(data)));
+  }
+
+  private byte[] call(ByteString data) {
+    TransactionExtention txnExt = wrapper.triggerConstantContract(ownerAddr, cntrAddr, data);
+    return txnExt.getConstantResult(0).toByteArray();
+  }
+
+  private String trigger(byte[] data, String memo, long feeLimit) {
+    TransactionExtention txnExt = wrapper.triggerConstantContract(ownerAddr, cntrAddr,
+        UnsafeByteOperations.unsafeWrap(data));
+    TransactionBuilder builder = new TransactionBuilder(txnExt.getTransaction());
+    builder.setFeeLimit(feeLimit);
+    builder.setMemo(memo);
+
+    Transaction signedTxn = wrapper.signTransaction(builder.build());
+    return wrapper.broadcastTransaction(signedTxn);
+  }
+
+  /**
+   * Allocate call data for {@code selector} followed by {@code words} static arguments.
+   */
+  static byte[] callData(byte[] selector, int words) {
+    byte[] data = new byte[AbiBytes.SELECTOR_SIZE + words * AbiBytes.WORD_SIZE];
+    System.arraycopy(selector, 0, data, 0, AbiBytes.SELECTOR_SIZE);
+    return data;
+  }
+
+  static void writeAddress(byte[] data, int index, String address) {
+    AbiBytes.writeAddress(data, AbiBytes.SELECTOR_SIZE + index * AbiBytes.WORD_SIZE,
+        ApiWrapper.parseAddress(address).toByteArray());
+  }
 
-    TransactionExtention txnExt = wrapper.constantCall(
-        Base58Check.bytesToBase58(ownerAddr.toByteArray()),
-        Base58Check.bytesToBase58(cntrAddr.toByteArray()), allowance);
-    //Convert constant result to human readable text
-    String result = Numeric.toHexString(txnExt.getConstantResult(0).toByteArray());
-    return (BigInteger) FunctionReturnDecoder.decode(result, allowance.getOutputParameters()).get(0)
-        .getValue();
+  static void writeAmount(byte[] data, int index, long amount, int power) {
+    BigInteger value = BigInteger.valueOf(amount).multiply(BigInteger.TEN.pow(power));
+    AbiBytes.writeUint256(data, AbiBytes.SELECTOR_SIZE + index * AbiBytes.WORD_SIZE, value);
   }
 
-}
\ No newline at end of file
+}
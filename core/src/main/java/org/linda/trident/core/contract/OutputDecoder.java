@@ -0,0 +1,44 @@
+package org.linda.trident.core.contract;
+
+import java.math.BigInteger;
+
+/**
+ * A precompiled decoder for the raw bytes returned by a constant call.
+ *
+ * <p>Unlike {@link org.linda.trident.abi.FunctionReturnDecoder}, an {@code OutputDecoder} knows
+ * its return type up front, so it reads the result words directly without any
+ * {@link org.linda.trident.abi.TypeReference} or hex string conversion.</p>
+ *
+ * @param <T> the decoded Java type
+ */
+@FunctionalInterface
+public interface OutputDecoder<T> {
+
+  /**
+   * Decodes {@code returns (uint256)}.
+   */
+  OutputDecoder<BigInteger> UINT256 = data -> AbiBytes.readUint256(data, 0);
+
+  /**
+   * Decodes {@code returns (bool)}.
+   */
+  OutputDecoder<Boolean> BOOL = data -> AbiBytes.readBool(data, 0);
+
+  /**
+   * Decodes {@code returns (address)} into the 21-byte form.
+   */
+  OutputDecoder<byte[]> ADDRESS = data -> AbiBytes.readAddress(data, 0);
+
+  /**
+   * Decodes {@code returns (string)}.
+   */
+  OutputDecoder<String> STRING =
+      data -> AbiBytes.readString(data, AbiBytes.readUintAsInt(data, 0));
+
+  /**
+   * Decodes {@code returns (bytes)}.
+   */
+  OutputDecoder<byte[]> BYTES = data -> AbiBytes.readBytes(data, AbiBytes.readUintAsInt(data, 0));
+
+  T decode(byte[] data);
+}
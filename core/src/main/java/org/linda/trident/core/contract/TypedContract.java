@@ -0,0 +1,96 @@
+package org.linda.trident.core.contract;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.transaction.TransactionBuilder;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.utils.Base58Check;
+
+/**
+ * Base class of the typed contract wrappers generated from an ABI by the trident codegen
+ * module.
+ *
+ * <p>A generated wrapper binds an {@link ApiWrapper}, a contract and a caller like
+ * {@link Lrc20Contract}, but does not need the contract ABI at runtime: selectors are constants
+ * of the generated class, arguments are written into the call data with {@link AbiBytes} and
+ * results are read back at offsets fixed by the generator.</p>
+ */
+public abstract class TypedContract {
+
+  protected final ApiWrapper wrapper;
+  protected final ByteString contractAddress;
+  protected final ByteString ownerAddress;
+
+  /**
+   * Bind the contract at {@code contractAddress}, called by {@code ownerAddress}.
+   *
+   * @param contractAddress base58check or hex address of the contract
+   * @param ownerAddress base58check or hex address of the caller, whose key signs the
+   *     transactions of {@code wrapper}
+   */
+  protected TypedContract(ApiWrapper wrapper, String contractAddress, String ownerAddress) {
+    this.wrapper = wrapper;
+    this.contractAddress = ApiWrapper.parseAddress(contractAddress);
+    this.ownerAddress = ApiWrapper.parseAddress(ownerAddress);
+  }
+
+  public ByteString getContractAddress() {
+    return contractAddress;
+  }
+
+  public ByteString getOwnerAddress() {
+    return ownerAddress;
+  }
+
+  /**
+   * Make a constant call and return its raw result.
+   *
+   * @throws IllegalStateException if the call failed or reverted
+   */
+  protected byte[] call(byte[] data) {
+    TransactionExtention txnExt = wrapper.triggerConstantContract(ownerAddress, contractAddress,
+        UnsafeByteOperations.unsafeWrap(data));
+    if (!txnExt.getResult().getResult() || txnExt.getConstantResultCount() == 0) {
+      throw new IllegalStateException(
+          "Constant call failed: " + txnExt.getResult().getMessage().toStringUtf8());
+    }
+    return txnExt.getConstantResult(0).toByteArray();
+  }
+
+  /**
+   * Build, sign and broadcast a contract call.
+   *
+   * @return the transaction hash
+   * @throws IllegalException if the transaction cannot be created
+   */
+  protected String trigger(byte[] data, long callValue, long feeLimit) throws IllegalException {
+    TransactionExtention txnExt = wrapper.triggerContract(ownerAddress, contractAddress,
+        UnsafeByteOperations.unsafeWrap(data), callValue, feeLimit);
+    Transaction signedTxn = wrapper.signTransaction(
+        new TransactionBuilder(txnExt.getTransaction()).build());
+    return wrapper.broadcastTransaction(signedTxn);
+  }
+
+  /**
+   * Allocate call data of {@code size} bytes starting with {@code selector}.
+   */
+  protected static byte[] callData(byte[] selector, int size) {
+    byte[] data = new byte[size];
+    System.arraycopy(selector, 0, data, 0, AbiBytes.SELECTOR_SIZE);
+    return data;
+  }
+
+  protected static void writeAddress(byte[] data, int offset, String address) {
+    AbiBytes.writeAddress(data, offset, ApiWrapper.parseAddress(address).toByteArray());
+  }
+
+  /**
+   * Read the word starting at {@code offset} as a base58check address.
+   */
+  protected static String readAddress(byte[] data, int offset) {
+    return Base58Check.bytesToBase58(AbiBytes.readAddress(data, offset));
+  }
+}
@@ -0,0 +1,10 @@
+package org.linda.trident.core.exceptions;
+
+public class TransactionExpiredException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  public TransactionExpiredException(String message) {
+    super(message);
+  }
+}
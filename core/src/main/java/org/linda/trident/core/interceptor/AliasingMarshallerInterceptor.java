@@ -0,0 +1,159 @@
+package org.linda.trident.core.interceptor;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.api.WalletSolidityGrpc;
+
+/**
+ * Parses the responses of selected methods with an aliasing {@link CodedInputStream}.
+ *
+ * <p>The default protobuf marshaller copies every {@code bytes} field of a response into its own
+ * {@code ByteString}. With aliasing, the response is read once into a single array and every
+ * {@code bytes} field (contract data, log data, signatures...) is a view into that array, which
+ * removes the second copy of multi-megabyte block and transaction-info responses.</p>
+ *
+ * <p>The trade-off: a retained field keeps the whole response array reachable. Copy fields
+ * that outlive the response with {@code ByteString.copyFrom(field.toByteArray())}.</p>
+ *
+ * <p>By default only the block and transaction-info methods of {@code Wallet} and
+ * {@code WalletSolidity} are affected, see {@link #HEAVY_METHODS}.</p>
+ */
+public class AliasingMarshallerInterceptor implements ClientInterceptor {
+
+  /**
+   * Full names of the methods with large responses.
+   */
+  public static final Set<String> HEAVY_METHODS = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(
+          WalletGrpc.getGetBlockByLimitNext2Method().getFullMethodName(),
+          WalletGrpc.getGetBlockByLatestNum2Method().getFullMethodName(),
+          WalletGrpc.getGetBlockByNum2Method().getFullMethodName(),
+          WalletGrpc.getGetNowBlock2Method().getFullMethodName(),
+          WalletGrpc.getGetBlockMethod().getFullMethodName(),
+          WalletGrpc.getGetTransactionInfoByBlockNumMethod().getFullMethodName(),
+          WalletSolidityGrpc.getGetBlockByNum2Method().getFullMethodName(),
+          WalletSolidityGrpc.getGetNowBlock2Method().getFullMethodName(),
+          WalletSolidityGrpc.getGetBlockMethod().getFullMethodName(),
+          WalletSolidityGrpc.getGetTransactionInfoByBlockNumMethod().getFullMethodName())));
+
+  private final Set<String> methods;
+  private final Map<String, MethodDescriptor<?, ?>> rewritten = new ConcurrentHashMap<>();
+
+  public AliasingMarshallerInterceptor() {
+    this(HEAVY_METHODS);
+  }
+
+  /**
+   * @param methods full method names to parse with aliasing, e.g.
+   *     {@code WalletGrpc.getGetBlockByLimitNext2Method().getFullMethodName()}
+   */
+  public AliasingMarshallerInterceptor(Collection<String> methods) {
+    this.methods = Collections.unmodifiableSet(new HashSet<>(methods));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions,
+      Channel next) {
+    if (!methods.contains(method.getFullMethodName())
+        || !(method.getResponseMarshaller() instanceof MethodDescriptor.PrototypeMarshaller)) {
+      return next.newCall(method, callOptions);
+    }
+    MethodDescriptor<ReqT, RespT> aliasing = (MethodDescriptor<ReqT, RespT>) rewritten
+        .computeIfAbsent(method.getFullMethodName(), name -> withAliasing(method));
+    return next.newCall(aliasing, callOptions);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ReqT, RespT> MethodDescriptor<ReqT, RespT> withAliasing(
+      MethodDescriptor<ReqT, RespT> method) {
+    MethodDescriptor.PrototypeMarshaller<RespT> marshaller =
+        (MethodDescriptor.PrototypeMarshaller<RespT>) method.getResponseMarshaller();
+    return method.toBuilder(method.getRequestMarshaller(), new AliasingMarshaller<>(marshaller))
+        .build();
+  }
+
+  /**
+   * Marshaller that streams like the delegate and parses with aliasing.
+   */
+  static final class AliasingMarshaller<T> implements MethodDescriptor.PrototypeMarshaller<T> {
+
+    private final MethodDescriptor.PrototypeMarshaller<T> delegate;
+    private final Parser<?> parser;
+
+    AliasingMarshaller(MethodDescriptor.PrototypeMarshaller<T> delegate) {
+      this.delegate = delegate;
+      this.parser = ((MessageLite) delegate.getMessagePrototype()).getParserForType();
+    }
+
+    @Override
+    public T getMessagePrototype() {
+      return delegate.getMessagePrototype();
+    }
+
+    @Override
+    public Class<T> getMessageClass() {
+      return delegate.getMessageClass();
+    }
+
+    @Override
+    public InputStream stream(T value) {
+      return delegate.stream(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T parse(InputStream stream) {
+      try {
+        // only a buffer marked immutable is aliased, a plain array is still copied
+        CodedInputStream input = UnsafeByteOperations.unsafeWrap(readFully(stream))
+            .newCodedInput();
+        input.enableAliasing(true);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        T message = (T) parser.parseFrom(input, ExtensionRegistryLite.getEmptyRegistry());
+        input.checkLastTagWas(0);
+        return message;
+      } catch (InvalidProtocolBufferException e) {
+        throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence")
+            .withCause(e).asRuntimeException();
+      } catch (IOException e) {
+        throw Status.INTERNAL.withDescription("Failed to read message")
+            .withCause(e).asRuntimeException();
+      }
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+      if (stream instanceof KnownLength) {
+        int size = stream.available();
+        byte[] buffer = new byte[size];
+        ByteStreams.readFully(stream, buffer);
+        return buffer;
+      }
+      return ByteStreams.toByteArray(stream);
+    }
+  }
+}
@@ -0,0 +1,532 @@
+package org.linda.trident.core.interceptor;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.linda.trident.api.WalletGrpc;
+
+/**
+ * Keeps the calls of a channel under a request quota, such as the QPS limit of an API key,
+ * serving urgent calls first.
+ *
+ * <p>Every call belongs to a {@link Lane}. A call takes {@link Builder#setMethodCost cost}
+ * tokens from a bucket shared by all lanes, refilled at the quota rate, and from the bucket of
+ * its lane, refilled at {@link Builder#setLaneRate}. When tokens are short the call waits in
+ * its lane queue instead of failing; queued calls are served by lane priority, then in arrival
+ * order, and a lower lane never takes a shared token a higher lane is waiting for. Waiting
+ * blocks the thread starting the call, up to the deadline of the call or of the current gRPC
+ * {@link Context}, whichever is earlier. A deadline set by an interceptor that runs after this
+ * one is not seen: the timeout of
+ * {@link org.linda.trident.core.ApiWrapper#ApiWrapper(String, String, String, java.util.List,
+ * int)} is applied before the given interceptors.</p>
+ *
+ * <p>A call closed with {@code RESOURCE_EXHAUSTED} halves the rate of the shared bucket and
+ * empties it; each successful call then raises the rate by 2% of the quota until it is reached
+ * again.</p>
+ *
+ * <p>The lane of a call is, by precedence: the lane of the current gRPC {@link Context}, set with
+ * {@link #runIn} or {@link #callIn}; the {@link #LANE_OPTION} call option; the lane of the method
+ * set with {@link Builder#setMethodLane}; otherwise {@link Lane#NORMAL}. Broadcasts are
+ * {@link Lane#CRITICAL} by default.</p>
+ *
+ * <pre>
+ * PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(15).build();
+ * // limits the calls of both channels, each call failing after 10 seconds, queueing included
+ * ApiWrapper wrapper = new ApiWrapper(endpoint, solidityEndpoint, key,
+ *     Collections.singletonList(limiter), 10_000);
+ * PriorityRateLimitInterceptor.runIn(Lane.BULK, () -&gt; backfill.run(consumer));
+ * </pre>
+ */
+public class PriorityRateLimitInterceptor implements ClientInterceptor {
+
+  /**
+   * Priority classes of calls, most urgent first.
+   */
+  public enum Lane {
+    CRITICAL,
+    NORMAL,
+    BULK
+  }
+
+  /**
+   * Call option selecting the lane of a call, e.g.
+   * {@code stub.withOption(LANE_OPTION, Lane.BULK)}.
+   */
+  public static final CallOptions.Key<Lane> LANE_OPTION = CallOptions.Key.create("trident-lane");
+
+  private static final Context.Key<Lane> LANE_CONTEXT = Context.key("trident-lane");
+  private static final Lane[] LANES = Lane.values();
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double INCREASE_STEP = 0.02;
+  private static final double MIN_RATE_FACTOR = 0.05;
+
+  private final double quota;
+  private final Map<String, Lane> methodLanes;
+  private final Map<String, Integer> methodCosts;
+  private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final AtomicLong throttled = new AtomicLong();
+
+  // guarded by lock
+  private final Bucket shared;
+
+  private PriorityRateLimitInterceptor(Builder builder) {
+    this.quota = builder.quota;
+    this.methodLanes = new HashMap<>(builder.methodLanes);
+    this.methodCosts = new HashMap<>(builder.methodCosts);
+    long now = System.nanoTime();
+    this.shared = new Bucket(quota, builder.burst, now);
+    for (Lane lane : LANES) {
+      Double rate = builder.laneRates.get(lane);
+      lanes.put(lane, new LaneState(new Bucket(rate == null ? quota : rate, builder.burst, now)));
+    }
+  }
+
+  /**
+   * Run {@code task} with every call it starts, on this thread, in {@code lane}.
+   */
+  public static void runIn(Lane lane, Runnable task) {
+    Context.current().withValue(LANE_CONTEXT, lane).run(task);
+  }
+
+  /**
+   * Call {@code task} with every call it starts, on this thread, in {@code lane}.
+   */
+  public static <T> T callIn(Lane lane, Callable<T> task) throws Exception {
+    return Context.current().withValue(LANE_CONTEXT, lane).call(task);
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method,
+      CallOptions callOptions,
+      Channel next) {
+    Lane lane = laneOf(method.getFullMethodName(), callOptions);
+    Integer cost = methodCosts.get(method.getFullMethodName());
+    Deadline deadline = callOptions.getDeadline();
+    Deadline contextDeadline = Context.current().getDeadline();
+    if (deadline == null || contextDeadline != null && contextDeadline.isBefore(deadline)) {
+      deadline = contextDeadline;
+    }
+    Status status = acquire(lane, cost == null ? 1 : cost, deadline);
+    if (status != null) {
+      return new FailedCall<>(status);
+    }
+    return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+        next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+            responseListener) {
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            if (status.getCode() == Status.Code.RESOURCE_EXHAUSTED) {
+              onThrottled();
+            } else if (status.isOk()) {
+              onSuccess();
+            }
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      }
+    };
+  }
+
+  /**
+   * The quota in calls per second.
+   */
+  public double getQuota() {
+    return quota;
+  }
+
+  /**
+   * The current rate of the shared bucket, lowered after {@code RESOURCE_EXHAUSTED}.
+   */
+  public double getEffectiveRate() {
+    lock.lock();
+    try {
+      return shared.rate;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of calls closed with {@code RESOURCE_EXHAUSTED}.
+   */
+  public long getThrottledCount() {
+    return throttled.get();
+  }
+
+  /**
+   * Queue and wait-time statistics of a lane.
+   */
+  public LaneStats getStats(Lane lane) {
+    return lanes.get(lane).stats;
+  }
+
+  private Lane laneOf(String method, CallOptions callOptions) {
+    Lane lane = LANE_CONTEXT.get();
+    if (lane == null) {
+      lane = callOptions.getOption(LANE_OPTION);
+    }
+    if (lane == null) {
+      lane = methodLanes.get(method);
+    }
+    return lane == null ? Lane.NORMAL : lane;
+  }
+
+  /**
+   * Wait for the tokens of one call.
+   *
+   * @return {@code null} once granted, or the status to fail the call with
+   */
+  Status acquire(Lane lane, int cost, Deadline deadline) {
+    LaneState state = lanes.get(lane);
+    Waiter waiter = new Waiter(cost, System.nanoTime());
+    lock.lock();
+    try {
+      state.queue.add(waiter);
+      state.stats.queued.incrementAndGet();
+      long next = dispatch();
+      while (!waiter.granted) {
+        long wait = next;
+        if (deadline != null) {
+          long remaining = deadline.timeRemaining(TimeUnit.NANOSECONDS);
+          if (remaining <= 0) {
+            state.queue.remove(waiter);
+            state.stats.queued.decrementAndGet();
+            state.stats.expired.incrementAndGet();
+            // let the lower lanes use what this call would have taken
+            dispatch();
+            return Status.DEADLINE_EXCEEDED.withDescription(
+                "deadline exceeded while queued by the rate limiter");
+          }
+          wait = Math.min(wait, remaining);
+        }
+        try {
+          changed.awaitNanos(wait);
+        } catch (InterruptedException e) {
+          if (!waiter.granted) {
+            state.queue.remove(waiter);
+            state.stats.queued.decrementAndGet();
+            dispatch();
+          }
+          Thread.currentThread().interrupt();
+          return Status.CANCELLED.withDescription("interrupted while queued by the rate limiter")
+              .withCause(e);
+        }
+        if (!waiter.granted) {
+          next = dispatch();
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Grant tokens to queued calls by priority.
+   *
+   * @return nanoseconds until the first call still queued may be granted
+   */
+  private long dispatch() {
+    long now = System.nanoTime();
+    shared.refill(now);
+    boolean granted = false;
+    long next = Long.MAX_VALUE;
+    for (Lane lane : LANES) {
+      LaneState state = lanes.get(lane);
+      state.bucket.refill(now);
+      Waiter head;
+      while ((head = state.queue.peek()) != null) {
+        long laneWait = state.bucket.nanosUntil(head.cost);
+        long sharedWait = shared.nanosUntil(head.cost);
+        if (sharedWait > 0) {
+          // lower lanes must not take the tokens this call waits for
+          if (granted) {
+            changed.signalAll();
+          }
+          return Math.min(next, Math.max(laneWait, sharedWait));
+        }
+        if (laneWait > 0) {
+          next = Math.min(next, laneWait);
+          break;
+        }
+        state.queue.poll();
+        state.bucket.take(head.cost);
+        shared.take(head.cost);
+        head.granted = true;
+        granted = true;
+        state.stats.granted(now - head.enqueued);
+      }
+    }
+    if (granted) {
+      changed.signalAll();
+    }
+    return next;
+  }
+
+  private void onThrottled() {
+    throttled.incrementAndGet();
+    lock.lock();
+    try {
+      shared.refill(System.nanoTime());
+      shared.rate = Math.max(quota * MIN_RATE_FACTOR, shared.rate * DECREASE_FACTOR);
+      shared.tokens = Math.min(shared.tokens, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onSuccess() {
+    lock.lock();
+    try {
+      if (shared.rate < quota) {
+        shared.refill(System.nanoTime());
+        shared.rate = Math.min(quota, shared.rate + quota * INCREASE_STEP);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * A token bucket. Tokens may go negative when a call costs more than the burst.
+   */
+  private static final class Bucket {
+
+    private final double burst;
+    private double rate;
+    private double tokens;
+    private long refilled;
+
+    Bucket(double rate, double burst, long now) {
+      this.rate = rate;
+      this.burst = burst;
+      this.tokens = burst;
+      this.refilled = now;
+    }
+
+    void refill(long now) {
+      tokens = Math.min(burst, tokens + (now - refilled) * rate / 1e9);
+      refilled = now;
+    }
+
+    long nanosUntil(int cost) {
+      double missing = Math.min(cost, burst) - tokens;
+      return missing <= 0 ? 0 : Math.max(1, (long) Math.ceil(missing / rate * 1e9));
+    }
+
+    void take(int cost) {
+      tokens -= cost;
+    }
+  }
+
+  private static final class Waiter {
+
+    private final int cost;
+    private final long enqueued;
+    private boolean granted;
+
+    Waiter(int cost, long enqueued) {
+      this.cost = cost;
+      this.enqueued = enqueued;
+    }
+  }
+
+  private static final class LaneState {
+
+    private final Bucket bucket;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final LaneStats stats = new LaneStats();
+
+    LaneState(Bucket bucket) {
+      this.bucket = bucket;
+    }
+  }
+
+  /**
+   * Counters of one lane. Updated concurrently, read without locking.
+   */
+  public static final class LaneStats {
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    void granted(long waitNanos) {
+      queued.decrementAndGet();
+      granted.incrementAndGet();
+      totalWaitNanos.addAndGet(waitNanos);
+      maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Number of calls waiting for tokens.
+     */
+    public int getQueued() {
+      return queued.get();
+    }
+
+    /**
+     * Number of calls let through.
+     */
+    public long getGranted() {
+      return granted.get();
+    }
+
+    /**
+     * Number of calls failed with {@code DEADLINE_EXCEEDED} while queued.
+     */
+    public long getExpired() {
+      return expired.get();
+    }
+
+    public long getMeanWaitNanos() {
+      long count = granted.get();
+      return count == 0 ? 0 : totalWaitNanos.get() / count;
+    }
+
+    public long getMaxWaitNanos() {
+      return maxWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return "LaneStats{queued=" + getQueued() + ", granted=" + getGranted()
+          + ", expired=" + getExpired()
+          + ", meanWaitMs=" + TimeUnit.NANOSECONDS.toMillis(getMeanWaitNanos())
+          + ", maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos()) + "}";
+    }
+  }
+
+  /**
+   * A call failed before reaching the channel.
+   */
+  private static final class FailedCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+    private final Status status;
+
+    FailedCall(Status status) {
+      this.status = status;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      responseListener.onClose(status, new Metadata());
+    }
+
+    @Override
+    public void request(int numMessages) {
+    }
+
+    @Override
+    public void cancel(String message, Throwable cause) {
+    }
+
+    @Override
+    public void halfClose() {
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+    }
+  }
+
+  public static class Builder {
+
+    private final double quota;
+    private double burst;
+    private final Map<Lane, Double> laneRates = new EnumMap<>(Lane.class);
+    private final Map<String, Lane> methodLanes = new HashMap<>();
+    private final Map<String, Integer> methodCosts = new HashMap<>();
+
+    /**
+     * @param quota calls per second allowed to all lanes together
+     */
+    public Builder(double quota) {
+      if (quota <= 0) {
+        throw new IllegalArgumentException("quota must be > 0");
+      }
+      this.quota = quota;
+      this.burst = Math.max(1, quota);
+      laneRates.put(Lane.BULK, quota / 2);
+      methodLanes.put(WalletGrpc.getBroadcastTransactionMethod().getFullMethodName(),
+          Lane.CRITICAL);
+    }
+
+    /**
+     * Tokens a bucket holds when idle, one second of quota by default.
+     */
+    public Builder setBurst(double burst) {
+      if (burst < 1) {
+        throw new IllegalArgumentException("burst must be >= 1");
+      }
+      this.burst = burst;
+      return this;
+    }
+
+    /**
+     * Maximum rate of a lane. Lanes are limited by the quota only, except {@link Lane#BULK}
+     * which is limited to half the quota by default.
+     */
+    public Builder setLaneRate(Lane lane, double rate) {
+      if (rate <= 0) {
+        throw new IllegalArgumentException("rate must be > 0");
+      }
+      laneRates.put(lane, rate);
+      return this;
+    }
+
+    /**
+     * Lane of the calls of a method that no context or call option assigns.
+     *
+     * @param fullMethodName e.g. {@code WalletGrpc.getGetBlockByNum2Method().getFullMethodName()}
+     */
+    public Builder setMethodLane(String fullMethodName, Lane lane) {
+      methodLanes.put(fullMethodName, lane);
+      return this;
+    }
+
+    /**
+     * Tokens taken by each call of a method, 1 by default.
+     *
+     * @param fullMethodName e.g. {@code WalletGrpc.getGetBlockByLimitNext2Method()
+     *     .getFullMethodName()}
+     */
+    public Builder setMethodCost(String fullMethodName, int cost) {
+      if (cost <= 0) {
+        throw new IllegalArgumentException("cost must be > 0");
+      }
+      methodCosts.put(fullMethodName, cost);
+      return this;
+    }
+
+    public PriorityRateLimitInterceptor build() {
+      return new PriorityRateLimitInterceptor(this);
+    }
+  }
+}
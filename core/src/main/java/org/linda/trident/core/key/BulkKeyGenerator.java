@@ -0,0 +1,262 @@
+package org.linda.trident.core.key;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.encoders.Hex;
+import org.linda.trident.crypto.SECP256K1;
+import org.linda.trident.crypto.tuwenitypes.Bytes;
+import org.linda.trident.crypto.tuwenitypes.Bytes32;
+import org.linda.trident.utils.Base58Check;
+
+/**
+ * The {@code BulkKeyGenerator} creates many random key pairs and their addresses, such as a
+ * pool of deposit addresses.
+ *
+ * <p>Keys are made on a pool of {@link Builder#setParallelism} threads, in batches of
+ * {@link Builder#setBatchSize} keys. Each public key is computed with the fixed-base comb
+ * multiplier and its precomputed table of the generator point; the points of a batch are then
+ * converted to affine coordinates together, with a single field inversion. Every thread keeps
+ * its own random source and Keccak digest.</p>
+ *
+ * <p>Keys are handed to a sink as each batch is done, so at most one batch per thread is held
+ * in memory. The sink is called by one thread at a time, in no particular order.</p>
+ *
+ * <pre>
+ * try (BulkKeyGenerator generator = new BulkKeyGenerator.Builder().build()) {
+ *   generator.generate(1_000_000, key -&gt; out.println(key.toBase58CheckAddress()));
+ * }
+ * </pre>
+ *
+ * @see KeyPair#generate()
+ */
+public class BulkKeyGenerator implements AutoCloseable {
+
+  private static final BigInteger CURVE_ORDER = SECP256K1.CURVE.getN();
+  private static final ECPoint G = SECP256K1.CURVE.getG();
+
+  private final int parallelism;
+  private final int batchSize;
+  private final Supplier<SecureRandom> randomSupplier;
+  private final ExecutorService executor;
+
+  private BulkKeyGenerator(Builder builder) {
+    this.parallelism = builder.parallelism;
+    this.batchSize = builder.batchSize;
+    this.randomSupplier = builder.randomSupplier;
+    this.executor = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setNameFormat("trident-keygen-%d").setDaemon(true).build());
+  }
+
+  /**
+   * A generated private key, with its public key and address.
+   */
+  public static final class GeneratedKey {
+
+    private final byte[] privateKey;
+    private final byte[] publicKey;
+    private final byte[] address;
+    private final String base58CheckAddress;
+
+    GeneratedKey(byte[] privateKey, byte[] publicKey, byte[] address) {
+      this.privateKey = privateKey;
+      this.publicKey = publicKey;
+      this.address = address;
+      this.base58CheckAddress = Base58Check.bytesToBase58(address);
+    }
+
+    /**
+     * The 21 bytes of the address, starting with 0x41.
+     */
+    public byte[] getAddress() {
+      return address.clone();
+    }
+
+    public String toPrivateKey() {
+      return Hex.toHexString(privateKey);
+    }
+
+    public String toPublicKey() {
+      return Hex.toHexString(publicKey);
+    }
+
+    public String toBase58CheckAddress() {
+      return base58CheckAddress;
+    }
+
+    public String toHexAddress() {
+      return Hex.toHexString(address);
+    }
+
+    /**
+     * The key pair, without computing its public key again.
+     */
+    public KeyPair toKeyPair() {
+      return new KeyPair(new SECP256K1.KeyPair(
+          SECP256K1.PrivateKey.create(Bytes32.wrap(privateKey.clone())),
+          SECP256K1.PublicKey.create(Bytes.wrap(publicKey.clone()))));
+    }
+  }
+
+  /**
+   * Generate {@code count} keys and pass each one to {@code sink}.
+   *
+   * <p>Returns when all keys were passed. If the sink throws, no more keys are passed and the
+   * exception is rethrown.</p>
+   */
+  public void generate(long count, Consumer<? super GeneratedKey> sink) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative");
+    }
+    AtomicLong remaining = new AtomicLong(count);
+    int workers = (int) Math.min(parallelism, (count + batchSize - 1) / batchSize);
+    List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      futures.add(CompletableFuture.runAsync(() -> work(remaining, sink), executor));
+    }
+
+    for (CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        remaining.set(-1);
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Generate {@code count} keys into a list.
+   */
+  public List<GeneratedKey> generate(int count) {
+    List<GeneratedKey> keys = new ArrayList<>(count);
+    generate(count, keys::add);
+    return Collections.unmodifiableList(keys);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private void work(AtomicLong remaining, Consumer<? super GeneratedKey> sink) {
+    SecureRandom random = randomSupplier.get();
+    ECMultiplier multiplier = new FixedPointCombMultiplier();
+    Keccak.Digest256 digest = new Keccak.Digest256();
+    byte[][] privateKeys = new byte[batchSize][];
+    ECPoint[] points = new ECPoint[batchSize];
+    GeneratedKey[] keys = new GeneratedKey[batchSize];
+
+    while (true) {
+      long left = remaining.get();
+      if (left <= 0) {
+        return;
+      }
+      int size = (int) Math.min(left, batchSize);
+      if (!remaining.compareAndSet(left, left - size)) {
+        continue;
+      }
+
+      for (int i = 0; i < size; i++) {
+        byte[] privateKey = new byte[32];
+        BigInteger k;
+        do {
+          random.nextBytes(privateKey);
+          k = new BigInteger(1, privateKey);
+        } while (k.signum() == 0 || k.compareTo(CURVE_ORDER) >= 0);
+        privateKeys[i] = privateKey;
+        points[i] = multiplier.multiply(G, k);
+      }
+      SECP256K1.CURVE.getCurve().normalizeAll(points, 0, size, null);
+
+      for (int i = 0; i < size; i++) {
+        byte[] publicKey = new byte[64];
+        System.arraycopy(points[i].getAffineXCoord().getEncoded(), 0, publicKey, 0, 32);
+        System.arraycopy(points[i].getAffineYCoord().getEncoded(), 0, publicKey, 32, 32);
+        digest.update(publicKey, 0, 64);
+        byte[] hash = digest.digest();
+        byte[] address = new byte[21];
+        address[0] = 0x41;
+        System.arraycopy(hash, 12, address, 1, 20);
+        keys[i] = new GeneratedKey(privateKeys[i], publicKey, address);
+        points[i] = null;
+      }
+
+      synchronized (remaining) {
+        for (int i = 0; i < size; i++) {
+          if (remaining.get() < 0) {
+            // the sink failed on another thread
+            return;
+          }
+          try {
+            sink.accept(keys[i]);
+          } catch (RuntimeException | Error e) {
+            remaining.set(-1);
+            throw e;
+          }
+          keys[i] = null;
+        }
+      }
+    }
+  }
+
+  public static class Builder {
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 256;
+    private Supplier<SecureRandom> randomSupplier = SecureRandom::new;
+
+    /**
+     * Threads generating keys, the number of processors by default.
+     */
+    public Builder setParallelism(int parallelism) {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("parallelism must be positive");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Keys converted to affine coordinates together and passed to the sink at once, 256 by
+     * default.
+     */
+    public Builder setBatchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batchSize must be positive");
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Source of the random sources, one per thread, {@link SecureRandom#SecureRandom()} by
+     * default.
+     */
+    public Builder setRandomSupplier(Supplier<SecureRandom> randomSupplier) {
+      this.randomSupplier = randomSupplier;
+      return this;
+    }
+
+    public BulkKeyGenerator build() {
+      return new BulkKeyGenerator(this);
+    }
+  }
+}
@@ -0,0 +1,473 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.Getter;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.FixedWidthBytesSet;
+import org.linda.trident.crypto.Hash;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferAssetContract;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+/**
+ * The {@code AddressWatchlist} finds the transfers of a block that touch any of a large set of
+ * watched addresses, e.g. exchange deposit addresses.
+ *
+ * <p>Addresses are kept as raw 21-byte keys in a {@link FixedWidthBytesSet}, optionally behind a
+ * bloom filter that answers most misses from a few cache lines. A block is scanned in chunks on
+ * a small thread pool: {@code TransferContract} and {@code TransferAssetContract} transactions
+ * of the block, and LRC-20 {@code Transfer} logs of its transaction infos. Only the parameters
+ * of these two contract types are parsed, see {@link BlockView}.</p>
+ *
+ * <pre>
+ * try (AddressWatchlist watchlist = new AddressWatchlist.Builder(2_000_000)
+ *     .setBloomBitsPerAddress(10)
+ *     .build()) {
+ *   depositAddresses.forEach(watchlist::add);
+ *   BlockExtention block = wrapper.getBlockByNum(num);
+ *   List&lt;TransactionInfo&gt; infos = wrapper.getTransactionInfoByBlockNum(num)
+ *       .getTransactionInfoList();
+ *   for (AddressWatchlist.Match match : watchlist.scan(block, infos)) {
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>Addresses can be added and removed while blocks are scanned; a scan sees the watchlist as
+ * of its start.</p>
+ */
+public class AddressWatchlist implements AutoCloseable {
+
+  public static final int ADDRESS_SIZE = 21;
+  /**
+   * Topic 0 of {@code Transfer(address,address,uint256)}.
+   */
+  public static final ByteString TRANSFER_TOPIC = UnsafeByteOperations.unsafeWrap(
+      Hash.sha3("Transfer(address,address,uint256)".getBytes(StandardCharsets.UTF_8)));
+
+  private static final byte ADDRESS_PREFIX = 0x41;
+  private static final int WORD_SIZE = 32;
+  private static final int TOPIC_ADDRESS_OFFSET = WORD_SIZE - ADDRESS_SIZE + 1;
+
+  private static final Comparator<Match> BLOCK_ORDER = Comparator
+      .comparingInt(Match::getTransactionIndex).thenComparingInt(Match::getLogIndex);
+
+  private final FixedWidthBytesSet addresses;
+  private final long[] bloom;
+  private final int bloomMask;
+  private final int bloomHashes;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final int chunkSize;
+  private final ExecutorService executor;
+
+  private AddressWatchlist(Builder builder) {
+    this.addresses = new FixedWidthBytesSet(ADDRESS_SIZE, builder.expectedSize);
+    if (builder.bloomBitsPerAddress > 0) {
+      int bits = Integer.highestOneBit(
+          (int) Math.min(1L << 29, (long) builder.expectedSize * builder.bloomBitsPerAddress));
+      bits = Math.max(bits << 1, 64);
+      this.bloom = new long[bits >>> 6];
+      this.bloomMask = bits - 1;
+      // optimal number of hash functions: bits per key * ln 2
+      this.bloomHashes = (int) Math.max(1, Math.min(16, Math.round(
+          (double) bits / Math.max(builder.expectedSize, 1) * Math.log(2))));
+    } else {
+      this.bloom = null;
+      this.bloomMask = 0;
+      this.bloomHashes = 0;
+    }
+    this.chunkSize = builder.chunkSize;
+    this.executor = builder.parallelism > 1
+        ? Executors.newFixedThreadPool(builder.parallelism, new ThreadFactoryBuilder()
+            .setNameFormat("trident-watchlist-%d").setDaemon(true).build())
+        : null;
+  }
+
+  /**
+   * A transfer touching at least one watched address.
+   */
+  @Getter
+  public static final class Match {
+
+    public enum Kind {
+      TRANSFER,
+      TRANSFER_ASSET,
+      LRC20_TRANSFER
+    }
+
+    private final Kind kind;
+    private final ByteString txid;
+    /**
+     * Index of the transaction in the block.
+     */
+    private final int transactionIndex;
+    /**
+     * Index of the log in the transaction info, -1 for contract transfers.
+     */
+    private final int logIndex;
+    /**
+     * Empty for {@code TRANSFER}, the asset name or id for {@code TRANSFER_ASSET}, the 21-byte
+     * token contract address for {@code LRC20_TRANSFER}.
+     */
+    private final ByteString token;
+    private final ByteString from;
+    private final ByteString to;
+    private final BigInteger amount;
+    private final boolean fromWatched;
+    private final boolean toWatched;
+
+    Match(Kind kind, ByteString txid, int transactionIndex, int logIndex, ByteString token,
+        ByteString from, ByteString to, BigInteger amount, boolean fromWatched,
+        boolean toWatched) {
+      this.kind = kind;
+      this.txid = txid;
+      this.transactionIndex = transactionIndex;
+      this.logIndex = logIndex;
+      this.token = token;
+      this.from = from;
+      this.to = to;
+      this.amount = amount;
+      this.fromWatched = fromWatched;
+      this.toWatched = toWatched;
+    }
+
+    @Override
+    public String toString() {
+      return kind + "{tx=" + transactionIndex + ", log=" + logIndex + ", amount=" + amount
+          + ", fromWatched=" + fromWatched + ", toWatched=" + toWatched + "}";
+    }
+  }
+
+  /**
+   * @param address base58check or hex address
+   */
+  public boolean add(String address) {
+    return add(ApiWrapper.parseAddress(address).toByteArray());
+  }
+
+  /**
+   * @param address 21-byte address
+   * @return {@code true} if the address was not watched yet
+   */
+  public boolean add(byte[] address) {
+    lock.writeLock().lock();
+    try {
+      if (!addresses.add(address)) {
+        return false;
+      }
+      if (bloom != null) {
+        long h = bloomHash(address, 0);
+        for (int i = 0; i < bloomHashes; i++) {
+          int bit = bloomBit(h, i);
+          bloom[bit >>> 6] |= 1L << bit;
+        }
+      }
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Stop watching an address. Its bloom filter bits stay set, so removals slowly raise the
+   * false-positive rate of the filter but never cause a false match.
+   */
+  public boolean remove(byte[] address) {
+    lock.writeLock().lock();
+    try {
+      return addresses.remove(address);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean contains(byte[] address) {
+    if (address.length != ADDRESS_SIZE) {
+      return false;
+    }
+    lock.readLock().lock();
+    try {
+      return isWatched(address);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return addresses.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Find the transfers of a block that touch a watched address.
+   *
+   * @param block the block
+   * @param infos the transaction infos of the block, may be empty to skip LRC-20 transfers
+   * @return the matches in block order
+   */
+  public List<Match> scan(BlockExtention block, List<TransactionInfo> infos) {
+    BlockView view = BlockView.of(block);
+    List<Chunk> chunks = new ArrayList<>();
+    for (int from = 0; from < view.getTransactionCount(); from += chunkSize) {
+      int to = Math.min(from + chunkSize, view.getTransactionCount());
+      int start = from;
+      chunks.add(() -> scanTransactions(view, start, to));
+    }
+    for (int from = 0; from < infos.size(); from += chunkSize) {
+      List<TransactionInfo> slice = infos.subList(from, Math.min(from + chunkSize, infos.size()));
+      int start = from;
+      chunks.add(() -> scanLogs(slice, start));
+    }
+
+    lock.readLock().lock();
+    try {
+      List<Match> matches = new ArrayList<>();
+      if (executor == null || chunks.size() == 1) {
+        for (Chunk chunk : chunks) {
+          matches.addAll(chunk.scan());
+        }
+      } else {
+        List<CompletableFuture<List<Match>>> futures = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+          futures.add(CompletableFuture.supplyAsync(chunk::scan, executor));
+        }
+        for (CompletableFuture<List<Match>> future : futures) {
+          try {
+            matches.addAll(future.join());
+          } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+              throw (RuntimeException) e.getCause();
+            }
+            throw e;
+          }
+        }
+      }
+      matches.sort(BLOCK_ORDER);
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Chunk {
+
+    List<Match> scan();
+  }
+
+  private List<Match> scanTransactions(BlockView block, int from, int to) {
+    List<Match> matches = Collections.emptyList();
+    byte[] scratch = new byte[ADDRESS_SIZE];
+    for (int i = from; i < to; i++) {
+      BlockView.TransactionView txn = block.getTransaction(i);
+      Transaction.raw raw = txn.getTransaction().getRawData();
+      if (raw.getContractCount() == 0) {
+        continue;
+      }
+      ContractType type = raw.getContract(0).getType();
+      Match match;
+      try {
+        if (type == ContractType.TransferContract) {
+          TransferContract transfer = txn.getParameter(TransferContract.class);
+          match = match(Match.Kind.TRANSFER, txn, ByteString.EMPTY, transfer.getOwnerAddress(),
+              transfer.getToAddress(), transfer.getAmount(), scratch);
+        } else if (type == ContractType.TransferAssetContract) {
+          TransferAssetContract transfer = txn.getParameter(TransferAssetContract.class);
+          match = match(Match.Kind.TRANSFER_ASSET, txn, transfer.getAssetName(),
+              transfer.getOwnerAddress(), transfer.getToAddress(), transfer.getAmount(),
+              scratch);
+        } else {
+          continue;
+        }
+      } catch (InvalidProtocolBufferException e) {
+        // malformed parameter, the node would not have accepted it
+        continue;
+      }
+      if (match != null) {
+        if (matches.isEmpty()) {
+          matches = new ArrayList<>();
+        }
+        matches.add(match);
+      }
+    }
+    return matches;
+  }
+
+  private Match match(Match.Kind kind, BlockView.TransactionView txn, ByteString token,
+      ByteString from, ByteString to, long amount, byte[] scratch) {
+    boolean fromWatched = isWatched(from, scratch);
+    boolean toWatched = isWatched(to, scratch);
+    if (!fromWatched && !toWatched) {
+      return null;
+    }
+    return new Match(kind, txn.getTxid(), txn.getIndex(), -1, token, from, to,
+        BigInteger.valueOf(amount), fromWatched, toWatched);
+  }
+
+  private List<Match> scanLogs(List<TransactionInfo> infos, int offset) {
+    List<Match> matches = Collections.emptyList();
+    byte[] fromKey = new byte[ADDRESS_SIZE];
+    byte[] toKey = new byte[ADDRESS_SIZE];
+    fromKey[0] = ADDRESS_PREFIX;
+    toKey[0] = ADDRESS_PREFIX;
+    for (int i = 0; i < infos.size(); i++) {
+      TransactionInfo info = infos.get(i);
+      for (int j = 0; j < info.getLogCount(); j++) {
+        TransactionInfo.Log log = info.getLog(j);
+        // LRC-721 Transfer has the same topic 0 with the token id as a fourth topic
+        if (log.getTopicsCount() != 3 || log.getData().size() < WORD_SIZE
+            || !TRANSFER_TOPIC.equals(log.getTopics(0))
+            || log.getTopics(1).size() != WORD_SIZE || log.getTopics(2).size() != WORD_SIZE) {
+          continue;
+        }
+        log.getTopics(1).substring(TOPIC_ADDRESS_OFFSET, WORD_SIZE).copyTo(fromKey, 1);
+        log.getTopics(2).substring(TOPIC_ADDRESS_OFFSET, WORD_SIZE).copyTo(toKey, 1);
+        boolean fromWatched = isWatched(fromKey);
+        boolean toWatched = isWatched(toKey);
+        if (!fromWatched && !toWatched) {
+          continue;
+        }
+        if (matches.isEmpty()) {
+          matches = new ArrayList<>();
+        }
+        matches.add(new Match(Match.Kind.LRC20_TRANSFER, info.getId(), offset + i, j,
+            toAddress(log.getAddress()),
+            ByteString.copyFrom(fromKey), ByteString.copyFrom(toKey),
+            new BigInteger(1, log.getData().substring(0, WORD_SIZE).toByteArray()),
+            fromWatched, toWatched));
+      }
+    }
+    return matches;
+  }
+
+  private boolean isWatched(ByteString address, byte[] scratch) {
+    if (address.size() != ADDRESS_SIZE) {
+      return false;
+    }
+    address.copyTo(scratch, 0);
+    return isWatched(scratch);
+  }
+
+  private boolean isWatched(byte[] address) {
+    if (bloom != null) {
+      long h = bloomHash(address, 0);
+      for (int i = 0; i < bloomHashes; i++) {
+        int bit = bloomBit(h, i);
+        if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+    }
+    return addresses.contains(address, 0);
+  }
+
+  private int bloomBit(long hash, int i) {
+    // double hashing, Kirsch and Mitzenmacher
+    return ((int) hash + i * (int) (hash >>> 32)) & bloomMask;
+  }
+
+  private static long bloomHash(byte[] key, int offset) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < ADDRESS_SIZE; i++) {
+      h = (h ^ (key[offset + i] & 0xff)) * 0x100000001B3L;
+    }
+    h ^= h >>> 29;
+    h *= 0xbf58476d1ce4e5b9L;
+    h ^= h >>> 32;
+    return h;
+  }
+
+  private static ByteString toAddress(ByteString logAddress) {
+    if (logAddress.size() == ADDRESS_SIZE - 1) {
+      return ByteString.copyFrom(new byte[] {ADDRESS_PREFIX}).concat(logAddress);
+    }
+    return logAddress;
+  }
+
+  public static class Builder {
+
+    private final int expectedSize;
+    private int bloomBitsPerAddress;
+    private int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private int chunkSize = 256;
+
+    /**
+     * @param expectedSize number of addresses to size the set and bloom filter for
+     */
+    public Builder(int expectedSize) {
+      if (expectedSize < 0) {
+        throw new IllegalArgumentException("expectedSize must be >= 0");
+      }
+      this.expectedSize = expectedSize;
+    }
+
+    /**
+     * Bits of bloom filter per expected address, 0 (default) for no filter. 10 bits give about
+     * 1% false positives. Worth it when the set no longer fits the CPU caches and most
+     * addresses looked up are not watched.
+     */
+    public Builder setBloomBitsPerAddress(int bloomBitsPerAddress) {
+      if (bloomBitsPerAddress < 0) {
+        throw new IllegalArgumentException("bloomBitsPerAddress must be >= 0");
+      }
+      this.bloomBitsPerAddress = bloomBitsPerAddress;
+      return this;
+    }
+
+    /**
+     * Threads scanning a block, up to 4 by default. 1 scans in the calling thread.
+     */
+    public Builder setParallelism(int parallelism) {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("parallelism must be > 0");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Transactions or transaction infos per scan task, 256 by default.
+     */
+    public Builder setChunkSize(int chunkSize) {
+      if (chunkSize <= 0) {
+        throw new IllegalArgumentException("chunkSize must be > 0");
+      }
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    public AddressWatchlist build() {
+      return new AddressWatchlist(this);
+    }
+  }
+}
@@ -0,0 +1,481 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+/**
+ * The {@code BackfillEngine} fetches a range of historical blocks, with their transaction infos,
+ * from several full nodes concurrently and hands them to a consumer in strict height order.
+ *
+ * <p>The range is split into chunks of up to 100 blocks, each fetched with one
+ * {@code getBlockByLimitNext} call and one {@code getTransactionInfoByBlockNum} call per block.
+ * Every endpoint runs its own workers behind its own request rate limit. Chunks completing out
+ * of order wait in a reorder buffer, which is bounded so fast endpoints cannot run arbitrarily
+ * far ahead of the consumer. A failed chunk is put back and fetched again, by whichever
+ * endpoint is free first.</p>
+ *
+ * <p>With a checkpoint file, the last height handed to the consumer is saved after every chunk
+ * and a new run resumes after it.</p>
+ *
+ * <pre>
+ * BackfillEngine engine = new BackfillEngine.Builder(startHeight, endHeight)
+ *     .addEndpoint(wrapper1, 50)
+ *     .addEndpoint(wrapper2, 50)
+ *     .setCheckpointFile(Paths.get("backfill.checkpoint"))
+ *     .build();
+ * engine.run((block, infos) -&gt; index(block, infos));
+ * </pre>
+ */
+public class BackfillEngine {
+
+  /**
+   * Receives the blocks of the range, in height order, on the thread calling
+   * {@link #run(BlockConsumer)}.
+   */
+  @FunctionalInterface
+  public interface BlockConsumer {
+
+    /**
+     * @param infos the transaction infos of the block, empty when transaction infos are not
+     *     fetched
+     */
+    void accept(BlockExtention block, TransactionInfoList infos);
+  }
+
+  /**
+   * Fetches blocks from one node.
+   */
+  interface Source {
+
+    /**
+     * Blocks {@code [start, end)}.
+     */
+    List<BlockExtention> getBlocks(long start, long end) throws IllegalException;
+
+    TransactionInfoList getTransactionInfos(long blockNum) throws IllegalException;
+  }
+
+  private final long from;
+  private final long to;
+  private final int chunkSize;
+  private final int maxBufferedChunks;
+  private final int maxAttempts;
+  private final boolean transactionInfos;
+  private final Path checkpointFile;
+  private final List<Endpoint> endpoints;
+
+  private final Object lock = new Object();
+  // guarded by lock
+  private final TreeMap<Long, List<Fetched>> buffer = new TreeMap<>();
+  private final PriorityQueue<Long> retries = new PriorityQueue<>();
+  private final Map<Long, Integer> attempts = new HashMap<>();
+  private long nextToAssign;
+  private long nextToDeliver;
+  private Throwable failure;
+  private boolean stopped;
+
+  private final AtomicLong deliveredBlocks = new AtomicLong();
+  private volatile long lastDelivered;
+  private volatile long startNanos;
+  private volatile long endNanos;
+
+  private BackfillEngine(Builder builder) {
+    this.from = builder.from;
+    this.to = builder.to;
+    this.chunkSize = builder.chunkSize;
+    this.maxBufferedChunks = builder.maxBufferedChunks > 0
+        ? builder.maxBufferedChunks : 2 * builder.workersPerEndpoint * builder.endpoints.size();
+    this.maxAttempts = builder.maxAttempts;
+    this.transactionInfos = builder.transactionInfos;
+    this.checkpointFile = builder.checkpointFile;
+    this.endpoints = Collections.unmodifiableList(new ArrayList<>(builder.endpoints));
+    this.lastDelivered = from - 1;
+  }
+
+  private static final class Fetched {
+
+    private final BlockExtention block;
+    private final TransactionInfoList infos;
+
+    Fetched(BlockExtention block, TransactionInfoList infos) {
+      this.block = block;
+      this.infos = infos;
+    }
+  }
+
+  /**
+   * Fetch the whole range, resuming after the checkpoint if there is one, and return when the
+   * last block has been consumed.
+   *
+   * @throws IllegalException if a chunk failed on every attempt
+   * @throws RuntimeException if the consumer threw, or a chunk failed at the gRPC level on
+   *     every attempt
+   */
+  public void run(BlockConsumer consumer) throws IllegalException, InterruptedException {
+    long start = Math.max(from, readCheckpoint() + 1);
+    synchronized (lock) {
+      buffer.clear();
+      retries.clear();
+      attempts.clear();
+      nextToAssign = start;
+      nextToDeliver = start;
+      failure = null;
+      stopped = false;
+    }
+    lastDelivered = start - 1;
+    deliveredBlocks.set(0);
+    startNanos = System.nanoTime();
+    endNanos = 0;
+
+    int workers = 0;
+    for (Endpoint endpoint : endpoints) {
+      workers += endpoint.workers;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactoryBuilder()
+        .setNameFormat("trident-backfill-%d").setDaemon(true).build());
+    try {
+      for (Endpoint endpoint : endpoints) {
+        for (int i = 0; i < endpoint.workers; i++) {
+          executor.execute(() -> work(endpoint));
+        }
+      }
+      deliver(consumer);
+    } finally {
+      stop();
+      executor.shutdownNow();
+      endNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Blocks handed to the consumer by the current or last run.
+   */
+  public long getDeliveredBlocks() {
+    return deliveredBlocks.get();
+  }
+
+  /**
+   * Height of the last block handed to the consumer.
+   */
+  public long getLastDelivered() {
+    return lastDelivered;
+  }
+
+  /**
+   * Consumed blocks per second of the current or last run.
+   */
+  public double getBlocksPerSecond() {
+    long begin = startNanos;
+    if (begin == 0) {
+      return 0;
+    }
+    long end = endNanos == 0 ? System.nanoTime() : endNanos;
+    return end == begin ? 0 : deliveredBlocks.get() * 1e9 / (end - begin);
+  }
+
+  private void deliver(BlockConsumer consumer) throws IllegalException, InterruptedException {
+    while (true) {
+      List<Fetched> chunk;
+      synchronized (lock) {
+        if (nextToDeliver > to) {
+          return;
+        }
+        while ((chunk = buffer.remove(nextToDeliver)) == null && failure == null) {
+          lock.wait();
+        }
+        if (chunk == null) {
+          if (failure instanceof IllegalException) {
+            throw (IllegalException) failure;
+          }
+          throw failure instanceof RuntimeException
+              ? (RuntimeException) failure : new RuntimeException(failure);
+        }
+      }
+      for (Fetched fetched : chunk) {
+        consumer.accept(fetched.block, fetched.infos);
+        lastDelivered = fetched.block.getBlockHeader().getRawData().getNumber();
+        deliveredBlocks.incrementAndGet();
+      }
+      writeCheckpoint(lastDelivered);
+      synchronized (lock) {
+        nextToDeliver += chunk.size();
+        lock.notifyAll();
+      }
+    }
+  }
+
+  private void work(Endpoint endpoint) {
+    int consecutiveFailures = 0;
+    while (true) {
+      long start;
+      synchronized (lock) {
+        while (true) {
+          if (stopped || failure != null) {
+            return;
+          }
+          if (!retries.isEmpty()) {
+            start = retries.poll();
+            break;
+          }
+          if (nextToAssign > to) {
+            return;
+          }
+          if (nextToAssign - nextToDeliver >= (long) maxBufferedChunks * chunkSize) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              return;
+            }
+            continue;
+          }
+          start = nextToAssign;
+          nextToAssign = Math.min(start + chunkSize, to + 1);
+          break;
+        }
+      }
+
+      long end = Math.min(start + chunkSize, to + 1);
+      try {
+        List<Fetched> chunk = fetch(endpoint, start, end);
+        consecutiveFailures = 0;
+        synchronized (lock) {
+          buffer.put(start, chunk);
+          attempts.remove(start);
+          lock.notifyAll();
+        }
+      } catch (IllegalException | RuntimeException e) {
+        consecutiveFailures++;
+        synchronized (lock) {
+          int attempt = attempts.merge(start, 1, Integer::sum);
+          if (attempt >= maxAttempts) {
+            failure = e;
+          } else {
+            retries.add(start);
+          }
+          lock.notifyAll();
+        }
+        // let healthier endpoints take the retry
+        try {
+          Thread.sleep(Math.min(100L << Math.min(consecutiveFailures, 6), 5_000L));
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  private List<Fetched> fetch(Endpoint endpoint, long start, long end) throws IllegalException {
+    endpoint.rateLimiter.acquire();
+    List<BlockExtention> blocks = endpoint.source.getBlocks(start, end);
+    if (blocks.size() != end - start) {
+      throw new IllegalException("Expected " + (end - start) + " blocks from " + start
+          + ", got " + blocks.size());
+    }
+    List<Fetched> chunk = new ArrayList<>(blocks.size());
+    for (int i = 0; i < blocks.size(); i++) {
+      BlockExtention block = blocks.get(i);
+      long num = block.getBlockHeader().getRawData().getNumber();
+      if (num != start + i) {
+        throw new IllegalException("Expected block " + (start + i) + ", got " + num);
+      }
+      TransactionInfoList infos = TransactionInfoList.getDefaultInstance();
+      if (transactionInfos && block.getTransactionsCount() > 0) {
+        endpoint.rateLimiter.acquire();
+        infos = endpoint.source.getTransactionInfos(num);
+      }
+      chunk.add(new Fetched(block, infos));
+    }
+    return chunk;
+  }
+
+  private void stop() {
+    synchronized (lock) {
+      stopped = true;
+      lock.notifyAll();
+    }
+  }
+
+  private long readCheckpoint() {
+    if (checkpointFile == null || !Files.exists(checkpointFile)) {
+      return Long.MIN_VALUE;
+    }
+    try {
+      String content = new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8);
+      return Long.parseLong(content.trim());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Corrupt checkpoint file " + checkpointFile, e);
+    }
+  }
+
+  private void writeCheckpoint(long height) {
+    if (checkpointFile == null) {
+      return;
+    }
+    try {
+      Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+      Files.write(tmp, Long.toString(height).getBytes(StandardCharsets.UTF_8));
+      Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class Endpoint {
+
+    private final Source source;
+    private final RateLimiter rateLimiter;
+    private final int workers;
+
+    Endpoint(Source source, double requestsPerSecond, int workers) {
+      this.source = source;
+      this.rateLimiter = RateLimiter.create(requestsPerSecond);
+      this.workers = workers;
+    }
+  }
+
+  public static class Builder {
+
+    private final long from;
+    private final long to;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private int chunkSize = 100;
+    private int workersPerEndpoint = 2;
+    private int maxBufferedChunks;
+    private int maxAttempts = 5;
+    private boolean transactionInfos = true;
+    private Path checkpointFile;
+
+    /**
+     * @param from first height, inclusive
+     * @param to last height, inclusive
+     */
+    public Builder(long from, long to) {
+      if (from < 0 || to < from) {
+        throw new IllegalArgumentException("Invalid range [" + from + ", " + to + "]");
+      }
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Add a full node. {@code getBlockByLimitNext} is not served by solidity nodes.
+     *
+     * @param requestsPerSecond request rate limit of this endpoint, counting the block and
+     *     transaction-info requests
+     */
+    public Builder addEndpoint(ApiWrapper wrapper, double requestsPerSecond) {
+      return addEndpoint(new Source() {
+        @Override
+        public List<BlockExtention> getBlocks(long start, long end) throws IllegalException {
+          return wrapper.getBlockByLimitNext(start, end).getBlockList();
+        }
+
+        @Override
+        public TransactionInfoList getTransactionInfos(long blockNum) throws IllegalException {
+          return wrapper.getTransactionInfoByBlockNum(blockNum);
+        }
+      }, requestsPerSecond);
+    }
+
+    Builder addEndpoint(Source source, double requestsPerSecond) {
+      if (requestsPerSecond <= 0) {
+        throw new IllegalArgumentException("requestsPerSecond must be > 0");
+      }
+      endpoints.add(new Endpoint(source, requestsPerSecond, workersPerEndpoint));
+      return this;
+    }
+
+    /**
+     * Blocks per chunk, 100 (the node limit of {@code getBlockByLimitNext}) by default.
+     */
+    public Builder setChunkSize(int chunkSize) {
+      if (chunkSize <= 0 || chunkSize > 100) {
+        throw new IllegalArgumentException("chunkSize must be in [1, 100]");
+      }
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Concurrent chunk fetches per endpoint, 2 by default. Applies to endpoints added after
+     * this call.
+     */
+    public Builder setWorkersPerEndpoint(int workersPerEndpoint) {
+      if (workersPerEndpoint <= 0) {
+        throw new IllegalArgumentException("workersPerEndpoint must be > 0");
+      }
+      this.workersPerEndpoint = workersPerEndpoint;
+      return this;
+    }
+
+    /**
+     * Chunks fetched ahead of the consumer, by default twice the number of workers. Bounds the
+     * memory of the reorder buffer.
+     */
+    public Builder setMaxBufferedChunks(int maxBufferedChunks) {
+      if (maxBufferedChunks <= 0) {
+        throw new IllegalArgumentException("maxBufferedChunks must be > 0");
+      }
+      this.maxBufferedChunks = maxBufferedChunks;
+      return this;
+    }
+
+    /**
+     * Attempts per chunk before the run fails, 5 by default.
+     */
+    public Builder setMaxAttempts(int maxAttempts) {
+      if (maxAttempts <= 0) {
+        throw new IllegalArgumentException("maxAttempts must be > 0");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Whether to fetch the transaction infos of each block, true by default. Blocks without
+     * transactions never need a request.
+     */
+    public Builder setTransactionInfos(boolean transactionInfos) {
+      this.transactionInfos = transactionInfos;
+      return this;
+    }
+
+    /**
+     * File holding the last consumed height. Created if missing.
+     */
+    public Builder setCheckpointFile(Path checkpointFile) {
+      this.checkpointFile = checkpointFile;
+      return this;
+    }
+
+    public BackfillEngine build() {
+      if (endpoints.isEmpty()) {
+        throw new IllegalArgumentException("At least one endpoint is required");
+      }
+      return new BackfillEngine(this);
+    }
+  }
+}
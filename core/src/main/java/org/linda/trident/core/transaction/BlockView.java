@@ -0,0 +1,287 @@
+package org.linda.trident.core.transaction;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.Sha256Hash;
+import org.linda.trident.proto.Chain.Block;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+
+/**
+ * A read-only view over the transactions of a block that does no work until asked.
+ *
+ * <p>Transactions are selected by {@link ContractType}, which is read from the already decoded
+ * contract, so the parameters of unselected transactions are never parsed. The parameter of a
+ * selected transaction is parsed on first access through {@link ContractParsers}, and the
+ * transaction id and block id are only computed when requested, or taken from the
+ * {@code BlockExtention} when the node sent them.</p>
+ *
+ * <pre>
+ * BlockView block = BlockView.of(wrapper.getNowBlock2());
+ * for (BlockView.TransactionView txn : block.transactions(ContractType.TransferContract)) {
+ *   TransferContract transfer = txn.getParameter(TransferContract.class);
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>Views are safe to share between threads; lazily computed values may be computed more than
+ * once under contention.</p>
+ */
+public final class BlockView {
+
+  private static final int HASH_SIZE = 32;
+
+  private final BlockHeader header;
+  private final ByteString blockIdBytes;
+  private final List<TransactionExtention> extentions;
+  private final List<Transaction> transactions;
+  private final TransactionView[] views;
+
+  private volatile BlockId blockId;
+
+  private BlockView(BlockHeader header, ByteString blockIdBytes,
+      List<TransactionExtention> extentions, List<Transaction> transactions, int size) {
+    this.header = header;
+    this.blockIdBytes = blockIdBytes;
+    this.extentions = extentions;
+    this.transactions = transactions;
+    this.views = new TransactionView[size];
+  }
+
+  public static BlockView of(BlockExtention block) {
+    return new BlockView(block.getBlockHeader(), block.getBlockid(),
+        block.getTransactionsList(), null, block.getTransactionsCount());
+  }
+
+  public static BlockView of(Block block) {
+    return new BlockView(block.getBlockHeader(), ByteString.EMPTY,
+        null, block.getTransactionsList(), block.getTransactionsCount());
+  }
+
+  public BlockHeader getBlockHeader() {
+    return header;
+  }
+
+  public long getNumber() {
+    return header.getRawData().getNumber();
+  }
+
+  public long getTimestamp() {
+    return header.getRawData().getTimestamp();
+  }
+
+  /**
+   * The block id: the SHA-256 of the header raw data with the block number in its first 8
+   * bytes. Taken from the response when present, computed on first call otherwise.
+   */
+  public BlockId getBlockId() {
+    BlockId id = blockId;
+    if (id == null) {
+      if (blockIdBytes.size() == HASH_SIZE) {
+        id = new BlockId(blockIdBytes, getNumber());
+      } else {
+        id = new BlockId(Sha256Hash.of(true, header.getRawData().toByteArray()), getNumber());
+      }
+      blockId = id;
+    }
+    return id;
+  }
+
+  public int getTransactionCount() {
+    return views.length;
+  }
+
+  /**
+   * The view of the transaction at {@code index}, in block order.
+   */
+  public TransactionView getTransaction(int index) {
+    TransactionView view = views[index];
+    if (view == null) {
+      view = extentions != null
+          ? new TransactionView(index, extentions.get(index).getTransaction(),
+              extentions.get(index).getTxid())
+          : new TransactionView(index, transactions.get(index), ByteString.EMPTY);
+      views[index] = view;
+    }
+    return view;
+  }
+
+  /**
+   * All transactions, in block order.
+   */
+  public Iterable<TransactionView> transactions() {
+    return () -> new ViewIterator(null);
+  }
+
+  /**
+   * The transactions whose contract is of {@code type}, in block order. Other transactions are
+   * skipped by comparing the enum only.
+   */
+  public Iterable<TransactionView> transactions(ContractType type) {
+    if (type == null) {
+      throw new IllegalArgumentException("type must not be null");
+    }
+    return () -> new ViewIterator(type);
+  }
+
+  /**
+   * Number of transactions whose contract is of {@code type}.
+   */
+  public int count(ContractType type) {
+    int count = 0;
+    for (int i = 0; i < views.length; i++) {
+      if (contractType(i) == type) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private Transaction transaction(int index) {
+    return extentions != null
+        ? extentions.get(index).getTransaction() : transactions.get(index);
+  }
+
+  private ContractType contractType(int index) {
+    Transaction.raw raw = transaction(index).getRawData();
+    return raw.getContractCount() == 0 ? null : raw.getContract(0).getType();
+  }
+
+  private final class ViewIterator implements Iterator<TransactionView> {
+
+    private final ContractType type;
+    private int next;
+
+    ViewIterator(ContractType type) {
+      this.type = type;
+      this.next = advance(0);
+    }
+
+    private int advance(int from) {
+      int i = from;
+      if (type != null) {
+        while (i < views.length && contractType(i) != type) {
+          i++;
+        }
+      }
+      return i;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < views.length;
+    }
+
+    @Override
+    public TransactionView next() {
+      if (next >= views.length) {
+        throw new NoSuchElementException();
+      }
+      TransactionView view = getTransaction(next);
+      next = advance(next + 1);
+      return view;
+    }
+  }
+
+  /**
+   * A transaction of a {@link BlockView}. The contract parameter and the transaction id are
+   * computed on first access and kept.
+   */
+  public static final class TransactionView {
+
+    private final int index;
+    private final Transaction transaction;
+    private final ByteString txidBytes;
+
+    private volatile ByteString txid;
+    private volatile Message parameter;
+
+    TransactionView(int index, Transaction transaction, ByteString txidBytes) {
+      this.index = index;
+      this.transaction = transaction;
+      this.txidBytes = txidBytes;
+    }
+
+    /**
+     * Position of the transaction in the block.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public Transaction getTransaction() {
+      return transaction;
+    }
+
+    /**
+     * The first contract of the transaction. Transactions carry exactly one contract.
+     */
+    public Contract getContract() {
+      return transaction.getRawData().getContract(0);
+    }
+
+    public ContractType getContractType() {
+      return getContract().getType();
+    }
+
+    /**
+     * The transaction id, SHA-256 of the raw data. Taken from the response when present,
+     * computed on first call otherwise.
+     */
+    public ByteString getTxid() {
+      ByteString id = txid;
+      if (id == null) {
+        id = txidBytes.size() == HASH_SIZE
+            ? txidBytes
+            : UnsafeByteOperations.unsafeWrap(ApiWrapper.calculateTransactionHash(transaction));
+        txid = id;
+      }
+      return id;
+    }
+
+    public String getTxidHex() {
+      return ByteArray.toHexString(getTxid().toByteArray());
+    }
+
+    /**
+     * The contract parameter, parsed on first call with the parser registered for the contract
+     * type.
+     *
+     * @throws IllegalArgumentException if the contract type is not supported
+     */
+    public Message getParameter() throws InvalidProtocolBufferException {
+      Message message = parameter;
+      if (message == null) {
+        message = ContractParsers.parse(getContract());
+        parameter = message;
+      }
+      return message;
+    }
+
+    /**
+     * The contract parameter as {@code type}.
+     *
+     * @throws IllegalArgumentException if the parameter of this contract type is not a
+     *     {@code type}
+     */
+    public <T extends Message> T getParameter(Class<T> type)
+        throws InvalidProtocolBufferException {
+      if (ContractParsers.messageClass(getContractType()) != type) {
+        throw new IllegalArgumentException(getContractType() + " parameter is not "
+            + type.getSimpleName());
+      }
+      return type.cast(getParameter());
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionReturn;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+/**
+ * The {@code BroadcastFanout} sends a signed transaction to several full nodes in parallel and
+ * returns as soon as one of them accepts it.
+ *
+ * <p>{@code DUP_TRANSACTION_ERROR} means the node already has the transaction, typically
+ * relayed from another endpoint, and counts as accepted. The broadcast only fails when every
+ * endpoint rejected the transaction or errored.</p>
+ *
+ * <p>Each endpoint records its acceptance latency, see {@link #getStats()}, so endpoints can be
+ * ranked by how fast they take transactions.</p>
+ *
+ * <pre>
+ * try (BroadcastFanout fanout = new BroadcastFanout.Builder()
+ *     .addEndpoint("grpc.lindagrid.io:50051")
+ *     .addEndpoint("10.0.0.2:50051")
+ *     .build()) {
+ *   String txid = fanout.broadcast(signedTxn);
+ * }
+ * </pre>
+ */
+public class BroadcastFanout implements AutoCloseable {
+
+  private final List<Endpoint> endpoints;
+  private final List<ManagedChannel> ownedChannels;
+
+  private BroadcastFanout(Builder builder) {
+    this.endpoints = Collections.unmodifiableList(new ArrayList<>(builder.endpoints));
+    this.ownedChannels = new ArrayList<>(builder.ownedChannels);
+  }
+
+  /**
+   * Sends one transaction to one endpoint.
+   */
+  @FunctionalInterface
+  interface Sender {
+
+    ListenableFuture<TransactionReturn> send(Transaction txn);
+  }
+
+  /**
+   * Broadcast to all endpoints and wait for the first acceptance.
+   *
+   * @param txn a signed transaction ready to be broadcasted
+   * @return the transaction id in hex
+   * @throws RuntimeException with the {@code "CODE, message"} of the first endpoint if every
+   *     endpoint rejected the transaction
+   */
+  public String broadcast(Transaction txn) throws RuntimeException {
+    try {
+      return broadcastAsync(txn).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Broadcast to all endpoints.
+   *
+   * @return a future completed with the transaction id on the first acceptance
+   */
+  public CompletableFuture<String> broadcastAsync(Transaction txn) {
+    CompletableFuture<String> result = new CompletableFuture<>();
+    String txid = ByteArray.toHexString(ApiWrapper.calculateTransactionHash(txn));
+    RuntimeException[] failures = new RuntimeException[endpoints.size()];
+    AtomicInteger remaining = new AtomicInteger(endpoints.size());
+
+    for (int i = 0; i < endpoints.size(); i++) {
+      Endpoint endpoint = endpoints.get(i);
+      int index = i;
+      long start = System.nanoTime();
+      ListenableFuture<TransactionReturn> future;
+      try {
+        future = endpoint.sender.send(txn);
+      } catch (RuntimeException e) {
+        future = Futures.immediateFailedFuture(e);
+      }
+      Futures.addCallback(future, new FutureCallback<TransactionReturn>() {
+        @Override
+        public void onSuccess(TransactionReturn ret) {
+          long latency = System.nanoTime() - start;
+          if (ret.getResult() || ret.getCode() == response_code.DUP_TRANSACTION_ERROR) {
+            endpoint.stats.accepted(latency);
+            result.complete(txid);
+          } else {
+            endpoint.stats.rejected();
+            String message = ret.getCode().name() + ", "
+                + new String(ret.getMessage().toByteArray());
+            fail(new RuntimeException(message));
+          }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+          endpoint.stats.errored();
+          fail(t instanceof RuntimeException
+              ? (RuntimeException) t : new RuntimeException(t.getMessage(), t));
+        }
+
+        private void fail(RuntimeException e) {
+          failures[index] = e;
+          // the decrement publishes failures[index] to the thread that sees 0
+          if (remaining.decrementAndGet() == 0) {
+            RuntimeException first = failures[0];
+            for (int j = 1; j < failures.length; j++) {
+              if (failures[j] != first) {
+                first.addSuppressed(failures[j]);
+              }
+            }
+            result.completeExceptionally(first);
+          }
+        }
+      }, MoreExecutors.directExecutor());
+    }
+    return result;
+  }
+
+  /**
+   * Acceptance statistics of all endpoints, fastest mean acceptance latency first. Endpoints
+   * that have not accepted anything yet come last.
+   */
+  public List<EndpointStats> getStats() {
+    List<EndpointStats> stats = new ArrayList<>(endpoints.size());
+    for (Endpoint endpoint : endpoints) {
+      stats.add(endpoint.stats);
+    }
+    stats.sort(Comparator.comparingLong(s -> s.getAccepted() == 0
+        ? Long.MAX_VALUE : s.getMeanLatencyNanos()));
+    return stats;
+  }
+
+  /**
+   * Shut down the channels created by {@link Builder#addEndpoint(String)}.
+   */
+  @Override
+  public void close() {
+    for (ManagedChannel channel : ownedChannels) {
+      channel.shutdown();
+    }
+  }
+
+  /**
+   * Counters and latency of one endpoint. Updated concurrently, read without locking.
+   */
+  public static final class EndpointStats {
+
+    private final String name;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong minLatencyNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    EndpointStats(String name) {
+      this.name = name;
+    }
+
+    void accepted(long latencyNanos) {
+      accepted.incrementAndGet();
+      totalLatencyNanos.addAndGet(latencyNanos);
+      minLatencyNanos.accumulateAndGet(latencyNanos, Math::min);
+      maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    void rejected() {
+      rejected.incrementAndGet();
+    }
+
+    void errored() {
+      errors.incrementAndGet();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Number of broadcasts accepted, including {@code DUP_TRANSACTION_ERROR}.
+     */
+    public long getAccepted() {
+      return accepted.get();
+    }
+
+    /**
+     * Number of broadcasts rejected with a result code.
+     */
+    public long getRejected() {
+      return rejected.get();
+    }
+
+    /**
+     * Number of broadcasts that failed at the gRPC level, e.g. unavailable or deadline exceeded.
+     */
+    public long getErrors() {
+      return errors.get();
+    }
+
+    public long getMeanLatencyNanos() {
+      long count = accepted.get();
+      return count == 0 ? 0 : totalLatencyNanos.get() / count;
+    }
+
+    public long getMinLatencyNanos() {
+      return accepted.get() == 0 ? 0 : minLatencyNanos.get();
+    }
+
+    public long getMaxLatencyNanos() {
+      return maxLatencyNanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return name + "{accepted=" + getAccepted() + ", rejected=" + getRejected()
+          + ", errors=" + getErrors()
+          + ", meanMs=" + TimeUnit.NANOSECONDS.toMillis(getMeanLatencyNanos()) + "}";
+    }
+  }
+
+  private static final class Endpoint {
+
+    private final Sender sender;
+    private final EndpointStats stats;
+
+    Endpoint(String name, Sender sender) {
+      this.sender = sender;
+      this.stats = new EndpointStats(name);
+    }
+  }
+
+  public static class Builder {
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final List<ManagedChannel> ownedChannels = new ArrayList<>();
+    private long timeoutMillis = 5_000L;
+
+    /**
+     * Deadline of each broadcast call, 5 seconds by default. Applies to endpoints added after
+     * this call.
+     */
+    public Builder setTimeoutMillis(long timeoutMillis) {
+      if (timeoutMillis <= 0) {
+        throw new IllegalArgumentException("timeoutMillis must be > 0");
+      }
+      this.timeoutMillis = timeoutMillis;
+      return this;
+    }
+
+    /**
+     * Add a full node by gRPC target. The channel is created here and shut down on
+     * {@link BroadcastFanout#close()}.
+     */
+    public Builder addEndpoint(String grpcEndpoint) {
+      ManagedChannel channel = ManagedChannelBuilder.forTarget(grpcEndpoint).usePlaintext().build();
+      ownedChannels.add(channel);
+      return addEndpoint(grpcEndpoint, WalletGrpc.newFutureStub(channel));
+    }
+
+    /**
+     * Add the full node of an existing {@link ApiWrapper}, reusing its channel. Interceptors
+     * attached to the wrapper's stubs, such as the API key header, are not carried over; use
+     * {@link #addEndpoint(String, WalletGrpc.WalletFutureStub)} for those.
+     */
+    public Builder addEndpoint(ApiWrapper wrapper) {
+      return addEndpoint(wrapper.channel.authority(), WalletGrpc.newFutureStub(wrapper.channel));
+    }
+
+    /**
+     * Add a full node through a caller-managed stub, e.g. one with an API key interceptor.
+     */
+    public Builder addEndpoint(String name, WalletGrpc.WalletFutureStub stub) {
+      long timeout = timeoutMillis;
+      return addEndpoint(name, txn -> stub.withDeadlineAfter(timeout, TimeUnit.MILLISECONDS)
+          .broadcastTransaction(txn));
+    }
+
+    Builder addEndpoint(String name, Sender sender) {
+      endpoints.add(new Endpoint(name, sender));
+      return this;
+    }
+
+    public BroadcastFanout build() {
+      if (endpoints.isEmpty()) {
+        throw new IllegalArgumentException("At least one endpoint is required");
+      }
+      return new BroadcastFanout(this);
+    }
+  }
+}
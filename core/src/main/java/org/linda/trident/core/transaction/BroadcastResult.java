@@ -0,0 +1,116 @@
+package org.linda.trident.core.transaction;
+
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionReturn;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+/**
+ * The outcome of broadcasting one transaction, with the response code of the node instead of
+ * the {@code "CODE, message"} text of the exception thrown by
+ * {@link org.linda.trident.core.ApiWrapper#broadcastTransaction}.
+ */
+public final class BroadcastResult {
+
+  private final Transaction transaction;
+  private final String txid;
+  private final boolean success;
+  private final response_code code;
+  private final String message;
+
+  BroadcastResult(Transaction transaction, String txid, boolean success, response_code code,
+      String message) {
+    this.transaction = transaction;
+    this.txid = txid;
+    this.success = success;
+    this.code = code;
+    this.message = message;
+  }
+
+  /**
+   * Wrap the response of the {@code broadcastTransaction} call.
+   */
+  public static BroadcastResult of(Transaction transaction, String txid, TransactionReturn ret) {
+    response_code code = response_code.forNumber(ret.getCodeValue());
+    return new BroadcastResult(transaction, txid, ret.getResult(),
+        code == null ? response_code.OTHER_ERROR : code,
+        new String(ret.getMessage().toByteArray()));
+  }
+
+  /**
+   * The broadcast transaction.
+   */
+  public Transaction getTransaction() {
+    return transaction;
+  }
+
+  /**
+   * The transaction id in hex.
+   */
+  public String getTxid() {
+    return txid;
+  }
+
+  /**
+   * Whether the node accepted the transaction.
+   */
+  public boolean isSuccess() {
+    return success;
+  }
+
+  /**
+   * The response code, {@code SUCCESS} on success.
+   */
+  public response_code getCode() {
+    return code;
+  }
+
+  /**
+   * The error message of the node, empty on success.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Whether the node has the transaction, accepted now or before ({@code DUP_TRANSACTION_ERROR}).
+   */
+  public boolean isAccepted() {
+    return success || code == response_code.DUP_TRANSACTION_ERROR;
+  }
+
+  /**
+   * Whether the transaction can never be accepted as signed, but the same contract with a
+   * fresh reference block and expiration can: {@code TRANSACTION_EXPIRATION_ERROR} and
+   * {@code TAPOS_ERROR}.
+   */
+  public boolean isStale() {
+    return !success && (code == response_code.TRANSACTION_EXPIRATION_ERROR
+        || code == response_code.TAPOS_ERROR);
+  }
+
+  /**
+   * Whether the node could not process the transaction for now, and the same transaction may
+   * be accepted later: {@code SERVER_BUSY}, {@code NO_CONNECTION},
+   * {@code NOT_ENOUGH_EFFECTIVE_CONNECTION} and {@code BLOCK_UNSOLIDIFIED}.
+   */
+  public boolean isTransient() {
+    if (success) {
+      return false;
+    }
+    switch (code) {
+      case SERVER_BUSY:
+      case NO_CONNECTION:
+      case NOT_ENOUGH_EFFECTIVE_CONNECTION:
+      case BLOCK_UNSOLIDIFIED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return success ? "BroadcastResult{" + txid + ", SUCCESS}"
+        : "BroadcastResult{" + txid + ", " + code.name() + ", " + message + "}";
+  }
+}
@@ -0,0 +1,331 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.exceptions.TransactionExpiredException;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.FixedWidthBytesMap;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+/**
+ * The {@code ConfirmationTracker} resolves many pending transactions with one scan per block
+ * instead of one {@code getTransactionInfoById} poll per transaction.
+ *
+ * <p>Every poll interval the tracker reads the latest block of the configured node, which is
+ * the solidity node by default so that a resolved transaction is final, and fetches
+ * {@code getTransactionInfoByBlockNum} once for each new block. Each transaction info is looked
+ * up in an open-addressed txid map. A transaction that is still pending once the latest block is
+ * past its expiration can no longer be included, and its future fails with
+ * {@link TransactionExpiredException}.</p>
+ *
+ * <p>When transactions are tracked between two polls, the last
+ * {@link Builder#setLookbackBlocks} blocks are scanned again, so that a transaction confirmed
+ * before it was tracked is still found. The txids of those blocks are kept from their first
+ * scan, and a block is only fetched again if it holds a tracked transaction.</p>
+ *
+ * <pre>
+ * try (ConfirmationTracker tracker = new ConfirmationTracker.Builder(wrapper).build()) {
+ *   wrapper.broadcastTransaction(signedTxn);
+ *   TransactionInfo info = tracker.track(signedTxn).get();
+ * }
+ * </pre>
+ */
+public class ConfirmationTracker implements AutoCloseable {
+
+  private static final int TXID_SIZE = 32;
+
+  private final ApiWrapper wrapper;
+  private final NodeType nodeType;
+  private final int lookbackBlocks;
+  private final ScheduledExecutorService scheduler;
+  private final Queue<Pending> registrations = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  // only accessed by the polling thread
+  private final FixedWidthBytesMap<Pending> pending;
+  private final PriorityQueue<Pending> byExpiration =
+      new PriorityQueue<>((a, b) -> Long.compare(a.expiration, b.expiration));
+  private final byte[] txid = new byte[TXID_SIZE];
+  // concatenated txids of the blocks last scanned, by block number
+  private final Map<Long, byte[]> recentTxids;
+  private long lastScanned = -1;
+  private boolean registered;
+
+  private ConfirmationTracker(Builder builder) {
+    this.wrapper = builder.wrapper;
+    this.nodeType = builder.nodeType;
+    this.lookbackBlocks = builder.lookbackBlocks;
+    this.pending = new FixedWidthBytesMap<>(TXID_SIZE, builder.expectedPending);
+    int recentBlocks = lookbackBlocks + 1;
+    this.recentTxids = new LinkedHashMap<Long, byte[]>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+        return size() > recentBlocks;
+      }
+    };
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("trident-confirmation-tracker").setDaemon(true).build());
+    if (builder.pollIntervalMillis > 0) {
+      scheduler.scheduleWithFixedDelay(this::pollQuietly, builder.pollIntervalMillis,
+          builder.pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Track a signed transaction that has been or will be broadcast.
+   *
+   * @return a future completed with the transaction info once the transaction is in a block of
+   *     the tracked node
+   */
+  public CompletableFuture<TransactionInfo> track(Transaction txn) {
+    return track(ApiWrapper.calculateTransactionHash(txn), txn.getRawData().getExpiration());
+  }
+
+  /**
+   * @param txid transaction id in hex
+   * @param expiration the transaction expiration, in milliseconds
+   * @see #track(byte[], long)
+   */
+  public CompletableFuture<TransactionInfo> track(String txid, long expiration) {
+    return track(ByteArray.fromHexString(txid), expiration);
+  }
+
+  /**
+   * Track a transaction by id.
+   *
+   * @param txid the 32-byte transaction id
+   * @param expiration the transaction expiration, in milliseconds
+   * @return a future completed with the transaction info, or failed with
+   *     {@link TransactionExpiredException} if the transaction expired unconfirmed
+   */
+  public CompletableFuture<TransactionInfo> track(byte[] txid, long expiration) {
+    if (txid.length != TXID_SIZE) {
+      throw new IllegalArgumentException("txid must be 32 bytes");
+    }
+    Pending entry = new Pending(txid.clone(), expiration);
+    pendingCount.incrementAndGet();
+    registrations.add(entry);
+    return entry.future;
+  }
+
+  /**
+   * Number of tracked transactions not yet resolved.
+   */
+  public int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Stop polling. Futures still pending are left incomplete.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  private void pollQuietly() {
+    try {
+      poll();
+    } catch (IllegalException | RuntimeException e) {
+      // node unavailable or lagging, retry with the next poll
+    }
+  }
+
+  /**
+   * Scan all blocks up to the latest block of the tracked node.
+   */
+  synchronized void poll() throws IllegalException {
+    drainRegistrations();
+    if (pending.isEmpty()) {
+      lastScanned = -1;
+      registered = false;
+      return;
+    }
+    BlockExtention head = wrapper.getNowBlock2(nodeType);
+    long headNum = head.getBlockHeader().getRawData().getNumber();
+    long lookbackStart = Math.max(headNum - lookbackBlocks, 0) - 1;
+    if (lastScanned < 0) {
+      lastScanned = lookbackStart;
+    } else if (registered) {
+      // a transaction tracked since the last poll may be in a block already scanned
+      lastScanned = Math.min(lastScanned, lookbackStart);
+    }
+    registered = false;
+    while (lastScanned < headNum && !pending.isEmpty()) {
+      long blockNum = lastScanned + 1;
+      byte[] txids = recentTxids.get(blockNum);
+      if (txids == null || containsPending(txids)) {
+        List<TransactionInfo> infos =
+            wrapper.getTransactionInfoByBlockNum(blockNum, nodeType).getTransactionInfoList();
+        scan(infos);
+        if (txids == null) {
+          recentTxids.put(blockNum, txidsOf(infos));
+        }
+      }
+      lastScanned = blockNum;
+    }
+    expire(head.getBlockHeader().getRawData().getTimestamp());
+  }
+
+  /**
+   * Resolve tracked transactions found in one block.
+   */
+  synchronized void scan(List<TransactionInfo> infos) {
+    drainRegistrations();
+    for (TransactionInfo info : infos) {
+      if (info.getId().size() != TXID_SIZE) {
+        continue;
+      }
+      info.getId().copyTo(txid, 0);
+      Pending entry = pending.get(txid);
+      if (entry != null) {
+        pending.remove(entry.txid);
+        pendingCount.decrementAndGet();
+        entry.future.complete(info);
+      }
+    }
+  }
+
+  private boolean containsPending(byte[] txids) {
+    for (int offset = 0; offset < txids.length; offset += TXID_SIZE) {
+      System.arraycopy(txids, offset, txid, 0, TXID_SIZE);
+      if (pending.get(txid) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] txidsOf(List<TransactionInfo> infos) {
+    byte[] txids = new byte[infos.size() * TXID_SIZE];
+    int offset = 0;
+    for (TransactionInfo info : infos) {
+      if (info.getId().size() == TXID_SIZE) {
+        info.getId().copyTo(txids, offset);
+        offset += TXID_SIZE;
+      }
+    }
+    return offset == txids.length ? txids : Arrays.copyOf(txids, offset);
+  }
+
+  /**
+   * Fail tracked transactions whose expiration is before {@code blockTimestamp}.
+   */
+  synchronized void expire(long blockTimestamp) {
+    drainRegistrations();
+    Pending entry;
+    while ((entry = byExpiration.peek()) != null && entry.expiration < blockTimestamp) {
+      byExpiration.poll();
+      if (pending.get(entry.txid) == entry) {
+        pending.remove(entry.txid);
+        pendingCount.decrementAndGet();
+        entry.future.completeExceptionally(new TransactionExpiredException(
+            "Transaction " + ByteArray.toHexString(entry.txid) + " expired at "
+                + entry.expiration + " without confirmation"));
+      }
+    }
+  }
+
+  private void drainRegistrations() {
+    Pending entry;
+    while ((entry = registrations.poll()) != null) {
+      registered = true;
+      Pending previous = pending.put(entry.txid, entry);
+      if (previous != null) {
+        // tracked twice, both callers get the same outcome
+        pendingCount.decrementAndGet();
+        entry.future.whenComplete((info, e) -> {
+          if (e != null) {
+            previous.future.completeExceptionally(e);
+          } else {
+            previous.future.complete(info);
+          }
+        });
+      }
+      byExpiration.add(entry);
+    }
+  }
+
+  private static final class Pending {
+
+    private final byte[] txid;
+    private final long expiration;
+    private final CompletableFuture<TransactionInfo> future = new CompletableFuture<>();
+
+    Pending(byte[] txid, long expiration) {
+      this.txid = txid;
+      this.expiration = expiration;
+    }
+  }
+
+  public static class Builder {
+
+    private final ApiWrapper wrapper;
+    private NodeType nodeType = NodeType.SOLIDITY_NODE;
+    private long pollIntervalMillis = 3_000L;
+    private int lookbackBlocks = 20;
+    private int expectedPending = 1024;
+
+    public Builder(ApiWrapper wrapper) {
+      this.wrapper = wrapper;
+    }
+
+    /**
+     * Node to scan, {@link NodeType#SOLIDITY_NODE} by default. Use
+     * {@link NodeType#FULL_NODE} for faster but reversible confirmations.
+     */
+    public Builder setNodeType(NodeType nodeType) {
+      this.nodeType = nodeType;
+      return this;
+    }
+
+    /**
+     * Delay between polls, 3 seconds (one block) by default. 0 disables polling.
+     */
+    public Builder setPollIntervalMillis(long pollIntervalMillis) {
+      if (pollIntervalMillis < 0) {
+        throw new IllegalArgumentException("pollIntervalMillis must be >= 0");
+      }
+      this.pollIntervalMillis = pollIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Blocks before the latest one to scan again when new transactions are tracked, 20 by
+     * default, to catch transactions confirmed before they were tracked. The txids of as many
+     * blocks are kept in memory.
+     */
+    public Builder setLookbackBlocks(int lookbackBlocks) {
+      if (lookbackBlocks < 0) {
+        throw new IllegalArgumentException("lookbackBlocks must be >= 0");
+      }
+      this.lookbackBlocks = lookbackBlocks;
+      return this;
+    }
+
+    public Builder setExpectedPending(int expectedPending) {
+      this.expectedPending = expectedPending;
+      return this;
+    }
+
+    public ConfirmationTracker build() {
+      return new ConfirmationTracker(this);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package org.linda.trident.core.transaction;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import java.util.EnumMap;
+import java.util.Map;
+import org.linda.trident.proto.Chain.Transaction.Contract;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.AccountCreateContract;
+import org.linda.trident.proto.Contract.AccountPermissionUpdateContract;
+import org.linda.trident.proto.Contract.AccountUpdateContract;
+import org.linda.trident.proto.Contract.AssetIssueContract;
+import org.linda.trident.proto.Contract.CancelAllUnfreezeV2Contract;
+import org.linda.trident.proto.Contract.ClearABIContract;
+import org.linda.trident.proto.Contract.CreateSmartContract;
+import org.linda.trident.proto.Contract.DelegateResourceContract;
+import org.linda.trident.proto.Contract.ExchangeCreateContract;
+import org.linda.trident.proto.Contract.ExchangeInjectContract;
+import org.linda.trident.proto.Contract.ExchangeTransactionContract;
+import org.linda.trident.proto.Contract.ExchangeWithdrawContract;
+import org.linda.trident.proto.Contract.FreezeBalanceContract;
+import org.linda.trident.proto.Contract.FreezeBalanceV2Contract;
+import org.linda.trident.proto.Contract.MarketCancelOrderContract;
+import org.linda.trident.proto.Contract.MarketSellAssetContract;
+import org.linda.trident.proto.Contract.ParticipateAssetIssueContract;
+import org.linda.trident.proto.Contract.ProposalApproveContract;
+import org.linda.trident.proto.Contract.ProposalCreateContract;
+import org.linda.trident.proto.Contract.ProposalDeleteContract;
+import org.linda.trident.proto.Contract.SetAccountIdContract;
+import org.linda.trident.proto.Contract.TransferAssetContract;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Contract.UnDelegateResourceContract;
+import org.linda.trident.proto.Contract.UnfreezeAssetContract;
+import org.linda.trident.proto.Contract.UnfreezeBalanceContract;
+import org.linda.trident.proto.Contract.UnfreezeBalanceV2Contract;
+import org.linda.trident.proto.Contract.UpdateAssetContract;
+import org.linda.trident.proto.Contract.UpdateBrokerageContract;
+import org.linda.trident.proto.Contract.UpdateEnergyLimitContract;
+import org.linda.trident.proto.Contract.UpdateSettingContract;
+import org.linda.trident.proto.Contract.VoteAssetContract;
+import org.linda.trident.proto.Contract.VoteWitnessContract;
+import org.linda.trident.proto.Contract.WithdrawBalanceContract;
+import org.linda.trident.proto.Contract.WithdrawExpireUnfreezeContract;
+import org.linda.trident.proto.Contract.WitnessCreateContract;
+import org.linda.trident.proto.Contract.WitnessUpdateContract;
+
+/**
+ * Maps each {@link ContractType} to the message of its parameter.
+ *
+ * <p>{@code Any.unpack} compares the type URL of the parameter with the requested class before
+ * parsing. A contract already carries its type as an enum, so the parameter bytes can be parsed
+ * directly with the parser registered for that type.</p>
+ */
+public final class ContractParsers {
+
+  private static final Map<ContractType, Message> PROTOTYPES = new EnumMap<>(ContractType.class);
+
+  static {
+    register(ContractType.AccountCreateContract, AccountCreateContract.getDefaultInstance());
+    register(ContractType.TransferContract, TransferContract.getDefaultInstance());
+    register(ContractType.TransferAssetContract, TransferAssetContract.getDefaultInstance());
+    register(ContractType.VoteAssetContract, VoteAssetContract.getDefaultInstance());
+    register(ContractType.VoteWitnessContract, VoteWitnessContract.getDefaultInstance());
+    register(ContractType.WitnessCreateContract, WitnessCreateContract.getDefaultInstance());
+    register(ContractType.AssetIssueContract, AssetIssueContract.getDefaultInstance());
+    register(ContractType.WitnessUpdateContract, WitnessUpdateContract.getDefaultInstance());
+    register(ContractType.ParticipateAssetIssueContract,
+        ParticipateAssetIssueContract.getDefaultInstance());
+    register(ContractType.AccountUpdateContract, AccountUpdateContract.getDefaultInstance());
+    register(ContractType.FreezeBalanceContract, FreezeBalanceContract.getDefaultInstance());
+    register(ContractType.UnfreezeBalanceContract, UnfreezeBalanceContract.getDefaultInstance());
+    register(ContractType.WithdrawBalanceContract, WithdrawBalanceContract.getDefaultInstance());
+    register(ContractType.UnfreezeAssetContract, UnfreezeAssetContract.getDefaultInstance());
+    register(ContractType.UpdateAssetContract, UpdateAssetContract.getDefaultInstance());
+    register(ContractType.ProposalCreateContract, ProposalCreateContract.getDefaultInstance());
+    register(ContractType.ProposalApproveContract, ProposalApproveContract.getDefaultInstance());
+    register(ContractType.ProposalDeleteContract, ProposalDeleteContract.getDefaultInstance());
+    register(ContractType.SetAccountIdContract, SetAccountIdContract.getDefaultInstance());
+    register(ContractType.CreateSmartContract, CreateSmartContract.getDefaultInstance());
+    register(ContractType.TriggerSmartContract, TriggerSmartContract.getDefaultInstance());
+    register(ContractType.UpdateSettingContract, UpdateSettingContract.getDefaultInstance());
+    register(ContractType.ExchangeCreateContract, ExchangeCreateContract.getDefaultInstance());
+    register(ContractType.ExchangeInjectContract, ExchangeInjectContract.getDefaultInstance());
+    register(ContractType.ExchangeWithdrawContract, ExchangeWithdrawContract.getDefaultInstance());
+    register(ContractType.ExchangeTransactionContract,
+        ExchangeTransactionContract.getDefaultInstance());
+    register(ContractType.UpdateEnergyLimitContract,
+        UpdateEnergyLimitContract.getDefaultInstance());
+    register(ContractType.AccountPermissionUpdateContract,
+        AccountPermissionUpdateContract.getDefaultInstance());
+    register(ContractType.ClearABIContract, ClearABIContract.getDefaultInstance());
+    register(ContractType.UpdateBrokerageContract, UpdateBrokerageContract.getDefaultInstance());
+    register(ContractType.MarketSellAssetContract, MarketSellAssetContract.getDefaultInstance());
+    register(ContractType.MarketCancelOrderContract,
+        MarketCancelOrderContract.getDefaultInstance());
+    register(ContractType.FreezeBalanceV2Contract, FreezeBalanceV2Contract.getDefaultInstance());
+    register(ContractType.UnfreezeBalanceV2Contract,
+        UnfreezeBalanceV2Contract.getDefaultInstance());
+    register(ContractType.WithdrawExpireUnfreezeContract,
+        WithdrawExpireUnfreezeContract.getDefaultInstance());
+    register(ContractType.DelegateResourceContract, DelegateResourceContract.getDefaultInstance());
+    register(ContractType.UnDelegateResourceContract,
+        UnDelegateResourceContract.getDefaultInstance());
+    register(ContractType.CancelAllUnfreezeV2Contract,
+        CancelAllUnfreezeV2Contract.getDefaultInstance());
+  }
+
+  private ContractParsers() {
+  }
+
+  private static void register(ContractType type, Message prototype) {
+    PROTOTYPES.put(type, prototype);
+  }
+
+  /**
+   * Whether a parameter message is registered for {@code type}. Types without a message in this
+   * client, e.g. {@code ShieldedTransferContract}, are not.
+   */
+  public static boolean isSupported(ContractType type) {
+    return PROTOTYPES.containsKey(type);
+  }
+
+  /**
+   * The default instance of the parameter message of {@code type}, or {@code null} if not
+   * supported.
+   */
+  public static Message prototype(ContractType type) {
+    return PROTOTYPES.get(type);
+  }
+
+  /**
+   * The parameter message class of {@code type}, or {@code null} if not supported.
+   */
+  public static Class<? extends Message> messageClass(ContractType type) {
+    Message prototype = PROTOTYPES.get(type);
+    return prototype == null ? null : prototype.getClass();
+  }
+
+  /**
+   * Parse the parameter of a contract according to its type.
+   *
+   * @throws IllegalArgumentException if the contract type is not supported
+   */
+  public static Message parse(Contract contract) throws InvalidProtocolBufferException {
+    Message prototype = PROTOTYPES.get(contract.getType());
+    if (prototype == null) {
+      throw new IllegalArgumentException("Unsupported contract type " + contract.getType());
+    }
+    return prototype.getParserForType().parseFrom(contract.getParameter().getValue());
+  }
+}
@@ -0,0 +1,338 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.FixedWidthBytesSet;
+import org.linda.trident.proto.Chain.Transaction;
+
+/**
+ * The {@code PendingPoolWatcher} follows the pending pool of a full node and reports the
+ * transactions entering and leaving it.
+ *
+ * <p>Every poll interval the watcher fetches {@code getTransactionListFromPending} and diffs it
+ * against the previous list with an open-addressed txid set. Only the new txids are fetched with
+ * {@code getTransactionFromPending}, on a pool of {@link Builder#setFetchParallelism} threads,
+ * and fetched transactions are kept in an LRU cache so a txid that leaves and re-enters the pool
+ * is not fetched again.</p>
+ *
+ * <p>{@link Listener#onAdded} is called from the fetch threads as soon as each transaction
+ * arrives or is found in the cache, possibly concurrently; {@link Listener#onRemoved} is called
+ * from the polling thread. A txid whose transaction is already gone when fetched is not
+ * reported, and is retried if it is still listed at the next poll. Txids are reported in
+ * lower-case hex. An exception thrown by the listener is ignored: it affects neither the other
+ * notifications nor the next diff.</p>
+ *
+ * <pre>
+ * try (PendingPoolWatcher watcher = new PendingPoolWatcher.Builder(wrapper, (txid, txn) -&gt;
+ *     onPending(txn)).setPollIntervalMillis(200).build()) {
+ *   ...
+ * }
+ * </pre>
+ */
+public class PendingPoolWatcher implements AutoCloseable {
+
+  private static final int TXID_SIZE = 32;
+
+  /**
+   * Receives the changes of the pending pool.
+   */
+  @FunctionalInterface
+  public interface Listener {
+
+    /**
+     * A transaction entered the pending pool.
+     */
+    void onAdded(String txid, Transaction transaction);
+
+    /**
+     * A transaction left the pending pool, included in a block or dropped.
+     *
+     * @param transaction the transaction if still cached, otherwise {@code null}
+     */
+    default void onRemoved(String txid, Transaction transaction) {
+    }
+  }
+
+  /**
+   * The node calls the watcher depends on.
+   */
+  interface Source {
+
+    List<String> getPendingTxids();
+
+    Transaction getPendingTransaction(String txid) throws IllegalException;
+  }
+
+  private final Source source;
+  private final Listener listener;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService fetchExecutor;
+  private final Map<String, Transaction> cache;
+  private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+
+  // only accessed by the polling thread
+  private FixedWidthBytesSet pending = new FixedWidthBytesSet(TXID_SIZE, 1024);
+  private byte[] pendingIds = new byte[0];
+  private volatile int pendingCount;
+
+  private PendingPoolWatcher(Builder builder) {
+    this.source = builder.source;
+    this.listener = builder.listener;
+    int cacheSize = builder.cacheSize;
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Transaction>(
+        16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Transaction> eldest) {
+        return size() > cacheSize;
+      }
+    });
+    this.fetchExecutor = Executors.newFixedThreadPool(builder.fetchParallelism,
+        new ThreadFactoryBuilder().setNameFormat("trident-pending-fetch-%d").setDaemon(true)
+            .build());
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("trident-pending-watcher").setDaemon(true).build());
+    if (builder.pollIntervalMillis > 0) {
+      scheduler.scheduleWithFixedDelay(this::pollQuietly, 0, builder.pollIntervalMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Number of transactions in the pending pool at the last poll.
+   */
+  public int getPendingCount() {
+    return pendingCount;
+  }
+
+  /**
+   * A pending or recently pending transaction, if cached.
+   *
+   * @param txid transaction id in hex
+   */
+  public Transaction getCachedTransaction(String txid) {
+    return cache.get(txid);
+  }
+
+  /**
+   * Stop polling and fetching. Fetches not started yet are cancelled, so a poll in progress
+   * returns.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    fetchExecutor.shutdownNow();
+    // submitted before the shutdown, or rejected by the executor and already cancelled
+    for (CompletableFuture<Void> future : inFlight) {
+      future.cancel(false);
+    }
+  }
+
+  private void pollQuietly() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      // node unavailable, retry with the next poll
+    }
+  }
+
+  /**
+   * Diff the pending pool against the previous poll and report the changes.
+   */
+  synchronized void poll() {
+    List<String> txids = source.getPendingTxids();
+    FixedWidthBytesSet current = new FixedWidthBytesSet(TXID_SIZE, txids.size());
+    byte[] currentIds = new byte[txids.size() * TXID_SIZE];
+    List<String> added = new ArrayList<>();
+    int count = 0;
+    for (String txid : txids) {
+      byte[] id = ByteArray.fromHexString(txid);
+      if (id.length != TXID_SIZE || !current.add(id)) {
+        continue;
+      }
+      System.arraycopy(id, 0, currentIds, count * TXID_SIZE, TXID_SIZE);
+      count++;
+      if (!pending.contains(id)) {
+        added.add(ByteArray.toHexString(id));
+      }
+    }
+
+    for (int offset = 0; offset < pendingIds.length; offset += TXID_SIZE) {
+      if (!current.contains(pendingIds, offset)) {
+        String txid = ByteArray.toHexString(
+            Arrays.copyOfRange(pendingIds, offset, offset + TXID_SIZE));
+        try {
+          listener.onRemoved(txid, cache.get(txid));
+        } catch (RuntimeException e) {
+          // a failing listener must not leave the diff half applied
+        }
+      }
+    }
+
+    List<String> missing = fetch(added);
+    for (String txid : missing) {
+      current.remove(ByteArray.fromHexString(txid));
+    }
+    pendingIds = compact(currentIds, count, current);
+    pending = current;
+    pendingCount = current.size();
+  }
+
+  /**
+   * Fetch and report the added transactions.
+   *
+   * @return the txids that could not be fetched
+   */
+  private List<String> fetch(List<String> added) {
+    List<String> missing = Collections.synchronizedList(new ArrayList<>());
+    List<CompletableFuture<Void>> futures = new ArrayList<>(added.size());
+    for (String txid : added) {
+      futures.add(submit(() -> {
+        Transaction transaction = cache.get(txid);
+        if (transaction == null) {
+          try {
+            transaction = source.getPendingTransaction(txid);
+          } catch (IllegalException | RuntimeException e) {
+            transaction = null;
+          }
+          if (transaction == null || !transaction.hasRawData()) {
+            missing.add(txid);
+            return;
+          }
+          cache.put(txid, transaction);
+        }
+        try {
+          listener.onAdded(txid, transaction);
+        } catch (RuntimeException e) {
+          // reported once, like any other added transaction
+        }
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .exceptionally(e -> null)
+        .join();
+    return missing;
+  }
+
+  /**
+   * Run {@code task} on the fetch threads. The returned future is cancelled by {@link #close()}
+   * if the task never runs.
+   */
+  private CompletableFuture<Void> submit(Runnable task) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    inFlight.add(future);
+    future.whenComplete((result, e) -> inFlight.remove(future));
+    try {
+      fetchExecutor.execute(() -> {
+        try {
+          task.run();
+          future.complete(null);
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.cancel(false);
+    }
+    return future;
+  }
+
+  /**
+   * The first {@code count} ids of {@code ids} that are still in {@code set}, back to back.
+   */
+  private static byte[] compact(byte[] ids, int count, FixedWidthBytesSet set) {
+    byte[] result = new byte[set.size() * TXID_SIZE];
+    int length = 0;
+    for (int offset = 0; offset < count * TXID_SIZE; offset += TXID_SIZE) {
+      if (set.contains(ids, offset)) {
+        System.arraycopy(ids, offset, result, length, TXID_SIZE);
+        length += TXID_SIZE;
+      }
+    }
+    return result;
+  }
+
+  public static class Builder {
+
+    private final Source source;
+    private final Listener listener;
+    private long pollIntervalMillis = 1_000L;
+    private int fetchParallelism = 8;
+    private int cacheSize = 50_000;
+
+    /**
+     * @param wrapper client of the full node whose pending pool is watched
+     * @param listener receiver of the pool changes
+     */
+    public Builder(ApiWrapper wrapper, Listener listener) {
+      this(new Source() {
+        @Override
+        public List<String> getPendingTxids() {
+          return wrapper.getTransactionListFromPending().getTxIdList();
+        }
+
+        @Override
+        public Transaction getPendingTransaction(String txid) throws IllegalException {
+          return wrapper.getTransactionFromPending(txid);
+        }
+      }, listener);
+    }
+
+    Builder(Source source, Listener listener) {
+      this.source = source;
+      this.listener = listener;
+    }
+
+    /**
+     * Delay between polls, 1 second by default. 0 disables polling.
+     */
+    public Builder setPollIntervalMillis(long pollIntervalMillis) {
+      if (pollIntervalMillis < 0) {
+        throw new IllegalArgumentException("pollIntervalMillis must be >= 0");
+      }
+      this.pollIntervalMillis = pollIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Maximum number of {@code getTransactionFromPending} calls in flight, 8 by default.
+     */
+    public Builder setFetchParallelism(int fetchParallelism) {
+      if (fetchParallelism <= 0) {
+        throw new IllegalArgumentException("fetchParallelism must be > 0");
+      }
+      this.fetchParallelism = fetchParallelism;
+      return this;
+    }
+
+    /**
+     * Number of fetched transactions kept, least recently used first out, 50000 by default.
+     */
+    public Builder setCacheSize(int cacheSize) {
+      if (cacheSize < 0) {
+        throw new IllegalArgumentException("cacheSize must be >= 0");
+      }
+      this.cacheSize = cacheSize;
+      return this;
+    }
+
+    public PendingPoolWatcher build() {
+      return new PendingPoolWatcher(this);
+    }
+  }
+}
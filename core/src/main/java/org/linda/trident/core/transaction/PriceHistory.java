@@ -0,0 +1,83 @@
+package org.linda.trident.core.transaction;
+
+import java.util.Arrays;
+
+/**
+ * Parsed form of the {@code prices} string returned by {@code getEnergyPrices} and
+ * {@code getBandwidthPrices}, e.g. {@code "0:100,1575871200000:10,1606537680000:40"}.
+ *
+ * <p>Each entry is a millisecond timestamp and the unit price in sun that applies from that
+ * moment on. Lookups are a binary search over the parsed arrays.</p>
+ */
+public final class PriceHistory {
+
+  private final long[] timestamps;
+  private final long[] prices;
+
+  private PriceHistory(long[] timestamps, long[] prices) {
+    this.timestamps = timestamps;
+    this.prices = prices;
+  }
+
+  /**
+   * Parse a prices string.
+   *
+   * @param prices comma separated {@code timestamp:price} pairs, in ascending timestamp order
+   * @return the parsed history
+   * @throws IllegalArgumentException if an entry is malformed or timestamps are not ascending
+   */
+  public static PriceHistory parse(String prices) {
+    if (prices == null || prices.trim().isEmpty()) {
+      return new PriceHistory(new long[0], new long[0]);
+    }
+    String[] entries = prices.split(",");
+    long[] timestamps = new long[entries.length];
+    long[] values = new long[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      String entry = entries[i].trim();
+      int colon = entry.indexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException("Invalid price entry: " + entry);
+      }
+      try {
+        timestamps[i] = Long.parseLong(entry.substring(0, colon));
+        values[i] = Long.parseLong(entry.substring(colon + 1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid price entry: " + entry, e);
+      }
+      if (i > 0 && timestamps[i] < timestamps[i - 1]) {
+        throw new IllegalArgumentException("Price timestamps must be ascending: " + prices);
+      }
+    }
+    return new PriceHistory(timestamps, values);
+  }
+
+  public boolean isEmpty() {
+    return timestamps.length == 0;
+  }
+
+  /**
+   * The unit price in effect at {@code timestamp}.
+   *
+   * @param timestamp millisecond timestamp
+   * @return price in sun, or -1 if the history is empty or starts after {@code timestamp}
+   */
+  public long priceAt(long timestamp) {
+    int index = Arrays.binarySearch(timestamps, timestamp);
+    if (index < 0) {
+      index = -index - 2; // the last entry before the insertion point
+    } else {
+      while (index + 1 < timestamps.length && timestamps[index + 1] == timestamp) {
+        index++;
+      }
+    }
+    return index < 0 ? -1 : prices[index];
+  }
+
+  /**
+   * The latest unit price, or -1 if the history is empty.
+   */
+  public long latest() {
+    return prices.length == 0 ? -1 : prices[prices.length - 1];
+  }
+}
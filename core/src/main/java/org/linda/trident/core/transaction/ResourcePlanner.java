@@ -0,0 +1,354 @@
+package org.linda.trident.core.transaction;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Response.AccountResourceMessage;
+import org.linda.trident.proto.Response.ChainParameters;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+/**
+ * The {@code ResourcePlanner} estimates bandwidth, energy and the resulting burn cost of a
+ * transaction locally, so a {@code feeLimit} can be set without an extra round-trip.
+ *
+ * <p>Chain parameters and the energy / bandwidth price histories are fetched once and refreshed
+ * every {@code refreshIntervalMillis}. Energy is learned per (contract, function selector) from
+ * constant calls and transaction receipts fed back with the {@code learn} methods; the largest
+ * observed value is kept so that the estimate stays on the safe side.</p>
+ *
+ * <pre>
+ * ResourcePlanner planner = new ResourcePlanner(wrapper);
+ * planner.learn(wrapper.triggerConstantContract(owner, usdt, callData));
+ * builder.setFeeLimit(planner.feeLimit(usdt, callData));
+ * </pre>
+ */
+public class ResourcePlanner {
+
+  /**
+   * Bytes reserved for the transaction result, which is not part of the signed transaction but
+   * is charged as bandwidth.
+   */
+  public static final long MAX_RESULT_SIZE_IN_TX = 64;
+
+  public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 10 * 60 * 1000L;
+
+  /**
+   * Extra energy allowed on top of the learned value by {@link #feeLimit}, in percent.
+   */
+  public static final int DEFAULT_HEADROOM_PERCENT = 20;
+
+  private static final String ENERGY_FEE = "getEnergyFee";
+  private static final String TRANSACTION_FEE = "getTransactionFee";
+
+  private final ApiWrapper wrapper;
+  private final long refreshIntervalMillis;
+  private final Map<EnergyKey, Long> learnedEnergy = new ConcurrentHashMap<>();
+  private volatile Snapshot snapshot;
+
+  public ResourcePlanner(ApiWrapper wrapper) {
+    this(wrapper, DEFAULT_REFRESH_INTERVAL_MILLIS);
+  }
+
+  public ResourcePlanner(ApiWrapper wrapper, long refreshIntervalMillis) {
+    this.wrapper = wrapper;
+    this.refreshIntervalMillis = refreshIntervalMillis;
+  }
+
+  /**
+   * Serialized size of the transaction without its {@code ret} field, computed from the cached
+   * sizes of the message instead of building a copy.
+   */
+  public static long sizeWithoutRet(Transaction txn) {
+    long size = txn.getSerializedSize();
+    for (Transaction.Result ret : txn.getRetList()) {
+      size -= CodedOutputStream.computeMessageSize(Transaction.RET_FIELD_NUMBER, ret);
+    }
+    return size;
+  }
+
+  /**
+   * Bandwidth consumed by a signed transaction.
+   */
+  public static long bandwidth(Transaction txn) {
+    return sizeWithoutRet(txn) + MAX_RESULT_SIZE_IN_TX;
+  }
+
+  /**
+   * Fetch chain parameters and price histories now.
+   *
+   * @throws IllegalException if chain parameters could not be fetched
+   */
+  public synchronized void refresh() throws IllegalException {
+    ChainParameters chainParameters = wrapper.getChainParameters();
+    Map<String, Long> parameters = new HashMap<>();
+    for (ChainParameters.ChainParameter parameter : chainParameters.getChainParameterList()) {
+      parameters.put(parameter.getKey(), parameter.getValue());
+    }
+    snapshot = new Snapshot(parameters,
+        PriceHistory.parse(wrapper.getEnergyPrices().getPrices()),
+        PriceHistory.parse(wrapper.getBandwidthPrices().getPrices()),
+        System.currentTimeMillis());
+  }
+
+  /**
+   * A cached chain parameter, e.g. {@code getCreateAccountFee}.
+   *
+   * @return the value, or {@code null} if the chain does not report this parameter
+   */
+  public Long getChainParameter(String key) throws IllegalException {
+    return current().parameters.get(key);
+  }
+
+  /**
+   * Current energy unit price in sun.
+   */
+  public long getEnergyPrice() throws IllegalException {
+    Snapshot current = current();
+    return current.price(current.energyPrices, ENERGY_FEE);
+  }
+
+  /**
+   * Current bandwidth unit price in sun.
+   */
+  public long getBandwidthPrice() throws IllegalException {
+    Snapshot current = current();
+    return current.price(current.bandwidthPrices, TRANSACTION_FEE);
+  }
+
+  /**
+   * Record the energy used by a call of {@code data} on {@code contractAddress}.
+   */
+  public void learn(ByteString contractAddress, ByteString data, long energy) {
+    if (energy <= 0 || data.size() < 4) {
+      return;
+    }
+    learnedEnergy.merge(new EnergyKey(contractAddress, data), energy, Math::max);
+  }
+
+  /**
+   * Learn from the result of a constant call or a created (unsigned) trigger transaction.
+   */
+  public void learn(TransactionExtention txnExt) {
+    TriggerSmartContract trigger = triggerOf(txnExt.getTransaction());
+    if (trigger != null) {
+      learn(trigger.getContractAddress(), trigger.getData(), txnExt.getEnergyUsed());
+    }
+  }
+
+  /**
+   * Learn from the receipt of a confirmed transaction.
+   */
+  public void learn(Transaction txn, TransactionInfo info) {
+    TriggerSmartContract trigger = triggerOf(txn);
+    if (trigger != null) {
+      learn(trigger.getContractAddress(), trigger.getData(),
+          info.getReceipt().getEnergyUsageTotal());
+    }
+  }
+
+  /**
+   * The largest energy seen for the function selected by {@code data} on
+   * {@code contractAddress}.
+   *
+   * @return energy, or -1 if nothing has been learned yet
+   */
+  public long getLearnedEnergy(ByteString contractAddress, ByteString data) {
+    if (data.size() < 4) {
+      return -1;
+    }
+    Long energy = learnedEnergy.get(new EnergyKey(contractAddress, data));
+    return energy == null ? -1 : energy;
+  }
+
+  /**
+   * Fee limit for a call, the learned energy plus {@link #DEFAULT_HEADROOM_PERCENT} at the
+   * current energy price.
+   *
+   * @throws IllegalArgumentException if {@code data} has no function selector or no energy has
+   *     been learned for this call
+   */
+  public long feeLimit(ByteString contractAddress, ByteString data) throws IllegalException {
+    return feeLimit(contractAddress, data, DEFAULT_HEADROOM_PERCENT);
+  }
+
+  /**
+   * Fee limit for a call, the learned energy plus {@code headroomPercent} at the current energy
+   * price.
+   *
+   * @throws IllegalArgumentException if {@code data} has no function selector or no energy has
+   *     been learned for this call
+   */
+  public long feeLimit(ByteString contractAddress, ByteString data, int headroomPercent)
+      throws IllegalException {
+    if (data.size() < 4) {
+      throw new IllegalArgumentException("No function selector in data "
+          + ApiWrapper.toHex(data));
+    }
+    long energy = getLearnedEnergy(contractAddress, data);
+    if (energy < 0) {
+      throw new IllegalArgumentException("No energy learned for contract "
+          + ApiWrapper.toHex(contractAddress) + ", selector "
+          + ApiWrapper.toHex(data.substring(0, 4)));
+    }
+    return energy * (100 + headroomPercent) / 100 * getEnergyPrice();
+  }
+
+  /**
+   * Estimate the resources and the burn cost of a signed transaction for an account.
+   *
+   * @param txn the signed transaction
+   * @param account resource snapshot of the sender, from {@code getAccountResource}
+   * @return the estimate. For smart contract calls with no learned energy,
+   *     {@link Estimate#isEnergyKnown()} is false and energy is counted as 0.
+   */
+  public Estimate estimate(Transaction txn, AccountResourceMessage account)
+      throws IllegalException {
+    long bandwidth = bandwidth(txn);
+    long bandwidthFee = 0;
+    if (account.getNetLimit() - account.getNetUsed() < bandwidth
+        && account.getFreeNetLimit() - account.getFreeNetUsed() < bandwidth) {
+      bandwidthFee = bandwidth * getBandwidthPrice();
+    }
+
+    long energy = 0;
+    boolean energyKnown = true;
+    TriggerSmartContract trigger = triggerOf(txn);
+    if (trigger != null) {
+      energy = getLearnedEnergy(trigger.getContractAddress(), trigger.getData());
+      energyKnown = energy >= 0;
+      energy = Math.max(energy, 0);
+    }
+    long burnedEnergy = Math.max(0, energy - (account.getEnergyLimit() - account.getEnergyUsed()));
+    long energyFee = burnedEnergy * getEnergyPrice();
+
+    return new Estimate(bandwidth, energy, energyKnown, bandwidthFee, energyFee);
+  }
+
+  private Snapshot current() throws IllegalException {
+    Snapshot current = snapshot;
+    if (current == null
+        || System.currentTimeMillis() - current.fetchedAt >= refreshIntervalMillis) {
+      synchronized (this) {
+        if (snapshot == current) {
+          refresh();
+        }
+        current = snapshot;
+      }
+    }
+    return current;
+  }
+
+  private static TriggerSmartContract triggerOf(Transaction txn) {
+    if (txn.getRawData().getContractCount() == 0) {
+      return null;
+    }
+    Transaction.Contract contract = txn.getRawData().getContract(0);
+    if (contract.getType() != ContractType.TriggerSmartContract) {
+      return null;
+    }
+    try {
+      return contract.getParameter().unpack(TriggerSmartContract.class);
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Resources and burn cost of a transaction.
+   */
+  @Getter
+  public static class Estimate {
+
+    private final long bandwidth;
+    private final long energy;
+    private final boolean energyKnown;
+    /**
+     * Sun burned for bandwidth, 0 if staked or free bandwidth covers it.
+     */
+    private final long bandwidthFee;
+    /**
+     * Sun burned for the energy not covered by the account's energy.
+     */
+    private final long energyFee;
+
+    Estimate(long bandwidth, long energy, boolean energyKnown, long bandwidthFee,
+        long energyFee) {
+      this.bandwidth = bandwidth;
+      this.energy = energy;
+      this.energyKnown = energyKnown;
+      this.bandwidthFee = bandwidthFee;
+      this.energyFee = energyFee;
+    }
+
+    public long getTotalFee() {
+      return bandwidthFee + energyFee;
+    }
+  }
+
+  private static final class Snapshot {
+
+    private final Map<String, Long> parameters;
+    private final PriceHistory energyPrices;
+    private final PriceHistory bandwidthPrices;
+    private final long fetchedAt;
+
+    Snapshot(Map<String, Long> parameters, PriceHistory energyPrices,
+        PriceHistory bandwidthPrices, long fetchedAt) {
+      this.parameters = parameters;
+      this.energyPrices = energyPrices;
+      this.bandwidthPrices = bandwidthPrices;
+      this.fetchedAt = fetchedAt;
+    }
+
+    long price(PriceHistory history, String parameter) throws IllegalException {
+      long price = history.priceAt(System.currentTimeMillis());
+      if (price >= 0) {
+        return price;
+      }
+      Long value = parameters.get(parameter);
+      if (value == null) {
+        throw new IllegalException("Fail to get " + parameter + " from chain parameters.");
+      }
+      return value;
+    }
+  }
+
+  private static final class EnergyKey {
+
+    private final ByteString contractAddress;
+    private final int selector;
+
+    EnergyKey(ByteString contractAddress, ByteString data) {
+      this.contractAddress = contractAddress;
+      this.selector = ((data.byteAt(0) & 0xff) << 24) | ((data.byteAt(1) & 0xff) << 16)
+          | ((data.byteAt(2) & 0xff) << 8) | (data.byteAt(3) & 0xff);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof EnergyKey)) {
+        return false;
+      }
+      EnergyKey that = (EnergyKey) o;
+      return selector == that.selector && contractAddress.equals(that.contractAddress);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * contractAddress.hashCode() + selector;
+    }
+  }
+}
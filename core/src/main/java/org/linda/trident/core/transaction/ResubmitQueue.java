@@ -0,0 +1,392 @@
+package org.linda.trident.core.transaction;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.Constant;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+/**
+ * The {@code ResubmitQueue} broadcasts transactions and recovers the ones the node rejects as
+ * stale.
+ *
+ * <p>A transaction rejected with {@code TRANSACTION_EXPIRATION_ERROR} or {@code TAPOS_ERROR}
+ * can never be accepted as signed. Unless the node reports the stale transaction as already
+ * executed, in which case the intent completes as accepted with code
+ * {@code DUP_TRANSACTION_ERROR}, the queue rebuilds it from its original raw data, contract
+ * message, fee limit and memo included, with the latest solid block as reference block and a
+ * fresh expiration, re-signs it with the same key and submits it again. A transaction rejected
+ * with a transient code, or whose broadcast failed with a gRPC error, is submitted again
+ * unchanged after {@link Builder#setRetryDelayMillis}. Every resubmission waits for the rate
+ * limiter of {@link Builder#setResubmitsPerSecond}.</p>
+ *
+ * <p>Each submission carries an intent id chosen by the caller, e.g. a payment id. Submitting
+ * an intent again returns the outcome of the first submission instead of sending a second
+ * transaction. A transaction is never rebuilt once one of its broadcasts had an unknown
+ * outcome: it may have reached the node before expiring, and a rebuilt copy could then be
+ * executed twice. Such intents, and transactions with several signatures, complete with the
+ * stale result.</p>
+ *
+ * <pre>
+ * try (ResubmitQueue queue = new ResubmitQueue.Builder(wrapper).build()) {
+ *   BroadcastResult result = queue.submit(paymentId, wrapper.signTransaction(txn)).get();
+ *   if (result.isAccepted()) {
+ *     tracker.track(result.getTransaction());
+ *   }
+ * }
+ * </pre>
+ */
+public class ResubmitQueue implements AutoCloseable {
+
+  private static final long BLOCK_INTERVAL_MILLIS = 3_000L;
+
+  /**
+   * The node calls the queue depends on.
+   */
+  interface Node {
+
+    BroadcastResult broadcast(Transaction txn);
+
+    BlockExtention getSolidHead() throws IllegalException;
+
+    BlockExtention getHead() throws IllegalException;
+
+    /**
+     * Whether the transaction with id {@code txid} was executed in a block.
+     */
+    boolean isExecuted(String txid);
+  }
+
+  private final Node node;
+  private final KeyPair keyPair;
+  private final RateLimiter rateLimiter;
+  private final int maxAttempts;
+  private final long retryDelayMillis;
+  private final long expirationMillis;
+  private final ScheduledExecutorService worker;
+  private final AtomicLong rebuilds = new AtomicLong();
+
+  // guarded by itself
+  private final Map<String, Intent> active = new HashMap<>();
+  private final Map<String, Intent> completed;
+
+  // only accessed by the worker
+  private Transaction.raw reference;
+  private long referenceTime;
+
+  private ResubmitQueue(Builder builder) {
+    this.node = builder.node;
+    this.keyPair = builder.keyPair;
+    this.rateLimiter = RateLimiter.create(builder.resubmitsPerSecond);
+    this.maxAttempts = builder.maxAttempts;
+    this.retryDelayMillis = builder.retryDelayMillis;
+    this.expirationMillis = builder.expirationMillis;
+    int completedIntents = builder.completedIntents;
+    this.completed = new LinkedHashMap<String, Intent>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Intent> eldest) {
+        return size() > completedIntents;
+      }
+    };
+    this.worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("trident-resubmit-queue").setDaemon(true).build());
+  }
+
+  /**
+   * Broadcast a signed transaction now, resubmitting it in the background if needed.
+   *
+   * @param intentId caller id of what the transaction does, unique per intended execution
+   * @param signed the signed transaction
+   * @return a future completed with the final result: the accepted transaction, which may be a
+   *     rebuilt one, or the last rejection. It fails with the last exception if every attempt
+   *     threw.
+   */
+  public CompletableFuture<BroadcastResult> submit(String intentId, Transaction signed) {
+    Intent intent;
+    synchronized (active) {
+      intent = active.get(intentId);
+      if (intent == null) {
+        intent = completed.get(intentId);
+      }
+      if (intent != null) {
+        return intent.future;
+      }
+      intent = new Intent(intentId, signed);
+      active.put(intentId, intent);
+    }
+    attempt(intent);
+    return intent.future;
+  }
+
+  /**
+   * Number of intents not yet completed.
+   */
+  public int getActiveCount() {
+    synchronized (active) {
+      return active.size();
+    }
+  }
+
+  /**
+   * Number of transactions rebuilt so far.
+   */
+  public long getRebuildCount() {
+    return rebuilds.get();
+  }
+
+  /**
+   * Stop resubmitting. Futures of active intents are left incomplete.
+   */
+  @Override
+  public void close() {
+    worker.shutdownNow();
+  }
+
+  private void attempt(Intent intent) {
+    intent.attempts++;
+    BroadcastResult result;
+    try {
+      result = node.broadcast(intent.transaction);
+    } catch (RuntimeException e) {
+      intent.uncertain = true;
+      if (intent.attempts >= maxAttempts) {
+        complete(intent, null, e);
+      } else {
+        schedule(intent, false, retryDelayMillis);
+      }
+      return;
+    }
+    intent.last = result;
+    if (result.isAccepted()) {
+      complete(intent, result, null);
+    } else if (intent.attempts >= maxAttempts) {
+      complete(intent, result, null);
+    } else if (result.isStale() && !intent.uncertain
+        && intent.transaction.getSignatureCount() <= 1) {
+      schedule(intent, true, 0);
+    } else if (result.isTransient()) {
+      schedule(intent, false, retryDelayMillis);
+    } else {
+      complete(intent, result, null);
+    }
+  }
+
+  private void schedule(Intent intent, boolean rebuild, long delayMillis) {
+    worker.schedule(() -> {
+      rateLimiter.acquire();
+      if (rebuild) {
+        try {
+          String txid = ByteArray.toHexString(
+              ApiWrapper.calculateTransactionHash(intent.transaction));
+          if (node.isExecuted(txid)) {
+            // rejected as stale after an earlier broadcast was executed
+            complete(intent, new BroadcastResult(intent.transaction, txid, false,
+                response_code.DUP_TRANSACTION_ERROR, "transaction already executed"), null);
+            return;
+          }
+          intent.transaction = rebuild(intent.transaction);
+        } catch (IllegalException | RuntimeException e) {
+          // node or reference unavailable, counts as an attempt
+          if (++intent.attempts >= maxAttempts) {
+            complete(intent, intent.last, null);
+          } else {
+            schedule(intent, true, retryDelayMillis);
+          }
+          return;
+        }
+        intent.uncertain = false;
+        rebuilds.incrementAndGet();
+      }
+      attempt(intent);
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The transaction with a fresh reference block, expiration and timestamp, signed again.
+   */
+  Transaction rebuild(Transaction stale) throws IllegalException {
+    long now = System.currentTimeMillis();
+    if (reference == null || now - referenceTime >= BLOCK_INTERVAL_MILLIS) {
+      BlockId solid = BlockView.of(node.getSolidHead()).getBlockId();
+      long headTimestamp = node.getHead().getBlockHeader().getRawData().getTimestamp();
+      byte[] refBlockNum = ByteArray.fromLong(solid.getNum());
+      reference = Transaction.raw.newBuilder()
+          .setRefBlockHash(ByteString.copyFrom(ByteArray.subArray(solid.getBytes(), 8, 16)))
+          .setRefBlockBytes(ByteString.copyFrom(ByteArray.subArray(refBlockNum, 6, 8)))
+          .setExpiration(headTimestamp + expirationMillis)
+          .build();
+      referenceTime = now;
+    }
+    Transaction.raw raw = stale.getRawData().toBuilder()
+        .setRefBlockHash(reference.getRefBlockHash())
+        .setRefBlockBytes(reference.getRefBlockBytes())
+        .setExpiration(reference.getExpiration() + now - referenceTime)
+        .setTimestamp(now)
+        .build();
+    byte[] txid = ApiWrapper.calculateTransactionHash(Transaction.newBuilder()
+        .setRawData(raw).build());
+    return Transaction.newBuilder()
+        .setRawData(raw)
+        .addSignature(ByteString.copyFrom(KeyPair.signTransaction(txid, keyPair)))
+        .build();
+  }
+
+  private void complete(Intent intent, BroadcastResult result, RuntimeException failure) {
+    synchronized (active) {
+      active.remove(intent.id);
+      completed.put(intent.id, intent);
+    }
+    if (failure != null) {
+      intent.future.completeExceptionally(failure);
+    } else {
+      intent.future.complete(result);
+    }
+  }
+
+  private static final class Intent {
+
+    private final String id;
+    private final CompletableFuture<BroadcastResult> future = new CompletableFuture<>();
+    // accessed by one thread at a time: the submitter, then the worker
+    private volatile Transaction transaction;
+    private volatile int attempts;
+    private volatile boolean uncertain;
+    private volatile BroadcastResult last;
+
+    Intent(String id, Transaction transaction) {
+      this.id = id;
+      this.transaction = transaction;
+    }
+  }
+
+  public static class Builder {
+
+    private final Node node;
+    private KeyPair keyPair;
+    private double resubmitsPerSecond = 10;
+    private int maxAttempts = 5;
+    private long retryDelayMillis = BLOCK_INTERVAL_MILLIS;
+    private long expirationMillis = Constant.TRANSACTION_DEFAULT_EXPIRATION_TIME;
+    private int completedIntents = 10_000;
+
+    /**
+     * Broadcast through {@code wrapper} and re-sign with its key.
+     */
+    public Builder(ApiWrapper wrapper) {
+      this(new Node() {
+        @Override
+        public BroadcastResult broadcast(Transaction txn) {
+          return wrapper.broadcast(txn);
+        }
+
+        @Override
+        public BlockExtention getSolidHead() throws IllegalException {
+          return wrapper.getNowBlock2(NodeType.SOLIDITY_NODE);
+        }
+
+        @Override
+        public BlockExtention getHead() throws IllegalException {
+          return wrapper.getNowBlock2();
+        }
+
+        @Override
+        public boolean isExecuted(String txid) {
+          try {
+            wrapper.getTransactionInfoById(txid);
+            return true;
+          } catch (IllegalException e) {
+            return false;
+          }
+        }
+      }, wrapper.keyPair);
+    }
+
+    Builder(Node node, KeyPair keyPair) {
+      this.node = node;
+      this.keyPair = keyPair;
+    }
+
+    /**
+     * Key used to re-sign rebuilt transactions, the key of the wrapper by default.
+     */
+    public Builder setKeyPair(KeyPair keyPair) {
+      this.keyPair = keyPair;
+      return this;
+    }
+
+    /**
+     * Maximum rate of resubmissions, 10 per second by default. First submissions are not
+     * limited.
+     */
+    public Builder setResubmitsPerSecond(double resubmitsPerSecond) {
+      if (resubmitsPerSecond <= 0) {
+        throw new IllegalArgumentException("resubmitsPerSecond must be > 0");
+      }
+      this.resubmitsPerSecond = resubmitsPerSecond;
+      return this;
+    }
+
+    /**
+     * Maximum number of broadcasts per intent, rebuilt ones included, 5 by default.
+     */
+    public Builder setMaxAttempts(int maxAttempts) {
+      if (maxAttempts <= 0) {
+        throw new IllegalArgumentException("maxAttempts must be > 0");
+      }
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Delay before submitting again after a transient error, one block by default.
+     */
+    public Builder setRetryDelayMillis(long retryDelayMillis) {
+      if (retryDelayMillis < 0) {
+        throw new IllegalArgumentException("retryDelayMillis must be >= 0");
+      }
+      this.retryDelayMillis = retryDelayMillis;
+      return this;
+    }
+
+    /**
+     * Expiration of rebuilt transactions after the latest block, 60 seconds by default.
+     */
+    public Builder setExpirationMillis(long expirationMillis) {
+      if (expirationMillis <= 0) {
+        throw new IllegalArgumentException("expirationMillis must be > 0");
+      }
+      this.expirationMillis = expirationMillis;
+      return this;
+    }
+
+    /**
+     * Number of completed intents remembered to answer repeated submissions, 10000 by default.
+     */
+    public Builder setCompletedIntents(int completedIntents) {
+      if (completedIntents < 0) {
+        throw new IllegalArgumentException("completedIntents must be >= 0");
+      }
+      this.completedIntents = completedIntents;
+      return this;
+    }
+
+    public ResubmitQueue build() {
+      return new ResubmitQueue(this);
+    }
+  }
+}
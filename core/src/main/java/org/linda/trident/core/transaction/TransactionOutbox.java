@@ -0,0 +1,526 @@
+package org.linda.trident.core.transaction;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.FixedWidthBytesMap;
+import org.linda.trident.proto.Chain.Transaction;
+
+/**
+ * A durable record of signed transactions, written before they are broadcast, so that a process
+ * restarted after a crash knows which transactions may have gone out.
+ *
+ * <p>Transactions are appended to a write-ahead log split in segment files of
+ * {@link Builder#setSegmentSize} bytes. {@link #append} returns once the record is on disk.
+ * Concurrent appends share their {@code fsync}: while one caller forces the log, the records of
+ * the others accumulate and are forced together by the next one, so throughput grows with the
+ * number of appending threads.</p>
+ *
+ * <p>The state byte of each record is updated in place as the transaction is broadcast, then
+ * confirmed, expired or failed. State updates are not forced individually; they reach the disk
+ * with the next append or {@link #flush()}, and a lost update only means the transaction is
+ * replayed once more. A segment is deleted when none of its transactions is unfinished.</p>
+ *
+ * <p>When the outbox is opened, the log is replayed: torn records at the end of the last
+ * segment are truncated, an invalid record in any other segment fails the opening with an
+ * {@link IOException}, and the transactions that are neither confirmed, expired nor failed are returned by
+ * {@link #getUnfinished()}. Broadcasting such a transaction again is safe, the node rejects a
+ * duplicate.</p>
+ *
+ * <pre>
+ * try (TransactionOutbox outbox = new TransactionOutbox.Builder(Paths.get("outbox")).build()) {
+ *   for (TransactionOutbox.Entry entry : outbox.getUnfinished()) {
+ *     tracker.track(entry.getTransaction()).thenRun(() -&gt; {
+ *       try {
+ *         outbox.markConfirmed(entry.getTxid());
+ *       } catch (IOException e) {
+ *         throw new UncheckedIOException(e);
+ *       }
+ *     });
+ *   }
+ *   String txid = outbox.broadcast(wrapper, wrapper.signTransaction(txn));
+ * }
+ * </pre>
+ */
+public class TransactionOutbox implements AutoCloseable {
+
+  /**
+   * Lifecycle of an outbox entry.
+   */
+  public enum State {
+    /**
+     * Appended, maybe broadcast.
+     */
+    PENDING,
+    /**
+     * Accepted by a node.
+     */
+    BROADCAST,
+    /**
+     * Included in a block.
+     */
+    CONFIRMED,
+    /**
+     * Expired without being included.
+     */
+    EXPIRED,
+    /**
+     * Rejected for good.
+     */
+    FAILED;
+
+    boolean isFinal() {
+      return this == CONFIRMED || this == EXPIRED || this == FAILED;
+    }
+  }
+
+  private static final int TXID_SIZE = 32;
+  // body length, crc of the body, state
+  private static final int HEADER_SIZE = Integer.BYTES * 2 + 1;
+  private static final int STATE_OFFSET = Integer.BYTES * 2;
+  // txid, expiration, transaction
+  private static final int BODY_FIXED_SIZE = TXID_SIZE + Long.BYTES;
+  private static final String SEGMENT_SUFFIX = ".wal";
+  private static final State[] STATES = State.values();
+
+  private final Path directory;
+  private final long segmentSize;
+  private final Object syncLock = new Object();
+
+  // guarded by this
+  private final FixedWidthBytesMap<Entry> unfinished = new FixedWidthBytesMap<>(TXID_SIZE, 1024);
+  private final List<Segment> segments = new ArrayList<>();
+  private final Set<Segment> dirty = new LinkedHashSet<>();
+  private Segment active;
+  private long written;
+  private boolean closed;
+
+  private volatile long durable;
+
+  private TransactionOutbox(Builder builder) throws IOException {
+    this.directory = builder.directory;
+    this.segmentSize = builder.segmentSize;
+    Files.createDirectories(directory);
+    replay();
+  }
+
+  /**
+   * One transaction of the outbox.
+   */
+  public static final class Entry {
+
+    private final byte[] txid;
+    private final Transaction transaction;
+    private final Segment segment;
+    private final long offset;
+    private volatile State state;
+
+    Entry(byte[] txid, Transaction transaction, Segment segment, long offset, State state) {
+      this.txid = txid;
+      this.transaction = transaction;
+      this.segment = segment;
+      this.offset = offset;
+      this.state = state;
+    }
+
+    /**
+     * The transaction id in hex.
+     */
+    public String getTxid() {
+      return ByteArray.toHexString(txid);
+    }
+
+    public Transaction getTransaction() {
+      return transaction;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    @Override
+    public String toString() {
+      return "Entry{" + getTxid() + ", " + state + "}";
+    }
+  }
+
+  /**
+   * Append a signed transaction and force it to disk. Appending a transaction already
+   * unfinished in the outbox does nothing.
+   *
+   * @return the transaction id in hex
+   */
+  public String append(Transaction signed) throws IOException {
+    byte[] txid = ApiWrapper.calculateTransactionHash(signed);
+    long sequence;
+    synchronized (this) {
+      checkOpen();
+      if (unfinished.get(txid) == null) {
+        write(txid, signed);
+      }
+      sequence = written;
+    }
+    sync(sequence);
+    return ByteArray.toHexString(txid);
+  }
+
+  /**
+   * Append a signed transaction, broadcast it and mark it {@link State#BROADCAST}. If the
+   * broadcast throws, the entry stays {@link State#PENDING}.
+   *
+   * @return the transaction id in hex
+   * @see ApiWrapper#broadcastTransaction(Transaction)
+   */
+  public String broadcast(ApiWrapper wrapper, Transaction signed) throws IOException {
+    String txid = append(signed);
+    wrapper.broadcastTransaction(signed);
+    markBroadcast(txid);
+    return txid;
+  }
+
+  /**
+   * @return {@code false} if the transaction is not unfinished in the outbox
+   */
+  public boolean markBroadcast(String txid) throws IOException {
+    return update(txid, State.BROADCAST);
+  }
+
+  /**
+   * @return {@code false} if the transaction is not unfinished in the outbox
+   */
+  public boolean markConfirmed(String txid) throws IOException {
+    return update(txid, State.CONFIRMED);
+  }
+
+  /**
+   * @return {@code false} if the transaction is not unfinished in the outbox
+   */
+  public boolean markExpired(String txid) throws IOException {
+    return update(txid, State.EXPIRED);
+  }
+
+  /**
+   * @return {@code false} if the transaction is not unfinished in the outbox
+   */
+  public boolean markFailed(String txid) throws IOException {
+    return update(txid, State.FAILED);
+  }
+
+  /**
+   * State of an unfinished transaction, or {@code null} if it is finished or unknown.
+   */
+  public synchronized State getState(String txid) {
+    Entry entry = unfinished.get(ByteArray.fromHexString(txid));
+    return entry == null ? null : entry.state;
+  }
+
+  /**
+   * The transactions neither confirmed, expired nor failed, in no particular order.
+   */
+  public synchronized List<Entry> getUnfinished() {
+    List<Entry> result = new ArrayList<>(unfinished.size());
+    unfinished.forEachValue(result::add);
+    return result;
+  }
+
+  public synchronized int getUnfinishedCount() {
+    return unfinished.size();
+  }
+
+  /**
+   * Force all appends and state updates to disk.
+   */
+  public void flush() throws IOException {
+    long sequence;
+    synchronized (this) {
+      checkOpen();
+      sequence = written + 1;
+      written = sequence;
+    }
+    sync(sequence);
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+          segment.channel.force(false);
+          segment.channel.close();
+        }
+        segments.clear();
+        dirty.clear();
+      }
+    }
+  }
+
+  private void write(byte[] txid, Transaction signed) throws IOException {
+    byte[] transaction = signed.toByteArray();
+    int bodySize = BODY_FIXED_SIZE + transaction.length;
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+    record.position(HEADER_SIZE);
+    record.put(txid).putLong(signed.getRawData().getExpiration()).put(transaction);
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), HEADER_SIZE, bodySize);
+    record.putInt(0, bodySize).putInt(Integer.BYTES, (int) crc.getValue())
+        .put(STATE_OFFSET, (byte) State.PENDING.ordinal());
+    record.flip();
+
+    if (active == null || active.size > 0 && active.size + record.remaining() > segmentSize) {
+      roll();
+    }
+    long offset = active.size;
+    while (record.hasRemaining()) {
+      active.channel.write(record, offset + record.position());
+    }
+    active.size = offset + record.limit();
+    active.unfinished++;
+    dirty.add(active);
+    unfinished.put(txid, new Entry(txid, signed, active, offset, State.PENDING));
+    written++;
+  }
+
+  private boolean update(String txid, State state) throws IOException {
+    synchronized (this) {
+      checkOpen();
+      Entry entry = unfinished.get(ByteArray.fromHexString(txid));
+      if (entry == null) {
+        return false;
+      }
+      Segment segment = entry.segment;
+      ByteBuffer value = ByteBuffer.wrap(new byte[] {(byte) state.ordinal()});
+      while (value.hasRemaining()) {
+        segment.channel.write(value, entry.offset + STATE_OFFSET);
+      }
+      entry.state = state;
+      if (state.isFinal()) {
+        unfinished.remove(entry.txid);
+        segment.unfinished--;
+        if (segment.unfinished == 0 && segment != active) {
+          delete(segment);
+        } else {
+          dirty.add(segment);
+        }
+      } else {
+        dirty.add(segment);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Wait until everything written up to {@code sequence} is forced to disk, forcing it if no
+   * other thread is doing so.
+   */
+  private void sync(long sequence) throws IOException {
+    if (durable >= sequence) {
+      return;
+    }
+    synchronized (syncLock) {
+      if (durable >= sequence) {
+        return;
+      }
+      long target;
+      List<Segment> toForce;
+      synchronized (this) {
+        checkOpen();
+        target = written;
+        toForce = new ArrayList<>(dirty);
+        dirty.clear();
+      }
+      for (Segment segment : toForce) {
+        try {
+          segment.channel.force(false);
+        } catch (ClosedChannelException e) {
+          // deleted meanwhile, nothing left to keep
+        }
+      }
+      durable = target;
+    }
+  }
+
+  private void roll() throws IOException {
+    int index = active == null ? 0 : active.index + 1;
+    Segment previous = active;
+    active = open(index);
+    segments.add(active);
+    if (previous != null && previous.unfinished == 0) {
+      delete(previous);
+    }
+  }
+
+  private Segment open(int index) throws IOException {
+    Path path = directory.resolve(String.format("%010d%s", index, SEGMENT_SUFFIX));
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new Segment(index, path, channel);
+  }
+
+  private void delete(Segment segment) throws IOException {
+    segments.remove(segment);
+    dirty.remove(segment);
+    segment.channel.close();
+    Files.deleteIfExists(segment.path);
+  }
+
+  private synchronized void replay() throws IOException {
+    List<Integer> indexes = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        indexes.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+      }
+    }
+    indexes.sort(null);
+    try {
+      for (int i = 0; i < indexes.size(); i++) {
+        Segment segment = open(indexes.get(i));
+        segments.add(segment);
+        segment.size = load(segment);
+        if (segment.size < segment.channel.size()) {
+          if (i < indexes.size() - 1) {
+            // only the last segment can end with a torn write
+            throw new IOException("Corrupted outbox segment " + segment.path + " at offset "
+                + segment.size);
+          }
+          segment.channel.truncate(segment.size);
+        }
+        if (active != null && active.unfinished == 0) {
+          delete(active);
+        }
+        active = segment;
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Segment segment : segments) {
+        segment.channel.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Read the records of a segment into the unfinished map.
+   *
+   * @return the length of the valid records
+   */
+  private long load(Segment segment) throws IOException {
+    FileChannel channel = segment.channel;
+    channel.position(0);
+    DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+    long length = 0;
+    long limit = channel.size();
+    byte[] body = new byte[0];
+    CRC32 crc = new CRC32();
+    while (limit - length >= HEADER_SIZE) {
+      int bodySize;
+      int checksum;
+      State state;
+      try {
+        bodySize = input.readInt();
+        checksum = input.readInt();
+        int stateValue = input.readUnsignedByte();
+        if (bodySize < BODY_FIXED_SIZE || stateValue >= STATES.length
+            || length + HEADER_SIZE + bodySize > limit) {
+          break;
+        }
+        state = STATES[stateValue];
+        if (body.length < bodySize) {
+          body = new byte[bodySize];
+        }
+        input.readFully(body, 0, bodySize);
+      } catch (EOFException e) {
+        break;
+      }
+      crc.reset();
+      crc.update(body, 0, bodySize);
+      if ((int) crc.getValue() != checksum) {
+        // torn write
+        break;
+      }
+      if (!state.isFinal()) {
+        byte[] txid = new byte[TXID_SIZE];
+        System.arraycopy(body, 0, txid, 0, TXID_SIZE);
+        Transaction transaction = Transaction.parseFrom(
+            ByteBuffer.wrap(body, BODY_FIXED_SIZE, bodySize - BODY_FIXED_SIZE));
+        if (unfinished.get(txid) == null) {
+          unfinished.put(txid, new Entry(txid, transaction, segment, length, state));
+          segment.unfinished++;
+        }
+      }
+      length += HEADER_SIZE + bodySize;
+    }
+    return length;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Outbox is closed");
+    }
+  }
+
+  private static final class Segment {
+
+    private final int index;
+    private final Path path;
+    private final FileChannel channel;
+    // guarded by the outbox
+    private long size;
+    private int unfinished;
+
+    Segment(int index, Path path, FileChannel channel) {
+      this.index = index;
+      this.path = path;
+      this.channel = channel;
+    }
+  }
+
+  public static class Builder {
+
+    private final Path directory;
+    private long segmentSize = 64L << 20;
+
+    /**
+     * @param directory directory of the log segments, created if missing
+     */
+    public Builder(Path directory) {
+      this.directory = directory;
+    }
+
+    /**
+     * Size after which a new segment is started, 64 MiB by default.
+     */
+    public Builder setSegmentSize(long segmentSize) {
+      if (segmentSize <= 0) {
+        throw new IllegalArgumentException("segmentSize must be > 0");
+      }
+      this.segmentSize = segmentSize;
+      return this;
+    }
+
+    public TransactionOutbox build() throws IOException {
+      return new TransactionOutbox(this);
+    }
+  }
+}
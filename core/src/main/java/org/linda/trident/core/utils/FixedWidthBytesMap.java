@@ -0,0 +1,201 @@
+package org.linda.trident.core.utils;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * An open-addressed hash map whose keys are byte arrays of one fixed width, e.g. 32-byte
+ * transaction ids or 21-byte addresses.
+ *
+ * <p>Keys are stored back to back in a single {@code byte[]} and probed linearly, so a lookup
+ * costs no allocation and no {@code ByteString} / hex conversion. Removal uses backward-shift
+ * deletion, so there are no tombstones. Not thread-safe.</p>
+ *
+ * @param <V> the value type
+ */
+public final class FixedWidthBytesMap<V> {
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private final int width;
+  private byte[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+
+  /**
+   * @param width key width in bytes
+   * @param expectedSize number of entries to size the table for
+   */
+  public FixedWidthBytesMap(int width, int expectedSize) {
+    if (width <= 0) {
+      throw new IllegalArgumentException("width must be > 0");
+    }
+    this.width = width;
+    allocate(tableSize(expectedSize));
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(byte[] key, int offset) {
+    return values[find(key, offset)] != null;
+  }
+
+  public V get(byte[] key) {
+    return get(key, 0);
+  }
+
+  /**
+   * Look up the key stored at {@code key[offset .. offset + width)}.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(byte[] key, int offset) {
+    return (V) values[find(key, offset)];
+  }
+
+  /**
+   * Associate {@code value} with the key. The key bytes are copied.
+   *
+   * @return the previous value, or {@code null}
+   */
+  public V put(byte[] key, V value) {
+    checkKey(key);
+    if (value == null) {
+      throw new IllegalArgumentException("value must not be null");
+    }
+    int slot = find(key, 0);
+    @SuppressWarnings("unchecked")
+    V previous = (V) values[slot];
+    if (previous == null) {
+      System.arraycopy(key, 0, keys, slot * width, width);
+      size++;
+    }
+    values[slot] = value;
+    if (previous == null && size > (mask + 1) * LOAD_FACTOR) {
+      rehash((mask + 1) << 1);
+    }
+    return previous;
+  }
+
+  /**
+   * Remove the key.
+   *
+   * @return the removed value, or {@code null}
+   */
+  public V remove(byte[] key) {
+    checkKey(key);
+    int slot = find(key, 0);
+    @SuppressWarnings("unchecked")
+    V previous = (V) values[slot];
+    if (previous == null) {
+      return null;
+    }
+    size--;
+    // backward-shift the following entries of the probe sequence into the hole
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (values[next] != null) {
+      int home = hash(keys, next * width, width) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        System.arraycopy(keys, next * width, keys, hole * width, width);
+        values[hole] = values[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[hole] = null;
+    return previous;
+  }
+
+  /**
+   * Apply {@code action} to every value, in table order.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEachValue(Consumer<? super V> action) {
+    for (Object value : values) {
+      if (value != null) {
+        action.accept((V) value);
+      }
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * The slot holding the key, or the empty slot where it would be inserted.
+   */
+  private int find(byte[] key, int offset) {
+    int slot = hash(key, offset, width) & mask;
+    while (values[slot] != null && !keyEquals(slot, key, offset)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean keyEquals(int slot, byte[] key, int offset) {
+    int base = slot * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[base + i] != key[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static int hash(byte[] src, int offset, int width) {
+    long h = 0x9E3779B97F4A7C15L;
+    for (int i = 0; i < width; i++) {
+      h = (h ^ (src[offset + i] & 0xff)) * 0x100000001B3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private void rehash(int capacity) {
+    byte[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = find(oldKeys, i * width);
+        System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new byte[capacity * width];
+    values = new Object[capacity];
+    mask = capacity - 1;
+  }
+
+  private void checkKey(byte[] key) {
+    if (key.length != width) {
+      throw new IllegalArgumentException("key must be " + width + " bytes, got " + key.length);
+    }
+  }
+
+  private static int tableSize(int expectedSize) {
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
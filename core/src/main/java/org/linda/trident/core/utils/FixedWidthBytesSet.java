@@ -0,0 +1,181 @@
+package org.linda.trident.core.utils;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressed hash set of fixed-width byte keys, the set counterpart of
+ * {@link FixedWidthBytesMap}.
+ *
+ * <p>Keys are stored back to back in a single {@code byte[]} and slot occupancy in a bitmap, so
+ * a set of two million 21-byte addresses takes about 90 MB with no object per entry. Not
+ * thread-safe.</p>
+ */
+public final class FixedWidthBytesSet {
+
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private final int width;
+  private byte[] keys;
+  private long[] used;
+  private int mask;
+  private int size;
+
+  /**
+   * @param width key width in bytes
+   * @param expectedSize number of keys to size the table for
+   */
+  public FixedWidthBytesSet(int width, int expectedSize) {
+    if (width <= 0) {
+      throw new IllegalArgumentException("width must be > 0");
+    }
+    this.width = width;
+    allocate(tableSize(expectedSize));
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(byte[] key) {
+    checkKey(key);
+    return isUsed(find(key, 0));
+  }
+
+  /**
+   * Whether the key stored at {@code key[offset .. offset + width)} is in the set.
+   */
+  public boolean contains(byte[] key, int offset) {
+    return isUsed(find(key, offset));
+  }
+
+  /**
+   * Add a key. The key bytes are copied.
+   *
+   * @return {@code true} if the key was not already present
+   */
+  public boolean add(byte[] key) {
+    checkKey(key);
+    int slot = find(key, 0);
+    if (isUsed(slot)) {
+      return false;
+    }
+    System.arraycopy(key, 0, keys, slot * width, width);
+    setUsed(slot, true);
+    size++;
+    if (size > (mask + 1) * LOAD_FACTOR) {
+      rehash((mask + 1) << 1);
+    }
+    return true;
+  }
+
+  /**
+   * Remove a key.
+   *
+   * @return {@code true} if the key was present
+   */
+  public boolean remove(byte[] key) {
+    checkKey(key);
+    int slot = find(key, 0);
+    if (!isUsed(slot)) {
+      return false;
+    }
+    size--;
+    // backward-shift the following entries of the probe sequence into the hole
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (isUsed(next)) {
+      int home = FixedWidthBytesMap.hash(keys, next * width, width) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        System.arraycopy(keys, next * width, keys, hole * width, width);
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    setUsed(hole, false);
+    return true;
+  }
+
+  public void clear() {
+    Arrays.fill(used, 0L);
+    size = 0;
+  }
+
+  /**
+   * The slot holding the key, or the empty slot where it would be inserted.
+   */
+  private int find(byte[] key, int offset) {
+    int slot = FixedWidthBytesMap.hash(key, offset, width) & mask;
+    while (isUsed(slot) && !keyEquals(slot, key, offset)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean keyEquals(int slot, byte[] key, int offset) {
+    int base = slot * width;
+    for (int i = 0; i < width; i++) {
+      if (keys[base + i] != key[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isUsed(int slot) {
+    return (used[slot >>> 6] & (1L << slot)) != 0;
+  }
+
+  private void setUsed(int slot, boolean value) {
+    if (value) {
+      used[slot >>> 6] |= 1L << slot;
+    } else {
+      used[slot >>> 6] &= ~(1L << slot);
+    }
+  }
+
+  private void rehash(int capacity) {
+    byte[] oldKeys = keys;
+    long[] oldUsed = used;
+    int oldCapacity = mask + 1;
+    allocate(capacity);
+    for (int i = 0; i < oldCapacity; i++) {
+      if ((oldUsed[i >>> 6] & (1L << i)) != 0) {
+        int slot = find(oldKeys, i * width);
+        System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+        setUsed(slot, true);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    if ((long) capacity * width > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Set too large: " + capacity + " slots of " + width
+          + " bytes");
+    }
+    keys = new byte[capacity * width];
+    used = new long[(capacity + 63) >>> 6];
+    mask = capacity - 1;
+  }
+
+  private void checkKey(byte[] key) {
+    if (key.length != width) {
+      throw new IllegalArgumentException("key must be " + width + " bytes, got " + key.length);
+    }
+  }
+
+  private static int tableSize(int expectedSize) {
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
@@ -0,0 +1,212 @@
+package org.linda.trident.core.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.transaction.AddressWatchlist;
+import org.linda.trident.core.transaction.BlockView;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+class AddressIndexTest {
+
+  private static final int ADDRESSES = 5;
+
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("address-index");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  void testQueryAcrossRunsAndCompaction() throws IOException {
+    try (AddressIndex index = new AddressIndex.Builder(directory)
+        .setFlushThresholdBytes(2_000)
+        .build()) {
+      for (long num = 1; num <= 60; num++) {
+        index.index(block(num), infos(num));
+      }
+      assertEquals(60, index.getLastIndexedBlock());
+      assertTrue(Files.list(directory).count() > 2);
+      check(index);
+
+      index.compact();
+      assertEquals(1, Files.list(directory).count());
+      check(index);
+
+      assertThrows(IllegalArgumentException.class, () -> index.index(block(60), infos(60)));
+    }
+
+    try (AddressIndex index = new AddressIndex.Builder(directory).build()) {
+      assertEquals(60, index.getLastIndexedBlock());
+      check(index);
+      index.index(block(61), infos(61));
+      assertEquals(expected(address(1), 55, 61), heights(index.query(address(1), 55, 61, 100)));
+    }
+  }
+
+  @Test
+  void testOwnerAndLogSenderGiveOnePosting() throws IOException {
+    try (AddressIndex index = new AddressIndex.Builder(directory).build()) {
+      index.index(block(3), infos(3));
+      // block 3 has the transfer 3 -> 4 and the token transfer 3 -> 0 in one transaction
+      List<AddressIndex.Posting> postings = index.query(address(3), 0, 10, 10);
+      assertEquals(2, postings.size());
+      assertEquals(BlockView.of(block(3)).getTransaction(1).getTxid(),
+          postings.get(1).getTxid());
+      assertEquals(1, index.query(address(3), 0, 10, 1).size());
+    }
+  }
+
+  @Test
+  void testSkipPointsOfBusyAddress() throws IOException {
+    // address 0 has a posting in every block, so its lists span many skip points
+    long blocks = AddressIndex.SKIP_INTERVAL * 12;
+    try (AddressIndex index = new AddressIndex.Builder(directory)
+        .setFlushThresholdBytes(20_000)
+        .build()) {
+      for (long num = 1; num <= blocks; num++) {
+        index.index(block(num), infos(num));
+      }
+      checkRanges(index, blocks);
+      index.compact();
+      checkRanges(index, blocks);
+    }
+  }
+
+  private static void checkRanges(AddressIndex index, long blocks) {
+    for (long from = 0; from <= blocks + 1; from += 37) {
+      for (long to : new long[] {from, from + 5, from + AddressIndex.SKIP_INTERVAL * 2}) {
+        assertEquals(expected(address(0), from, Math.min(to, blocks)),
+            heights(index.query(address(0), from, to, Integer.MAX_VALUE)));
+      }
+    }
+  }
+
+  private static void check(AddressIndex index) {
+    for (int a = 0; a < ADDRESSES; a++) {
+      assertEquals(expected(address(a), 0, 60),
+          heights(index.query(address(a), 0, 1000, Integer.MAX_VALUE)));
+      assertEquals(expected(address(a), 17, 42),
+          heights(index.query(address(a), 17, 42, Integer.MAX_VALUE)));
+    }
+  }
+
+  /**
+   * "block:index" of the postings the test blocks produce for {@code address}.
+   */
+  private static List<String> expected(byte[] address, long from, long to) {
+    List<String> postings = new ArrayList<>();
+    for (long num = Math.max(from, 1); num <= to; num++) {
+      int a = (int) (num % ADDRESSES);
+      int b = (int) ((num + 1) % ADDRESSES);
+      int target = address[20];
+      if (target == a || target == b) {
+        postings.add(num + ":0");
+      }
+      if (target == a || target == 0) {
+        postings.add(num + ":1");
+      }
+    }
+    return postings;
+  }
+
+  private static List<String> heights(List<AddressIndex.Posting> postings) {
+    List<String> result = new ArrayList<>();
+    for (AddressIndex.Posting posting : postings) {
+      result.add(posting.getBlockNum() + ":" + posting.getTransactionIndex());
+    }
+    return result;
+  }
+
+  private static byte[] address(int i) {
+    byte[] address = new byte[AddressIndex.ADDRESS_SIZE];
+    address[0] = 0x41;
+    address[20] = (byte) i;
+    return address;
+  }
+
+  /**
+   * Transaction 0: transfer from a to b. Transaction 1: a calls a token that transfers from a
+   * to address 0.
+   */
+  private static BlockExtention block(long num) {
+    byte[] a = address((int) (num % ADDRESSES));
+    byte[] b = address((int) ((num + 1) % ADDRESSES));
+    TransferContract transfer = TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(a))
+        .setToAddress(ByteString.copyFrom(b))
+        .setAmount(num)
+        .build();
+    TriggerSmartContract trigger = TriggerSmartContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(a))
+        .setContractAddress(ByteString.copyFrom(address(99)))
+        .setData(ByteString.copyFrom(new byte[] {(byte) num}))
+        .build();
+    return BlockExtention.newBuilder()
+        .setBlockHeader(BlockHeader.newBuilder()
+            .setRawData(BlockHeader.raw.newBuilder().setNumber(num)))
+        .addTransactions(transaction(ContractType.TransferContract, Any.pack(transfer)))
+        .addTransactions(transaction(ContractType.TriggerSmartContract, Any.pack(trigger)))
+        .build();
+  }
+
+  private static TransactionExtention transaction(ContractType type, Any parameter) {
+    return TransactionExtention.newBuilder()
+        .setTransaction(Transaction.newBuilder()
+            .setRawData(Transaction.raw.newBuilder()
+                .addContract(Transaction.Contract.newBuilder()
+                    .setType(type)
+                    .setParameter(parameter))))
+        .build();
+  }
+
+  private static TransactionInfoList infos(long num) {
+    BlockView view = BlockView.of(block(num));
+    byte[] a = address((int) (num % ADDRESSES));
+    return TransactionInfoList.newBuilder()
+        .addTransactionInfo(TransactionInfo.newBuilder()
+            .setId(view.getTransaction(0).getTxid()))
+        .addTransactionInfo(TransactionInfo.newBuilder()
+            .setId(view.getTransaction(1).getTxid())
+            .addLog(TransactionInfo.Log.newBuilder()
+                .setAddress(ByteString.copyFrom(address(99)).substring(1))
+                .addTopics(AddressWatchlist.TRANSFER_TOPIC)
+                .addTopics(word(a))
+                .addTopics(word(address(0)))
+                .setData(ByteString.copyFrom(new byte[32]))))
+        .build();
+  }
+
+  private static ByteString word(byte[] address) {
+    return ByteString.copyFrom(new byte[12]).concat(ByteString.copyFrom(address, 1, 20));
+  }
+}
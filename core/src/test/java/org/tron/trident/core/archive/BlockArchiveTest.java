@@ -0,0 +1,130 @@
+package org.linda.trident.core.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.transaction.BlockView;
+import org.linda.trident.proto.Chain.Block;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+class BlockArchiveTest {
+
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("archive");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  void testAppendAndReadAcrossSegments() throws IOException {
+    try (BlockArchive archive = new BlockArchive.Builder(directory)
+        .setHeightsPerSegment(4)
+        .build()) {
+      // out of height order, over three segments
+      for (long height : new long[] {9, 2, 3, 0, 5}) {
+        assertTrue(archive.append(block(height)));
+        assertTrue(archive.appendTransactionInfos(height, infos(height)));
+      }
+      assertFalse(archive.append(block(2)));
+
+      for (long height : new long[] {0, 2, 3, 5, 9}) {
+        BlockExtention block = archive.getBlock(height);
+        assertEquals(height, block.getBlockHeader().getRawData().getNumber());
+        assertEquals(BlockView.of(block(height)).getTransaction(0).getTxid(),
+            block.getTransactions(0).getTxid());
+        assertEquals(infos(height), archive.getTransactionInfos(height));
+      }
+      assertNull(archive.getBlock(1));
+      assertNull(archive.getBlock(100));
+      assertFalse(archive.containsBlock(1));
+      assertTrue(archive.containsBlock(9));
+    }
+
+    try (BlockArchive archive = new BlockArchive.Builder(directory)
+        .setHeightsPerSegment(4)
+        .build()) {
+      assertEquals(5, archive.getBlock(5).getBlockHeader().getRawData().getNumber());
+      assertTrue(archive.append(block(1)));
+      assertEquals(1, archive.getBlock(1).getBlockHeader().getRawData().getNumber());
+    }
+
+    try (BlockArchive archive = new BlockArchive.Builder(directory)
+        .setHeightsPerSegment(8)
+        .build()) {
+      assertThrows(IOException.class, () -> archive.getBlock(0));
+    }
+  }
+
+  @Test
+  void testApiWrapperReadsThroughArchive() throws Exception {
+    // the node is never reached for archived heights
+    ApiWrapper wrapper = new ApiWrapper("127.0.0.1:1", "127.0.0.1:1",
+        "0000000000000000000000000000000000000000000000000000000000000001");
+    try (BlockArchive archive = new BlockArchive.Builder(directory).build()) {
+      archive.append(block(42));
+      archive.appendTransactionInfos(42, infos(42));
+      wrapper.setBlockArchive(archive);
+      assertSame(archive, wrapper.withKey(wrapper.keyPair).getBlockArchive());
+
+      assertEquals(42, wrapper.getBlockByNum(42, NodeType.SOLIDITY_NODE)
+          .getBlockHeader().getRawData().getNumber());
+      assertEquals(infos(42), wrapper.getTransactionInfoByBlockNum(42));
+    } finally {
+      wrapper.close();
+    }
+  }
+
+  private static Block block(long height) {
+    TransferContract transfer = TransferContract.newBuilder()
+        .setOwnerAddress(ByteString.copyFrom(new byte[21]))
+        .setAmount(height)
+        .build();
+    return Block.newBuilder()
+        .setBlockHeader(BlockHeader.newBuilder()
+            .setRawData(BlockHeader.raw.newBuilder().setNumber(height)))
+        .addTransactions(Transaction.newBuilder()
+            .setRawData(Transaction.raw.newBuilder()
+                .addContract(Transaction.Contract.newBuilder()
+                    .setType(ContractType.TransferContract)
+                    .setParameter(Any.pack(transfer)))))
+        .build();
+  }
+
+  private static TransactionInfoList infos(long height) {
+    return TransactionInfoList.newBuilder()
+        .addTransactionInfo(TransactionInfo.newBuilder()
+            .setBlockNumber(height)
+            .setId(ByteString.copyFrom(new byte[32])))
+        .build();
+  }
+}
@@ -0,0 +1,180 @@
+package org.linda.trident.core.channel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.api.GrpcAPI.BlockLimit;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.BlockListExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionReturn;
+
+/**
+ * Throughput of block-range fetches and large broadcasts with different {@link ChannelOptions},
+ * against a local Netty server. Each configuration is warmed up, then fetches {@link #ROUNDS}
+ * ranges of {@link #RANGE} blocks and broadcasts {@link #ROUNDS} transactions; every
+ * configuration must receive the same blocks, and only the request gzip one may compress its
+ * requests.
+ */
+class ChannelOptionsBenchmarkTest {
+
+  private static final int ROUNDS = 20;
+  private static final int RANGE = 100;
+  private static final int WARMUP = 3;
+  private static final int TRANSACTIONS_PER_BLOCK = 20;
+
+  private final Set<String> requestEncodings = ConcurrentHashMap.newKeySet();
+  private Server server;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ServerInterceptor encodings = new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+          Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        if (call.getMethodDescriptor().getFullMethodName()
+            .equals(WalletGrpc.getBroadcastTransactionMethod().getFullMethodName())) {
+          String encoding = headers.get(
+              Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER));
+          requestEncodings.add(encoding == null ? "identity" : encoding);
+        }
+        return next.startCall(call, headers);
+      }
+    };
+    server = NettyServerBuilder.forPort(0)
+        .maxInboundMessageSize(64 << 20)
+        .addService(ServerInterceptors.intercept(new BlockService(), encodings))
+        .build()
+        .start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void benchmarkChannelOptions() throws Exception {
+    Map<String, ChannelOptions> configurations = new LinkedHashMap<>();
+    configurations.put("nio", ChannelOptions.builder()
+        .setTransport(ChannelOptions.Transport.NIO)
+        .setMaxInboundMessageSize(64 << 20)
+        .build());
+    configurations.put("auto", ChannelOptions.builder()
+        .setMaxInboundMessageSize(64 << 20)
+        .build());
+    configurations.put("auto+window16m", ChannelOptions.builder()
+        .setMaxInboundMessageSize(64 << 20)
+        .setFlowControlWindow(16 << 20)
+        .build());
+    configurations.put("auto+window16m+requestGzip", ChannelOptions.builder()
+        .setMaxInboundMessageSize(64 << 20)
+        .setFlowControlWindow(16 << 20)
+        .setRequestGzip(true)
+        .build());
+
+    String target = "localhost:" + server.getPort();
+    String privateKey = KeyPair.generate().toPrivateKey();
+    Transaction deployment = Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .setData(ByteString.copyFrom(new byte[256 << 10])))
+        .build();
+    Map<String, Double> blocksPerSecond = new LinkedHashMap<>();
+    long expectedBytes = -1;
+    for (Map.Entry<String, ChannelOptions> entry : configurations.entrySet()) {
+      requestEncodings.clear();
+      ApiWrapper wrapper = new ApiWrapper(target, target, privateKey, entry.getValue());
+      try {
+        long start = 0;
+        for (int i = 0; i < WARMUP; i++) {
+          wrapper.getBlockByLimitNext(start, start + RANGE);
+          wrapper.broadcastTransaction(deployment);
+          start += RANGE;
+        }
+
+        long blocks = 0;
+        long bytes = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+          BlockListExtention list = wrapper.getBlockByLimitNext(start, start + RANGE);
+          blocks += list.getBlockCount();
+          bytes += list.getSerializedSize();
+          wrapper.broadcastTransaction(deployment);
+          start += RANGE;
+        }
+        blocksPerSecond.put(entry.getKey(), blocks / ((System.nanoTime() - begin) / 1e9));
+
+        assertEquals((long) ROUNDS * RANGE, blocks, entry.getKey());
+        if (expectedBytes < 0) {
+          expectedBytes = bytes;
+        }
+        assertEquals(expectedBytes, bytes, entry.getKey());
+        assertEquals(entry.getValue().isRequestGzip() ? "gzip" : "identity",
+            String.join(",", requestEncodings), entry.getKey());
+      } finally {
+        wrapper.close();
+        entry.getValue().shutdown();
+      }
+    }
+    assertEquals(configurations.keySet(), blocksPerSecond.keySet());
+    for (double rate : blocksPerSecond.values()) {
+      assertTrue(rate > 0);
+    }
+  }
+
+  /**
+   * Serves ranges of synthetic blocks and accepts every broadcast.
+   */
+  private static final class BlockService extends WalletGrpc.WalletImplBase {
+
+    @Override
+    public void getBlockByLimitNext2(BlockLimit request,
+        StreamObserver<BlockListExtention> responseObserver) {
+      BlockListExtention.Builder list = BlockListExtention.newBuilder();
+      for (long num = request.getStartNum(); num < request.getEndNum(); num++) {
+        BlockExtention.Builder block = BlockExtention.newBuilder()
+            .setBlockHeader(BlockHeader.newBuilder()
+                .setRawData(BlockHeader.raw.newBuilder().setNumber(num)));
+        for (int i = 0; i < TRANSACTIONS_PER_BLOCK; i++) {
+          block.addTransactions(TransactionExtention.newBuilder()
+              .setTxid(ByteString.copyFrom(new byte[32]))
+              .setTransaction(Transaction.newBuilder()
+                  .setRawData(Transaction.raw.newBuilder().setTimestamp(num * 1000 + i))
+                  .addSignature(ByteString.copyFrom(new byte[65]))));
+        }
+        list.addBlock(block);
+      }
+      responseObserver.onNext(list.build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void broadcastTransaction(Transaction request,
+        StreamObserver<TransactionReturn> responseObserver) {
+      responseObserver.onNext(TransactionReturn.newBuilder().setResult(true).build());
+      responseObserver.onCompleted();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package org.linda.trident.core.channel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.ClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.interceptor.TimeoutInterceptor;
+import org.linda.trident.core.key.KeyPair;
+
+class ChannelRegistryTest {
+
+  @Test
+  void testReferenceCounting() {
+    ChannelRegistry registry = new ChannelRegistry();
+    List<ClientInterceptor> interceptors =
+        Collections.singletonList(new TimeoutInterceptor(1000));
+
+    ManagedChannel a = registry.acquire("localhost:50051", interceptors);
+    ManagedChannel b = registry.acquire("localhost:50051", interceptors);
+    ManagedChannel other = registry.acquire("localhost:50051", null);
+    assertSame(a, b);
+    assertNotSame(a, other);
+    assertEquals(2, registry.size());
+    assertEquals(2, registry.referenceCount(a));
+
+    registry.release(a);
+    assertFalse(a.isShutdown());
+    registry.release(b);
+    assertTrue(a.isShutdown());
+    assertEquals(1, registry.size());
+
+    registry.release(other);
+    assertEquals(0, registry.size());
+    ManagedChannel unmanaged =
+        ManagedChannelBuilder.forTarget("localhost:50051").usePlaintext().build();
+    try {
+      assertThrows(IllegalArgumentException.class, () -> registry.release(unmanaged));
+    } finally {
+      unmanaged.shutdownNow();
+    }
+  }
+
+  @Test
+  void testReplaceShutDownChannel() {
+    ChannelRegistry registry = new ChannelRegistry();
+    ManagedChannel stale = registry.acquire("localhost:50051", null);
+    stale.shutdownNow();
+
+    ManagedChannel fresh = registry.acquire("localhost:50051", null);
+    assertNotSame(stale, fresh);
+    assertEquals(1, registry.referenceCount(stale));
+    registry.release(stale);
+    assertEquals(0, registry.referenceCount(stale));
+    assertThrows(IllegalArgumentException.class, () -> registry.release(stale));
+    assertEquals(1, registry.size());
+    assertFalse(fresh.isShutdown());
+
+    registry.release(fresh);
+    assertTrue(fresh.isShutdown());
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  void testCloseWrapperAfterChannelWasReplaced() {
+    ChannelRegistry registry = new ChannelRegistry();
+    ApiWrapper wrapper = new ApiWrapper(registry, "localhost:50051", "localhost:50052",
+        KeyPair.generate(), null);
+    wrapper.channel.shutdownNow();
+    ApiWrapper other = new ApiWrapper(registry, "localhost:50051", "localhost:50052",
+        KeyPair.generate(), null);
+    assertNotSame(wrapper.channel, other.channel);
+    assertSame(wrapper.channelSolidity, other.channelSolidity);
+
+    wrapper.close();
+    assertEquals(1, registry.referenceCount(other.channelSolidity));
+    assertFalse(other.channel.isShutdown());
+    other.close();
+    assertTrue(other.channel.isShutdown());
+    assertTrue(other.channelSolidity.isShutdown());
+    assertEquals(0, registry.size());
+  }
+
+  @Test
+  void testOptionsArePartOfTheKey() {
+    ChannelRegistry registry = new ChannelRegistry();
+    ChannelOptions options = ChannelOptions.builder()
+        .setTransport(ChannelOptions.Transport.NIO)
+        .setEventLoopThreads(1)
+        .setFlowControlWindow(8 << 20)
+        .setRequestGzip(true)
+        .build();
+    try {
+      ManagedChannel plain = registry.acquire("localhost:50051", null);
+      ManagedChannel tuned = registry.acquire("localhost:50051", null, options);
+      assertNotSame(plain, tuned);
+      assertSame(tuned, registry.acquire("localhost:50051", Collections.emptyList(), options));
+      assertEquals(2, registry.size());
+
+      registry.release(plain);
+      registry.release(tuned);
+      registry.release(tuned);
+      assertTrue(tuned.isShutdown());
+    } finally {
+      options.shutdown();
+    }
+    assertThrows(IllegalArgumentException.class,
+        () -> ChannelOptions.builder().setFlowControlWindow(-1));
+  }
+
+  @Test
+  void testWithKey() {
+    ChannelRegistry registry = new ChannelRegistry();
+    ApiWrapper first = new ApiWrapper(registry, "localhost:50051", "localhost:50052",
+        KeyPair.generate(), null);
+    ApiWrapper second = new ApiWrapper(registry, "localhost:50051", "localhost:50052",
+        KeyPair.generate(), null);
+    assertSame(first.channel, second.channel);
+    assertEquals(2, registry.size());
+
+    KeyPair key = KeyPair.generate();
+    ApiWrapper view = first.withKey(key);
+    assertSame(key, view.keyPair);
+    assertSame(first.blockingStub, view.blockingStub);
+    view.close();
+    assertFalse(first.channel.isShutdown());
+
+    first.close();
+    first.close();
+    assertFalse(second.channel.isShutdown());
+    second.close();
+    assertTrue(first.channel.isShutdown());
+    assertTrue(first.channelSolidity.isShutdown());
+    assertEquals(0, registry.size());
+  }
+}
@@ -0,0 +1,87 @@
+package org.linda.trident.core.contract;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.FunctionEncoder;
+import org.linda.trident.abi.TypeEncoder;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Function;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.utils.Numeric;
+
+class BatchConstantCallerTest {
+
+  private static final String TOKEN = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+  private static final String HOLDER = "TJRabPrwbZy45sbavfcjinPJC18kjpRTv8";
+
+  @Test
+  void testBalanceOfData() {
+    String expected = FunctionEncoder.encode(new Function("balanceOf",
+        Arrays.asList(new Address(HOLDER)), Arrays.asList()));
+    assertEquals(expected, Numeric.toHexStringNoPrefix(BatchConstantCaller.balanceOfData(HOLDER)));
+  }
+
+  @Test
+  void testEncodeTryAggregate() {
+    byte[] data1 = BatchConstantCaller.balanceOfData(HOLDER);
+    byte[] data2 = new byte[] {1, 2, 3};
+    List<BatchConstantCaller.Call> calls = Arrays.asList(
+        new BatchConstantCaller.Call(TOKEN, data1),
+        new BatchConstantCaller.Call(TOKEN, data2));
+    String token = TypeEncoder.encode(new Address(TOKEN));
+
+    String expected = word(0) // requireSuccess
+        + word(0x40) // offset of calls
+        + word(2) // calls.length
+        + word(0x40) + word(0xe0) // offsets of calls[0], calls[1]
+        + token + word(0x40) + word(data1.length)
+        + Numeric.toHexStringNoPrefix(Arrays.copyOf(data1, 64))
+        + token + word(0x40) + word(data2.length)
+        + Numeric.toHexStringNoPrefix(Arrays.copyOf(data2, 32));
+
+    byte[] encoded = BatchConstantCaller.encodeTryAggregate(calls);
+    assertArrayEquals(AbiBytes.selector(BatchConstantCaller.TRY_AGGREGATE_SIGNATURE),
+        Arrays.copyOf(encoded, AbiBytes.SELECTOR_SIZE));
+    assertEquals(expected, Numeric.toHexStringNoPrefix(
+        Arrays.copyOfRange(encoded, AbiBytes.SELECTOR_SIZE, encoded.length)));
+  }
+
+  @Test
+  void testDecodeTryAggregate() {
+    String balance = TypeEncoder.encode(new Uint256(BigInteger.valueOf(1_000_000L)));
+    byte[] returned = Numeric.hexStringToByteArray(word(0x20) // offset of results
+        + word(3) // results.length
+        + word(0x60) + word(0xe0) + word(0x160) // offsets of results[0..2]
+        + word(1) + word(0x40) + word(32) + balance // (true, balance)
+        + word(0) + word(0x40) + word(2) + Numeric.toHexStringNoPrefix(new byte[32]) // reverted
+        + word(1) + word(0x40) + word(0)); // (true, empty)
+
+    List<byte[]> results = BatchConstantCaller.decodeTryAggregate(returned, 3);
+    assertEquals(BigInteger.valueOf(1_000_000L), OutputDecoder.UINT256.decode(results.get(0)));
+    assertNull(results.get(1));
+    assertNull(results.get(2));
+
+    assertThrows(IllegalStateException.class,
+        () -> BatchConstantCaller.decodeTryAggregate(returned, 2));
+  }
+
+  @Test
+  void testCallAddress() {
+    BatchConstantCaller.Call call = new BatchConstantCaller.Call(TOKEN, new byte[0]);
+    assertEquals(ApiWrapper.parseAddress(TOKEN), call.getContractAddress());
+    assertEquals(ByteString.EMPTY, call.getData());
+  }
+
+  private static String word(long value) {
+    return Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(value), 64);
+  }
+}
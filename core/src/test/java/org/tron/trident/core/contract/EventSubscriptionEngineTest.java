@@ -0,0 +1,279 @@
+package org.linda.trident.core.contract;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.EventEncoder;
+import org.linda.trident.abi.EventValues;
+import org.linda.trident.abi.TypeReference;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Event;
+import org.linda.trident.abi.datatypes.Utf8String;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.contract.EventSubscriptionEngine.ContractEvent;
+import org.linda.trident.core.contract.EventSubscriptionEngine.Subscription;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+class EventSubscriptionEngineTest {
+
+  private static final Event TRANSFER = new Event("Transfer",
+      Arrays.asList(new TypeReference<Address>(true) {}, new TypeReference<Address>(true) {},
+          new TypeReference<Uint256>() {}));
+
+  private static final String TOKEN = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+  private static final String OTHER_TOKEN = "TEkxiTehnzSmSe2XqrBj4w32RUN966rdz8";
+  private static final String ALICE = "TNPeeaaFB7K9cmo4uQpcU32zGK8G1NYqeL";
+  private static final String BOB = "TXJgMdjVX5dKiQaUi9QobwNxtSQaFqccvd";
+
+  @Test
+  void testFiltersAndDecoding() throws InterruptedException {
+    try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(null)
+        .setPollIntervalMillis(0)
+        .build()) {
+      Subscription token = engine.subscribe(
+          new EventFilter.Builder(TRANSFER).setContractAddress(TOKEN).build(), 10);
+      Subscription toBob = engine.subscribe(new EventFilter.Builder(TRANSFER)
+          .setIndexedValue(1, new Address(BOB))
+          .build(), 10);
+      Subscription fromAliceOnOther = engine.subscribe(new EventFilter.Builder(TRANSFER)
+          .setContractAddress(OTHER_TOKEN)
+          .setIndexedValue(0, new Address(ALICE))
+          .build(), 10);
+
+      engine.scan(Arrays.asList(
+          info(1, transfer(TOKEN, ALICE, BOB, 5), transfer(OTHER_TOKEN, BOB, ALICE, 6)),
+          info(2, transfer(OTHER_TOKEN, ALICE, BOB, 7))));
+
+      ContractEvent event = token.poll(0, TimeUnit.SECONDS);
+      assertEquals(0, event.getLogIndex());
+      assertEquals(txid(1), event.getTxid());
+      assertArrayEquals(ApiWrapper.parseAddress(TOKEN).toByteArray(),
+          event.getContractAddress());
+      EventValues values = event.getValues();
+      assertEquals(ALICE, values.getIndexedValues().get(0).toString());
+      assertEquals(BOB, values.getIndexedValues().get(1).toString());
+      assertEquals(BigInteger.valueOf(5), values.getNonIndexedValues().get(0).getValue());
+      assertNull(token.poll(0, TimeUnit.SECONDS));
+
+      List<ContractEvent> events = new ArrayList<>();
+      toBob.drainTo(events, 10);
+      assertEquals(2, events.size());
+      assertEquals(txid(1), events.get(0).getTxid());
+      assertEquals(txid(2), events.get(1).getTxid());
+
+      assertEquals(txid(2), fromAliceOnOther.take().getTxid());
+      assertEquals(0, fromAliceOnOther.size());
+
+      fromAliceOnOther.close();
+      engine.scan(Collections.singletonList(info(3, transfer(OTHER_TOKEN, ALICE, BOB, 8))));
+      assertEquals(0, fromAliceOnOther.size());
+      assertEquals(1, toBob.size());
+    }
+  }
+
+  @Test
+  void testFullQueueDropsWithoutBlockingOthers() throws InterruptedException {
+    try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(null)
+        .setPollIntervalMillis(0)
+        .build()) {
+      Subscription slow = engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 2);
+      Subscription fast = engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 100);
+      for (int i = 0; i < 10; i++) {
+        engine.scan(Collections.singletonList(info(i, transfer(TOKEN, ALICE, BOB, i))));
+      }
+      assertEquals(2, slow.size());
+      assertEquals(8, slow.getDroppedCount());
+      assertEquals(10, fast.size());
+      assertEquals(0, fast.getDroppedCount());
+      assertEquals(txid(0), slow.take().getTxid());
+    }
+  }
+
+  @Test
+  void testTopicCountAndStaticValues() {
+    try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(null)
+        .setPollIntervalMillis(0)
+        .build()) {
+      Subscription transfers = engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 10);
+      // an LRC-721 Transfer has the same signature but the token id is indexed too
+      TransactionInfo.Log nft = transfer(TOKEN, ALICE, BOB, 1).toBuilder()
+          .addTopics(word(1))
+          .setData(ByteString.EMPTY)
+          .build();
+      engine.scan(Collections.singletonList(info(1, nft)));
+      assertEquals(0, transfers.size());
+    }
+
+    EventFilter.Builder builder = new EventFilter.Builder(TRANSFER);
+    assertThrows(IllegalArgumentException.class,
+        () -> builder.setIndexedValue(2, new Address(BOB)));
+    assertThrows(IllegalArgumentException.class,
+        () -> builder.setIndexedValue(0, new Utf8String("dynamic")));
+  }
+
+  @Test
+  void testPollAdvancesWithoutSubscriptions() throws Exception {
+    AtomicLong headNum = new AtomicLong(10);
+    List<Long> fetches = Collections.synchronizedList(new ArrayList<>());
+    ApiWrapper wrapper = new FakeNode(headNum) {
+      @Override
+      public TransactionInfoList getTransactionInfoByBlockNum(long blockNum,
+          NodeType... nodeType) {
+        fetches.add(blockNum);
+        return transferBlock(blockNum);
+      }
+    };
+    try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(wrapper)
+        .setPollIntervalMillis(0)
+        .build()) {
+      engine.poll();
+      headNum.set(20);
+      engine.poll();
+      assertEquals(20, engine.getLastScannedBlock());
+      assertEquals(Collections.emptyList(), fetches);
+
+      Subscription transfers = engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 10);
+      headNum.set(22);
+      engine.poll();
+      assertEquals(Arrays.asList(21L, 22L), fetches);
+      assertEquals(txid(21), transfers.take().getTxid());
+      assertEquals(txid(22), transfers.take().getTxid());
+      assertEquals(0, transfers.size());
+    } finally {
+      wrapper.close();
+    }
+  }
+
+  @Test
+  void testSubscribeWhilePollWaitsForTheNode() throws Exception {
+    AtomicLong headNum = new AtomicLong(10);
+    CountDownLatch fetching = new CountDownLatch(1);
+    CountDownLatch answer = new CountDownLatch(1);
+    ApiWrapper wrapper = new FakeNode(headNum) {
+      @Override
+      public TransactionInfoList getTransactionInfoByBlockNum(long blockNum,
+          NodeType... nodeType) {
+        fetching.countDown();
+        try {
+          answer.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return transferBlock(blockNum);
+      }
+    };
+    try (EventSubscriptionEngine engine = new EventSubscriptionEngine.Builder(wrapper)
+        .setPollIntervalMillis(0)
+        .build()) {
+      engine.poll();
+      Subscription first = engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 10);
+      headNum.set(11);
+      CompletableFuture<Void> poll = CompletableFuture.runAsync(() -> {
+        try {
+          engine.poll();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      fetching.await();
+
+      Subscription second = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        assertEquals(10, engine.getLastScannedBlock());
+        return engine.subscribe(new EventFilter.Builder(TRANSFER).build(), 10);
+      });
+      answer.countDown();
+      poll.get(5, TimeUnit.SECONDS);
+      assertEquals(11, engine.getLastScannedBlock());
+      assertEquals(txid(11), first.take().getTxid());
+      assertEquals(txid(11), second.take().getTxid());
+    } finally {
+      answer.countDown();
+      wrapper.close();
+    }
+  }
+
+  private static TransactionInfo.Log transfer(String token, String from, String to, long value) {
+    return TransactionInfo.Log.newBuilder()
+        .setAddress(ApiWrapper.parseAddress(token).substring(1))
+        .addTopics(ByteString.copyFrom(ByteArray.fromHexString(EventEncoder.encode(TRANSFER))))
+        .addTopics(address(from))
+        .addTopics(address(to))
+        .setData(word(value))
+        .build();
+  }
+
+  private static TransactionInfoList transferBlock(long block) {
+    return TransactionInfoList.newBuilder()
+        .addTransactionInfo(info(block, transfer(TOKEN, ALICE, BOB, block)))
+        .build();
+  }
+
+  private static TransactionInfo info(long block, TransactionInfo.Log... logs) {
+    return TransactionInfo.newBuilder()
+        .setId(txid(block))
+        .setBlockNumber(block)
+        .addAllLog(Arrays.asList(logs))
+        .build();
+  }
+
+  private static ByteString txid(long block) {
+    byte[] txid = new byte[32];
+    txid[31] = (byte) block;
+    return ByteString.copyFrom(txid);
+  }
+
+  private static ByteString address(String address) {
+    return ByteString.copyFrom(new byte[12]).concat(ApiWrapper.parseAddress(address).substring(1));
+  }
+
+  /**
+   * A node whose latest block is {@code headNum}.
+   */
+  private static class FakeNode extends ApiWrapper {
+
+    private final AtomicLong headNum;
+
+    FakeNode(AtomicLong headNum) {
+      super("127.0.0.1:1", "127.0.0.1:1",
+          "0000000000000000000000000000000000000000000000000000000000000001");
+      this.headNum = headNum;
+    }
+
+    @Override
+    public BlockExtention getNowBlock2(NodeType... nodeType) {
+      return BlockExtention.newBuilder()
+          .setBlockHeader(BlockHeader.newBuilder()
+              .setRawData(BlockHeader.raw.newBuilder().setNumber(headNum.get())))
+          .build();
+    }
+  }
+
+  private static ByteString word(long value) {
+    byte[] word = new byte[32];
+    for (int i = 0; i < 8; i++) {
+      word[31 - i] = (byte) (value >>> (8 * i));
+    }
+    return ByteString.copyFrom(word);
+  }
+}
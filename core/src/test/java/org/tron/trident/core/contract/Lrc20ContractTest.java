@@ -0,0 +1,59 @@
+package org.linda.trident.core.contract;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.abi.FunctionEncoder;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Function;
+import org.linda.trident.abi.datatypes.Type;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.utils.Numeric;
+
+class Lrc20ContractTest {
+
+  private static final String FROM = "TJRabPrwbZy45sbavfcjinPJC18kjpRTv8";
+  private static final String TO = "41a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+
+  @Test
+  void testTransferCallData() {
+    byte[] data = Lrc20Contract.callData(AbiBytes.selector("transfer(address,uint256)"), 2);
+    Lrc20Contract.writeAddress(data, 0, TO);
+    Lrc20Contract.writeAmount(data, 1, 15, 6);
+
+    assertEquals(68, data.length);
+    assertEquals(encode("transfer", new Address(TO), new Uint256(15_000_000L)),
+        Numeric.toHexStringNoPrefix(data));
+  }
+
+  @Test
+  void testTransferFromCallData() {
+    byte[] data = Lrc20Contract.callData(
+        AbiBytes.selector("transferFrom(address,address,uint256)"), 3);
+    Lrc20Contract.writeAddress(data, 0, FROM);
+    Lrc20Contract.writeAddress(data, 1, TO);
+    Lrc20Contract.writeAmount(data, 2, Long.MAX_VALUE, 18);
+
+    BigInteger amount = BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN.pow(18));
+    assertEquals(encode("transferFrom", new Address(FROM), new Address(TO), new Uint256(amount)),
+        Numeric.toHexStringNoPrefix(data));
+  }
+
+  @Test
+  void testAllowanceCallData() {
+    byte[] data = Lrc20Contract.callData(AbiBytes.selector("allowance(address,address)"), 2);
+    Lrc20Contract.writeAddress(data, 0, FROM);
+    Lrc20Contract.writeAddress(data, 1, TO);
+
+    assertEquals(encode("allowance", new Address(FROM), new Address(TO)),
+        Numeric.toHexStringNoPrefix(data));
+  }
+
+  private static String encode(String name, Type... args) {
+    return FunctionEncoder.encode(
+        new Function(name, Arrays.asList(args), Collections.emptyList()));
+  }
+}
@@ -0,0 +1,102 @@
+package org.linda.trident.core.inceptors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.protobuf.ByteString;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.MethodDescriptor;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.api.GrpcAPI.AccountAddressMessage;
+import org.linda.trident.api.GrpcAPI.BlockLimit;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.interceptor.AliasingMarshallerInterceptor;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.Account;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.BlockListExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+
+public class AliasingMarshallerInterceptorTest {
+
+  @Test
+  public void testParsesHeavyMethodsWithAliasing() {
+    MethodDescriptor<BlockLimit, BlockListExtention> original =
+        WalletGrpc.getGetBlockByLimitNext2Method();
+    MethodDescriptor<BlockLimit, BlockListExtention> rewritten = intercept(original);
+    assertEquals(original.getFullMethodName(), rewritten.getFullMethodName());
+
+    BlockListExtention blocks = largeBlocks(2, 50, 512);
+    BlockListExtention parsed = rewritten.parseResponse(original.streamResponse(blocks));
+    assertEquals(blocks, parsed);
+
+    // an aliased field is a window on the whole response, a copied one has its own array
+    int responseSize = blocks.getSerializedSize();
+    for (BlockExtention block : parsed.getBlockList()) {
+      for (TransactionExtention transaction : block.getTransactionsList()) {
+        ByteBuffer data = transaction.getTransaction().getRawData().getData()
+            .asReadOnlyByteBuffer();
+        assertEquals(responseSize, data.capacity());
+        assertNotEquals(0, data.position());
+      }
+    }
+    ByteBuffer copied = original.parseResponse(new ByteArrayInputStream(blocks.toByteArray()))
+        .getBlock(0).getTransactions(0).getTransaction().getRawData().getData()
+        .asReadOnlyByteBuffer();
+    assertEquals(512, copied.capacity());
+  }
+
+  @Test
+  public void testOtherMethodsUntouched() {
+    MethodDescriptor<AccountAddressMessage, Account> method = WalletGrpc.getGetAccountMethod();
+    assertSame(method, intercept(method));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <ReqT, RespT> MethodDescriptor<ReqT, RespT> intercept(
+      MethodDescriptor<ReqT, RespT> method) {
+    MethodDescriptor<?, ?>[] captured = new MethodDescriptor<?, ?>[1];
+    Channel channel = new Channel() {
+      @Override
+      public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+          MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+        captured[0] = methodDescriptor;
+        return null;
+      }
+
+      @Override
+      public String authority() {
+        return "localhost";
+      }
+    };
+    new AliasingMarshallerInterceptor().interceptCall(method, CallOptions.DEFAULT, channel);
+    return (MethodDescriptor<ReqT, RespT>) captured[0];
+  }
+
+  private static BlockListExtention largeBlocks(int blockCount, int txPerBlock, int dataSize) {
+    Random random = new Random(1);
+    BlockListExtention.Builder list = BlockListExtention.newBuilder();
+    for (int b = 0; b < blockCount; b++) {
+      BlockExtention.Builder block = BlockExtention.newBuilder();
+      for (int t = 0; t < txPerBlock; t++) {
+        byte[] data = new byte[dataSize];
+        byte[] signature = new byte[65];
+        random.nextBytes(data);
+        random.nextBytes(signature);
+        block.addTransactions(TransactionExtention.newBuilder()
+            .setTransaction(Transaction.newBuilder()
+                .setRawData(Transaction.raw.newBuilder().setData(ByteString.copyFrom(data)))
+                .addSignature(ByteString.copyFrom(signature)))
+            .setTxid(ByteString.copyFrom(signature, 0, 32)));
+      }
+      list.addBlock(block);
+    }
+    return list.build();
+  }
+}
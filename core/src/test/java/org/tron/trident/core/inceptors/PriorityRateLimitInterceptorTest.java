@@ -0,0 +1,206 @@
+package org.linda.trident.core.inceptors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.interceptor.PriorityRateLimitInterceptor;
+import org.linda.trident.core.interceptor.PriorityRateLimitInterceptor.Lane;
+import org.linda.trident.core.key.KeyPair;
+
+public class PriorityRateLimitInterceptorTest {
+
+  private static final CallOptions.Key<String> TAG = CallOptions.Key.create("test-tag");
+  private static final MethodDescriptor<?, ?> NOW_BLOCK = WalletGrpc.getGetNowBlock2Method();
+  private static final MethodDescriptor<?, ?> BLOCK_RANGE =
+      WalletGrpc.getGetBlockByLimitNext2Method();
+
+  @Test
+  public void testHigherLanesOvertakeQueuedCalls() throws Exception {
+    PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(5)
+        .setBurst(1)
+        .build();
+    FakeChannel channel = new FakeChannel(Status.OK);
+    call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "first");
+
+    List<Thread> threads = new ArrayList<>();
+    for (String tag : Arrays.asList("bulk-1", "bulk-2")) {
+      threads.add(start(() -> call(limiter, channel, NOW_BLOCK,
+          CallOptions.DEFAULT.withOption(PriorityRateLimitInterceptor.LANE_OPTION, Lane.BULK),
+          tag)));
+      Thread.sleep(30);
+    }
+    threads.add(start(() -> PriorityRateLimitInterceptor.runIn(Lane.CRITICAL,
+        () -> call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "critical"))));
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(Arrays.asList("first", "critical", "bulk-1", "bulk-2"), channel.tags);
+    assertEquals(2, limiter.getStats(Lane.BULK).getGranted());
+    assertEquals(1, limiter.getStats(Lane.CRITICAL).getGranted());
+    assertEquals(0, limiter.getStats(Lane.BULK).getQueued());
+    assertTrue(limiter.getStats(Lane.BULK).getMaxWaitNanos()
+        > limiter.getStats(Lane.CRITICAL).getMaxWaitNanos());
+  }
+
+  @Test
+  public void testCostAndDeadline() {
+    PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(10)
+        .setMethodCost(BLOCK_RANGE.getFullMethodName(), 10)
+        .build();
+    FakeChannel channel = new FakeChannel(Status.OK);
+
+    assertEquals(Status.Code.OK,
+        call(limiter, channel, BLOCK_RANGE, CallOptions.DEFAULT, "range-1"));
+    // the bucket is empty for one second
+    assertEquals(Status.Code.DEADLINE_EXCEEDED, call(limiter, channel, NOW_BLOCK,
+        CallOptions.DEFAULT.withDeadlineAfter(50, TimeUnit.MILLISECONDS), "block"));
+    assertEquals(Collections.singletonList("range-1"), channel.tags);
+    assertEquals(1, limiter.getStats(Lane.NORMAL).getExpired());
+    assertEquals(0, limiter.getStats(Lane.NORMAL).getQueued());
+  }
+
+  @Test
+  public void testContextDeadline() throws Exception {
+    PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(0.01).build();
+    FakeChannel channel = new FakeChannel(Status.OK);
+    call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "first");
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      Status.Code code = Context.current().withDeadlineAfter(50, TimeUnit.MILLISECONDS, scheduler)
+          .call(() -> call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "second"));
+      assertEquals(Status.Code.DEADLINE_EXCEEDED, code);
+      assertEquals(Collections.singletonList("first"), channel.tags);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testApiWrapperTimeout() {
+    PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(0.01).build();
+    ApiWrapper wrapper = new ApiWrapper("127.0.0.1:1", "127.0.0.1:1",
+        KeyPair.generate().toPrivateKey(), Collections.singletonList(limiter), 200);
+    try {
+      // takes the only token, nothing listens on the port
+      assertThrows(StatusRuntimeException.class, wrapper::getNowBlock2);
+      StatusRuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+          () -> assertThrows(StatusRuntimeException.class, wrapper::getNowBlock2));
+      assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+      assertEquals(1, limiter.getStats(Lane.NORMAL).getExpired());
+    } finally {
+      wrapper.close();
+    }
+  }
+
+  @Test
+  public void testResourceExhaustedLowersRate() {
+    PriorityRateLimitInterceptor limiter = new PriorityRateLimitInterceptor.Builder(100).build();
+
+    FakeChannel throttling = new FakeChannel(Status.RESOURCE_EXHAUSTED);
+    assertEquals(Status.Code.RESOURCE_EXHAUSTED,
+        call(limiter, throttling, NOW_BLOCK, CallOptions.DEFAULT, "throttled"));
+    assertEquals(1, limiter.getThrottledCount());
+    assertEquals(50, limiter.getEffectiveRate(), 1e-9);
+
+    FakeChannel channel = new FakeChannel(Status.OK);
+    long start = System.nanoTime();
+    call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "ok-1");
+    // the bucket was emptied, the call waited for a token at the lowered rate
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+    assertEquals(52, limiter.getEffectiveRate(), 1e-9);
+    for (int i = 0; i < 30; i++) {
+      call(limiter, channel, NOW_BLOCK, CallOptions.DEFAULT, "ok");
+    }
+    assertEquals(100, limiter.getEffectiveRate(), 1e-9);
+  }
+
+  private static Thread start(Runnable task) {
+    Thread thread = new Thread(task);
+    thread.start();
+    return thread;
+  }
+
+  private static <ReqT, RespT> Status.Code call(PriorityRateLimitInterceptor limiter,
+      FakeChannel channel, MethodDescriptor<ReqT, RespT> method, CallOptions callOptions,
+      String tag) {
+    Status[] closed = new Status[1];
+    ClientCall<ReqT, RespT> call =
+        limiter.interceptCall(method, callOptions.withOption(TAG, tag), channel);
+    call.start(new ClientCall.Listener<RespT>() {
+      @Override
+      public void onClose(Status status, Metadata trailers) {
+        closed[0] = status;
+      }
+    }, new Metadata());
+    return closed[0].getCode();
+  }
+
+  /**
+   * Records the tag of each call reaching it and closes the calls with {@code status}.
+   */
+  private static final class FakeChannel extends Channel {
+
+    private final Status status;
+    private final List<String> tags = Collections.synchronizedList(new ArrayList<>());
+
+    FakeChannel(Status status) {
+      this.status = status;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+        MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+      tags.add(callOptions.getOption(TAG));
+      return new ClientCall<ReqT, RespT>() {
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+          responseListener.onClose(status, new Metadata());
+        }
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void halfClose() {
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+        }
+      };
+    }
+
+    @Override
+    public String authority() {
+      return "fake";
+    }
+  }
+}
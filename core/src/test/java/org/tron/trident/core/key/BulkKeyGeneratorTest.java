@@ -0,0 +1,84 @@
+package org.linda.trident.core.key;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.utils.Base58Check;
+
+class BulkKeyGeneratorTest {
+
+  @Test
+  void testKeysMatchKeyPair() {
+    try (BulkKeyGenerator generator = new BulkKeyGenerator.Builder()
+        .setParallelism(4)
+        .setBatchSize(64)
+        .build()) {
+      List<BulkKeyGenerator.GeneratedKey> keys = generator.generate(300);
+      assertEquals(300, keys.size());
+
+      Set<String> addresses = new HashSet<>();
+      for (BulkKeyGenerator.GeneratedKey key : keys) {
+        KeyPair expected = new KeyPair(key.toPrivateKey());
+        assertEquals(expected.toPublicKey(), key.toPublicKey());
+        assertEquals(expected.toBase58CheckAddress(), key.toBase58CheckAddress());
+        assertEquals(expected.toHexAddress(), key.toHexAddress());
+        assertArrayEquals(Hex.decode(expected.toHexAddress()), key.getAddress());
+        assertArrayEquals(key.getAddress(),
+            Base58Check.base58ToBytes(key.toBase58CheckAddress()));
+        assertEquals(expected.toBase58CheckAddress(), key.toKeyPair().toBase58CheckAddress());
+        addresses.add(key.toBase58CheckAddress());
+      }
+      assertEquals(300, addresses.size());
+    }
+  }
+
+  @Test
+  void testStreamToSink() {
+    try (BulkKeyGenerator generator = new BulkKeyGenerator.Builder()
+        .setParallelism(3)
+        .setBatchSize(100)
+        .build()) {
+      AtomicInteger count = new AtomicInteger();
+      generator.generate(1001, key -> count.incrementAndGet());
+      assertEquals(1001, count.get());
+
+      generator.generate(0, key -> count.incrementAndGet());
+      assertEquals(1001, count.get());
+    }
+  }
+
+  @Test
+  void testSinkFailure() {
+    try (BulkKeyGenerator generator = new BulkKeyGenerator.Builder()
+        .setParallelism(4)
+        .setBatchSize(16)
+        .build()) {
+      IllegalStateException failure = new IllegalStateException("full");
+      AtomicInteger count = new AtomicInteger();
+      IllegalStateException thrown = assertThrows(IllegalStateException.class,
+          () -> generator.generate(10_000, key -> {
+            if (count.incrementAndGet() == 20) {
+              throw failure;
+            }
+          }));
+      assertSame(failure, thrown);
+      assertEquals(20, count.get());
+    }
+  }
+
+  @Test
+  void testInvalidSettings() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new BulkKeyGenerator.Builder().setParallelism(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new BulkKeyGenerator.Builder().setBatchSize(0));
+  }
+}
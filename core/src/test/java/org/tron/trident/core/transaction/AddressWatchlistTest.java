@@ -0,0 +1,153 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferAssetContract;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+class AddressWatchlistTest {
+
+  private static final ByteString WATCHED =
+      ApiWrapper.parseAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t");
+  private static final ByteString OTHER =
+      ApiWrapper.parseAddress("TJRabPrwbZy45sbavfcjinPJC18kjpRTv8");
+  private static final ByteString TOKEN =
+      ApiWrapper.parseAddress("TXLAQ63Xg1NAzckPwKHvzw7CSEmLMEqcdj");
+
+  @Test
+  void testScan() {
+    try (AddressWatchlist watchlist = new AddressWatchlist.Builder(16)
+        .setBloomBitsPerAddress(10)
+        .setParallelism(2)
+        .setChunkSize(1)
+        .build()) {
+      assertTrue(watchlist.add(WATCHED.toByteArray()));
+      assertFalse(watchlist.add("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t"));
+
+      BlockExtention block = BlockExtention.newBuilder()
+          .addTransactions(extention(ContractType.TransferContract, TransferContract.newBuilder()
+              .setOwnerAddress(OTHER).setToAddress(WATCHED).setAmount(5).build()))
+          .addTransactions(extention(ContractType.TransferContract, TransferContract.newBuilder()
+              .setOwnerAddress(OTHER).setToAddress(OTHER).setAmount(6).build()))
+          .addTransactions(extention(ContractType.TransferAssetContract,
+              TransferAssetContract.newBuilder().setAssetName(ByteString.copyFromUtf8("1000001"))
+                  .setOwnerAddress(WATCHED).setToAddress(OTHER).setAmount(7).build()))
+          .build();
+      List<TransactionInfo> infos = Arrays.asList(
+          TransactionInfo.getDefaultInstance(),
+          TransactionInfo.getDefaultInstance(),
+          TransactionInfo.getDefaultInstance(),
+          TransactionInfo.newBuilder()
+              .addLog(transferLog(OTHER, WATCHED, BigInteger.TEN.pow(20)))
+              // LRC-721 transfer, same topic 0 with the token id indexed
+              .addLog(transferLog(OTHER, WATCHED, BigInteger.ONE).toBuilder()
+                  .addTopics(word(BigInteger.ONE)))
+              .addLog(transferLog(OTHER, OTHER, BigInteger.ONE))
+              .build());
+
+      List<AddressWatchlist.Match> matches = watchlist.scan(block, infos);
+      assertEquals(3, matches.size());
+
+      AddressWatchlist.Match transfer = matches.get(0);
+      assertEquals(AddressWatchlist.Match.Kind.TRANSFER, transfer.getKind());
+      assertEquals(0, transfer.getTransactionIndex());
+      assertEquals(BigInteger.valueOf(5), transfer.getAmount());
+      assertFalse(transfer.isFromWatched());
+      assertTrue(transfer.isToWatched());
+      assertEquals(BlockView.of(block).getTransaction(0).getTxid(), transfer.getTxid());
+
+      AddressWatchlist.Match asset = matches.get(1);
+      assertEquals(AddressWatchlist.Match.Kind.TRANSFER_ASSET, asset.getKind());
+      assertEquals(2, asset.getTransactionIndex());
+      assertEquals("1000001", asset.getToken().toStringUtf8());
+      assertTrue(asset.isFromWatched());
+
+      AddressWatchlist.Match lrc20 = matches.get(2);
+      assertEquals(AddressWatchlist.Match.Kind.LRC20_TRANSFER, lrc20.getKind());
+      assertEquals(3, lrc20.getTransactionIndex());
+      assertEquals(0, lrc20.getLogIndex());
+      assertEquals(TOKEN, lrc20.getToken());
+      assertEquals(OTHER, lrc20.getFrom());
+      assertEquals(WATCHED, lrc20.getTo());
+      assertEquals(BigInteger.TEN.pow(20), lrc20.getAmount());
+
+      assertTrue(watchlist.remove(WATCHED.toByteArray()));
+      assertTrue(watchlist.scan(block, infos).isEmpty());
+    }
+  }
+
+  @Test
+  void testBloomFilterHasNoFalseNegatives() {
+    Random random = new Random(7);
+    byte[][] addresses = new byte[10_000][];
+    try (AddressWatchlist watchlist = new AddressWatchlist.Builder(addresses.length)
+        .setBloomBitsPerAddress(8)
+        .setParallelism(1)
+        .build()) {
+      for (int i = 0; i < addresses.length; i++) {
+        addresses[i] = new byte[AddressWatchlist.ADDRESS_SIZE];
+        random.nextBytes(addresses[i]);
+        addresses[i][0] = 0x41;
+        watchlist.add(addresses[i]);
+      }
+      for (byte[] address : addresses) {
+        assertTrue(watchlist.contains(address));
+      }
+      byte[] unknown = addresses[0].clone();
+      unknown[20] ^= 1;
+      assertFalse(watchlist.contains(unknown));
+      assertTrue(watchlist.scan(BlockExtention.getDefaultInstance(), Collections.emptyList())
+          .isEmpty());
+    }
+  }
+
+  private static TransactionExtention extention(ContractType type, Message parameter) {
+    return TransactionExtention.newBuilder()
+        .setTransaction(Transaction.newBuilder()
+            .setRawData(Transaction.raw.newBuilder()
+                .addContract(Transaction.Contract.newBuilder()
+                    .setType(type)
+                    .setParameter(Any.pack(parameter)))))
+        .build();
+  }
+
+  private static TransactionInfo.Log transferLog(ByteString from, ByteString to,
+      BigInteger amount) {
+    return TransactionInfo.Log.newBuilder()
+        .setAddress(TOKEN.substring(1))
+        .addTopics(AddressWatchlist.TRANSFER_TOPIC)
+        .addTopics(word(from.substring(1)))
+        .addTopics(word(to.substring(1)))
+        .setData(word(amount))
+        .build();
+  }
+
+  private static ByteString word(ByteString address) {
+    return ByteString.copyFrom(new byte[12]).concat(address);
+  }
+
+  private static ByteString word(BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    byte[] word = new byte[32];
+    int length = Math.min(bytes.length, 32);
+    System.arraycopy(bytes, bytes.length - length, word, 32 - length, length);
+    return ByteString.copyFrom(word);
+  }
+}
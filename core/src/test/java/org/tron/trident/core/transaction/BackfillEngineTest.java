@@ -0,0 +1,126 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.Status;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+class BackfillEngineTest {
+
+  @Test
+  void testDeliversInOrderDespiteFailures() throws Exception {
+    BackfillEngine engine = new BackfillEngine.Builder(10, 509)
+        .setChunkSize(7)
+        .setWorkersPerEndpoint(3)
+        .addEndpoint(new FakeSource(0), 10_000)
+        // fails every third block request
+        .addEndpoint(new FakeSource(3), 10_000)
+        .build();
+
+    List<Long> heights = new ArrayList<>();
+    engine.run((block, infos) -> {
+      long num = block.getBlockHeader().getRawData().getNumber();
+      heights.add(num);
+      assertEquals(num, infos.getTransactionInfo(0).getBlockNumber());
+    });
+
+    assertEquals(500, heights.size());
+    for (int i = 0; i < heights.size(); i++) {
+      assertEquals(10 + i, (long) heights.get(i));
+    }
+    assertEquals(500, engine.getDeliveredBlocks());
+    assertEquals(509, engine.getLastDelivered());
+    assertTrue(engine.getBlocksPerSecond() > 0);
+  }
+
+  @Test
+  void testResumesFromCheckpoint() throws Exception {
+    Path checkpoint = Files.createTempFile("backfill", ".checkpoint");
+    try {
+      Files.write(checkpoint, "149".getBytes(StandardCharsets.UTF_8));
+      BackfillEngine engine = new BackfillEngine.Builder(100, 199)
+          .addEndpoint(new FakeSource(0), 10_000)
+          .setCheckpointFile(checkpoint)
+          .build();
+
+      List<Long> heights = new ArrayList<>();
+      engine.run((block, infos) -> heights.add(block.getBlockHeader().getRawData().getNumber()));
+      assertEquals(50, heights.size());
+      assertEquals(150, (long) heights.get(0));
+      assertEquals("199", new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+
+      heights.clear();
+      engine.run((block, infos) -> heights.add(block.getBlockHeader().getRawData().getNumber()));
+      assertTrue(heights.isEmpty());
+    } finally {
+      Files.deleteIfExists(checkpoint);
+    }
+  }
+
+  @Test
+  void testFailsAfterMaxAttempts() {
+    BackfillEngine engine = new BackfillEngine.Builder(0, 9)
+        .addEndpoint(new FakeSource(1), 10_000)
+        .setMaxAttempts(2)
+        .build();
+    assertThrows(RuntimeException.class, () -> engine.run((block, infos) -> { }));
+  }
+
+  /**
+   * Serves synthetic blocks with one transaction each, out of order timing.
+   */
+  private static final class FakeSource implements BackfillEngine.Source {
+
+    private final int failEvery;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    FakeSource(int failEvery) {
+      this.failEvery = failEvery;
+    }
+
+    @Override
+    public List<BlockExtention> getBlocks(long start, long end) throws IllegalException {
+      if (failEvery > 0 && requests.incrementAndGet() % failEvery == 0) {
+        throw Status.UNAVAILABLE.asRuntimeException();
+      }
+      try {
+        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      List<BlockExtention> blocks = new ArrayList<>();
+      for (long num = start; num < end; num++) {
+        blocks.add(BlockExtention.newBuilder()
+            .setBlockHeader(BlockHeader.newBuilder()
+                .setRawData(BlockHeader.raw.newBuilder().setNumber(num)))
+            .addTransactions(TransactionExtention.newBuilder()
+                .setTransaction(Transaction.getDefaultInstance()))
+            .build());
+      }
+      return blocks;
+    }
+
+    @Override
+    public TransactionInfoList getTransactionInfos(long blockNum) {
+      return TransactionInfoList.newBuilder()
+          .addTransactionInfo(TransactionInfo.newBuilder().setBlockNumber(blockNum))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.Utils;
+import org.linda.trident.proto.Chain.Block;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+
+class BlockViewTest {
+
+  private static final ByteString OWNER =
+      ApiWrapper.parseAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t");
+
+  @Test
+  void testTransactionsByType() throws InvalidProtocolBufferException {
+    BlockView block = BlockView.of(block());
+
+    List<Integer> indexes = new ArrayList<>();
+    for (BlockView.TransactionView txn : block.transactions(ContractType.TransferContract)) {
+      indexes.add(txn.getIndex());
+      assertEquals(txn.getIndex() + 1, txn.getParameter(TransferContract.class).getAmount());
+    }
+    assertEquals(2, indexes.size());
+    assertEquals(0, (int) indexes.get(0));
+    assertEquals(2, (int) indexes.get(1));
+    assertEquals(2, block.count(ContractType.TransferContract));
+    assertEquals(1, block.count(ContractType.TriggerSmartContract));
+    assertFalse(block.transactions(ContractType.VoteWitnessContract).iterator().hasNext());
+
+    int all = 0;
+    for (BlockView.TransactionView ignored : block.transactions()) {
+      all++;
+    }
+    assertEquals(3, all);
+  }
+
+  @Test
+  void testParameterParsedOnDemand() throws InvalidProtocolBufferException {
+    BlockView block = BlockView.of(block());
+
+    // the trigger payload is not a valid message, only parsing it fails
+    BlockView.TransactionView trigger = block.getTransaction(1);
+    assertThrows(InvalidProtocolBufferException.class, trigger::getParameter);
+
+    BlockView.TransactionView transfer = block.getTransaction(0);
+    Message parameter = transfer.getParameter();
+    assertSame(parameter, transfer.getParameter());
+    assertEquals(transfer(1).getRawData().getContract(0).getParameter()
+        .unpack(TransferContract.class), parameter);
+    assertThrows(IllegalArgumentException.class,
+        () -> transfer.getParameter(TriggerSmartContract.class));
+  }
+
+  @Test
+  void testTxid() {
+    Block block = block();
+    BlockView view = BlockView.of(block);
+    assertArrayEquals(ApiWrapper.calculateTransactionHash(block.getTransactions(2)),
+        view.getTransaction(2).getTxid().toByteArray());
+
+    ByteString sent = ByteString.copyFrom(new byte[32]);
+    BlockExtention extention = BlockExtention.newBuilder()
+        .addTransactions(TransactionExtention.newBuilder()
+            .setTransaction(block.getTransactions(0))
+            .setTxid(sent))
+        .build();
+    assertSame(sent, BlockView.of(extention).getTransaction(0).getTxid());
+  }
+
+  @Test
+  void testBlockId() {
+    Block block = block();
+    BlockExtention extention = BlockExtention.newBuilder()
+        .setBlockHeader(block.getBlockHeader())
+        .build();
+    BlockId expected = Utils.getBlockId(extention);
+
+    assertEquals(expected, BlockView.of(block).getBlockId());
+    assertEquals(expected, BlockView.of(extention.toBuilder()
+        .setBlockid(ByteString.copyFrom(expected.getBytes())).build()).getBlockId());
+    assertEquals(1234, BlockView.of(block).getBlockId().getNum());
+  }
+
+  private static Block block() {
+    Transaction trigger = Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .addContract(Transaction.Contract.newBuilder()
+                .setType(ContractType.TriggerSmartContract)
+                .setParameter(Any.newBuilder()
+                    .setTypeUrl("type.googleapis.com/protocol.TriggerSmartContract")
+                    .setValue(ByteString.copyFrom(new byte[] {(byte) 0xff, (byte) 0xff})))))
+        .build();
+    return Block.newBuilder()
+        .setBlockHeader(BlockHeader.newBuilder()
+            .setRawData(BlockHeader.raw.newBuilder().setNumber(1234).setTimestamp(1000L)))
+        .addTransactions(transfer(1))
+        .addTransactions(trigger)
+        .addTransactions(transfer(3))
+        .build();
+  }
+
+  private static Transaction transfer(long amount) {
+    TransferContract transfer = TransferContract.newBuilder()
+        .setOwnerAddress(OWNER)
+        .setToAddress(OWNER)
+        .setAmount(amount)
+        .build();
+    return Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .addContract(Transaction.Contract.newBuilder()
+                .setType(ContractType.TransferContract)
+                .setParameter(Any.pack(transfer))))
+        .build();
+  }
+}
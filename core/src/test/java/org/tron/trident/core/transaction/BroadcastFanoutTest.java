@@ -0,0 +1,92 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionReturn;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+class BroadcastFanoutTest {
+
+  private static final Transaction TXN = Transaction.newBuilder()
+      .setRawData(Transaction.raw.newBuilder().setTimestamp(1L))
+      .build();
+
+  @Test
+  void testFirstSuccessWins() {
+    SettableFuture<TransactionReturn> slow = SettableFuture.create();
+    SettableFuture<TransactionReturn> fast = SettableFuture.create();
+    try (BroadcastFanout fanout = new BroadcastFanout.Builder()
+        .addEndpoint("slow", txn -> slow)
+        .addEndpoint("fast", txn -> fast)
+        .build()) {
+      CompletableFuture<String> result = fanout.broadcastAsync(TXN);
+      assertFalse(result.isDone());
+
+      fast.set(TransactionReturn.newBuilder().setResult(true).build());
+      assertEquals(ByteArray.toHexString(ApiWrapper.calculateTransactionHash(TXN)),
+          result.join());
+
+      slow.set(ret(response_code.DUP_TRANSACTION_ERROR, "dup"));
+      List<BroadcastFanout.EndpointStats> stats = fanout.getStats();
+      assertEquals(2, stats.size());
+      assertEquals(1, stats.get(0).getAccepted());
+      assertEquals(1, stats.get(1).getAccepted());
+    }
+  }
+
+  @Test
+  void testDupCountsAsSuccess() {
+    try (BroadcastFanout fanout = new BroadcastFanout.Builder()
+        .addEndpoint("a", txn -> SettableFuture.create())
+        .addEndpoint("b", txn -> immediate(ret(response_code.DUP_TRANSACTION_ERROR, "dup")))
+        .build()) {
+      assertTrue(fanout.broadcastAsync(TXN).isDone());
+    }
+  }
+
+  @Test
+  void testAllRejected() {
+    SettableFuture<TransactionReturn> error = SettableFuture.create();
+    error.setException(Status.UNAVAILABLE.asRuntimeException());
+    try (BroadcastFanout fanout = new BroadcastFanout.Builder()
+        .addEndpoint("a", txn -> immediate(ret(response_code.SIGERROR, "bad sig")))
+        .addEndpoint("b", txn -> error)
+        .build()) {
+      RuntimeException e = assertThrows(RuntimeException.class, () -> fanout.broadcast(TXN));
+      assertFalse(e instanceof CompletionException);
+      assertEquals("SIGERROR, bad sig", e.getMessage());
+      assertEquals(1, e.getSuppressed().length);
+
+      BroadcastFanout.EndpointStats a = fanout.getStats().stream()
+          .filter(s -> s.getName().equals("a")).findFirst().get();
+      assertEquals(1, a.getRejected());
+    }
+  }
+
+  private static TransactionReturn ret(response_code code, String message) {
+    return TransactionReturn.newBuilder()
+        .setResult(false)
+        .setCode(code)
+        .setMessage(ByteString.copyFromUtf8(message))
+        .build();
+  }
+
+  private static SettableFuture<TransactionReturn> immediate(TransactionReturn ret) {
+    SettableFuture<TransactionReturn> future = SettableFuture.create();
+    future.set(ret);
+    return future;
+  }
+}
@@ -0,0 +1,172 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.exceptions.TransactionExpiredException;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+class ConfirmationTrackerTest {
+
+  @Test
+  void testScanAndExpire() throws Exception {
+    try (ConfirmationTracker tracker = new ConfirmationTracker.Builder(null)
+        .setPollIntervalMillis(0)
+        .build()) {
+      byte[] first = txid(1);
+      byte[] second = txid(2);
+      CompletableFuture<TransactionInfo> confirmed = tracker.track(first, 1_000L);
+      CompletableFuture<TransactionInfo> expired = tracker.track(second, 2_000L);
+      assertEquals(2, tracker.getPendingCount());
+
+      TransactionInfo info = TransactionInfo.newBuilder()
+          .setId(ByteString.copyFrom(first))
+          .setBlockNumber(100)
+          .build();
+      tracker.scan(Arrays.asList(info, TransactionInfo.newBuilder()
+          .setId(ByteString.copyFrom(txid(3))).build()));
+      assertSame(info, confirmed.get());
+      assertEquals(1, tracker.getPendingCount());
+
+      tracker.expire(2_000L);
+      assertFalse(expired.isDone());
+      tracker.expire(2_001L);
+      ExecutionException e = assertThrows(ExecutionException.class, expired::get);
+      assertTrue(e.getCause() instanceof TransactionExpiredException);
+      assertEquals(0, tracker.getPendingCount());
+    }
+  }
+
+  @Test
+  void testTrackTwice() throws Exception {
+    try (ConfirmationTracker tracker = new ConfirmationTracker.Builder(null)
+        .setPollIntervalMillis(0)
+        .build()) {
+      CompletableFuture<TransactionInfo> a = tracker.track(txid(7), 1_000L);
+      CompletableFuture<TransactionInfo> b = tracker.track(txid(7), 1_000L);
+      tracker.scan(Collections.singletonList(TransactionInfo.newBuilder()
+          .setId(ByteString.copyFrom(txid(7))).build()));
+      assertTrue(a.isDone());
+      assertSame(a.get(), b.get());
+      assertEquals(0, tracker.getPendingCount());
+    }
+  }
+
+  @Test
+  void testTrackAfterBlockWasScanned() throws Exception {
+    Map<Long, TransactionInfoList> blocks = new HashMap<>();
+    AtomicLong headNum = new AtomicLong(10);
+    ApiWrapper wrapper = new ApiWrapper("127.0.0.1:1", "127.0.0.1:1",
+        "0000000000000000000000000000000000000000000000000000000000000001") {
+      @Override
+      public BlockExtention getNowBlock2(NodeType... nodeType) {
+        return BlockExtention.newBuilder()
+            .setBlockHeader(BlockHeader.newBuilder()
+                .setRawData(BlockHeader.raw.newBuilder().setNumber(headNum.get())))
+            .build();
+      }
+
+      @Override
+      public TransactionInfoList getTransactionInfoByBlockNum(long blockNum,
+          NodeType... nodeType) {
+        return blocks.getOrDefault(blockNum, TransactionInfoList.getDefaultInstance());
+      }
+    };
+    try (ConfirmationTracker tracker = new ConfirmationTracker.Builder(wrapper)
+        .setPollIntervalMillis(0)
+        .setLookbackBlocks(5)
+        .build()) {
+      CompletableFuture<TransactionInfo> other = tracker.track(txid(1), Long.MAX_VALUE);
+      blocks.put(10L, TransactionInfoList.newBuilder()
+          .addTransactionInfo(TransactionInfo.newBuilder().setId(ByteString.copyFrom(txid(2))))
+          .build());
+      tracker.poll();
+      headNum.set(11);
+      tracker.poll();
+
+      // block 10 was scanned while only txid(1) was pending
+      CompletableFuture<TransactionInfo> late = tracker.track(txid(2), Long.MAX_VALUE);
+      tracker.poll();
+      assertTrue(late.isDone());
+      assertEquals(ByteString.copyFrom(txid(2)), late.get().getId());
+      assertFalse(other.isDone());
+    } finally {
+      wrapper.close();
+    }
+  }
+
+  @Test
+  void testLookbackDoesNotFetchBlocksAgain() throws Exception {
+    Map<Long, TransactionInfoList> blocks = new HashMap<>();
+    Map<Long, Integer> fetches = new HashMap<>();
+    AtomicLong headNum = new AtomicLong(100);
+    ApiWrapper wrapper = new ApiWrapper("127.0.0.1:1", "127.0.0.1:1",
+        "0000000000000000000000000000000000000000000000000000000000000001") {
+      @Override
+      public BlockExtention getNowBlock2(NodeType... nodeType) {
+        return BlockExtention.newBuilder()
+            .setBlockHeader(BlockHeader.newBuilder()
+                .setRawData(BlockHeader.raw.newBuilder().setNumber(headNum.get())))
+            .build();
+      }
+
+      @Override
+      public TransactionInfoList getTransactionInfoByBlockNum(long blockNum,
+          NodeType... nodeType) {
+        fetches.merge(blockNum, 1, Integer::sum);
+        return blocks.getOrDefault(blockNum, TransactionInfoList.getDefaultInstance());
+      }
+    };
+    try (ConfirmationTracker tracker = new ConfirmationTracker.Builder(wrapper)
+        .setPollIntervalMillis(0)
+        .build()) {
+      tracker.track(txid(1), Long.MAX_VALUE);
+      for (int i = 0; i < 10; i++) {
+        blocks.put(headNum.get(), TransactionInfoList.newBuilder()
+            .addTransactionInfo(TransactionInfo.newBuilder()
+                .setId(ByteString.copyFrom(txid(100 + i))))
+            .build());
+        tracker.poll();
+        // tracked between every two polls
+        tracker.track(txid(50 + i), Long.MAX_VALUE);
+        headNum.incrementAndGet();
+      }
+      assertEquals(30, fetches.size());
+      for (int count : fetches.values()) {
+        assertEquals(1, count);
+      }
+
+      // a block holding a newly tracked transaction is fetched again
+      CompletableFuture<TransactionInfo> late = tracker.track(txid(105), Long.MAX_VALUE);
+      tracker.poll();
+      assertTrue(late.isDone());
+      assertEquals(2, (int) fetches.get(105L));
+      assertEquals(1, (int) fetches.get(104L));
+    } finally {
+      wrapper.close();
+    }
+  }
+
+  private static byte[] txid(int seed) {
+    byte[] txid = new byte[32];
+    Arrays.fill(txid, (byte) seed);
+    return txid;
+  }
+}
@@ -0,0 +1,185 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.proto.Chain.Transaction;
+
+class PendingPoolWatcherTest {
+
+  @Test
+  void testDiffsAndFetchesOnlyNewTransactions() {
+    FakePool pool = new FakePool();
+    List<String> added = Collections.synchronizedList(new ArrayList<>());
+    List<String> removed = new ArrayList<>();
+    PendingPoolWatcher.Listener listener = new PendingPoolWatcher.Listener() {
+      @Override
+      public void onAdded(String txid, Transaction transaction) {
+        added.add(txid);
+      }
+
+      @Override
+      public void onRemoved(String txid, Transaction transaction) {
+        assertNotNull(transaction);
+        removed.add(txid);
+      }
+    };
+    try (PendingPoolWatcher watcher = new PendingPoolWatcher.Builder(pool, listener)
+        .setPollIntervalMillis(0)
+        .setFetchParallelism(2)
+        .build()) {
+      pool.listed = Arrays.asList(txid(1), txid(2), txid(3));
+      watcher.poll();
+      Collections.sort(added);
+      assertEquals(Arrays.asList(txid(1), txid(2), txid(3)), added);
+      assertEquals(3, pool.fetches.get());
+      assertEquals(3, watcher.getPendingCount());
+
+      added.clear();
+      pool.listed = Arrays.asList(txid(2), txid(3), txid(4), txid(4));
+      watcher.poll();
+      assertEquals(Collections.singletonList(txid(4)), added);
+      assertEquals(Collections.singletonList(txid(1)), removed);
+      assertEquals(4, pool.fetches.get());
+      assertEquals(3, watcher.getPendingCount());
+
+      // a transaction coming back is served from the cache
+      added.clear();
+      pool.listed = Arrays.asList(txid(1), txid(2), txid(3), txid(4));
+      watcher.poll();
+      assertEquals(Collections.singletonList(txid(1)), added);
+      assertEquals(4, pool.fetches.get());
+    }
+  }
+
+  @Test
+  void testTransactionGoneBeforeFetchIsRetried() {
+    FakePool pool = new FakePool();
+    List<String> added = Collections.synchronizedList(new ArrayList<>());
+    try (PendingPoolWatcher watcher = new PendingPoolWatcher.Builder(pool,
+        (txid, transaction) -> added.add(txid))
+        .setPollIntervalMillis(0)
+        .build()) {
+      pool.listed = Collections.singletonList(txid(5));
+      pool.gone.put(txid(5), true);
+      watcher.poll();
+      assertTrue(added.isEmpty());
+      assertEquals(0, watcher.getPendingCount());
+
+      pool.gone.clear();
+      watcher.poll();
+      assertEquals(Collections.singletonList(txid(5)), added);
+      assertNotNull(watcher.getCachedTransaction(txid(5)));
+      assertEquals(2, pool.fetches.get());
+    }
+  }
+
+  @Test
+  void testFailingListenerDoesNotRepeatChanges() {
+    FakePool pool = new FakePool();
+    List<String> added = Collections.synchronizedList(new ArrayList<>());
+    List<String> removed = new ArrayList<>();
+    PendingPoolWatcher.Listener listener = new PendingPoolWatcher.Listener() {
+      @Override
+      public void onAdded(String txid, Transaction transaction) {
+        added.add(txid);
+        throw new IllegalStateException("added");
+      }
+
+      @Override
+      public void onRemoved(String txid, Transaction transaction) {
+        removed.add(txid);
+        throw new IllegalStateException("removed");
+      }
+    };
+    try (PendingPoolWatcher watcher = new PendingPoolWatcher.Builder(pool, listener)
+        .setPollIntervalMillis(0)
+        .build()) {
+      pool.listed = Arrays.asList(txid(1), txid(2));
+      watcher.poll();
+      assertEquals(2, added.size());
+      assertEquals(2, watcher.getPendingCount());
+
+      pool.listed = Collections.emptyList();
+      watcher.poll();
+      watcher.poll();
+      Collections.sort(removed);
+      assertEquals(Arrays.asList(txid(1), txid(2)), removed);
+      assertEquals(2, added.size());
+      assertEquals(0, watcher.getPendingCount());
+    }
+  }
+
+  @Test
+  void testCloseReleasesPollWaitingForFetches() throws Exception {
+    CountDownLatch fetching = new CountDownLatch(1);
+    CountDownLatch never = new CountDownLatch(1);
+    FakePool pool = new FakePool() {
+      @Override
+      public Transaction getPendingTransaction(String txid) {
+        fetching.countDown();
+        try {
+          never.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return null;
+      }
+    };
+    pool.listed = Arrays.asList(txid(1), txid(2), txid(3));
+    PendingPoolWatcher watcher = new PendingPoolWatcher.Builder(pool, (txid, txn) -> {
+    })
+        .setPollIntervalMillis(0)
+        .setFetchParallelism(1)
+        .build();
+    Thread poller = new Thread(watcher::poll);
+    poller.start();
+    assertTrue(fetching.await(5, TimeUnit.SECONDS));
+    watcher.close();
+    poller.join(5_000);
+    assertFalse(poller.isAlive());
+  }
+
+  private static String txid(int seed) {
+    StringBuilder txid = new StringBuilder();
+    for (int i = 0; i < 32; i++) {
+      txid.append(String.format("%02x", seed));
+    }
+    return txid.toString();
+  }
+
+  private static class FakePool implements PendingPoolWatcher.Source {
+
+    private volatile List<String> listed = Collections.emptyList();
+    private final Map<String, Boolean> gone = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Override
+    public List<String> getPendingTxids() {
+      return listed;
+    }
+
+    @Override
+    public Transaction getPendingTransaction(String txid) {
+      fetches.incrementAndGet();
+      if (gone.containsKey(txid)) {
+        return Transaction.getDefaultInstance();
+      }
+      return Transaction.newBuilder()
+          .setRawData(Transaction.raw.newBuilder().setRefBlockNum(txid.hashCode()))
+          .build();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Chain.Transaction.Result.contractResult;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Response.TransactionExtention;
+
+class ResourcePlannerTest {
+
+  private static final ByteString TOKEN =
+      ApiWrapper.parseAddress("TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t");
+  private static final ByteString TRANSFER = ApiWrapper.parseHex("a9059cbb" + "00ff");
+
+  @Test
+  void testSizeWithoutRet() {
+    Transaction txn = trigger(TRANSFER).toBuilder()
+        .addSignature(ByteString.copyFrom(new byte[65]))
+        .addRet(Transaction.Result.newBuilder().setContractRet(contractResult.SUCCESS))
+        .addRet(Transaction.Result.newBuilder().setFee(123456789L))
+        .build();
+
+    long expected = txn.toBuilder().clearRet().build().getSerializedSize();
+    assertEquals(expected, ResourcePlanner.sizeWithoutRet(txn));
+    assertEquals(expected + ResourcePlanner.MAX_RESULT_SIZE_IN_TX,
+        ResourcePlanner.bandwidth(txn));
+  }
+
+  @Test
+  void testLearnEnergy() {
+    ResourcePlanner planner = new ResourcePlanner(null);
+    assertEquals(-1, planner.getLearnedEnergy(TOKEN, TRANSFER));
+
+    planner.learn(TransactionExtention.newBuilder()
+        .setTransaction(trigger(TRANSFER)).setEnergyUsed(13_000L).build());
+    planner.learn(TOKEN, ApiWrapper.parseHex("a9059cbb" + "0001"), 29_000L);
+    planner.learn(TOKEN, TRANSFER, 14_000L);
+
+    // keyed by selector only, the largest value wins
+    assertEquals(29_000L, planner.getLearnedEnergy(TOKEN, TRANSFER));
+    assertEquals(-1, planner.getLearnedEnergy(TOKEN, ApiWrapper.parseHex("095ea7b3")));
+    assertThrows(IllegalArgumentException.class,
+        () -> planner.feeLimit(TOKEN, ApiWrapper.parseHex("095ea7b3")));
+  }
+
+  @Test
+  void testDataWithoutSelector() {
+    ResourcePlanner planner = new ResourcePlanner(null);
+    planner.learn(TOKEN, ByteString.EMPTY, 13_000L);
+    planner.learn(TOKEN, ApiWrapper.parseHex("a9059c"), 13_000L);
+    assertEquals(-1, planner.getLearnedEnergy(TOKEN, ByteString.EMPTY));
+    assertEquals(-1, planner.getLearnedEnergy(TOKEN, ApiWrapper.parseHex("a9059c")));
+    assertThrows(IllegalArgumentException.class,
+        () -> planner.feeLimit(TOKEN, ByteString.EMPTY));
+    assertThrows(IllegalArgumentException.class,
+        () -> planner.feeLimit(TOKEN, ApiWrapper.parseHex("a9059c"), 10));
+  }
+
+  @Test
+  void testPriceHistory() {
+    PriceHistory history = PriceHistory.parse("0:100,1575871200000:10,1606537680000:40");
+    assertEquals(100, history.priceAt(0));
+    assertEquals(100, history.priceAt(1575871199999L));
+    assertEquals(10, history.priceAt(1575871200000L));
+    assertEquals(40, history.priceAt(Long.MAX_VALUE));
+    assertEquals(40, history.latest());
+    assertEquals(-1, PriceHistory.parse("100:5").priceAt(99));
+    assertEquals(-1, PriceHistory.parse("").latest());
+    assertThrows(IllegalArgumentException.class, () -> PriceHistory.parse("0:1,abc"));
+    assertThrows(IllegalArgumentException.class, () -> PriceHistory.parse("5:1,4:2"));
+  }
+
+  private static Transaction trigger(ByteString data) {
+    TriggerSmartContract trigger = TriggerSmartContract.newBuilder()
+        .setOwnerAddress(TOKEN)
+        .setContractAddress(TOKEN)
+        .setData(data)
+        .build();
+    return Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .addContract(Transaction.Contract.newBuilder()
+                .setType(ContractType.TriggerSmartContract)
+                .setParameter(Any.pack(trigger))))
+        .build();
+  }
+}
@@ -0,0 +1,215 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ByteString;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionReturn;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+class ResubmitQueueTest {
+
+  private static final KeyPair KEY = KeyPair.generate();
+
+  @Test
+  void testStaleTransactionIsRebuiltAndResigned() throws Exception {
+    FakeNode node = new FakeNode(response_code.TRANSACTION_EXPIRATION_ERROR,
+        response_code.SUCCESS);
+    try (ResubmitQueue queue = queue(node)) {
+      Transaction original = transaction();
+      BroadcastResult result = queue.submit("payment-1", original).get();
+
+      assertTrue(result.isSuccess());
+      assertEquals(1, queue.getRebuildCount());
+      assertEquals(2, node.sent.size());
+      Transaction rebuilt = result.getTransaction();
+      assertNotEquals(original, rebuilt);
+      assertEquals(original.getRawData().getContract(0), rebuilt.getRawData().getContract(0));
+      assertEquals(original.getRawData().getData(), rebuilt.getRawData().getData());
+      assertEquals(ByteString.copyFrom(new byte[] {0, 100}),
+          rebuilt.getRawData().getRefBlockBytes());
+      assertEquals(1, rebuilt.getSignatureCount());
+      assertTrue(rebuilt.getRawData().getExpiration() >= 1_000_000L + 60_000L);
+      assertEquals(ByteArray.toHexString(ApiWrapper.calculateTransactionHash(rebuilt)),
+          result.getTxid());
+      assertTrue(SignatureValidator.verify(ApiWrapper.calculateTransactionHash(rebuilt),
+          rebuilt.getSignature(0).toByteArray(),
+          ApiWrapper.parseAddress(KEY.toBase58CheckAddress()).toByteArray()));
+
+      // the intent already completed, nothing is sent again
+      assertSame(result, queue.submit("payment-1", original).get());
+      assertEquals(2, node.sent.size());
+      assertEquals(0, queue.getActiveCount());
+    }
+  }
+
+  @Test
+  void testExecutedStaleTransactionIsNotRebuilt() throws Exception {
+    FakeNode node = new FakeNode(response_code.TRANSACTION_EXPIRATION_ERROR,
+        response_code.SUCCESS);
+    Transaction original = transaction();
+    String txid = ByteArray.toHexString(ApiWrapper.calculateTransactionHash(original));
+    node.executed.add(txid);
+    try (ResubmitQueue queue = queue(node)) {
+      BroadcastResult result = queue.submit("payment-6", original).get();
+      assertTrue(result.isAccepted());
+      assertEquals(response_code.DUP_TRANSACTION_ERROR, result.getCode());
+      assertSame(original, result.getTransaction());
+      assertEquals(txid, result.getTxid());
+      assertEquals(1, node.sent.size());
+      assertEquals(0, queue.getRebuildCount());
+    }
+  }
+
+  @Test
+  void testTransientErrorResubmitsSameTransaction() throws Exception {
+    FakeNode node = new FakeNode(response_code.SERVER_BUSY, response_code.DUP_TRANSACTION_ERROR);
+    try (ResubmitQueue queue = queue(node)) {
+      Transaction original = transaction();
+      BroadcastResult result = queue.submit("payment-2", original).get();
+      assertTrue(result.isAccepted());
+      assertFalse(result.isSuccess());
+      assertSame(original, result.getTransaction());
+      assertEquals(Arrays.asList(original, original), node.sent);
+      assertEquals(0, queue.getRebuildCount());
+    }
+  }
+
+  @Test
+  void testUnknownOutcomeIsNeverRebuilt() throws Exception {
+    FakeNode node = new FakeNode(null, response_code.TAPOS_ERROR);
+    try (ResubmitQueue queue = queue(node)) {
+      BroadcastResult result = queue.submit("payment-3", transaction()).get();
+      assertEquals(response_code.TAPOS_ERROR, result.getCode());
+      assertTrue(result.isStale());
+      assertEquals(0, queue.getRebuildCount());
+    }
+  }
+
+  @Test
+  void testPermanentErrorAndAttemptLimit() throws Exception {
+    FakeNode node = new FakeNode(response_code.CONTRACT_VALIDATE_ERROR);
+    try (ResubmitQueue queue = queue(node)) {
+      CompletableFuture<BroadcastResult> future = queue.submit("payment-4", transaction());
+      assertEquals(response_code.CONTRACT_VALIDATE_ERROR, future.get().getCode());
+      assertEquals(1, node.sent.size());
+    }
+
+    List<response_code> stale = new ArrayList<>(
+        Collections.nCopies(10, response_code.TRANSACTION_EXPIRATION_ERROR));
+    node = new FakeNode(stale.toArray(new response_code[0]));
+    try (ResubmitQueue queue = new ResubmitQueue.Builder(node, KEY)
+        .setResubmitsPerSecond(1_000)
+        .setRetryDelayMillis(0)
+        .setMaxAttempts(3)
+        .build()) {
+      BroadcastResult result = queue.submit("payment-5", transaction()).get();
+      assertTrue(result.isStale());
+      assertEquals(3, node.sent.size());
+      assertEquals(2, queue.getRebuildCount());
+    }
+  }
+
+  private static ResubmitQueue queue(FakeNode node) {
+    return new ResubmitQueue.Builder(node, KEY)
+        .setResubmitsPerSecond(1_000)
+        .setRetryDelayMillis(0)
+        .build();
+  }
+
+  private static Transaction transaction() {
+    TransferContract transfer = TransferContract.newBuilder()
+        .setOwnerAddress(ApiWrapper.parseAddress(KEY.toBase58CheckAddress()))
+        .setToAddress(ByteString.copyFrom(new byte[21]))
+        .setAmount(1_000)
+        .build();
+    Transaction unsigned = Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .addContract(Transaction.Contract.newBuilder()
+                .setType(ContractType.TransferContract)
+                .setParameter(Any.pack(transfer)))
+            .setRefBlockBytes(ByteString.copyFrom(new byte[] {0, 1}))
+            .setExpiration(1_000L)
+            .setData(ByteString.copyFromUtf8("memo")))
+        .build();
+    byte[] txid = ApiWrapper.calculateTransactionHash(unsigned);
+    return unsigned.toBuilder()
+        .addSignature(ByteString.copyFrom(KeyPair.signTransaction(txid, KEY)))
+        .build();
+  }
+
+  /**
+   * Answers broadcasts with the given codes in order, {@code null} meaning a gRPC failure.
+   */
+  private static final class FakeNode implements ResubmitQueue.Node {
+
+    private final Deque<response_code> codes = new ArrayDeque<>();
+    private final List<Transaction> sent = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> executed = ConcurrentHashMap.newKeySet();
+
+    FakeNode(response_code... codes) {
+      for (response_code code : codes) {
+        this.codes.add(code == null ? response_code.UNRECOGNIZED : code);
+      }
+    }
+
+    @Override
+    public synchronized BroadcastResult broadcast(Transaction txn) {
+      sent.add(txn);
+      response_code code = codes.poll();
+      if (code == response_code.UNRECOGNIZED) {
+        throw new RuntimeException("UNAVAILABLE");
+      }
+      TransactionReturn ret = TransactionReturn.newBuilder()
+          .setResult(code == response_code.SUCCESS)
+          .setCode(code)
+          .build();
+      return BroadcastResult.of(txn,
+          ByteArray.toHexString(ApiWrapper.calculateTransactionHash(txn)), ret);
+    }
+
+    @Override
+    public BlockExtention getSolidHead() {
+      return block(100, 990_000L);
+    }
+
+    @Override
+    public BlockExtention getHead() {
+      return block(120, 1_000_000L);
+    }
+
+    @Override
+    public boolean isExecuted(String txid) {
+      return executed.contains(txid);
+    }
+
+    private static BlockExtention block(long num, long timestamp) {
+      return BlockExtention.newBuilder()
+          .setBlockHeader(BlockHeader.newBuilder()
+              .setRawData(BlockHeader.raw.newBuilder().setNumber(num).setTimestamp(timestamp)))
+          .build();
+    }
+  }
+}
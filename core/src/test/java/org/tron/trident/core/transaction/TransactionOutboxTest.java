@@ -0,0 +1,242 @@
+package org.linda.trident.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.transaction.TransactionOutbox.Entry;
+import org.linda.trident.core.transaction.TransactionOutbox.State;
+import org.linda.trident.proto.Chain.Transaction;
+
+class TransactionOutboxTest {
+
+  private Path directory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("outbox");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  void testStatesSurviveReopen() throws IOException {
+    List<String> txids = new ArrayList<>();
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      for (int i = 0; i < 4; i++) {
+        txids.add(outbox.append(transaction(i)));
+      }
+      assertEquals(txids.get(0), outbox.append(transaction(0)));
+      assertEquals(4, outbox.getUnfinishedCount());
+
+      assertTrue(outbox.markBroadcast(txids.get(1)));
+      assertTrue(outbox.markConfirmed(txids.get(2)));
+      assertTrue(outbox.markExpired(txids.get(3)));
+      assertFalse(outbox.markConfirmed(txids.get(3)));
+      assertEquals(State.BROADCAST, outbox.getState(txids.get(1)));
+      assertNull(outbox.getState(txids.get(2)));
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      Map<String, Entry> entries = unfinished(outbox);
+      assertEquals(2, entries.size());
+      assertEquals(State.PENDING, entries.get(txids.get(0)).getState());
+      assertEquals(State.BROADCAST, entries.get(txids.get(1)).getState());
+      assertEquals(transaction(0), entries.get(txids.get(0)).getTransaction());
+    }
+  }
+
+  @Test
+  void testFinishedSegmentsAreDeleted() throws IOException {
+    List<String> txids = new ArrayList<>();
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory)
+        .setSegmentSize(1_000)
+        .build()) {
+      for (int i = 0; i < 50; i++) {
+        txids.add(outbox.append(transaction(i)));
+      }
+      long segments = Files.list(directory).count();
+      assertTrue(segments > 3);
+      for (int i = 0; i < 45; i++) {
+        outbox.markConfirmed(txids.get(i));
+      }
+      assertTrue(Files.list(directory).count() < segments);
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory)
+        .setSegmentSize(1_000)
+        .build()) {
+      assertEquals(txids.subList(45, 50).stream().sorted().collect(Collectors.toList()),
+          unfinished(outbox).keySet().stream().sorted().collect(Collectors.toList()));
+      // appends continue after the replayed records
+      txids.add(outbox.append(transaction(50)));
+      assertEquals(6, outbox.getUnfinishedCount());
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      assertEquals(6, outbox.getUnfinishedCount());
+    }
+  }
+
+  @Test
+  void testTornRecordIsTruncated() throws IOException {
+    String first;
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      first = outbox.append(transaction(1));
+      outbox.append(transaction(2));
+    }
+    Path segment = Files.list(directory).findFirst().get();
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      assertEquals(1, outbox.getUnfinishedCount());
+      assertEquals(State.PENDING, outbox.getState(first));
+      String third = outbox.append(transaction(3));
+      outbox.markBroadcast(third);
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      assertEquals(2, outbox.getUnfinishedCount());
+    }
+  }
+
+  @Test
+  void testCorruptedSegmentBeforeTheLastFails() throws IOException {
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory)
+        .setSegmentSize(1_000)
+        .build()) {
+      for (int i = 0; i < 50; i++) {
+        outbox.append(transaction(i));
+      }
+    }
+    List<Path> segments;
+    try (Stream<Path> files = Files.list(directory)) {
+      segments = files.sorted().collect(Collectors.toList());
+    }
+    assertTrue(segments.size() > 1);
+    long size = Files.size(segments.get(0));
+    try (FileChannel channel = FileChannel.open(segments.get(0), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xff}), size - 1);
+    }
+
+    assertThrows(IOException.class, () -> new TransactionOutbox.Builder(directory).build());
+    // nothing was truncated
+    assertEquals(size, Files.size(segments.get(0)));
+  }
+
+  @Test
+  void testConcurrentAppends() throws Exception {
+    int threads = 8;
+    int perThread = 250;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory)
+        .setSegmentSize(64 << 10)
+        .build()) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int base = t * perThread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            outbox.append(transaction(base + i));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      assertEquals(threads * perThread, outbox.getUnfinishedCount());
+    } finally {
+      executor.shutdown();
+    }
+
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      assertEquals(threads * perThread, outbox.getUnfinishedCount());
+    }
+  }
+
+  /**
+   * Durable appends per second with many threads sharing their fsyncs, after a warm-up round.
+   */
+  @Test
+  void testConcurrentAppendThroughput() throws Exception {
+    int threads = 64;
+    int perThread = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (TransactionOutbox outbox = new TransactionOutbox.Builder(directory).build()) {
+      appendConcurrently(executor, outbox, threads, perThread, 0);
+      long begin = System.nanoTime();
+      appendConcurrently(executor, outbox, threads, perThread, threads * perThread);
+      double appendsPerSecond = threads * perThread / ((System.nanoTime() - begin) / 1e9);
+
+      assertEquals(2 * threads * perThread, outbox.getUnfinishedCount());
+      assertTrue(appendsPerSecond > 10_000, appendsPerSecond + " appends per second");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void appendConcurrently(ExecutorService executor, TransactionOutbox outbox,
+      int threads, int perThread, int firstSeed) throws Exception {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int base = firstSeed + t * perThread;
+      tasks.add(() -> {
+        for (int i = 0; i < perThread; i++) {
+          outbox.append(transaction(base + i));
+        }
+        return null;
+      });
+    }
+    for (Future<Void> future : executor.invokeAll(tasks)) {
+      future.get();
+    }
+  }
+
+  private static Map<String, Entry> unfinished(TransactionOutbox outbox) {
+    Map<String, Entry> entries = new HashMap<>();
+    for (Entry entry : outbox.getUnfinished()) {
+      entries.put(entry.getTxid(), entry);
+    }
+    return entries;
+  }
+
+  private static Transaction transaction(int seed) {
+    return Transaction.newBuilder()
+        .setRawData(Transaction.raw.newBuilder()
+            .setRefBlockNum(seed)
+            .setExpiration(1_000L + seed))
+        .addSignature(ByteString.copyFrom(new byte[65]))
+        .build();
+  }
+}
@@ -0,0 +1,51 @@
+package org.linda.trident.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class FixedWidthBytesMapTest {
+
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(42);
+    FixedWidthBytesMap<Integer> map = new FixedWidthBytesMap<>(21, 4);
+    Map<ByteBuffer, Integer> expected = new HashMap<>();
+    byte[][] keys = new byte[2000][];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new byte[21];
+      keys[i][0] = 0x41;
+      random.nextBytes(keys[i]);
+      keys[i][0] = 0x41;
+    }
+
+    for (int round = 0; round < 50_000; round++) {
+      byte[] key = keys[random.nextInt(keys.length)];
+      ByteBuffer wrapped = ByteBuffer.wrap(key);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(wrapped), map.remove(key));
+      } else {
+        assertEquals(expected.put(wrapped, round), map.put(key.clone(), round));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (byte[] key : keys) {
+      assertEquals(expected.get(ByteBuffer.wrap(key)), map.get(key));
+    }
+  }
+
+  @Test
+  public void testOffsetLookup() {
+    FixedWidthBytesMap<String> map = new FixedWidthBytesMap<>(4, 0);
+    map.put(new byte[] {1, 2, 3, 4}, "a");
+    assertEquals("a", map.get(new byte[] {9, 9, 1, 2, 3, 4, 9}, 2));
+    assertNull(map.get(new byte[] {9, 1, 2, 3, 4}, 0));
+    assertThrows(IllegalArgumentException.class, () -> map.put(new byte[3], "b"));
+  }
+}
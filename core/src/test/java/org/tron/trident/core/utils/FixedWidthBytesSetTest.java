@@ -0,0 +1,52 @@
+package org.linda.trident.core.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class FixedWidthBytesSetTest {
+
+  @Test
+  public void testAgainstHashSet() {
+    Random random = new Random(42);
+    FixedWidthBytesSet set = new FixedWidthBytesSet(21, 4);
+    Set<ByteBuffer> expected = new HashSet<>();
+    byte[][] keys = new byte[2000][];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new byte[21];
+      random.nextBytes(keys[i]);
+      keys[i][0] = 0x41;
+    }
+
+    for (int round = 0; round < 50_000; round++) {
+      byte[] key = keys[random.nextInt(keys.length)];
+      ByteBuffer wrapped = ByteBuffer.wrap(key);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(wrapped), set.remove(key));
+      } else {
+        assertEquals(expected.add(wrapped), set.add(key.clone()));
+      }
+      assertEquals(expected.size(), set.size());
+    }
+    for (byte[] key : keys) {
+      assertEquals(expected.contains(ByteBuffer.wrap(key)), set.contains(key));
+    }
+  }
+
+  @Test
+  public void testOffsetLookup() {
+    FixedWidthBytesSet set = new FixedWidthBytesSet(4, 0);
+    assertTrue(set.add(new byte[] {1, 2, 3, 4}));
+    assertFalse(set.add(new byte[] {1, 2, 3, 4}));
+    assertTrue(set.contains(new byte[] {9, 9, 1, 2, 3, 4, 9}, 2));
+    assertFalse(set.contains(new byte[] {9, 1, 2, 3, 4}, 0));
+    assertThrows(IllegalArgumentException.class, () -> set.add(new byte[3]));
+  }
+}
@@ -0,0 +1,405 @@
+package org.linda.trident.loadgen;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load run.
+ */
+public final class LoadConfig {
+
+  static final String USAGE = String.join("\n",
+      "Usage: loadgen [options]",
+      "  --fullnode <host:port>       full node gRPC endpoint",
+      "  --solidity <host:port>       solidity node gRPC endpoint",
+      "  --private-key <hex>          key signing the transactions",
+      "  --api-key <key>              API key header, optional",
+      "  --fake                       run against an in-process fake node instead",
+      "  --rate <ops/s>               open-loop target rate, 0 for closed loop (default 100)",
+      "  --concurrency <n>            worker threads (default 16)",
+      "  --duration <s>               measured duration (default 30)",
+      "  --warmup <s>                 unmeasured warmup before it (default 5)",
+      "  --mix <op:weight,...>        transfer, lrc20, constant (default transfer:1)",
+      "  --to <address>               receiver of the transfers (default a new address)",
+      "  --lrc20 <address>            LRC-20 contract of lrc20 and constant operations",
+      "  --fee-limit <sun>            fee limit of LRC-20 transfers (default 30000000)",
+      "  --confirm                    wait for each transaction info on the solidity node",
+      "  --confirm-timeout <s>        confirmations still missing then are failures (default 90)",
+      "  --confirm-poll <ms>          interval between confirmation scans (default 3000)",
+      "  --max-outstanding <n>        scheduled operations not finished yet before new ones are",
+      "                               skipped and counted (default 100000)");
+
+  private final String fullNode;
+  private final String solidityNode;
+  private final String privateKey;
+  private final String apiKey;
+  private final boolean fake;
+  private final double rate;
+  private final int concurrency;
+  private final long durationSeconds;
+  private final long warmupSeconds;
+  private final Map<Operation, Integer> mix;
+  private final String toAddress;
+  private final String lrc20Address;
+  private final long feeLimit;
+  private final boolean confirm;
+  private final long confirmTimeoutSeconds;
+  private final long confirmPollMillis;
+  private final int maxOutstanding;
+
+  private LoadConfig(Builder builder) {
+    this.fullNode = builder.fullNode;
+    this.solidityNode = builder.solidityNode;
+    this.privateKey = builder.privateKey;
+    this.apiKey = builder.apiKey;
+    this.fake = builder.fake;
+    this.rate = builder.rate;
+    this.concurrency = builder.concurrency;
+    this.durationSeconds = builder.durationSeconds;
+    this.warmupSeconds = builder.warmupSeconds;
+    this.mix = Collections.unmodifiableMap(new EnumMap<>(builder.mix));
+    this.toAddress = builder.toAddress;
+    this.lrc20Address = builder.lrc20Address;
+    this.feeLimit = builder.feeLimit;
+    this.confirm = builder.confirm;
+    this.confirmTimeoutSeconds = builder.confirmTimeoutSeconds;
+    this.confirmPollMillis = builder.confirmPollMillis;
+    this.maxOutstanding = builder.maxOutstanding;
+  }
+
+  /**
+   * Parse command line options, {@code --name value} or {@code --name=value}.
+   *
+   * @throws IllegalArgumentException on unknown or invalid options
+   */
+  public static LoadConfig parse(String[] args) {
+    Builder builder = new Builder();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument " + arg);
+      }
+      String name = arg.substring(2);
+      String value = null;
+      int eq = name.indexOf('=');
+      if (eq >= 0) {
+        value = name.substring(eq + 1);
+        name = name.substring(0, eq);
+      }
+      if ("fake".equals(name) || "confirm".equals(name)) {
+        boolean flag = value == null || Boolean.parseBoolean(value);
+        if ("fake".equals(name)) {
+          builder.setFake(flag);
+        } else {
+          builder.setConfirm(flag);
+        }
+        continue;
+      }
+      if (value == null) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value of --" + name);
+        }
+        value = args[++i];
+      }
+      switch (name) {
+        case "fullnode":
+          builder.setFullNode(value);
+          break;
+        case "solidity":
+          builder.setSolidityNode(value);
+          break;
+        case "private-key":
+          builder.setPrivateKey(value);
+          break;
+        case "api-key":
+          builder.setApiKey(value);
+          break;
+        case "rate":
+          builder.setRate(Double.parseDouble(value));
+          break;
+        case "concurrency":
+          builder.setConcurrency(Integer.parseInt(value));
+          break;
+        case "duration":
+          builder.setDurationSeconds(Long.parseLong(value));
+          break;
+        case "warmup":
+          builder.setWarmupSeconds(Long.parseLong(value));
+          break;
+        case "mix":
+          builder.clearMix();
+          for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            builder.setWeight(Operation.fromKey(parts[0]),
+                parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+          }
+          break;
+        case "to":
+          builder.setToAddress(value);
+          break;
+        case "lrc20":
+          builder.setLrc20Address(value);
+          break;
+        case "fee-limit":
+          builder.setFeeLimit(Long.parseLong(value));
+          break;
+        case "confirm-timeout":
+          builder.setConfirmTimeoutSeconds(Long.parseLong(value));
+          break;
+        case "confirm-poll":
+          builder.setConfirmPollMillis(Long.parseLong(value));
+          break;
+        case "max-outstanding":
+          builder.setMaxOutstanding(Integer.parseInt(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option --" + name);
+      }
+    }
+    return builder.build();
+  }
+
+  public String getFullNode() {
+    return fullNode;
+  }
+
+  public String getSolidityNode() {
+    return solidityNode;
+  }
+
+  public String getPrivateKey() {
+    return privateKey;
+  }
+
+  public String getApiKey() {
+    return apiKey;
+  }
+
+  public boolean isFake() {
+    return fake;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public long getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public long getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  /**
+   * Relative weights of the operations, zero weights left out.
+   */
+  public Map<Operation, Integer> getMix() {
+    return mix;
+  }
+
+  public String getToAddress() {
+    return toAddress;
+  }
+
+  public String getLrc20Address() {
+    return lrc20Address;
+  }
+
+  public long getFeeLimit() {
+    return feeLimit;
+  }
+
+  public boolean isConfirm() {
+    return confirm;
+  }
+
+  public long getConfirmTimeoutSeconds() {
+    return confirmTimeoutSeconds;
+  }
+
+  public long getConfirmPollMillis() {
+    return confirmPollMillis;
+  }
+
+  public int getMaxOutstanding() {
+    return maxOutstanding;
+  }
+
+  public static class Builder {
+
+    private String fullNode;
+    private String solidityNode;
+    private String privateKey;
+    private String apiKey;
+    private boolean fake;
+    private double rate = 100;
+    private int concurrency = 16;
+    private long durationSeconds = 30;
+    private long warmupSeconds = 5;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private String toAddress;
+    private String lrc20Address;
+    private long feeLimit = 30_000_000L;
+    private boolean confirm;
+    private long confirmTimeoutSeconds = 90;
+    private long confirmPollMillis = 3_000L;
+    private int maxOutstanding = 100_000;
+
+    public Builder() {
+      mix.put(Operation.TRANSFER, 1);
+    }
+
+    public Builder setFullNode(String fullNode) {
+      this.fullNode = fullNode;
+      return this;
+    }
+
+    public Builder setSolidityNode(String solidityNode) {
+      this.solidityNode = solidityNode;
+      return this;
+    }
+
+    public Builder setPrivateKey(String privateKey) {
+      this.privateKey = privateKey;
+      return this;
+    }
+
+    public Builder setApiKey(String apiKey) {
+      this.apiKey = apiKey;
+      return this;
+    }
+
+    /**
+     * Run against an in-process fake node, funded for the run, instead of the endpoints.
+     */
+    public Builder setFake(boolean fake) {
+      this.fake = fake;
+      return this;
+    }
+
+    /**
+     * Operations started per second whatever the latency, or 0 to have each worker start the
+     * next operation when the previous one ends.
+     */
+    public Builder setRate(double rate) {
+      if (rate < 0) {
+        throw new IllegalArgumentException("rate must be >= 0");
+      }
+      this.rate = rate;
+      return this;
+    }
+
+    public Builder setConcurrency(int concurrency) {
+      if (concurrency <= 0) {
+        throw new IllegalArgumentException("concurrency must be > 0");
+      }
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    public Builder setDurationSeconds(long durationSeconds) {
+      if (durationSeconds <= 0) {
+        throw new IllegalArgumentException("duration must be > 0");
+      }
+      this.durationSeconds = durationSeconds;
+      return this;
+    }
+
+    public Builder setWarmupSeconds(long warmupSeconds) {
+      if (warmupSeconds < 0) {
+        throw new IllegalArgumentException("warmup must be >= 0");
+      }
+      this.warmupSeconds = warmupSeconds;
+      return this;
+    }
+
+    public Builder clearMix() {
+      mix.clear();
+      return this;
+    }
+
+    public Builder setWeight(Operation operation, int weight) {
+      if (weight < 0) {
+        throw new IllegalArgumentException("weight must be >= 0");
+      }
+      if (weight == 0) {
+        mix.remove(operation);
+      } else {
+        mix.put(operation, weight);
+      }
+      return this;
+    }
+
+    public Builder setToAddress(String toAddress) {
+      this.toAddress = toAddress;
+      return this;
+    }
+
+    public Builder setLrc20Address(String lrc20Address) {
+      this.lrc20Address = lrc20Address;
+      return this;
+    }
+
+    public Builder setFeeLimit(long feeLimit) {
+      if (feeLimit <= 0) {
+        throw new IllegalArgumentException("feeLimit must be > 0");
+      }
+      this.feeLimit = feeLimit;
+      return this;
+    }
+
+    public Builder setConfirm(boolean confirm) {
+      this.confirm = confirm;
+      return this;
+    }
+
+    public Builder setConfirmTimeoutSeconds(long confirmTimeoutSeconds) {
+      if (confirmTimeoutSeconds <= 0) {
+        throw new IllegalArgumentException("confirmTimeout must be > 0");
+      }
+      this.confirmTimeoutSeconds = confirmTimeoutSeconds;
+      return this;
+    }
+
+    /**
+     * Interval between scans of new solid blocks, to shorten below the block interval of a fast
+     * test chain.
+     */
+    public Builder setConfirmPollMillis(long confirmPollMillis) {
+      if (confirmPollMillis <= 0) {
+        throw new IllegalArgumentException("confirmPoll must be > 0");
+      }
+      this.confirmPollMillis = confirmPollMillis;
+      return this;
+    }
+
+    public Builder setMaxOutstanding(int maxOutstanding) {
+      if (maxOutstanding <= 0) {
+        throw new IllegalArgumentException("maxOutstanding must be > 0");
+      }
+      this.maxOutstanding = maxOutstanding;
+      return this;
+    }
+
+    public LoadConfig build() {
+      if (mix.isEmpty()) {
+        throw new IllegalArgumentException("mix must not be empty");
+      }
+      if (!fake && (fullNode == null || solidityNode == null || privateKey == null)) {
+        throw new IllegalArgumentException(
+            "--fullnode, --solidity and --private-key are required without --fake");
+      }
+      if (!fake && lrc20Address == null && (mix.containsKey(Operation.LRC20_TRANSFER)
+          || mix.containsKey(Operation.CONSTANT_CALL))) {
+        throw new IllegalArgumentException("--lrc20 is required by lrc20 and constant operations");
+      }
+      return new LoadConfig(this);
+    }
+  }
+}
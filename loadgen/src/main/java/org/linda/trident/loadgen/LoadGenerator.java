@@ -0,0 +1,390 @@
+package org.linda.trident.loadgen;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.StatusRuntimeException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.linda.trident.abi.FunctionEncoder;
+import org.linda.trident.abi.datatypes.Address;
+import org.linda.trident.abi.datatypes.Function;
+import org.linda.trident.abi.datatypes.generated.Uint256;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.core.transaction.BroadcastResult;
+import org.linda.trident.core.transaction.ConfirmationTracker;
+import org.linda.trident.fixtures.FakeNode;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+
+/**
+ * Drives a mix of transfers, LRC-20 transfers and constant calls through an {@link ApiWrapper}
+ * and reports the latency of each phase.
+ *
+ * <p>With a rate, operations are scheduled open loop: operation {@code i} is due at
+ * {@code start + i / rate} whether or not earlier ones have finished, and its latencies are
+ * measured from that due time, so a slow node shows up as queueing time instead of as a lower
+ * request rate (coordinated omission). Without a rate, each worker starts its next operation
+ * when the previous one ends. Operations due during the warmup are run but not measured.</p>
+ *
+ * <pre>
+ * loadgen --fullnode 127.0.0.1:50051 --solidity 127.0.0.1:50061 --private-key $KEY \
+ *     --rate 200 --duration 60 --mix transfer:8,lrc20:1,constant:1 --lrc20 $TOKEN --confirm
+ * loadgen --fake --rate 500 --mix transfer:1,constant:1
+ * </pre>
+ */
+public class LoadGenerator {
+
+  private static final int MAX_ERROR_KINDS = 32;
+  private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+  private final LoadConfig config;
+  private final ApiWrapper wrapper;
+  private final ConfirmationTracker tracker;
+  private final String owner;
+  private final String toAddress;
+  private final String lrc20Address;
+  private final String balanceOfData;
+  private final Operation[] wheel;
+  private final Map<Operation, Map<Phase, LatencyHistogram>> histograms =
+      new EnumMap<>(Operation.class);
+  private final Map<Operation, AtomicLong> completed = new EnumMap<>(Operation.class);
+  private final Map<Operation, AtomicLong> failed = new EnumMap<>(Operation.class);
+  private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong outstanding = new AtomicLong();
+  private final AtomicLong sequence = new AtomicLong();
+  private volatile long measureStart;
+  private volatile long measuredNanos;
+  private volatile long unconfirmed;
+
+  /**
+   * @param wrapper the wrapper to drive, signing with its key
+   */
+  public LoadGenerator(LoadConfig config, ApiWrapper wrapper) {
+    this.config = config;
+    this.wrapper = wrapper;
+    this.tracker = config.isConfirm() ? new ConfirmationTracker.Builder(wrapper)
+        .setPollIntervalMillis(config.getConfirmPollMillis())
+        .build() : null;
+    this.owner = wrapper.keyPair.toBase58CheckAddress();
+    this.toAddress = config.getToAddress() != null ? config.getToAddress()
+        : KeyPair.generate().toBase58CheckAddress();
+    this.lrc20Address = config.getLrc20Address() != null ? config.getLrc20Address()
+        : KeyPair.generate().toBase58CheckAddress();
+    this.balanceOfData = FunctionEncoder.encode(new Function("balanceOf",
+        Collections.singletonList(new Address(owner)), Collections.emptyList()));
+    List<Operation> slots = new ArrayList<>();
+    for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+      slots.addAll(Collections.nCopies(entry.getValue(), entry.getKey()));
+    }
+    this.wheel = slots.toArray(new Operation[0]);
+    for (Operation operation : Operation.values()) {
+      Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+      for (Phase phase : Phase.values()) {
+        phases.put(phase, new LatencyHistogram());
+      }
+      histograms.put(operation, phases);
+      completed.put(operation, new AtomicLong());
+      failed.put(operation, new AtomicLong());
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadConfig config;
+    try {
+      config = LoadConfig.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(LoadConfig.USAGE);
+      System.exit(2);
+      return;
+    }
+    FakeNode node = null;
+    ApiWrapper wrapper;
+    if (config.isFake()) {
+      node = new FakeNode.Builder().setBlockIntervalMillis(3_000L).build();
+      KeyPair keyPair = config.getPrivateKey() != null
+          ? new KeyPair(config.getPrivateKey()) : KeyPair.generate();
+      node.getChain().setBalance(keyPair.toBase58CheckAddress(), Long.MAX_VALUE / 2);
+      wrapper = node.newApiWrapper(keyPair);
+    } else if (config.getApiKey() != null) {
+      wrapper = new ApiWrapper(config.getFullNode(), config.getSolidityNode(),
+          config.getPrivateKey(), config.getApiKey());
+    } else {
+      wrapper = new ApiWrapper(config.getFullNode(), config.getSolidityNode(),
+          config.getPrivateKey());
+    }
+    try {
+      LoadGenerator generator = new LoadGenerator(config, wrapper);
+      generator.run();
+      generator.printReport(System.out);
+    } finally {
+      wrapper.close();
+      if (node != null) {
+        node.close();
+      }
+    }
+  }
+
+  /**
+   * Run the warmup and the measured duration, then wait for the confirmations still pending.
+   */
+  public void run() throws InterruptedException {
+    ExecutorService workers = Executors.newFixedThreadPool(config.getConcurrency(),
+        new ThreadFactoryBuilder().setNameFormat("trident-loadgen-%d").setDaemon(true).build());
+    long start = System.nanoTime();
+    measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+    long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+    try {
+      if (config.getRate() > 0) {
+        schedule(workers, start, end);
+      } else {
+        for (int i = 0; i < config.getConcurrency(); i++) {
+          workers.execute(() -> {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+              outstanding.incrementAndGet();
+              execute(nextOperation(), now);
+            }
+          });
+        }
+      }
+      workers.shutdown();
+      workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      measuredNanos = end - measureStart;
+      if (tracker != null) {
+        long deadline = System.nanoTime()
+            + TimeUnit.SECONDS.toNanos(config.getConfirmTimeoutSeconds());
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+          Thread.sleep(100);
+        }
+        unconfirmed = outstanding.get();
+      }
+    } finally {
+      workers.shutdownNow();
+      if (tracker != null) {
+        tracker.close();
+      }
+    }
+  }
+
+  /**
+   * Start operations at their due times, open loop.
+   */
+  private void schedule(ExecutorService workers, long start, long end) {
+    double intervalNanos = 1e9 / config.getRate();
+    for (long i = 0; ; i++) {
+      long due = start + (long) (i * intervalNanos);
+      if (due >= end) {
+        return;
+      }
+      long wait;
+      while ((wait = due - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      if (outstanding.get() >= config.getMaxOutstanding()) {
+        if (due >= measureStart) {
+          skipped.incrementAndGet();
+        }
+        continue;
+      }
+      outstanding.incrementAndGet();
+      Operation operation = nextOperation();
+      workers.execute(() -> execute(operation, due));
+    }
+  }
+
+  private Operation nextOperation() {
+    return wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+  }
+
+  private void execute(Operation operation, long due) {
+    boolean measured = due >= measureStart;
+    Map<Phase, LatencyHistogram> phases = histograms.get(operation);
+    long started = System.nanoTime();
+    if (measured) {
+      phases.get(Phase.QUEUE).record(started - due);
+    }
+    try {
+      long amount = 1 + sequence.incrementAndGet() % 1_000_000;
+      if (operation == Operation.CONSTANT_CALL) {
+        wrapper.triggerConstantContract(owner, lrc20Address, balanceOfData);
+        if (measured) {
+          phases.get(Phase.CALL).record(System.nanoTime() - started);
+        }
+        finish(operation, due, measured);
+        return;
+      }
+      TransactionExtention built = operation == Operation.TRANSFER
+          ? wrapper.transfer(owner, toAddress, amount)
+          : wrapper.triggerContract(owner, lrc20Address, transferData(amount), 0, 0, null,
+              config.getFeeLimit());
+      long signing = System.nanoTime();
+      Transaction signed = wrapper.signTransaction(built);
+      // registered before broadcasting, so that a block scanned in between is not missed
+      CompletableFuture<TransactionInfo> confirmation = tracker != null
+          ? tracker.track(signed) : null;
+      long broadcasting = System.nanoTime();
+      BroadcastResult result = wrapper.broadcast(signed);
+      long broadcast = System.nanoTime();
+      if (!result.isSuccess()) {
+        if (confirmation != null) {
+          confirmation.cancel(false);
+        }
+        fail(operation, result.getCode().name(), measured);
+        return;
+      }
+      if (measured) {
+        phases.get(Phase.BUILD).record(signing - started);
+        phases.get(Phase.SIGN).record(broadcasting - signing);
+        phases.get(Phase.BROADCAST).record(broadcast - broadcasting);
+      }
+      if (confirmation == null) {
+        finish(operation, due, measured);
+        return;
+      }
+      confirmation.whenComplete((info, e) -> {
+        if (e != null) {
+          fail(operation, describe(e), measured);
+        } else if (info.getResult() == TransactionInfo.code.FAILED) {
+          fail(operation, "FAILED " + info.getResMessage().toStringUtf8(), measured);
+        } else {
+          if (measured) {
+            phases.get(Phase.CONFIRM).record(System.nanoTime() - broadcast);
+          }
+          finish(operation, due, measured);
+        }
+      });
+    } catch (Exception e) {
+      fail(operation, describe(e), measured);
+    }
+  }
+
+  private String transferData(long amount) {
+    return FunctionEncoder.encode(new Function("transfer",
+        Arrays.asList(new Address(toAddress), new Uint256(BigInteger.valueOf(amount))),
+        Collections.emptyList()));
+  }
+
+  private void finish(Operation operation, long due, boolean measured) {
+    if (measured) {
+      histograms.get(operation).get(Phase.TOTAL).record(System.nanoTime() - due);
+      completed.get(operation).incrementAndGet();
+    }
+    outstanding.decrementAndGet();
+  }
+
+  private void fail(Operation operation, String error, boolean measured) {
+    if (measured) {
+      failed.get(operation).incrementAndGet();
+      String kind = errors.size() < MAX_ERROR_KINDS || errors.containsKey(error) ? error : "other";
+      errors.computeIfAbsent(kind, k -> new AtomicLong()).incrementAndGet();
+    }
+    outstanding.decrementAndGet();
+  }
+
+  private static String describe(Throwable e) {
+    Throwable cause = e.getCause() != null && !(e instanceof StatusRuntimeException)
+        ? e.getCause() : e;
+    if (cause instanceof StatusRuntimeException) {
+      return ((StatusRuntimeException) cause).getStatus().getCode().name();
+    }
+    String message = cause.getMessage();
+    if (message != null && message.length() > 80) {
+      message = message.substring(0, 80);
+    }
+    return cause.getClass().getSimpleName() + (message == null ? "" : ": " + message);
+  }
+
+  public LatencyHistogram getHistogram(Operation operation, Phase phase) {
+    return histograms.get(operation).get(phase);
+  }
+
+  /**
+   * Number of measured operations finished successfully, confirmation included when enabled.
+   */
+  public long getCompletedCount(Operation operation) {
+    return completed.get(operation).get();
+  }
+
+  public long getFailedCount(Operation operation) {
+    return failed.get(operation).get();
+  }
+
+  /**
+   * Number of measured operations not started because too many were outstanding.
+   */
+  public long getSkippedCount() {
+    return skipped.get();
+  }
+
+  /**
+   * Number of broadcast transactions still unconfirmed after the confirmation timeout.
+   */
+  public long getUnconfirmedCount() {
+    return unconfirmed;
+  }
+
+  /**
+   * Failure counts by error, e.g. a response code or a gRPC status.
+   */
+  public Map<String, Long> getErrors() {
+    Map<String, Long> counts = new TreeMap<>();
+    errors.forEach((error, count) -> counts.put(error, count.get()));
+    return counts;
+  }
+
+  public void printReport(PrintStream out) {
+    double seconds = measuredNanos / 1e9;
+    out.printf("%-10s %-10s %9s %10s %10s %10s %10s%n", "operation", "phase", "count",
+        "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+    for (Operation operation : Operation.values()) {
+      if (!config.getMix().containsKey(operation)) {
+        continue;
+      }
+      for (Phase phase : Phase.values()) {
+        LatencyHistogram histogram = getHistogram(operation, phase);
+        if (histogram.getCount() == 0) {
+          continue;
+        }
+        out.printf("%-10s %-10s %9d", operation.getKey(), phase, histogram.getCount());
+        for (double quantile : QUANTILES) {
+          out.printf(" %10.3f", histogram.getValueAtQuantile(quantile) / 1e6);
+        }
+        out.printf(" %10.3f%n", histogram.getMax() / 1e6);
+      }
+    }
+    out.println();
+    for (Operation operation : Operation.values()) {
+      if (config.getMix().containsKey(operation)) {
+        out.printf("%-10s %d completed, %d failed, %.1f ops/s%n", operation.getKey(),
+            getCompletedCount(operation), getFailedCount(operation),
+            getCompletedCount(operation) / seconds);
+      }
+    }
+    if (skipped.get() > 0) {
+      out.printf("skipped    %d, more than %d operations outstanding%n", skipped.get(),
+          config.getMaxOutstanding());
+    }
+    if (unconfirmed > 0) {
+      out.printf("unconfirmed %d after %d s%n", unconfirmed, config.getConfirmTimeoutSeconds());
+    }
+    getErrors().forEach((error, count) -> out.printf("error      %d x %s%n", count, error));
+  }
+}
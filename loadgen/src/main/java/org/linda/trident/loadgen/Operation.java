@@ -0,0 +1,41 @@
+package org.linda.trident.loadgen;
+
+/**
+ * The kinds of requests a load run mixes.
+ */
+public enum Operation {
+  /**
+   * A LIND transfer: built, signed and broadcast.
+   */
+  TRANSFER("transfer"),
+  /**
+   * An LRC-20 {@code transfer(address,uint256)}: built, signed and broadcast.
+   */
+  LRC20_TRANSFER("lrc20"),
+  /**
+   * An LRC-20 {@code balanceOf(address)} constant call.
+   */
+  CONSTANT_CALL("constant");
+
+  private final String key;
+
+  Operation(String key) {
+    this.key = key;
+  }
+
+  /**
+   * The name of the operation in {@code --mix}.
+   */
+  public String getKey() {
+    return key;
+  }
+
+  public static Operation fromKey(String key) {
+    for (Operation operation : values()) {
+      if (operation.key.equals(key)) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown operation " + key);
+  }
+}
@@ -0,0 +1,29 @@
+package org.linda.trident.loadgen;
+
+/**
+ * The steps of an operation whose latencies are reported.
+ */
+public enum Phase {
+  /**
+   * From the scheduled start to the actual start, the time spent waiting for a free worker.
+   */
+  QUEUE,
+  /**
+   * Creating the transaction, reference block queries included.
+   */
+  BUILD,
+  SIGN,
+  BROADCAST,
+  /**
+   * A constant call.
+   */
+  CALL,
+  /**
+   * From the end of the broadcast to the transaction info on the solidity node.
+   */
+  CONFIRM,
+  /**
+   * From the scheduled start to the end of the last phase.
+   */
+  TOTAL
+}
@@ -0,0 +1,39 @@
+package org.linda.trident.loadgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testBucketsCoverEveryValue() {
+    long[] values = {0, 1, 127, 128, 129, 255, 256, 1_000, 123_456_789L, Long.MAX_VALUE};
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.upperBound(index) >= value);
+      assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < value);
+    }
+  }
+
+  @Test
+  void testQuantiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtQuantile(0.5));
+    for (long micros = 1; micros <= 10_000; micros++) {
+      histogram.record(micros * 1_000);
+    }
+    assertEquals(10_000, histogram.getCount());
+    assertEquals(10_000_000L, histogram.getMax());
+    assertWithin(5_000_000L, histogram.getValueAtQuantile(0.5));
+    assertWithin(9_900_000L, histogram.getValueAtQuantile(0.99));
+    assertWithin(9_990_000L, histogram.getValueAtQuantile(0.999));
+    assertEquals(10_000_000L, histogram.getValueAtQuantile(1));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected * 1.016,
+        "expected about " + expected + " but was " + actual);
+  }
+}
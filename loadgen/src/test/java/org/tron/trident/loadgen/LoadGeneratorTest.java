@@ -0,0 +1,66 @@
+package org.linda.trident.loadgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.fixtures.FakeNode;
+
+class LoadGeneratorTest {
+
+  @Test
+  void testOpenLoopAgainstFakeNode() throws Exception {
+    LoadConfig config = LoadConfig.parse(new String[] {
+        "--fake", "--rate", "100", "--concurrency=4", "--duration", "1", "--warmup", "0",
+        "--mix", "transfer:2,lrc20:1,constant:1", "--confirm", "--confirm-timeout", "10",
+        "--confirm-poll", "50"});
+    KeyPair keyPair = KeyPair.generate();
+    try (FakeNode node = new FakeNode.Builder().setBlockIntervalMillis(100).build()) {
+      node.getChain().setBalance(keyPair.toBase58CheckAddress(), 1_000_000_000L);
+      ApiWrapper wrapper = node.newApiWrapper(keyPair);
+      try {
+        LoadGenerator generator = new LoadGenerator(config, wrapper);
+        generator.run();
+
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+          assertEquals(0, generator.getFailedCount(operation), generator.getErrors().toString());
+          assertTrue(generator.getCompletedCount(operation) > 0);
+          assertEquals(generator.getCompletedCount(operation),
+              generator.getHistogram(operation, Phase.TOTAL).getCount());
+          total += generator.getCompletedCount(operation);
+        }
+        assertEquals(100, total, 2);
+        assertEquals(0, generator.getUnconfirmedCount());
+        assertEquals(generator.getCompletedCount(Operation.TRANSFER),
+            generator.getHistogram(Operation.TRANSFER, Phase.CONFIRM).getCount());
+        assertEquals(0, generator.getHistogram(Operation.CONSTANT_CALL, Phase.SIGN).getCount());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.printReport(new PrintStream(out, true));
+        String report = out.toString();
+        assertTrue(report.contains("transfer   CONFIRM"), report);
+        assertTrue(report.contains("constant   CALL"), report);
+      } finally {
+        wrapper.close();
+      }
+    }
+  }
+
+  @Test
+  void testParseRejectsIncompleteConfig() {
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadConfig.parse(new String[] {"--rate", "10"}));
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadConfig.parse(new String[] {"--fake", "--mix", "swap:1"}));
+    LoadConfig config = LoadConfig.parse(new String[] {"--fullnode", "a:1", "--solidity", "b:1",
+        "--private-key", "00", "--rate", "0", "--mix", "transfer:3,constant:0"});
+    assertEquals(0, config.getRate());
+    assertEquals(1, config.getMix().size());
+  }
+}
@@ -0,0 +1,340 @@
+package org.linda.trident.fixtures;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.transaction.BlockId;
+import org.linda.trident.core.transaction.ContractParsers;
+import org.linda.trident.core.transaction.SignatureValidator;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.core.utils.Sha256Hash;
+import org.linda.trident.proto.Chain.BlockHeader;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Chain.Transaction.Contract;
+import org.linda.trident.proto.Chain.Transaction.Contract.ContractType;
+import org.linda.trident.proto.Contract.TransferContract;
+import org.linda.trident.proto.Response.Account;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionReturn;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+/**
+ * An in-memory chain: accounts with balances, blocks, the pending pool and transaction infos.
+ *
+ * <p>Broadcast transactions are checked like a node does for expiration, reference block,
+ * duplicates, the signature of the contract owner and, for transfers, the balance, then kept
+ * pending until {@link #produceBlock()} packs them. Only {@code TransferContract} changes
+ * state; other contracts are packed as successful without effect. Blocks are 3 seconds apart
+ * from the genesis timestamp, whatever the wall clock, so tests control time by producing
+ * blocks. The last {@link #setSolidityLag solidity lag} blocks are not solid yet.</p>
+ *
+ * <p>All methods are synchronized.</p>
+ */
+public class FakeChain {
+
+  static final long BLOCK_INTERVAL_MILLIS = 3_000L;
+  private static final long MAX_EXPIRATION_MILLIS = 24 * 3600 * 1000L;
+  private static final int REF_BLOCK_WINDOW = 65536;
+
+  private final Map<ByteString, Long> balances = new HashMap<>();
+  private final List<BlockExtention> blocks = new ArrayList<>();
+  private final Map<ByteString, Transaction> pending = new LinkedHashMap<>();
+  private final Map<ByteString, Transaction> transactions = new HashMap<>();
+  private final Map<ByteString, TransactionInfo> infos = new HashMap<>();
+  private final List<List<TransactionInfo>> blockInfos = new ArrayList<>();
+  private int solidityLag;
+
+  /**
+   * A chain with a genesis block at the current time.
+   */
+  public FakeChain() {
+    this(System.currentTimeMillis());
+  }
+
+  public FakeChain(long genesisTimestamp) {
+    BlockHeader.raw raw = BlockHeader.raw.newBuilder()
+        .setNumber(0)
+        .setTimestamp(genesisTimestamp)
+        .build();
+    append(raw, new ArrayList<>(), new ArrayList<>());
+  }
+
+  /**
+   * Number of latest blocks the solidity node does not serve yet, 0 by default.
+   */
+  public synchronized void setSolidityLag(int solidityLag) {
+    if (solidityLag < 0) {
+      throw new IllegalArgumentException("solidityLag must be >= 0");
+    }
+    this.solidityLag = solidityLag;
+  }
+
+  public synchronized void setBalance(ByteString address, long balance) {
+    balances.put(address, balance);
+  }
+
+  /**
+   * @param address base58check or hex address
+   */
+  public void setBalance(String address, long balance) {
+    setBalance(ApiWrapper.parseAddress(address), balance);
+  }
+
+  public synchronized long getBalance(ByteString address) {
+    return balances.getOrDefault(address, 0L);
+  }
+
+  /**
+   * The account, or an empty account if it does not exist, as a node returns.
+   */
+  public synchronized Account getAccount(ByteString address) {
+    Long balance = balances.get(address);
+    if (balance == null) {
+      return Account.getDefaultInstance();
+    }
+    return Account.newBuilder().setAddress(address).setBalance(balance).build();
+  }
+
+  /**
+   * Check a broadcast transaction and add it to the pending pool.
+   */
+  public synchronized TransactionReturn submit(Transaction txn) {
+    ByteString txid = ByteString.copyFrom(ApiWrapper.calculateTransactionHash(txn));
+    Transaction.raw raw = txn.getRawData();
+    long headTime = getHead().getBlockHeader().getRawData().getTimestamp();
+    if (raw.getExpiration() <= headTime
+        || raw.getExpiration() > headTime + MAX_EXPIRATION_MILLIS) {
+      return reject(response_code.TRANSACTION_EXPIRATION_ERROR, "transaction expired");
+    }
+    if (!isReferenced(raw)) {
+      return reject(response_code.TAPOS_ERROR, "reference block not found");
+    }
+    if (pending.containsKey(txid) || transactions.containsKey(txid)) {
+      return reject(response_code.DUP_TRANSACTION_ERROR, "dup transaction");
+    }
+    if (raw.getContractCount() != 1) {
+      return reject(response_code.CONTRACT_VALIDATE_ERROR, "one contract per transaction");
+    }
+    Message parameter;
+    try {
+      parameter = ContractParsers.parse(raw.getContract(0));
+    } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+      return reject(response_code.CONTRACT_VALIDATE_ERROR, e.getMessage());
+    }
+    FieldDescriptor ownerField = parameter.getDescriptorForType().findFieldByName("owner_address");
+    if (txn.getSignatureCount() == 0 || ownerField == null
+        || !SignatureValidator.verify(txid.toByteArray(), txn.getSignature(0).toByteArray(),
+            ((ByteString) parameter.getField(ownerField)).toByteArray())) {
+      return reject(response_code.SIGERROR, "signature does not match the owner");
+    }
+    if (parameter instanceof TransferContract) {
+      TransferContract transfer = (TransferContract) parameter;
+      if (transfer.getAmount() <= 0) {
+        return reject(response_code.CONTRACT_VALIDATE_ERROR, "amount must be greater than 0");
+      }
+      if (getBalance(transfer.getOwnerAddress()) < transfer.getAmount()) {
+        return reject(response_code.CONTRACT_VALIDATE_ERROR, "balance is not sufficient");
+      }
+    }
+    pending.put(txid, txn);
+    return TransactionReturn.newBuilder()
+        .setResult(true)
+        .setCode(response_code.SUCCESS)
+        .build();
+  }
+
+  /**
+   * Pack the pending transactions not expired yet into a new block, 3 seconds after the head.
+   *
+   * @return the new head
+   */
+  public synchronized BlockExtention produceBlock() {
+    BlockExtention parent = getHead();
+    BlockHeader.raw raw = BlockHeader.raw.newBuilder()
+        .setNumber(parent.getBlockHeader().getRawData().getNumber() + 1)
+        .setTimestamp(parent.getBlockHeader().getRawData().getTimestamp() + BLOCK_INTERVAL_MILLIS)
+        .setParentHash(parent.getBlockid())
+        .build();
+    List<TransactionExtention> packed = new ArrayList<>();
+    List<TransactionInfo> packedInfos = new ArrayList<>();
+    Iterator<Map.Entry<ByteString, Transaction>> it = pending.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<ByteString, Transaction> entry = it.next();
+      it.remove();
+      Transaction txn = entry.getValue();
+      if (txn.getRawData().getExpiration() <= raw.getTimestamp()) {
+        continue;
+      }
+      String failure = execute(txn.getRawData().getContract(0));
+      txn = txn.toBuilder()
+          .addRet(Transaction.Result.newBuilder()
+              .setRet(failure == null ? Transaction.Result.code.SUCESS
+                  : Transaction.Result.code.FAILED)
+              .setContractRet(failure == null ? Transaction.Result.contractResult.SUCCESS
+                  : Transaction.Result.contractResult.DEFAULT))
+          .build();
+      packed.add(TransactionExtention.newBuilder()
+          .setTransaction(txn)
+          .setTxid(entry.getKey())
+          .setResult(TransactionReturn.newBuilder().setResult(true))
+          .build());
+      TransactionInfo.Builder info = TransactionInfo.newBuilder()
+          .setId(entry.getKey())
+          .setBlockNumber(raw.getNumber())
+          .setBlockTimeStamp(raw.getTimestamp())
+          .setResult(failure == null ? TransactionInfo.code.SUCESS : TransactionInfo.code.FAILED);
+      if (failure != null) {
+        info.setResMessage(ByteString.copyFromUtf8(failure));
+      }
+      packedInfos.add(info.build());
+    }
+    return append(raw, packed, packedInfos);
+  }
+
+  public synchronized BlockExtention getHead() {
+    return blocks.get(blocks.size() - 1);
+  }
+
+  public synchronized long getHeadNumber() {
+    return blocks.size() - 1;
+  }
+
+  /**
+   * The latest block served by the solidity node.
+   */
+  public synchronized BlockExtention getSolidHead() {
+    return blocks.get((int) getSolidNumber());
+  }
+
+  public synchronized long getSolidNumber() {
+    return Math.max(0, getHeadNumber() - solidityLag);
+  }
+
+  /**
+   * The block, or {@code null} if not produced yet.
+   */
+  public synchronized BlockExtention getBlock(long num) {
+    return num >= 0 && num < blocks.size() ? blocks.get((int) num) : null;
+  }
+
+  /**
+   * The block with the given id, or {@code null}.
+   */
+  public synchronized BlockExtention getBlock(ByteString blockId) {
+    if (blockId.size() != 32) {
+      return null;
+    }
+    long num = new BlockId(Sha256Hash.wrap(blockId)).getNum();
+    BlockExtention block = getBlock(num);
+    return block != null && block.getBlockid().equals(blockId) ? block : null;
+  }
+
+  /**
+   * The packed transaction with its result, or {@code null}.
+   */
+  public synchronized Transaction getTransaction(ByteString txid) {
+    return transactions.get(txid);
+  }
+
+  /**
+   * The info of a packed transaction, or {@code null}.
+   */
+  public synchronized TransactionInfo getTransactionInfo(ByteString txid) {
+    return infos.get(txid);
+  }
+
+  public synchronized List<TransactionInfo> getTransactionInfos(long num) {
+    return num >= 0 && num < blockInfos.size()
+        ? blockInfos.get((int) num) : new ArrayList<>();
+  }
+
+  /**
+   * Transaction ids of the pending pool, in arrival order.
+   */
+  public synchronized List<ByteString> getPendingIds() {
+    return new ArrayList<>(pending.keySet());
+  }
+
+  /**
+   * The pending transaction, or {@code null}.
+   */
+  public synchronized Transaction getPending(ByteString txid) {
+    return pending.get(txid);
+  }
+
+  private BlockExtention append(BlockHeader.raw raw, List<TransactionExtention> packed,
+      List<TransactionInfo> packedInfos) {
+    BlockId id = new BlockId(Sha256Hash.of(true, raw.toByteArray()), raw.getNumber());
+    BlockExtention block = BlockExtention.newBuilder()
+        .setBlockHeader(BlockHeader.newBuilder().setRawData(raw))
+        .setBlockid(ByteString.copyFrom(id.getBytes()))
+        .addAllTransactions(packed)
+        .build();
+    blocks.add(block);
+    blockInfos.add(packedInfos);
+    for (TransactionExtention txn : packed) {
+      transactions.put(txn.getTxid(), txn.getTransaction());
+    }
+    for (TransactionInfo info : packedInfos) {
+      infos.put(info.getId(), info);
+    }
+    return block;
+  }
+
+  private boolean isReferenced(Transaction.raw raw) {
+    byte[] refBytes = raw.getRefBlockBytes().toByteArray();
+    byte[] refHash = raw.getRefBlockHash().toByteArray();
+    long head = getHeadNumber();
+    for (long num = head; num >= 0 && num > head - REF_BLOCK_WINDOW; num--) {
+      byte[] numBytes = ByteArray.fromLong(num);
+      if (Arrays.equals(refBytes, ByteArray.subArray(numBytes, 6, 8))) {
+        byte[] id = blocks.get((int) num).getBlockid().toByteArray();
+        return Arrays.equals(refHash, ByteArray.subArray(id, 8, 16));
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Apply a contract.
+   *
+   * @return {@code null} on success, the failure message otherwise
+   */
+  private String execute(Contract contract) {
+    if (contract.getType() != ContractType.TransferContract) {
+      return null;
+    }
+    TransferContract transfer;
+    try {
+      transfer = contract.getParameter().unpack(TransferContract.class);
+    } catch (InvalidProtocolBufferException e) {
+      return e.getMessage();
+    }
+    long balance = getBalance(transfer.getOwnerAddress());
+    if (balance < transfer.getAmount()) {
+      return "balance is not sufficient";
+    }
+    balances.put(transfer.getOwnerAddress(), balance - transfer.getAmount());
+    balances.merge(transfer.getToAddress(), transfer.getAmount(), Long::sum);
+    return null;
+  }
+
+  private static TransactionReturn reject(response_code code, String message) {
+    return TransactionReturn.newBuilder()
+        .setResult(false)
+        .setCode(code)
+        .setMessage(ByteString.copyFromUtf8(message))
+        .build();
+  }
+}
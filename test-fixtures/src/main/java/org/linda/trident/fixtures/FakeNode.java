@@ -0,0 +1,152 @@
+package org.linda.trident.fixtures;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.key.KeyPair;
+
+/**
+ * A full node and a solidity node serving a {@link FakeChain} in process, to run clients
+ * without a network.
+ *
+ * <p>Both nodes go through the same {@link FaultInjector}. Blocks are produced every
+ * {@link Builder#setBlockIntervalMillis} when set, or by calling
+ * {@link FakeChain#produceBlock()}.</p>
+ *
+ * <pre>
+ * try (FakeNode node = new FakeNode.Builder().setBlockIntervalMillis(100).build()) {
+ *   node.getChain().setBalance(keyPair.toBase58CheckAddress(), 1_000_000L);
+ *   ApiWrapper wrapper = node.newApiWrapper(keyPair);
+ *   ...
+ *   wrapper.close();
+ * }
+ * </pre>
+ */
+public class FakeNode implements AutoCloseable {
+
+  private final FakeChain chain;
+  private final FaultInjector faultInjector;
+  private final String name;
+  private final Server server;
+  private final Server solidityServer;
+  private final ScheduledExecutorService producer;
+
+  private FakeNode(Builder builder) throws IOException {
+    this.chain = builder.chain;
+    this.faultInjector = builder.faultInjector;
+    this.name = InProcessServerBuilder.generateName();
+    this.server = InProcessServerBuilder.forName(name)
+        .addService(ServerInterceptors.intercept(new FakeWalletService(chain), faultInjector))
+        .build()
+        .start();
+    try {
+      this.solidityServer = InProcessServerBuilder.forName(name + "-solidity")
+          .addService(ServerInterceptors.intercept(new FakeWalletSolidityService(chain),
+              faultInjector))
+          .build()
+          .start();
+    } catch (IOException e) {
+      server.shutdownNow();
+      throw e;
+    }
+    if (builder.blockIntervalMillis > 0) {
+      producer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("trident-fake-node").setDaemon(true).build());
+      producer.scheduleAtFixedRate(chain::produceBlock, builder.blockIntervalMillis,
+          builder.blockIntervalMillis, TimeUnit.MILLISECONDS);
+    } else {
+      producer = null;
+    }
+  }
+
+  public FakeChain getChain() {
+    return chain;
+  }
+
+  public FaultInjector getFaultInjector() {
+    return faultInjector;
+  }
+
+  /**
+   * A new channel to the full node.
+   */
+  public ManagedChannel newChannel() {
+    return InProcessChannelBuilder.forName(name).build();
+  }
+
+  /**
+   * A new channel to the solidity node.
+   */
+  public ManagedChannel newSolidityChannel() {
+    return InProcessChannelBuilder.forName(name + "-solidity").build();
+  }
+
+  /**
+   * A wrapper on new channels to both nodes. Close it before the node.
+   */
+  public ApiWrapper newApiWrapper(KeyPair keyPair) {
+    return new ApiWrapper(newChannel(), newSolidityChannel(), keyPair);
+  }
+
+  @Override
+  public void close() {
+    if (producer != null) {
+      producer.shutdownNow();
+    }
+    server.shutdownNow();
+    solidityServer.shutdownNow();
+  }
+
+  public static class Builder {
+
+    private FakeChain chain;
+    private FaultInjector faultInjector;
+    private long blockIntervalMillis;
+
+    /**
+     * The chain to serve, a new one with a genesis block at the current time by default.
+     */
+    public Builder setChain(FakeChain chain) {
+      this.chain = chain;
+      return this;
+    }
+
+    public Builder setFaultInjector(FaultInjector faultInjector) {
+      this.faultInjector = faultInjector;
+      return this;
+    }
+
+    /**
+     * Wall-clock interval between produced blocks, 0 (blocks produced by the caller) by
+     * default. Block timestamps stay 3 seconds apart.
+     */
+    public Builder setBlockIntervalMillis(long blockIntervalMillis) {
+      if (blockIntervalMillis < 0) {
+        throw new IllegalArgumentException("blockIntervalMillis must be >= 0");
+      }
+      this.blockIntervalMillis = blockIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Start both nodes.
+     */
+    public FakeNode build() throws IOException {
+      if (chain == null) {
+        chain = new FakeChain();
+      }
+      if (faultInjector == null) {
+        faultInjector = new FaultInjector();
+      }
+      return new FakeNode(this);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package org.linda.trident.fixtures;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.linda.trident.api.GrpcAPI.AccountAddressMessage;
+import org.linda.trident.api.GrpcAPI.BlockLimit;
+import org.linda.trident.api.GrpcAPI.BlockReq;
+import org.linda.trident.api.GrpcAPI.BytesMessage;
+import org.linda.trident.api.GrpcAPI.EmptyMessage;
+import org.linda.trident.api.GrpcAPI.NumberMessage;
+import org.linda.trident.api.GrpcAPI.TransactionIdList;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.utils.ByteArray;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Contract.TriggerSmartContract;
+import org.linda.trident.proto.Response.Account;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.BlockListExtention;
+import org.linda.trident.proto.Response.TransactionExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+import org.linda.trident.proto.Response.TransactionReturn;
+
+/**
+ * The full node service of a {@link FakeChain}: broadcast, accounts, blocks, transactions, the
+ * pending pool and constant calls. Other methods answer {@code UNIMPLEMENTED}.
+ */
+public class FakeWalletService extends WalletGrpc.WalletImplBase {
+
+  static final int MAX_BLOCK_RANGE = 100;
+
+  private final FakeChain chain;
+
+  public FakeWalletService(FakeChain chain) {
+    this.chain = chain;
+  }
+
+  @Override
+  public void broadcastTransaction(Transaction request,
+      StreamObserver<TransactionReturn> responseObserver) {
+    reply(responseObserver, chain.submit(request));
+  }
+
+  /**
+   * Answers every constant call with one zero word, as a view returning {@code 0} would.
+   */
+  @Override
+  public void triggerConstantContract(TriggerSmartContract request,
+      StreamObserver<TransactionExtention> responseObserver) {
+    reply(responseObserver, TransactionExtention.newBuilder()
+        .addConstantResult(ByteString.copyFrom(new byte[32]))
+        .setResult(TransactionReturn.newBuilder()
+            .setResult(true)
+            .setCode(TransactionReturn.response_code.SUCCESS))
+        .build());
+  }
+
+  @Override
+  public void getAccount(AccountAddressMessage request,
+      StreamObserver<Account> responseObserver) {
+    reply(responseObserver, chain.getAccount(request.getAddress()));
+  }
+
+  @Override
+  public void getBlock(BlockReq request, StreamObserver<BlockExtention> responseObserver) {
+    BlockExtention block = findBlock(chain, request, chain.getHeadNumber());
+    if (block == null) {
+      responseObserver.onError(Status.NOT_FOUND
+          .withDescription("block not found: " + request.getIdOrNum()).asRuntimeException());
+      return;
+    }
+    reply(responseObserver, block);
+  }
+
+  @Override
+  public void getNowBlock2(EmptyMessage request,
+      StreamObserver<BlockExtention> responseObserver) {
+    reply(responseObserver, chain.getHead());
+  }
+
+  @Override
+  public void getBlockByNum2(NumberMessage request,
+      StreamObserver<BlockExtention> responseObserver) {
+    reply(responseObserver, orEmpty(chain.getBlock(request.getNum())));
+  }
+
+  @Override
+  public void getBlockByLimitNext2(BlockLimit request,
+      StreamObserver<BlockListExtention> responseObserver) {
+    reply(responseObserver, blockRange(chain, request, chain.getHeadNumber()));
+  }
+
+  @Override
+  public void getTransactionById(BytesMessage request,
+      StreamObserver<Transaction> responseObserver) {
+    reply(responseObserver, orEmpty(chain.getTransaction(request.getValue())));
+  }
+
+  @Override
+  public void getTransactionInfoById(BytesMessage request,
+      StreamObserver<TransactionInfo> responseObserver) {
+    reply(responseObserver, orEmpty(chain.getTransactionInfo(request.getValue())));
+  }
+
+  @Override
+  public void getTransactionInfoByBlockNum(NumberMessage request,
+      StreamObserver<TransactionInfoList> responseObserver) {
+    reply(responseObserver, TransactionInfoList.newBuilder()
+        .addAllTransactionInfo(chain.getTransactionInfos(request.getNum()))
+        .build());
+  }
+
+  @Override
+  public void getTransactionListFromPending(EmptyMessage request,
+      StreamObserver<TransactionIdList> responseObserver) {
+    TransactionIdList.Builder ids = TransactionIdList.newBuilder();
+    for (ByteString txid : chain.getPendingIds()) {
+      ids.addTxId(ByteArray.toHexString(txid.toByteArray()));
+    }
+    reply(responseObserver, ids.build());
+  }
+
+  @Override
+  public void getTransactionFromPending(BytesMessage request,
+      StreamObserver<Transaction> responseObserver) {
+    reply(responseObserver, orEmpty(chain.getPending(request.getValue())));
+  }
+
+  @Override
+  public void getPendingSize(EmptyMessage request, StreamObserver<NumberMessage> responseObserver) {
+    reply(responseObserver, NumberMessage.newBuilder()
+        .setNum(chain.getPendingIds().size())
+        .build());
+  }
+
+  /**
+   * The block of a {@code getBlock} request among blocks up to {@code maxNum}: the latest one
+   * when {@code id_or_num} is empty, else by number or by hex id.
+   */
+  static BlockExtention findBlock(FakeChain chain, BlockReq request, long maxNum) {
+    String idOrNum = request.getIdOrNum();
+    BlockExtention block;
+    if (idOrNum.isEmpty()) {
+      block = chain.getBlock(maxNum);
+    } else if (idOrNum.length() == 64) {
+      block = chain.getBlock(ByteString.copyFrom(ByteArray.fromHexString(idOrNum)));
+    } else {
+      try {
+        block = chain.getBlock(Long.parseLong(idOrNum));
+      } catch (NumberFormatException e) {
+        block = null;
+      }
+    }
+    if (block == null || block.getBlockHeader().getRawData().getNumber() > maxNum) {
+      return null;
+    }
+    return request.getDetail() ? block : block.toBuilder().clearTransactions().build();
+  }
+
+  /**
+   * Blocks of {@code [startNum, endNum)} up to {@code maxNum}, at most 100 of them.
+   */
+  static BlockListExtention blockRange(FakeChain chain, BlockLimit request, long maxNum) {
+    BlockListExtention.Builder blocks = BlockListExtention.newBuilder();
+    long end = Math.min(Math.min(request.getEndNum(), request.getStartNum() + MAX_BLOCK_RANGE),
+        maxNum + 1);
+    for (long num = Math.max(0, request.getStartNum()); num < end; num++) {
+      blocks.addBlock(chain.getBlock(num));
+    }
+    return blocks.build();
+  }
+
+  static BlockExtention orEmpty(BlockExtention block) {
+    return block == null ? BlockExtention.getDefaultInstance() : block;
+  }
+
+  static Transaction orEmpty(Transaction txn) {
+    return txn == null ? Transaction.getDefaultInstance() : txn;
+  }
+
+  static TransactionInfo orEmpty(TransactionInfo info) {
+    return info == null ? TransactionInfo.getDefaultInstance() : info;
+  }
+
+  static <T> void reply(StreamObserver<T> responseObserver, T response) {
+    responseObserver.onNext(response);
+    responseObserver.onCompleted();
+  }
+}
@@ -0,0 +1,92 @@
+package org.linda.trident.fixtures;
+
+import static org.linda.trident.fixtures.FakeWalletService.findBlock;
+import static org.linda.trident.fixtures.FakeWalletService.orEmpty;
+import static org.linda.trident.fixtures.FakeWalletService.reply;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.Collections;
+import org.linda.trident.api.GrpcAPI.AccountAddressMessage;
+import org.linda.trident.api.GrpcAPI.BlockReq;
+import org.linda.trident.api.GrpcAPI.BytesMessage;
+import org.linda.trident.api.GrpcAPI.EmptyMessage;
+import org.linda.trident.api.GrpcAPI.NumberMessage;
+import org.linda.trident.api.WalletSolidityGrpc;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.Account;
+import org.linda.trident.proto.Response.BlockExtention;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionInfoList;
+
+/**
+ * The solidity node service of a {@link FakeChain}: blocks, transactions and transaction infos
+ * up to the solid head. Accounts are served from the latest state. Other methods answer
+ * {@code UNIMPLEMENTED}.
+ */
+public class FakeWalletSolidityService extends WalletSolidityGrpc.WalletSolidityImplBase {
+
+  private final FakeChain chain;
+
+  public FakeWalletSolidityService(FakeChain chain) {
+    this.chain = chain;
+  }
+
+  @Override
+  public void getAccount(AccountAddressMessage request,
+      StreamObserver<Account> responseObserver) {
+    reply(responseObserver, chain.getAccount(request.getAddress()));
+  }
+
+  @Override
+  public void getBlock(BlockReq request, StreamObserver<BlockExtention> responseObserver) {
+    BlockExtention block = findBlock(chain, request, chain.getSolidNumber());
+    if (block == null) {
+      responseObserver.onError(Status.NOT_FOUND
+          .withDescription("block not found: " + request.getIdOrNum()).asRuntimeException());
+      return;
+    }
+    reply(responseObserver, block);
+  }
+
+  @Override
+  public void getNowBlock2(EmptyMessage request,
+      StreamObserver<BlockExtention> responseObserver) {
+    reply(responseObserver, chain.getSolidHead());
+  }
+
+  @Override
+  public void getBlockByNum2(NumberMessage request,
+      StreamObserver<BlockExtention> responseObserver) {
+    reply(responseObserver, request.getNum() <= chain.getSolidNumber()
+        ? orEmpty(chain.getBlock(request.getNum())) : BlockExtention.getDefaultInstance());
+  }
+
+  @Override
+  public void getTransactionById(BytesMessage request,
+      StreamObserver<Transaction> responseObserver) {
+    TransactionInfo info = chain.getTransactionInfo(request.getValue());
+    reply(responseObserver, isSolid(info)
+        ? chain.getTransaction(request.getValue()) : Transaction.getDefaultInstance());
+  }
+
+  @Override
+  public void getTransactionInfoById(BytesMessage request,
+      StreamObserver<TransactionInfo> responseObserver) {
+    TransactionInfo info = chain.getTransactionInfo(request.getValue());
+    reply(responseObserver, isSolid(info) ? info : TransactionInfo.getDefaultInstance());
+  }
+
+  @Override
+  public void getTransactionInfoByBlockNum(NumberMessage request,
+      StreamObserver<TransactionInfoList> responseObserver) {
+    reply(responseObserver, TransactionInfoList.newBuilder()
+        .addAllTransactionInfo(request.getNum() <= chain.getSolidNumber()
+            ? chain.getTransactionInfos(request.getNum()) : Collections.emptyList())
+        .build());
+  }
+
+  private boolean isSolid(TransactionInfo info) {
+    return info != null && info.getBlockNumber() <= chain.getSolidNumber();
+  }
+}
@@ -0,0 +1,139 @@
+package org.linda.trident.fixtures;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delays and fails calls of a fake node, for all methods or per method.
+ *
+ * <p>A call first waits the latency of its method, plus a uniform random jitter, then fails with
+ * the configured status at the configured rate. Rules of a method replace the rules for all
+ * methods. Rules can be changed while calls run, e.g. to fail a node in the middle of a load
+ * test.</p>
+ *
+ * <pre>
+ * FaultInjector faults = node.getFaultInjector();
+ * faults.setLatency(20, 10);
+ * faults.setErrorRate(WalletGrpc.getBroadcastTransactionMethod().getFullMethodName(), 0.05,
+ *     Status.UNAVAILABLE);
+ * </pre>
+ */
+public class FaultInjector implements ServerInterceptor {
+
+  private static final String ALL = "";
+
+  private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+  private final AtomicLong injectedErrors = new AtomicLong();
+
+  public FaultInjector() {
+    rules.put(ALL, Rule.NONE);
+  }
+
+  /**
+   * Delay every call by {@code millis} plus up to {@code jitterMillis}.
+   */
+  public FaultInjector setLatency(long millis, long jitterMillis) {
+    return setLatency(ALL, millis, jitterMillis);
+  }
+
+  /**
+   * Delay the calls of one method by {@code millis} plus up to {@code jitterMillis}.
+   */
+  public FaultInjector setLatency(String fullMethodName, long millis, long jitterMillis) {
+    if (millis < 0 || jitterMillis < 0) {
+      throw new IllegalArgumentException("latency must be >= 0");
+    }
+    Rule rule = ruleOf(fullMethodName);
+    rules.put(fullMethodName, new Rule(millis, jitterMillis, rule.errorRate, rule.status));
+    return this;
+  }
+
+  /**
+   * Fail this fraction of all calls with {@code status}.
+   */
+  public FaultInjector setErrorRate(double errorRate, Status status) {
+    return setErrorRate(ALL, errorRate, status);
+  }
+
+  /**
+   * Fail this fraction of the calls of one method with {@code status}.
+   */
+  public FaultInjector setErrorRate(String fullMethodName, double errorRate, Status status) {
+    if (errorRate < 0 || errorRate > 1) {
+      throw new IllegalArgumentException("errorRate must be in [0, 1]");
+    }
+    Rule rule = ruleOf(fullMethodName);
+    rules.put(fullMethodName, new Rule(rule.latencyMillis, rule.jitterMillis, errorRate, status));
+    return this;
+  }
+
+  /**
+   * Remove every rule.
+   */
+  public void clear() {
+    rules.clear();
+    rules.put(ALL, Rule.NONE);
+  }
+
+  /**
+   * Number of calls failed on purpose.
+   */
+  public long getInjectedErrorCount() {
+    return injectedErrors.get();
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+      Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    Rule rule = ruleOf(call.getMethodDescriptor().getFullMethodName());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long delay = rule.latencyMillis
+        + (rule.jitterMillis > 0 ? random.nextLong(rule.jitterMillis + 1) : 0);
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        call.close(Status.CANCELLED.withCause(e), new Metadata());
+        return new ServerCall.Listener<ReqT>() {
+        };
+      }
+    }
+    if (rule.errorRate > 0 && random.nextDouble() < rule.errorRate) {
+      injectedErrors.incrementAndGet();
+      call.close(rule.status.withDescription("injected"), new Metadata());
+      return new ServerCall.Listener<ReqT>() {
+      };
+    }
+    return next.startCall(call, headers);
+  }
+
+  private Rule ruleOf(String fullMethodName) {
+    Rule rule = rules.get(fullMethodName);
+    return rule != null ? rule : rules.getOrDefault(ALL, Rule.NONE);
+  }
+
+  private static final class Rule {
+
+    private static final Rule NONE = new Rule(0, 0, 0, Status.OK);
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final Status status;
+
+    Rule(long latencyMillis, long jitterMillis, double errorRate, Status status) {
+      this.latencyMillis = latencyMillis;
+      this.jitterMillis = jitterMillis;
+      this.errorRate = errorRate;
+      this.status = status;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package org.linda.trident.fixtures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.linda.trident.api.WalletGrpc;
+import org.linda.trident.core.ApiWrapper;
+import org.linda.trident.core.NodeType;
+import org.linda.trident.core.exceptions.IllegalException;
+import org.linda.trident.core.key.KeyPair;
+import org.linda.trident.core.transaction.BroadcastResult;
+import org.linda.trident.core.transaction.ResubmitQueue;
+import org.linda.trident.proto.Chain.Transaction;
+import org.linda.trident.proto.Response.TransactionInfo;
+import org.linda.trident.proto.Response.TransactionReturn.response_code;
+
+class FakeNodeTest {
+
+  @Test
+  void testTransferThroughApiWrapper() throws Exception {
+    KeyPair sender = KeyPair.generate();
+    String receiver = KeyPair.generate().toBase58CheckAddress();
+    try (FakeNode node = new FakeNode.Builder().build()) {
+      FakeChain chain = node.getChain();
+      chain.setSolidityLag(1);
+      chain.setBalance(sender.toBase58CheckAddress(), 1_000_000L);
+      ApiWrapper wrapper = node.newApiWrapper(sender);
+      try {
+        Transaction signed = wrapper.signTransaction(
+            wrapper.transfer(sender.toBase58CheckAddress(), receiver, 1_000L));
+        String txid = wrapper.broadcastTransaction(signed);
+        assertEquals(1, wrapper.getPendingSize());
+        assertEquals(response_code.DUP_TRANSACTION_ERROR, wrapper.broadcast(signed).getCode());
+
+        chain.produceBlock();
+        TransactionInfo info = wrapper.getTransactionInfoById(txid);
+        assertEquals(1, info.getBlockNumber());
+        assertEquals(TransactionInfo.code.SUCESS, info.getResult());
+        assertEquals(1_000L, wrapper.getAccount(receiver).getBalance());
+        assertEquals(999_000L, wrapper.getAccount(sender.toBase58CheckAddress()).getBalance());
+        // not solid until the next block
+        assertThrows(IllegalException.class,
+            () -> wrapper.getTransactionInfoById(txid, NodeType.SOLIDITY_NODE));
+        chain.produceBlock();
+        assertEquals(info, wrapper.getTransactionInfoById(txid, NodeType.SOLIDITY_NODE));
+
+        BroadcastResult overdraft = wrapper.broadcast(wrapper.signTransaction(
+            wrapper.transfer(sender.toBase58CheckAddress(), receiver, 10_000_000L)));
+        assertEquals(response_code.CONTRACT_VALIDATE_ERROR, overdraft.getCode());
+        BroadcastResult unsigned = wrapper.broadcast(
+            wrapper.transfer(sender.toBase58CheckAddress(), receiver, 1L).getTransaction());
+        assertEquals(response_code.SIGERROR, unsigned.getCode());
+      } finally {
+        wrapper.close();
+      }
+    }
+  }
+
+  @Test
+  void testConcurrentClients() throws Exception {
+    int clients = 8;
+    int transfers = 25;
+    String receiver = KeyPair.generate().toBase58CheckAddress();
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    try (FakeNode node = new FakeNode.Builder().setBlockIntervalMillis(100).build()) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < clients; i++) {
+        KeyPair sender = KeyPair.generate();
+        node.getChain().setBalance(sender.toBase58CheckAddress(), 1_000_000L);
+        futures.add(executor.submit(() -> {
+          ApiWrapper wrapper = node.newApiWrapper(sender);
+          try {
+            for (int j = 0; j < transfers; j++) {
+              wrapper.broadcastTransaction(wrapper.signTransaction(
+                  wrapper.transfer(sender.toBase58CheckAddress(), receiver, 1L + j)));
+            }
+          } finally {
+            wrapper.close();
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      while (!node.getChain().getPendingIds().isEmpty()) {
+        Thread.sleep(10);
+      }
+      assertEquals(clients * (transfers * (transfers + 1) / 2),
+          node.getChain().getBalance(ApiWrapper.parseAddress(receiver)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testExecutedTransactionIsNotResubmitted() throws Exception {
+    KeyPair sender = KeyPair.generate();
+    String receiver = KeyPair.generate().toBase58CheckAddress();
+    try (FakeNode node = new FakeNode.Builder().build()) {
+      FakeChain chain = node.getChain();
+      chain.setBalance(sender.toBase58CheckAddress(), 1_000_000L);
+      ApiWrapper wrapper = node.newApiWrapper(sender);
+      try (ResubmitQueue queue = new ResubmitQueue.Builder(wrapper).build()) {
+        Transaction signed = wrapper.signTransaction(
+            wrapper.transfer(sender.toBase58CheckAddress(), receiver, 1_000L));
+        String txid = wrapper.broadcastTransaction(signed);
+        chain.produceBlock();
+        // past the expiration of the executed transaction
+        for (int i = 0; i < 30; i++) {
+          chain.produceBlock();
+        }
+        assertEquals(response_code.TRANSACTION_EXPIRATION_ERROR,
+            wrapper.broadcast(signed).getCode());
+
+        BroadcastResult result = queue.submit("payment", signed).get();
+        assertTrue(result.isAccepted());
+        assertEquals(txid, result.getTxid());
+        assertEquals(0, queue.getRebuildCount());
+        assertEquals(1_000L, wrapper.getAccount(receiver).getBalance());
+      } finally {
+        wrapper.close();
+      }
+    }
+  }
+
+  @Test
+  void testFaultInjection() throws Exception {
+    try (FakeNode node = new FakeNode.Builder().build()) {
+      FaultInjector faults = node.getFaultInjector();
+      ApiWrapper wrapper = node.newApiWrapper(KeyPair.generate());
+      try {
+        faults.setErrorRate(WalletGrpc.getGetNowBlock2Method().getFullMethodName(), 1,
+            Status.UNAVAILABLE);
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+            wrapper::getNowBlock2);
+        assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+        assertEquals(1, faults.getInjectedErrorCount());
+        // other methods follow the rules for all methods
+        assertEquals(0, wrapper.getPendingSize());
+
+        faults.clear();
+        faults.setLatency(50, 0);
+        long start = System.nanoTime();
+        assertEquals(0, wrapper.getNowBlock2().getBlockHeader().getRawData().getNumber());
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+      } finally {
+        wrapper.close();
+      }
+    }
+  }
+}